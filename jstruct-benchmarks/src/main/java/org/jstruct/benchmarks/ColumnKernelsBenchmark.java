@@ -0,0 +1,90 @@
+package org.jstruct.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.ColumnKernels;
+import org.jstruct.ColumnKernels.Comparison;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Column kernels against the equivalent scalar loops over {@code StructColumns} arrays. The fork adds the Vector API
+ * module; run with {@code -jvmArgsAppend -Dorg.jstruct.vector=false} to measure the scalar fallback.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class ColumnKernelsBenchmark {
+
+    private int size;
+
+    private int[] quantities;
+
+    private double[] prices;
+
+    private int[] selection;
+
+    @Setup(Level.Trial)
+    public void setUp(final OrderCollections data) {
+        size = (int) data.columns.size();
+        quantities = data.columns.intColumn(Orders.QUANTITY);
+        prices = data.columns.doubleColumn(Orders.PRICE);
+        selection = new int[size];
+    }
+
+    @Benchmark
+    public double sumKernel() {
+        return ColumnKernels.sum(prices, 0, size);
+    }
+
+    @Benchmark
+    public double sumLoop() {
+        double sum = 0;
+        for (int i = 0; i < size; ++i) {
+            sum += prices[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int maxKernel() {
+        return ColumnKernels.max(quantities, 0, size);
+    }
+
+    @Benchmark
+    public int maxLoop() {
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; ++i) {
+            max = Math.max(max, quantities[i]);
+        }
+        return max;
+    }
+
+    @Benchmark
+    public int filterKernel() {
+        return ColumnKernels.filter(quantities, 0, size, Comparison.GT, 500, selection);
+    }
+
+    @Benchmark
+    public int filterLoop() {
+        int count = 0;
+        for (int i = 0; i < size; ++i) {
+            if (quantities[i] > 500) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+package org.jstruct.benchmarks;
+
+import java.lang.foreign.Arena;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.OffHeapStructArray;
+import org.jstruct.StructArray;
+import org.jstruct.StructColumns;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Memory needed to hold the orders in every storage mode.
+ * <p>
+ * Collections are allocated with their exact size, so the heap footprint equals the bytes allocated per operation:
+ * run with {@code -prof gc} and read {@code gc.alloc.rate.norm}. Off-heap memory is invisible to that profiler and is
+ * reported by the {@code offHeapBytes} counter instead.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+
+    @Param({ "1000000" })
+    public int size;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class OffHeapCounters {
+
+        public long offHeapBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            offHeapBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public StructArray structArray() {
+        final StructArray orders = new StructArray(Orders.LAYOUT, size);
+        for (int i = 0; i < size; ++i) {
+            orders.add();
+        }
+        return orders;
+    }
+
+    @Benchmark
+    public StructColumns structColumns() {
+        final StructColumns orders = new StructColumns(Orders.LAYOUT, size);
+        for (int i = 0; i < size; ++i) {
+            orders.add();
+        }
+        return orders;
+    }
+
+    @Benchmark
+    public long offHeap(final OffHeapCounters counters) {
+        try (Arena arena = Arena.ofConfined()) {
+            final OffHeapStructArray orders = OffHeapStructArray.allocate(Orders.LAYOUT, size, arena);
+            counters.offHeapBytes += orders.segment().byteSize();
+            return orders.size();
+        }
+    }
+
+    @Benchmark
+    public List<Order> pojoList() {
+        return Orders.pojos(size);
+    }
+}
@@ -0,0 +1,83 @@
+package org.jstruct.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.StructHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups of existing keys in a struct hash map and in {@code HashMap<Long, Order>}; the score is the time per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(HashMapBenchmark.LOOKUPS)
+public class HashMapBenchmark {
+
+    static final int LOOKUPS = 1 << 16;
+
+    @Param({ "1000000" })
+    public int size;
+
+    private StructHashMap structMap;
+
+    private Map<Long, Order> pojoMap;
+
+    private long[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(42L);
+        final long[] all = new long[size];
+        structMap = new StructHashMap(Orders.LAYOUT, size);
+        pojoMap = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            all[i] = random.nextLong();
+            final long slot = structMap.put(all[i]);
+            structMap.setInt(slot, Orders.QUANTITY, i);
+            final Order order = new Order();
+            order.setQuantity(i);
+            pojoMap.put(all[i], order);
+        }
+        keys = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; ++i) {
+            keys[i] = all[random.nextInt(size)];
+        }
+    }
+
+    @Benchmark
+    public long structHashMap() {
+        long sum = 0;
+        for (final long key : keys) {
+            sum += structMap.getInt(structMap.indexOf(key), Orders.QUANTITY);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long pojoHashMap() {
+        long sum = 0;
+        for (final long key : keys) {
+            sum += pojoMap.get(key).getQuantity();
+        }
+        return sum;
+    }
+}
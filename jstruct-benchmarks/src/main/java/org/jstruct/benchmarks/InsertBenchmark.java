@@ -0,0 +1,92 @@
+package org.jstruct.benchmarks;
+
+import java.lang.foreign.Arena;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.OffHeapStructArray;
+import org.jstruct.StructArray;
+import org.jstruct.StructColumns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Appends records one by one to an empty collection, including the cost of growing it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBenchmark {
+
+    @Param({ "1000000" })
+    public int size;
+
+    @Benchmark
+    public StructArray structArray() {
+        final StructArray orders = new StructArray(Orders.LAYOUT);
+        for (int i = 0; i < size; ++i) {
+            final long index = orders.add();
+            orders.setLong(index, Orders.ID, i);
+            orders.setDouble(index, Orders.PRICE, i);
+            orders.setInt(index, Orders.QUANTITY, i);
+            orders.setByte(index, Orders.SIDE, (byte) i);
+        }
+        return orders;
+    }
+
+    @Benchmark
+    public StructColumns structColumns() {
+        final StructColumns orders = new StructColumns(Orders.LAYOUT);
+        for (int i = 0; i < size; ++i) {
+            final long index = orders.add();
+            orders.setLong(index, Orders.ID, i);
+            orders.setDouble(index, Orders.PRICE, i);
+            orders.setInt(index, Orders.QUANTITY, i);
+            orders.setByte(index, Orders.SIDE, (byte) i);
+        }
+        return orders;
+    }
+
+    /**
+     * Off-heap arrays have a fixed length, so this measures allocation plus filling.
+     */
+    @Benchmark
+    public long offHeap() {
+        try (Arena arena = Arena.ofConfined()) {
+            final OffHeapStructArray orders = OffHeapStructArray.allocate(Orders.LAYOUT, size, arena);
+            for (int i = 0; i < size; ++i) {
+                orders.setLong(i, Orders.ID, i);
+                orders.setDouble(i, Orders.PRICE, i);
+                orders.setInt(i, Orders.QUANTITY, i);
+                orders.setByte(i, Orders.SIDE, (byte) i);
+            }
+            return orders.getLong(size - 1, Orders.ID);
+        }
+    }
+
+    @Benchmark
+    public List<Order> pojoList() {
+        final List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < size; ++i) {
+            final Order order = new Order();
+            order.setId(i);
+            order.setPrice(i);
+            order.setQuantity(i);
+            order.setSide((byte) i);
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,47 @@
+package org.jstruct.benchmarks;
+
+/**
+ * Plain object counterpart of {@link Orders#LAYOUT}, used as the {@code ArrayList<POJO>} baseline.
+ */
+public final class Order {
+
+    private long id;
+
+    private double price;
+
+    private int quantity;
+
+    private byte side;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(final long id) {
+        this.id = id;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(final double price) {
+        this.price = price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(final int quantity) {
+        this.quantity = quantity;
+    }
+
+    public byte getSide() {
+        return side;
+    }
+
+    public void setSide(final byte side) {
+        this.side = side;
+    }
+}
@@ -0,0 +1,55 @@
+package org.jstruct.benchmarks;
+
+import java.lang.foreign.Arena;
+import java.util.List;
+
+import org.jstruct.OffHeapStructArray;
+import org.jstruct.StructArray;
+import org.jstruct.StructColumns;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The same orders in every storage mode, filled once per trial.
+ */
+@State(Scope.Benchmark)
+public class OrderCollections {
+
+    @Param({ "1000000" })
+    public int size;
+
+    StructArray array;
+
+    StructColumns columns;
+
+    OffHeapStructArray offHeap;
+
+    List<Order> pojos;
+
+    private Arena arena;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        array = new StructArray(Orders.LAYOUT, size);
+        columns = new StructColumns(Orders.LAYOUT, size);
+        for (int i = 0; i < size; ++i) {
+            array.add();
+            columns.add();
+        }
+        arena = Arena.ofShared();
+        offHeap = OffHeapStructArray.allocate(Orders.LAYOUT, size, arena);
+        Orders.fill(array);
+        Orders.fill(columns);
+        Orders.fill(offHeap);
+        pojos = Orders.pojos(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        arena.close();
+    }
+}
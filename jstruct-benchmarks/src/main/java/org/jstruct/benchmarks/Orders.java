@@ -0,0 +1,77 @@
+package org.jstruct.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.jstruct.StructCollection;
+import org.jstruct.StructField;
+import org.jstruct.StructLayout;
+
+/**
+ * Struct shared by all benchmarks and helpers to fill collections with the same pseudo-random data.
+ */
+final class Orders {
+
+    static final StructLayout LAYOUT = StructLayout.builder("Order")
+            .addLong("id")
+            .addDouble("price")
+            .addInt("quantity")
+            .addByte("side")
+            .build();
+
+    static final StructField ID = LAYOUT.field("id");
+
+    static final StructField PRICE = LAYOUT.field("price");
+
+    static final StructField QUANTITY = LAYOUT.field("quantity");
+
+    static final StructField SIDE = LAYOUT.field("side");
+
+    private static final long SEED = 42L;
+
+    private Orders() {
+    }
+
+    /**
+     * Fills the first {@code size()} records of a collection.
+     */
+    static void fill(final StructCollection orders) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        for (long i = 0; i < orders.size(); ++i) {
+            orders.setLong(i, ID, random.nextLong());
+            orders.setDouble(i, PRICE, random.nextDouble() * 1000.0);
+            orders.setInt(i, QUANTITY, random.nextInt(1000));
+            orders.setByte(i, SIDE, (byte) random.nextInt(2));
+        }
+    }
+
+    /**
+     * @return list with the same values as {@link #fill(StructCollection)} produces.
+     */
+    static List<Order> pojos(final int size) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final List<Order> orders = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            final Order order = new Order();
+            order.setId(random.nextLong());
+            order.setPrice(random.nextDouble() * 1000.0);
+            order.setQuantity(random.nextInt(1000));
+            order.setSide((byte) random.nextInt(2));
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * @return random indices in {@code [0, size)}.
+     */
+    static int[] randomIndices(final int size, final int count) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final int[] indices = new int[count];
+        for (int i = 0; i < count; ++i) {
+            indices[i] = random.nextInt(size);
+        }
+        return indices;
+    }
+}
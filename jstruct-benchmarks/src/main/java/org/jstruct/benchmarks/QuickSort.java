@@ -0,0 +1,63 @@
+package org.jstruct.benchmarks;
+
+import org.jstruct.StructCollection;
+import org.jstruct.StructField;
+
+/**
+ * Comparison sort of a struct collection by a {@code long} field that swaps whole records, used as the baseline for
+ * specialized struct sorts.
+ */
+final class QuickSort {
+
+    /**
+     * Exchanges two records of a collection.
+     */
+    @FunctionalInterface
+    interface Swapper {
+
+        void swap(long i, long j);
+    }
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private QuickSort() {
+    }
+
+    static void sort(final StructCollection records, final StructField key, final Swapper swapper) {
+        sort(records, key, swapper, 0, records.size() - 1);
+    }
+
+    private static void sort(final StructCollection records, final StructField key, final Swapper swapper,
+            long lo, long hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            final long mid = (lo + hi) >>> 1;
+            final long pivot = records.getLong(mid, key);
+            long i = lo;
+            long j = hi;
+            while (i <= j) {
+                while (records.getLong(i, key) < pivot) {
+                    ++i;
+                }
+                while (records.getLong(j, key) > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    swapper.swap(i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth.
+            if (j - lo < hi - i) {
+                sort(records, key, swapper, lo, j);
+                lo = i;
+            } else {
+                sort(records, key, swapper, i, hi);
+                hi = j;
+            }
+        }
+        for (long i = lo + 1; i <= hi; ++i) {
+            for (long j = i; j > lo && records.getLong(j - 1, key) > records.getLong(j, key); --j) {
+                swapper.swap(j - 1, j);
+            }
+        }
+    }
+}
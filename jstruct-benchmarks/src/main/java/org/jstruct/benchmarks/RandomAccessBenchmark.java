@@ -0,0 +1,78 @@
+package org.jstruct.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads two fields of records at random positions; the score is the time per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(RandomAccessBenchmark.LOOKUPS)
+public class RandomAccessBenchmark {
+
+    static final int LOOKUPS = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Indices {
+
+        int[] indices;
+
+        @Setup(Level.Trial)
+        public void setUp(final OrderCollections data) {
+            indices = Orders.randomIndices(data.size, LOOKUPS);
+        }
+    }
+
+    @Benchmark
+    public long structArray(final OrderCollections data, final Indices indices) {
+        long sum = 0;
+        for (final int index : indices.indices) {
+            sum += data.array.getLong(index, Orders.ID) + data.array.getInt(index, Orders.QUANTITY);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long structColumns(final OrderCollections data, final Indices indices) {
+        long sum = 0;
+        for (final int index : indices.indices) {
+            sum += data.columns.getLong(index, Orders.ID) + data.columns.getInt(index, Orders.QUANTITY);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long offHeap(final OrderCollections data, final Indices indices) {
+        long sum = 0;
+        for (final int index : indices.indices) {
+            sum += data.offHeap.getLong(index, Orders.ID) + data.offHeap.getInt(index, Orders.QUANTITY);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long pojoList(final OrderCollections data, final Indices indices) {
+        long sum = 0;
+        for (final int index : indices.indices) {
+            final Order order = data.pojos.get(index);
+            sum += order.getId() + order.getQuantity();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,57 @@
+package org.jstruct.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.ColumnKernels.Comparison;
+import org.jstruct.Selection;
+import org.jstruct.SortedIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sums the quantity of the orders with a price in a narrow range, found through a sorted index or by a full scan.
+ * The scan filters with the column kernels, so the fork adds the Vector API module.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class RangeQueryBenchmark {
+
+    private static final double FROM = 500.0;
+
+    private static final double TO = 501.0;
+
+    private SortedIndex byPrice;
+
+    @Setup(Level.Trial)
+    public void setUp(final OrderCollections data) {
+        byPrice = SortedIndex.of(data.columns, Orders.PRICE);
+    }
+
+    @Benchmark
+    public long sortedIndex(final OrderCollections data) {
+        return byPrice.range(FROM, TO).map(i -> data.columns.getInt(i, Orders.QUANTITY)).sum();
+    }
+
+    @Benchmark
+    public long selection(final OrderCollections data) {
+        return Selection.all(data.columns)
+                .where(Orders.PRICE, Comparison.GE, FROM)
+                .where(Orders.PRICE, Comparison.LT, TO)
+                .stream()
+                .map(i -> data.columns.getInt(i, Orders.QUANTITY))
+                .sum();
+    }
+}
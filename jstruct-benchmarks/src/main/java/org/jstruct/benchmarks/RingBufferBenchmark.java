@@ -0,0 +1,95 @@
+package org.jstruct.benchmarks;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.SpscStructRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One producer passing orders to one consumer through a struct ring buffer and through an
+ * {@code ArrayBlockingQueue<Order>}; the score is operations per microsecond on each side. Operations on a full or
+ * empty buffer fail instead of blocking, so that neither thread hangs when the other stops at the end of an iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class RingBufferBenchmark {
+
+    @Param({ "1024" })
+    public int capacity;
+
+    private SpscStructRingBuffer ring;
+
+    private ArrayBlockingQueue<Order> queue;
+
+    private long next;
+
+    @Setup
+    public void setUp() {
+        ring = new SpscStructRingBuffer(Orders.LAYOUT, capacity);
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Benchmark
+    @Group("ring")
+    @GroupThreads(1)
+    public boolean ringOffer() {
+        final long seq = ring.tryClaim();
+        if (seq < 0) {
+            return false;
+        }
+        ring.setLong(seq, Orders.ID, next++);
+        ring.setDouble(seq, Orders.PRICE, 100.0);
+        ring.setInt(seq, Orders.QUANTITY, 10);
+        ring.publish(seq);
+        return true;
+    }
+
+    @Benchmark
+    @Group("ring")
+    @GroupThreads(1)
+    public long ringPoll() {
+        final long seq = ring.tryPeek();
+        if (seq < 0) {
+            return -1;
+        }
+        final long id = ring.getLong(seq, Orders.ID) + ring.getInt(seq, Orders.QUANTITY);
+        ring.release(seq);
+        return id;
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public boolean queueOffer() {
+        final Order order = new Order();
+        order.setId(next++);
+        order.setPrice(100.0);
+        order.setQuantity(10);
+        return queue.offer(order);
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public long queuePoll() {
+        final Order order = queue.poll();
+        return order == null ? -1 : order.getId() + order.getQuantity();
+    }
+}
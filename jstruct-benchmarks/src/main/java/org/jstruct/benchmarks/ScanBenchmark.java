@@ -0,0 +1,98 @@
+package org.jstruct.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.FieldAccessor;
+import org.jstruct.StructArray;
+import org.jstruct.StructCursor;
+import org.jstruct.StructStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequential scan summing one field of every record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanBenchmark {
+
+    private static final FieldAccessor PRICE = FieldAccessor.of(Orders.PRICE);
+
+    @Benchmark
+    public double structArray(final OrderCollections data) {
+        double sum = 0;
+        for (long i = 0; i < data.array.size(); ++i) {
+            sum += data.array.getDouble(i, Orders.PRICE);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double structArrayCursor(final OrderCollections data) {
+        double sum = 0;
+        final StructCursor cursor = data.array.cursor();
+        while (cursor.next()) {
+            sum += cursor.getDouble(Orders.PRICE);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double structArrayFieldAccessor(final OrderCollections data) {
+        double sum = 0;
+        for (long i = 0; i < data.array.size(); ++i) {
+            sum += PRICE.getDouble(data.array, i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double structArrayParallel(final OrderCollections data) {
+        final StructArray array = data.array;
+        return StructStreams.parallelReduce(array, (from, to) -> {
+            double sum = 0;
+            for (long i = from; i < to; ++i) {
+                sum += array.getDouble(i, Orders.PRICE);
+            }
+            return sum;
+        }, Double::sum);
+    }
+
+    @Benchmark
+    public double structColumns(final OrderCollections data) {
+        final double[] prices = data.columns.doubleColumn(Orders.PRICE);
+        final int size = (int) data.columns.size();
+        double sum = 0;
+        for (int i = 0; i < size; ++i) {
+            sum += prices[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double offHeap(final OrderCollections data) {
+        double sum = 0;
+        final StructCursor cursor = data.offHeap.cursor();
+        while (cursor.next()) {
+            sum += cursor.getDouble(Orders.PRICE);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double pojoList(final OrderCollections data) {
+        double sum = 0;
+        for (final Order order : data.pojos) {
+            sum += order.getPrice();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,208 @@
+package org.jstruct.benchmarks;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jstruct.OffHeapStructArray;
+import org.jstruct.StructArray;
+import org.jstruct.StructColumns;
+import org.jstruct.StructSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts all records by {@code id}. Before every invocation, the sorted collection alone is restored to the same
+ * unsorted data from a copy taken once per trial.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SortBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class UnsortedArray {
+
+        private long[] ids;
+
+        private double[] prices;
+
+        private int[] quantities;
+
+        private byte[] sides;
+
+        StructArray records;
+
+        @Setup(Level.Trial)
+        public void setUp(final OrderCollections data) {
+            records = data.array;
+            final int size = (int) records.size();
+            ids = new long[size];
+            prices = new double[size];
+            quantities = new int[size];
+            sides = new byte[size];
+            for (int i = 0; i < size; ++i) {
+                ids[i] = records.getLong(i, Orders.ID);
+                prices[i] = records.getDouble(i, Orders.PRICE);
+                quantities[i] = records.getInt(i, Orders.QUANTITY);
+                sides[i] = records.getByte(i, Orders.SIDE);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void restore() {
+            for (int i = 0; i < ids.length; ++i) {
+                records.setLong(i, Orders.ID, ids[i]);
+                records.setDouble(i, Orders.PRICE, prices[i]);
+                records.setInt(i, Orders.QUANTITY, quantities[i]);
+                records.setByte(i, Orders.SIDE, sides[i]);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnsortedColumns {
+
+        private long[] ids;
+
+        private double[] prices;
+
+        private int[] quantities;
+
+        private byte[] sides;
+
+        StructColumns records;
+
+        @Setup(Level.Trial)
+        public void setUp(final OrderCollections data) {
+            records = data.columns;
+            final int size = (int) records.size();
+            ids = Arrays.copyOf(records.longColumn(Orders.ID), size);
+            prices = Arrays.copyOf(records.doubleColumn(Orders.PRICE), size);
+            quantities = Arrays.copyOf(records.intColumn(Orders.QUANTITY), size);
+            sides = Arrays.copyOf(records.byteColumn(Orders.SIDE), size);
+        }
+
+        @Setup(Level.Invocation)
+        public void restore() {
+            System.arraycopy(ids, 0, records.longColumn(Orders.ID), 0, ids.length);
+            System.arraycopy(prices, 0, records.doubleColumn(Orders.PRICE), 0, prices.length);
+            System.arraycopy(quantities, 0, records.intColumn(Orders.QUANTITY), 0, quantities.length);
+            System.arraycopy(sides, 0, records.byteColumn(Orders.SIDE), 0, sides.length);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnsortedOffHeap {
+
+        private MemorySegment template;
+
+        OffHeapStructArray records;
+
+        @Setup(Level.Trial)
+        public void setUp(final OrderCollections data) {
+            records = data.offHeap;
+            template = MemorySegment.ofArray(records.segment().toArray(ValueLayout.JAVA_BYTE));
+        }
+
+        @Setup(Level.Invocation)
+        public void restore() {
+            MemorySegment.copy(template, 0, records.segment(), 0, template.byteSize());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnsortedPojos {
+
+        private Order[] template;
+
+        List<Order> orders;
+
+        @Setup(Level.Trial)
+        public void setUp(final OrderCollections data) {
+            orders = data.pojos;
+            template = orders.toArray(new Order[0]);
+        }
+
+        @Setup(Level.Invocation)
+        public void restore() {
+            for (int i = 0; i < template.length; ++i) {
+                orders.set(i, template[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void structArrayQuickSort(final UnsortedArray data) {
+        QuickSort.sort(data.records, Orders.ID, data.records::swap);
+    }
+
+    @Benchmark
+    public void structColumnsQuickSort(final UnsortedColumns data) {
+        QuickSort.sort(data.records, Orders.ID, data.records::swap);
+    }
+
+    @Benchmark
+    public void offHeapQuickSort(final UnsortedOffHeap data) {
+        QuickSort.sort(data.records, Orders.ID, data.records::swap);
+    }
+
+    @Benchmark
+    public void structArrayRadixSort(final UnsortedArray data) {
+        StructSort.radixSort(data.records, Orders.ID);
+    }
+
+    @Benchmark
+    public void structColumnsRadixSort(final UnsortedColumns data) {
+        StructSort.radixSort(data.records, Orders.ID);
+    }
+
+    @Benchmark
+    public void offHeapRadixSort(final UnsortedOffHeap data) {
+        StructSort.radixSort(data.records, Orders.ID);
+    }
+
+    @Benchmark
+    public void structArrayParallelSort(final UnsortedArray data) {
+        StructSort.parallelSort(data.records, Orders.ID);
+    }
+
+    @Benchmark
+    public void offHeapParallelSort(final UnsortedOffHeap data) {
+        StructSort.parallelSort(data.records, Orders.ID);
+    }
+
+    @Benchmark
+    public void structArrayArgsort(final UnsortedArray data) {
+        data.records.permute(StructSort.argsort(data.records, Orders.ID));
+    }
+
+    @Benchmark
+    public void structColumnsArgsort(final UnsortedColumns data) {
+        data.records.permute(StructSort.argsort(data.records, Orders.ID));
+    }
+
+    @Benchmark
+    public void offHeapArgsort(final UnsortedOffHeap data) {
+        data.records.permute(StructSort.argsort(data.records, Orders.ID));
+    }
+
+    @Benchmark
+    public void pojoList(final UnsortedPojos data) {
+        data.orders.sort(Comparator.comparingLong(Order::getId));
+    }
+}
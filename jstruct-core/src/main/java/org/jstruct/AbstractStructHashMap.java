@@ -0,0 +1,234 @@
+package org.jstruct;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * Base of open-addressing hash maps that store struct values inline in the table.
+ * <p>
+ * The table is a single {@code long[]} accessed through a heap {@link MemorySegment}, which allows tables larger than
+ * the 2 GB limit of a {@code byte[]}. Every slot has the same size: the key part defined by the subclass followed by
+ * the value record. Values are addressed by slot; a slot stays valid until the next insertion of a new key (which may
+ * rehash the table) or removal (which may move entries). Maps are not thread-safe.
+ */
+public abstract class AbstractStructHashMap {
+
+    static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    private static final int MAX_TABLE_LENGTH = Integer.MAX_VALUE - 8;
+
+    final StructLayout layout;
+
+    final long slotSize;
+
+    final long valueOffset;
+
+    private final float loadFactor;
+
+    private final int extraSlots;
+
+    MemorySegment table;
+
+    /**
+     * Number of regular slots, a power of two.
+     */
+    int capacity;
+
+    int mask;
+
+    int threshold;
+
+    int size;
+
+    /**
+     * @param layout layout of the values.
+     * @param keySize size of the key part of a slot, a multiple of 8 bytes.
+     * @param expectedSize number of entries the map should hold without rehashing.
+     * @param loadFactor maximum ratio of entries to slots, in {@code (0, 1)}.
+     * @param extraSlots number of slots reserved after the regular ones.
+     */
+    AbstractStructHashMap(final StructLayout layout, final int keySize, final int expectedSize,
+            final float loadFactor, final int extraSlots) {
+        this.layout = Objects.requireNonNull(layout, "Layout should be defined");
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size should not be negative: " + expectedSize);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor should be in (0, 1): " + loadFactor);
+        }
+        this.valueOffset = keySize;
+        this.slotSize = keySize + StructLayout.align(layout.size(), Long.BYTES);
+        this.loadFactor = loadFactor;
+        this.extraSlots = extraSlots;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private int tableSizeFor(final long entries) {
+        final long slots = Math.max(2, (long) Math.ceil(entries / (double) loadFactor));
+        return checkedCapacity(Long.highestOneBit(slots - 1) << 1);
+    }
+
+    private int checkedCapacity(final long capacity) {
+        if ((capacity + extraSlots) * slotSize / Long.BYTES > MAX_TABLE_LENGTH) {
+            throw new OutOfMemoryError("Struct hash map of " + capacity + " " + layout.name() + " slots is too large");
+        }
+        return (int) capacity;
+    }
+
+    /**
+     * Replaces the table with an empty one of the given capacity.
+     *
+     * @return previous table.
+     */
+    MemorySegment allocate(final int capacity) {
+        final MemorySegment old = this.table;
+        this.table = MemorySegment.ofArray(new long[(int) ((capacity + extraSlots) * slotSize / Long.BYTES)]);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.threshold = (int) Math.min(capacity - 1, (long) (capacity * (double) loadFactor));
+        return old;
+    }
+
+    /**
+     * @return capacity the table should grow to.
+     */
+    int grownCapacity() {
+        return checkedCapacity(2L * capacity);
+    }
+
+    /**
+     * @return layout of the values.
+     */
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return number of entries.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if the map has no entries.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of slots, occupied or not; slots are numbered from {@code 0} to {@code slotCount() - 1}.
+     */
+    public long slotCount() {
+        return (long) capacity + extraSlots;
+    }
+
+    /**
+     * Allows allocation-free iteration over entries:
+     *
+     * <pre>
+     * for (long slot = 0; slot &lt; map.slotCount(); ++slot) {
+     *     if (map.isOccupied(slot)) {
+     *         ...
+     *     }
+     * }
+     * </pre>
+     *
+     * @param slot slot number.
+     * @return {@code true} if the slot holds an entry.
+     */
+    public abstract boolean isOccupied(long slot);
+
+    /**
+     * Removes all entries. Capacity is kept.
+     */
+    public void clear() {
+        table.fill((byte) 0);
+        size = 0;
+    }
+
+    /**
+     * Zero-fills a slot, as expected of free slots.
+     */
+    void clearSlot(final long slot) {
+        table.asSlice(slot * slotSize, slotSize).fill((byte) 0);
+    }
+
+    private long offset(final long slot, final StructField field, final FieldType type) {
+        layout.checkField(field, type);
+        return Objects.checkIndex(slot, slotCount()) * slotSize + valueOffset + field.offset();
+    }
+
+    public boolean getBoolean(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_BYTE, offset(slot, field, FieldType.BOOLEAN)) != 0;
+    }
+
+    public void setBoolean(final long slot, final StructField field, final boolean value) {
+        table.set(ValueLayout.JAVA_BYTE, offset(slot, field, FieldType.BOOLEAN), value ? (byte) 1 : (byte) 0);
+    }
+
+    public byte getByte(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_BYTE, offset(slot, field, FieldType.BYTE));
+    }
+
+    public void setByte(final long slot, final StructField field, final byte value) {
+        table.set(ValueLayout.JAVA_BYTE, offset(slot, field, FieldType.BYTE), value);
+    }
+
+    public char getChar(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_CHAR, offset(slot, field, FieldType.CHAR));
+    }
+
+    public void setChar(final long slot, final StructField field, final char value) {
+        table.set(ValueLayout.JAVA_CHAR, offset(slot, field, FieldType.CHAR), value);
+    }
+
+    public short getShort(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_SHORT, offset(slot, field, FieldType.SHORT));
+    }
+
+    public void setShort(final long slot, final StructField field, final short value) {
+        table.set(ValueLayout.JAVA_SHORT, offset(slot, field, FieldType.SHORT), value);
+    }
+
+    public int getInt(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_INT, offset(slot, field, FieldType.INT));
+    }
+
+    public void setInt(final long slot, final StructField field, final int value) {
+        table.set(ValueLayout.JAVA_INT, offset(slot, field, FieldType.INT), value);
+    }
+
+    public float getFloat(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_FLOAT, offset(slot, field, FieldType.FLOAT));
+    }
+
+    public void setFloat(final long slot, final StructField field, final float value) {
+        table.set(ValueLayout.JAVA_FLOAT, offset(slot, field, FieldType.FLOAT), value);
+    }
+
+    public long getLong(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_LONG, offset(slot, field, FieldType.LONG));
+    }
+
+    public void setLong(final long slot, final StructField field, final long value) {
+        table.set(ValueLayout.JAVA_LONG, offset(slot, field, FieldType.LONG), value);
+    }
+
+    public double getDouble(final long slot, final StructField field) {
+        return table.get(ValueLayout.JAVA_DOUBLE, offset(slot, field, FieldType.DOUBLE));
+    }
+
+    public void setDouble(final long slot, final StructField field, final double value) {
+        table.set(ValueLayout.JAVA_DOUBLE, offset(slot, field, FieldType.DOUBLE), value);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "<" + layout.name() + ">[" + size + "]";
+    }
+}
@@ -0,0 +1,158 @@
+package org.jstruct;
+
+/**
+ * Unsigned integer of 1 to 32 bits packed with other bit fields into a shared {@code int} word of a
+ * {@link StructLayout}, declared with {@link StructLayout.Builder#addBits(String, int)}.
+ * <p>
+ * Values are read with a shift and a mask, and written by replacing their bits in the word, so a bit field holds
+ * values from {@code 0} to {@code 2^width - 1}; a 32-bit field holds any {@code int}. Writes read and rewrite the
+ * whole word: writing bit fields that share a word from several threads needs external synchronization.
+ *
+ * <pre>
+ * BitField urgent = order.bitField("urgent");
+ * BitField venue = order.bitField("venue");
+ * urgent.setBoolean(orders, index, true);
+ * int code = venue.get(orders, index);
+ * </pre>
+ */
+public final class BitField {
+
+    private final StructLayout layout;
+
+    private final String name;
+
+    private final StructField word;
+
+    private final int shift;
+
+    private final int width;
+
+    private final int mask;
+
+    BitField(final StructLayout layout, final String name, final StructField word, final int shift,
+            final int width) {
+        this.layout = layout;
+        this.name = name;
+        this.word = word;
+        this.shift = shift;
+        this.width = width;
+        this.mask = -1 >>> (Integer.SIZE - width);
+    }
+
+    /**
+     * @return layout that declares the bit field.
+     */
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return name of the bit field, unique within its layout.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return {@code int} field holding the bits.
+     */
+    public StructField word() {
+        return word;
+    }
+
+    /**
+     * @return position of the lowest bit of the field in its word.
+     */
+    public int shift() {
+        return shift;
+    }
+
+    /**
+     * @return number of bits.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return mask of the value bits, before shifting.
+     */
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * @param records collection with the layout of the bit field.
+     * @param index index of the record.
+     * @return value of the bit field.
+     */
+    public int get(final StructCollection records, final long index) {
+        return records.getInt(index, word) >>> shift & mask;
+    }
+
+    /**
+     * @param records collection with the layout of the bit field.
+     * @param index index of the record.
+     * @param value value from {@code 0} to {@code 2^width - 1}.
+     * @throws IllegalArgumentException if the value does not fit the field.
+     */
+    public void set(final StructCollection records, final long index, final int value) {
+        checkValue(value);
+        records.setInt(index, word, records.getInt(index, word) & ~(mask << shift) | value << shift);
+    }
+
+    /**
+     * @param records collection with the layout of the bit field.
+     * @param index index of the record.
+     * @return {@code true} if any bit of the field is set.
+     */
+    public boolean getBoolean(final StructCollection records, final long index) {
+        return get(records, index) != 0;
+    }
+
+    /**
+     * @param records collection with the layout of the bit field.
+     * @param index index of the record.
+     * @param value {@code true} to store {@code 1}, {@code false} to store {@code 0}.
+     */
+    public void setBoolean(final StructCollection records, final long index, final boolean value) {
+        set(records, index, value ? 1 : 0);
+    }
+
+    /**
+     * Reads the bit field at a byte offset; the layout of the collection is not checked.
+     *
+     * @param records collection holding the bit field.
+     * @param recordOffset offset of the record that holds the bit field, or of the embedded struct that declares it.
+     * @return value of the bit field.
+     */
+    public int getAt(final FlatStructCollection records, final long recordOffset) {
+        return records.getIntAt(recordOffset + word.offset()) >>> shift & mask;
+    }
+
+    /**
+     * Writes the bit field at a byte offset; the layout of the collection is not checked.
+     *
+     * @param records collection holding the bit field.
+     * @param recordOffset offset of the record that holds the bit field, or of the embedded struct that declares it.
+     * @param value value from {@code 0} to {@code 2^width - 1}.
+     * @throws IllegalArgumentException if the value does not fit the field.
+     */
+    public void setAt(final FlatStructCollection records, final long recordOffset, final int value) {
+        checkValue(value);
+        final long offset = recordOffset + word.offset();
+        records.setIntAt(offset, records.getIntAt(offset) & ~(mask << shift) | value << shift);
+    }
+
+    private void checkValue(final int value) {
+        if ((value & ~mask) != 0) {
+            throw new IllegalArgumentException("Value " + value + " does not fit bit field " + name + " of " + width
+                    + " bits");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "bits[" + width + "] " + name + "@" + word.offset() + ":" + shift;
+    }
+}
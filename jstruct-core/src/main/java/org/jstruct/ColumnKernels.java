@@ -0,0 +1,281 @@
+package org.jstruct;
+
+import java.util.Objects;
+
+/**
+ * Sum, min/max, compare and filter kernels over ranges of primitive columns, such as those of {@link StructColumns}.
+ * <p>
+ * When the {@code jdk.incubator.vector} module is present (e.g. {@code --add-modules jdk.incubator.vector}) and the
+ * CPU has SIMD registers, kernels process a whole vector of elements per instruction with the preferred species of
+ * the platform; otherwise they fall back to scalar loops with the same results. Setting the system property
+ * {@code org.jstruct.vector} to {@code false} forces the scalar kernels.
+ *
+ * <pre>
+ * int[] quantities = orders.intColumn(quantity);
+ * int[] selection = new int[(int) orders.size()];
+ * int count = ColumnKernels.filter(quantities, 0, (int) orders.size(), Comparison.GT, 100, selection);
+ * </pre>
+ *
+ * Vectorized floating point sums add elements in a different order than a sequential loop, so they may differ from
+ * it in the last bits. Min and max follow {@link Math#min(double, double)}: NaN wins and {@code -0.0} is less than
+ * {@code 0.0}.
+ */
+public final class ColumnKernels {
+
+    private static final Kernels KERNELS = load();
+
+    private ColumnKernels() {
+    }
+
+    /**
+     * Relation between a column element (left operand) and a constant (right operand).
+     */
+    public enum Comparison {
+        EQ, NE, LT, LE, GT, GE;
+
+        boolean test(final int a, final int b) {
+            switch (this) {
+                case EQ:
+                    return a == b;
+                case NE:
+                    return a != b;
+                case LT:
+                    return a < b;
+                case LE:
+                    return a <= b;
+                case GT:
+                    return a > b;
+                default:
+                    return a >= b;
+            }
+        }
+
+        boolean test(final long a, final long b) {
+            switch (this) {
+                case EQ:
+                    return a == b;
+                case NE:
+                    return a != b;
+                case LT:
+                    return a < b;
+                case LE:
+                    return a <= b;
+                case GT:
+                    return a > b;
+                default:
+                    return a >= b;
+            }
+        }
+
+        boolean test(final double a, final double b) {
+            switch (this) {
+                case EQ:
+                    return a == b;
+                case NE:
+                    return a != b;
+                case LT:
+                    return a < b;
+                case LE:
+                    return a <= b;
+                case GT:
+                    return a > b;
+                default:
+                    return a >= b;
+            }
+        }
+    }
+
+    private static Kernels load() {
+        if (Boolean.parseBoolean(System.getProperty("org.jstruct.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                final Kernels kernels = (Kernels) Class.forName("org.jstruct.VectorKernels")
+                        .getDeclaredConstructor().newInstance();
+                if (kernels.isVectorized()) {
+                    return kernels;
+                }
+            } catch (final ReflectiveOperationException | LinkageError e) {
+                // Vector API not usable in this runtime; the scalar kernels are used.
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * @return {@code true} if kernels use the Vector API.
+     */
+    public static boolean isVectorized() {
+        return KERNELS.isVectorized();
+    }
+
+    /**
+     * @return sum of {@code column[from, to)}, computed in {@code long} arithmetic, which cannot overflow.
+     */
+    public static long sum(final int[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.sum(column, from, to);
+    }
+
+    /**
+     * @return sum of {@code column[from, to)}, wrapping around on overflow.
+     */
+    public static long sum(final long[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.sum(column, from, to);
+    }
+
+    /**
+     * @return sum of {@code column[from, to)}.
+     */
+    public static double sum(final double[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.sum(column, from, to);
+    }
+
+    /**
+     * @return minimum of {@code column[from, to)}, or {@link Integer#MAX_VALUE} for an empty range.
+     */
+    public static int min(final int[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.min(column, from, to);
+    }
+
+    /**
+     * @return minimum of {@code column[from, to)}, or {@link Long#MAX_VALUE} for an empty range.
+     */
+    public static long min(final long[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.min(column, from, to);
+    }
+
+    /**
+     * @return minimum of {@code column[from, to)}, or {@link Double#POSITIVE_INFINITY} for an empty range.
+     */
+    public static double min(final double[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.min(column, from, to);
+    }
+
+    /**
+     * @return maximum of {@code column[from, to)}, or {@link Integer#MIN_VALUE} for an empty range.
+     */
+    public static int max(final int[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.max(column, from, to);
+    }
+
+    /**
+     * @return maximum of {@code column[from, to)}, or {@link Long#MIN_VALUE} for an empty range.
+     */
+    public static long max(final long[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.max(column, from, to);
+    }
+
+    /**
+     * @return maximum of {@code column[from, to)}, or {@link Double#NEGATIVE_INFINITY} for an empty range.
+     */
+    public static double max(final double[] column, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, column.length);
+        return KERNELS.max(column, from, to);
+    }
+
+    /**
+     * Computed in {@code long}, since rounding a range ending near {@link Integer#MAX_VALUE} up to whole words
+     * overflows an {@code int}.
+     *
+     * @return number of 64-bit words holding one bit per element of {@code [from, to)}.
+     */
+    static int words(final int from, final int to) {
+        return (int) (((long) to - from + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private static void checkBitmap(final int from, final int to, final long[] bitmap) {
+        if (bitmap.length < words(from, to)) {
+            throw new IllegalArgumentException("Bitmap of " + bitmap.length + " words cannot hold " + (to - from)
+                    + " bits");
+        }
+    }
+
+    private static void checkSelection(final int from, final int to, final int[] selection) {
+        if (selection.length < to - from) {
+            throw new IllegalArgumentException("Selection of " + selection.length + " indices cannot hold "
+                    + (to - from) + " indices");
+        }
+    }
+
+    /**
+     * Compares {@code column[from, to)} with a constant into a bitmap: bit {@code k} of the bitmap (bit
+     * {@code k % 64} of word {@code k / 64}) is set if element {@code from + k} matches. The first
+     * {@code ceil((to - from) / 64)} words are overwritten.
+     *
+     * @return number of matching elements.
+     */
+    public static int compare(final int[] column, final int from, final int to, final Comparison op, final int value,
+            final long[] bitmap) {
+        Objects.checkFromToIndex(from, to, column.length);
+        checkBitmap(from, to, bitmap);
+        return KERNELS.compare(column, from, to, Objects.requireNonNull(op), value, bitmap);
+    }
+
+    /**
+     * Same as {@link #compare(int[], int, int, Comparison, int, long[])} for a {@code long} column.
+     *
+     * @return number of matching elements.
+     */
+    public static int compare(final long[] column, final int from, final int to, final Comparison op,
+            final long value, final long[] bitmap) {
+        Objects.checkFromToIndex(from, to, column.length);
+        checkBitmap(from, to, bitmap);
+        return KERNELS.compare(column, from, to, Objects.requireNonNull(op), value, bitmap);
+    }
+
+    /**
+     * Same as {@link #compare(int[], int, int, Comparison, int, long[])} for a {@code double} column.
+     *
+     * @return number of matching elements.
+     */
+    public static int compare(final double[] column, final int from, final int to, final Comparison op,
+            final double value, final long[] bitmap) {
+        Objects.checkFromToIndex(from, to, column.length);
+        checkBitmap(from, to, bitmap);
+        return KERNELS.compare(column, from, to, Objects.requireNonNull(op), value, bitmap);
+    }
+
+    /**
+     * Writes the indices of the elements of {@code column[from, to)} that match a constant, in increasing order, to
+     * the beginning of {@code selection}.
+     *
+     * @return number of matching elements.
+     */
+    public static int filter(final int[] column, final int from, final int to, final Comparison op, final int value,
+            final int[] selection) {
+        Objects.checkFromToIndex(from, to, column.length);
+        checkSelection(from, to, selection);
+        return KERNELS.filter(column, from, to, Objects.requireNonNull(op), value, selection);
+    }
+
+    /**
+     * Same as {@link #filter(int[], int, int, Comparison, int, int[])} for a {@code long} column.
+     *
+     * @return number of matching elements.
+     */
+    public static int filter(final long[] column, final int from, final int to, final Comparison op,
+            final long value, final int[] selection) {
+        Objects.checkFromToIndex(from, to, column.length);
+        checkSelection(from, to, selection);
+        return KERNELS.filter(column, from, to, Objects.requireNonNull(op), value, selection);
+    }
+
+    /**
+     * Same as {@link #filter(int[], int, int, Comparison, int, int[])} for a {@code double} column.
+     *
+     * @return number of matching elements.
+     */
+    public static int filter(final double[] column, final int from, final int to, final Comparison op,
+            final double value, final int[] selection) {
+        Objects.checkFromToIndex(from, to, column.length);
+        checkSelection(from, to, selection);
+        return KERNELS.filter(column, from, to, Objects.requireNonNull(op), value, selection);
+    }
+}
@@ -0,0 +1,495 @@
+package org.jstruct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+
+import static org.jstruct.StructArray.CHAR;
+import static org.jstruct.StructArray.DOUBLE;
+import static org.jstruct.StructArray.FLOAT;
+import static org.jstruct.StructArray.INT;
+import static org.jstruct.StructArray.LONG;
+import static org.jstruct.StructArray.SHORT;
+
+/**
+ * Fixed-capacity array of structs that many threads append to without locks.
+ * <p>
+ * A producer claims a range of records with a single atomic fetch-and-add on the reserved length, writes the records
+ * with the usual accessors and then {@linkplain #publish(long, int) publishes} them. Producers finish in any order;
+ * the published length {@link #size()} is a watermark that only advances over a contiguous prefix of published
+ * records, so a reader that sees {@code size() == n} also sees every write to records {@code [0, n)}:
+ *
+ * <pre>
+ * long start = events.reserve(batch.length);
+ * for (int i = 0; i &lt; batch.length; ++i) {
+ *     events.setLong(start + i, timestamp, batch[i].timestamp());
+ *     ...
+ * }
+ * events.publish(start, batch.length);
+ * </pre>
+ *
+ * Accessors check indices against {@link #capacity()} rather than {@link #size()}, so that producers can write
+ * records they have reserved but not yet published; reading a record at or above {@code size()} has no visibility
+ * guarantee. Cursors iterate published records only. Records of one producer should not be written by others.
+ */
+public final class ConcurrentStructArray implements FlatStructCollection {
+
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Counters are kept 128 bytes apart in their own array so that producers bumping the reserved length do not
+     * invalidate the cache line readers poll the published length from.
+     */
+    private static final int RESERVED = 16;
+
+    private static final int PUBLISHED = 32;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final StructLayout layout;
+
+    private final int recordSize;
+
+    private final int capacity;
+
+    private final byte[] data;
+
+    private final long[] counters = new long[PUBLISHED + 16];
+
+    /**
+     * One bit per record, set once the record is published and the watermark may pass it.
+     */
+    private final long[] published;
+
+    /**
+     * @param layout layout of the records.
+     * @param capacity maximum number of records.
+     */
+    public ConcurrentStructArray(final StructLayout layout, final int capacity) {
+        this.layout = Objects.requireNonNull(layout, "Layout should be defined");
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity should not be negative: " + capacity);
+        }
+        this.recordSize = layout.size();
+        if ((long) capacity * recordSize > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Struct array of " + capacity + " " + layout.name() + " records is too large");
+        }
+        this.capacity = capacity;
+        this.data = new byte[capacity * recordSize];
+        this.published = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    @Override
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return number of published records; every record below it is visible to the calling thread.
+     */
+    @Override
+    public long size() {
+        return (long) COUNTERS.getAcquire(counters, PUBLISHED);
+    }
+
+    @Override
+    public StructCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return maximum number of records.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of records reserved so far, published or not, capped at the capacity.
+     */
+    public long reserved() {
+        return Math.min(capacity, (long) COUNTERS.getVolatile(counters, RESERVED));
+    }
+
+    /**
+     * Reserves one record for the calling thread.
+     *
+     * @return index of the record.
+     * @throws IllegalStateException if the array is full.
+     */
+    public long reserve() {
+        return reserve(1);
+    }
+
+    /**
+     * Reserves a range of consecutive records for the calling thread. Records are zero-filled until written.
+     *
+     * @param count number of records.
+     * @return index of the first record.
+     * @throws IllegalStateException if the array has less than {@code count} free records.
+     */
+    public long reserve(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count should be positive: " + count);
+        }
+        // Failed reservations are not rolled back: the counter overshoots the capacity, which only makes every later
+        // reservation fail as well.
+        final long start = (long) COUNTERS.getAndAdd(counters, RESERVED, (long) count);
+        if (start + count > capacity) {
+            throw new IllegalStateException("Struct array of " + capacity + " " + layout.name()
+                    + " records is full");
+        }
+        return start;
+    }
+
+    /**
+     * Publishes reserved records after they have been written. Writes made by the calling thread before this call
+     * are visible to any thread that observes a {@link #size()} above the records.
+     *
+     * @param start index of the first record, as returned by {@link #reserve(int)}.
+     * @param count number of records.
+     */
+    public void publish(final long start, final int count) {
+        Objects.checkFromIndexSize(start, count, capacity);
+        final long end = start + count;
+        for (long i = start; i < end; i = (i | (Long.SIZE - 1)) + 1) {
+            final long bits = -1L << i & (end - i >= Long.SIZE - (i & (Long.SIZE - 1)) ? -1L : ~(-1L << end));
+            BITS.getAndBitwiseOr(published, (int) (i >>> 6), bits);
+        }
+        advance();
+    }
+
+    /**
+     * Moves the watermark over the published prefix. Whichever producer completes the prefix moves it; the others
+     * either help or find nothing to do, so no producer waits for another.
+     */
+    private void advance() {
+        while (true) {
+            final long watermark = (long) COUNTERS.getVolatile(counters, PUBLISHED);
+            long end = watermark;
+            while (end < capacity) {
+                // Counts the published records from end to the first hole or the end of the word.
+                final int shift = (int) (end & (Long.SIZE - 1));
+                final long word = (long) BITS.getVolatile(published, (int) (end >>> 6));
+                final int run = Math.min(Long.numberOfTrailingZeros(~word >>> shift), Long.SIZE - shift);
+                end += run;
+                if (shift + run < Long.SIZE) {
+                    break;
+                }
+            }
+            end = Math.min(end, capacity);
+            if (end == watermark || COUNTERS.compareAndSet(counters, PUBLISHED, watermark, end)) {
+                return;
+            }
+        }
+    }
+
+    private int offset(final long index) {
+        return (int) Objects.checkIndex(index, capacity) * recordSize;
+    }
+
+    private int offset(final long index, final StructField field, final FieldType type) {
+        layout.checkField(field, type);
+        return offset(index) + field.offset();
+    }
+
+    @Override
+    public boolean getBoolean(final long index, final StructField field) {
+        return data[offset(index, field, FieldType.BOOLEAN)] != 0;
+    }
+
+    @Override
+    public void setBoolean(final long index, final StructField field, final boolean value) {
+        data[offset(index, field, FieldType.BOOLEAN)] = value ? (byte) 1 : (byte) 0;
+    }
+
+    @Override
+    public byte getByte(final long index, final StructField field) {
+        return data[offset(index, field, FieldType.BYTE)];
+    }
+
+    @Override
+    public void setByte(final long index, final StructField field, final byte value) {
+        data[offset(index, field, FieldType.BYTE)] = value;
+    }
+
+    @Override
+    public char getChar(final long index, final StructField field) {
+        return (char) CHAR.get(data, offset(index, field, FieldType.CHAR));
+    }
+
+    @Override
+    public void setChar(final long index, final StructField field, final char value) {
+        CHAR.set(data, offset(index, field, FieldType.CHAR), value);
+    }
+
+    @Override
+    public short getShort(final long index, final StructField field) {
+        return (short) SHORT.get(data, offset(index, field, FieldType.SHORT));
+    }
+
+    @Override
+    public void setShort(final long index, final StructField field, final short value) {
+        SHORT.set(data, offset(index, field, FieldType.SHORT), value);
+    }
+
+    @Override
+    public int getInt(final long index, final StructField field) {
+        return (int) INT.get(data, offset(index, field, FieldType.INT));
+    }
+
+    @Override
+    public void setInt(final long index, final StructField field, final int value) {
+        INT.set(data, offset(index, field, FieldType.INT), value);
+    }
+
+    @Override
+    public float getFloat(final long index, final StructField field) {
+        return (float) FLOAT.get(data, offset(index, field, FieldType.FLOAT));
+    }
+
+    @Override
+    public void setFloat(final long index, final StructField field, final float value) {
+        FLOAT.set(data, offset(index, field, FieldType.FLOAT), value);
+    }
+
+    @Override
+    public long getLong(final long index, final StructField field) {
+        return (long) LONG.get(data, offset(index, field, FieldType.LONG));
+    }
+
+    @Override
+    public void setLong(final long index, final StructField field, final long value) {
+        LONG.set(data, offset(index, field, FieldType.LONG), value);
+    }
+
+    @Override
+    public double getDouble(final long index, final StructField field) {
+        return (double) DOUBLE.get(data, offset(index, field, FieldType.DOUBLE));
+    }
+
+    @Override
+    public void setDouble(final long index, final StructField field, final double value) {
+        DOUBLE.set(data, offset(index, field, FieldType.DOUBLE), value);
+    }
+
+    @Override
+    public long recordOffset(final long index) {
+        return offset(index);
+    }
+
+    @Override
+    public boolean getBooleanAt(final long offset) {
+        return data[(int) offset] != 0;
+    }
+
+    @Override
+    public void setBooleanAt(final long offset, final boolean value) {
+        data[(int) offset] = value ? (byte) 1 : (byte) 0;
+    }
+
+    @Override
+    public byte getByteAt(final long offset) {
+        return data[(int) offset];
+    }
+
+    @Override
+    public void setByteAt(final long offset, final byte value) {
+        data[(int) offset] = value;
+    }
+
+    @Override
+    public char getCharAt(final long offset) {
+        return (char) CHAR.get(data, (int) offset);
+    }
+
+    @Override
+    public void setCharAt(final long offset, final char value) {
+        CHAR.set(data, (int) offset, value);
+    }
+
+    @Override
+    public short getShortAt(final long offset) {
+        return (short) SHORT.get(data, (int) offset);
+    }
+
+    @Override
+    public void setShortAt(final long offset, final short value) {
+        SHORT.set(data, (int) offset, value);
+    }
+
+    @Override
+    public int getIntAt(final long offset) {
+        return (int) INT.get(data, (int) offset);
+    }
+
+    @Override
+    public void setIntAt(final long offset, final int value) {
+        INT.set(data, (int) offset, value);
+    }
+
+    @Override
+    public float getFloatAt(final long offset) {
+        return (float) FLOAT.get(data, (int) offset);
+    }
+
+    @Override
+    public void setFloatAt(final long offset, final float value) {
+        FLOAT.set(data, (int) offset, value);
+    }
+
+    @Override
+    public long getLongAt(final long offset) {
+        return (long) LONG.get(data, (int) offset);
+    }
+
+    @Override
+    public void setLongAt(final long offset, final long value) {
+        LONG.set(data, (int) offset, value);
+    }
+
+    @Override
+    public double getDoubleAt(final long offset) {
+        return (double) DOUBLE.get(data, (int) offset);
+    }
+
+    @Override
+    public void setDoubleAt(final long offset, final double value) {
+        DOUBLE.set(data, (int) offset, value);
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentStructArray<" + layout.name() + ">[" + size() + "]";
+    }
+
+    private final class Cursor implements StructCursor {
+
+        private long index = -1;
+
+        private int base;
+
+        @Override
+        public StructCollection collection() {
+            return ConcurrentStructArray.this;
+        }
+
+        @Override
+        public long index() {
+            return index;
+        }
+
+        @Override
+        public StructCursor moveTo(final long index) {
+            this.base = (int) Objects.checkIndex(index, size()) * recordSize;
+            this.index = index;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= size()) {
+                return false;
+            }
+            base = (int) ++index * recordSize;
+            return true;
+        }
+
+        @Override
+        public StructCursor reset() {
+            index = -1;
+            base = 0;
+            return this;
+        }
+
+        private int offset(final StructField field, final FieldType type) {
+            layout.checkField(field, type);
+            if (index < 0) {
+                throw new IllegalStateException("Cursor is before the first record");
+            }
+            return base + field.offset();
+        }
+
+        @Override
+        public boolean getBoolean(final StructField field) {
+            return data[offset(field, FieldType.BOOLEAN)] != 0;
+        }
+
+        @Override
+        public void setBoolean(final StructField field, final boolean value) {
+            data[offset(field, FieldType.BOOLEAN)] = value ? (byte) 1 : (byte) 0;
+        }
+
+        @Override
+        public byte getByte(final StructField field) {
+            return data[offset(field, FieldType.BYTE)];
+        }
+
+        @Override
+        public void setByte(final StructField field, final byte value) {
+            data[offset(field, FieldType.BYTE)] = value;
+        }
+
+        @Override
+        public char getChar(final StructField field) {
+            return (char) CHAR.get(data, offset(field, FieldType.CHAR));
+        }
+
+        @Override
+        public void setChar(final StructField field, final char value) {
+            CHAR.set(data, offset(field, FieldType.CHAR), value);
+        }
+
+        @Override
+        public short getShort(final StructField field) {
+            return (short) SHORT.get(data, offset(field, FieldType.SHORT));
+        }
+
+        @Override
+        public void setShort(final StructField field, final short value) {
+            SHORT.set(data, offset(field, FieldType.SHORT), value);
+        }
+
+        @Override
+        public int getInt(final StructField field) {
+            return (int) INT.get(data, offset(field, FieldType.INT));
+        }
+
+        @Override
+        public void setInt(final StructField field, final int value) {
+            INT.set(data, offset(field, FieldType.INT), value);
+        }
+
+        @Override
+        public float getFloat(final StructField field) {
+            return (float) FLOAT.get(data, offset(field, FieldType.FLOAT));
+        }
+
+        @Override
+        public void setFloat(final StructField field, final float value) {
+            FLOAT.set(data, offset(field, FieldType.FLOAT), value);
+        }
+
+        @Override
+        public long getLong(final StructField field) {
+            return (long) LONG.get(data, offset(field, FieldType.LONG));
+        }
+
+        @Override
+        public void setLong(final StructField field, final long value) {
+            LONG.set(data, offset(field, FieldType.LONG), value);
+        }
+
+        @Override
+        public double getDouble(final StructField field) {
+            return (double) DOUBLE.get(data, offset(field, FieldType.DOUBLE));
+        }
+
+        @Override
+        public void setDouble(final StructField field, final double value) {
+            DOUBLE.set(data, offset(field, FieldType.DOUBLE), value);
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package org.jstruct;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe hash map from {@code long} keys to struct values stored inline, built from {@link StructHashMap} stripes.
+ * <p>
+ * Keys are spread over a power-of-two number of stripes, each an independent table guarded by its own
+ * {@link StampedLock}. Writers take the write lock of one stripe. Readers first read optimistically: they validate the
+ * stamp after reading and only fall back to the read lock if a writer intervened, so an uncontended lookup never
+ * writes shared memory and readers on different cores do not bounce lock cache lines between each other.
+ * <p>
+ * Slots move when tables rehash, so values are accessed by key rather than by slot. Single-field getters return a
+ * default for missing keys; {@link #get(long, FlatStructCollection, long)} copies a consistent snapshot of a whole
+ * value. Setters insert a zero-filled value for missing keys.
+ *
+ * <pre>
+ * ConcurrentStructHashMap quotes = new ConcurrentStructHashMap(QUOTE);
+ * quotes.put(instrument, updates, i);
+ * ...
+ * double bid = quotes.getDouble(instrument, BID, Double.NaN);
+ * </pre>
+ */
+public final class ConcurrentStructHashMap {
+
+    private static final int MAX_STRIPES = 1 << 16;
+
+    private final StructLayout layout;
+
+    private final Stripe[] stripes;
+
+    private final int shift;
+
+    /**
+     * @param layout layout of the values.
+     */
+    public ConcurrentStructHashMap(final StructLayout layout) {
+        this(layout, AbstractStructHashMap.DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * @param layout layout of the values.
+     * @param expectedSize number of entries the map should hold without rehashing.
+     */
+    public ConcurrentStructHashMap(final StructLayout layout, final int expectedSize) {
+        this(layout, expectedSize, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param layout layout of the values.
+     * @param expectedSize number of entries the map should hold without rehashing.
+     * @param concurrency number of stripes, rounded up to a power of two.
+     */
+    public ConcurrentStructHashMap(final StructLayout layout, final int expectedSize, final int concurrency) {
+        this.layout = Objects.requireNonNull(layout, "Layout should be defined");
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size should not be negative: " + expectedSize);
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency should be positive: " + concurrency);
+        }
+        int stripeCount = 1;
+        while (stripeCount < Math.min(concurrency, MAX_STRIPES)) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; ++i) {
+            stripes[i] = new Stripe(new StructHashMap(layout, (expectedSize + stripeCount - 1) / stripeCount));
+        }
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /**
+     * Stripes are chosen by the high bits of the hash while tables probe from the low bits, so the two stay
+     * independent.
+     */
+    private Stripe stripe(final long key) {
+        return stripes[(int) ((StructHashMap.hash(key) & 0xFFFFFFFFL) >>> shift)];
+    }
+
+    /**
+     * @return layout of the values.
+     */
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return number of entries; only an estimate while the map is being modified.
+     */
+    public long size() {
+        long size = 0;
+        for (final Stripe stripe : stripes) {
+            final long stamp = stripe.lock.tryOptimisticRead();
+            final long stripeSize = stripe.map.size();
+            size += stripe.lock.validate(stamp) ? stripeSize : stripe.lockedSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return {@code true} if the map has no entries.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @param key key to look up.
+     * @return {@code true} if the map has an entry with the key.
+     */
+    public boolean containsKey(final long key) {
+        final Stripe stripe = stripe(key);
+        final StampedLock lock = stripe.lock;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final boolean found = stripe.probe(key) >= 0;
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (final RuntimeException e) {
+                // The optimistic read saw a table in the middle of an update; retried under the read lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return stripe.map.indexOf(key) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the value of the given key into a record of another collection. The copy is a consistent snapshot: no
+     * concurrent write to the entry is partially visible in it.
+     *
+     * @param key key to look up.
+     * @param target collection to copy the value to.
+     * @param index index of the target record, overwritten even if the key is missing.
+     * @return {@code true} if the map has an entry with the key.
+     */
+    public boolean get(final long key, final FlatStructCollection target, final long index) {
+        final long offset = recordOffset(target, index);
+        final Stripe stripe = stripe(key);
+        final StampedLock lock = stripe.lock;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final boolean found = stripe.copyTo(key, target, offset);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (final RuntimeException e) {
+                // The optimistic read saw a table in the middle of an update; retried under the read lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return stripe.copyTo(key, target, offset);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sets the value of the given key to a copy of a record of another collection, inserting an entry if there is
+     * none.
+     *
+     * @param key key of the entry.
+     * @param source collection holding the value.
+     * @param index index of the source record.
+     */
+    public void put(final long key, final FlatStructCollection source, final long index) {
+        final long offset = recordOffset(source, index);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.copyFrom(key, source, offset);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the entry with the given key.
+     *
+     * @param key key of the entry.
+     * @return {@code true} if the map had such an entry.
+     */
+    public boolean remove(final long key) {
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.map.remove(key);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all entries, one stripe at a time.
+     */
+    public void clear() {
+        for (final Stripe stripe : stripes) {
+            final long stamp = stripe.lock.writeLock();
+            try {
+                stripe.map.clear();
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private long recordOffset(final FlatStructCollection records, final long index) {
+        if (records.layout() != layout) {
+            throw new IllegalArgumentException("Collection does not hold " + layout.name() + " records");
+        }
+        return records.recordOffset(index);
+    }
+
+    /**
+     * Reads one field as raw bits, optimistically first.
+     */
+    private long read(final long key, final StructField field, final FieldType type, final long absent) {
+        layout.checkField(field, type);
+        final Stripe stripe = stripe(key);
+        final StampedLock lock = stripe.lock;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final long bits = stripe.read(key, field, absent);
+                if (lock.validate(stamp)) {
+                    return bits;
+                }
+            } catch (final RuntimeException e) {
+                // The optimistic read saw a table in the middle of an update; retried under the read lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return stripe.read(key, field, absent);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean getBoolean(final long key, final StructField field, final boolean absent) {
+        return read(key, field, FieldType.BOOLEAN, absent ? 1 : 0) != 0;
+    }
+
+    public void setBoolean(final long key, final StructField field, final boolean value) {
+        layout.checkField(field, FieldType.BOOLEAN);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setBoolean(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public byte getByte(final long key, final StructField field, final byte absent) {
+        return (byte) read(key, field, FieldType.BYTE, absent);
+    }
+
+    public void setByte(final long key, final StructField field, final byte value) {
+        layout.checkField(field, FieldType.BYTE);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setByte(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public char getChar(final long key, final StructField field, final char absent) {
+        return (char) read(key, field, FieldType.CHAR, absent);
+    }
+
+    public void setChar(final long key, final StructField field, final char value) {
+        layout.checkField(field, FieldType.CHAR);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setChar(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public short getShort(final long key, final StructField field, final short absent) {
+        return (short) read(key, field, FieldType.SHORT, absent);
+    }
+
+    public void setShort(final long key, final StructField field, final short value) {
+        layout.checkField(field, FieldType.SHORT);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setShort(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int getInt(final long key, final StructField field, final int absent) {
+        return (int) read(key, field, FieldType.INT, absent);
+    }
+
+    public void setInt(final long key, final StructField field, final int value) {
+        layout.checkField(field, FieldType.INT);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setInt(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public float getFloat(final long key, final StructField field, final float absent) {
+        return Float.intBitsToFloat((int) read(key, field, FieldType.FLOAT, Float.floatToRawIntBits(absent)));
+    }
+
+    public void setFloat(final long key, final StructField field, final float value) {
+        layout.checkField(field, FieldType.FLOAT);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setFloat(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public long getLong(final long key, final StructField field, final long absent) {
+        return read(key, field, FieldType.LONG, absent);
+    }
+
+    public void setLong(final long key, final StructField field, final long value) {
+        layout.checkField(field, FieldType.LONG);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setLong(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public double getDouble(final long key, final StructField field, final double absent) {
+        return Double.longBitsToDouble(read(key, field, FieldType.DOUBLE, Double.doubleToRawLongBits(absent)));
+    }
+
+    public void setDouble(final long key, final StructField field, final double value) {
+        layout.checkField(field, FieldType.DOUBLE);
+        final Stripe stripe = stripe(key);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.setDouble(stripe.map.put(key), field, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentStructHashMap<" + layout.name() + ">[" + size() + "]";
+    }
+
+    /**
+     * One table and its lock. Methods reading the table may run under an optimistic read, so they must tolerate any
+     * state a concurrent writer leaves the table in: they may throw or return garbage, which the caller discards, but
+     * must terminate.
+     */
+    private static final class Stripe {
+
+        final StampedLock lock = new StampedLock();
+
+        final StructHashMap map;
+
+        Stripe(final StructHashMap map) {
+            this.map = map;
+        }
+
+        long lockedSize() {
+            final long stamp = lock.readLock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Same as {@link StructHashMap#indexOf(long)}, but gives up after scanning the whole table, which a
+         * concurrent writer could otherwise keep the probe going around.
+         */
+        long probe(final long key) {
+            if (key == 0) {
+                return map.indexOf(key);
+            }
+            final MemorySegment table = map.table;
+            final long slotSize = map.slotSize;
+            final int mask = map.mask;
+            long slot = StructHashMap.hash(key) & mask;
+            for (int i = 0; i <= mask; ++i, slot = (slot + 1) & mask) {
+                final long k = table.get(ValueLayout.JAVA_LONG, slot * slotSize);
+                if (k == key) {
+                    return slot;
+                }
+                if (k == 0) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        long read(final long key, final StructField field, final long absent) {
+            final long slot = probe(key);
+            if (slot < 0) {
+                return absent;
+            }
+            switch (field.type()) {
+                case BOOLEAN:
+                    return map.getBoolean(slot, field) ? 1 : 0;
+                case BYTE:
+                    return map.getByte(slot, field);
+                case CHAR:
+                    return map.getChar(slot, field);
+                case SHORT:
+                    return map.getShort(slot, field);
+                case INT:
+                    return map.getInt(slot, field);
+                case FLOAT:
+                    return Float.floatToRawIntBits(map.getFloat(slot, field));
+                case LONG:
+                    return map.getLong(slot, field);
+                case DOUBLE:
+                    return Double.doubleToRawLongBits(map.getDouble(slot, field));
+                default:
+                    throw new IllegalArgumentException("Unsupported field type " + field.type());
+            }
+        }
+
+        boolean copyTo(final long key, final FlatStructCollection target, final long offset) {
+            final long slot = probe(key);
+            for (final StructField field : map.layout().fields()) {
+                final long at = offset + field.offset();
+                final boolean found = slot >= 0;
+                switch (field.type()) {
+                    case BOOLEAN:
+                        target.setBooleanAt(at, found && map.getBoolean(slot, field));
+                        break;
+                    case BYTE:
+                        target.setByteAt(at, found ? map.getByte(slot, field) : 0);
+                        break;
+                    case CHAR:
+                        target.setCharAt(at, found ? map.getChar(slot, field) : 0);
+                        break;
+                    case SHORT:
+                        target.setShortAt(at, found ? map.getShort(slot, field) : 0);
+                        break;
+                    case INT:
+                        target.setIntAt(at, found ? map.getInt(slot, field) : 0);
+                        break;
+                    case FLOAT:
+                        target.setFloatAt(at, found ? map.getFloat(slot, field) : 0);
+                        break;
+                    case LONG:
+                        target.setLongAt(at, found ? map.getLong(slot, field) : 0);
+                        break;
+                    case DOUBLE:
+                        target.setDoubleAt(at, found ? map.getDouble(slot, field) : 0);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported field type " + field.type());
+                }
+            }
+            return slot >= 0;
+        }
+
+        void copyFrom(final long key, final FlatStructCollection source, final long offset) {
+            final long slot = map.put(key);
+            for (final StructField field : map.layout().fields()) {
+                final long at = offset + field.offset();
+                switch (field.type()) {
+                    case BOOLEAN:
+                        map.setBoolean(slot, field, source.getBooleanAt(at));
+                        break;
+                    case BYTE:
+                        map.setByte(slot, field, source.getByteAt(at));
+                        break;
+                    case CHAR:
+                        map.setChar(slot, field, source.getCharAt(at));
+                        break;
+                    case SHORT:
+                        map.setShort(slot, field, source.getShortAt(at));
+                        break;
+                    case INT:
+                        map.setInt(slot, field, source.getIntAt(at));
+                        break;
+                    case FLOAT:
+                        map.setFloat(slot, field, source.getFloatAt(at));
+                        break;
+                    case LONG:
+                        map.setLong(slot, field, source.getLongAt(at));
+                        break;
+                    case DOUBLE:
+                        map.setDouble(slot, field, source.getDoubleAt(at));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported field type " + field.type());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.jstruct;
+
+/**
+ * Struct embedded inline in the records of another {@link StructLayout}, declared with
+ * {@link StructLayout.Builder#addStruct(String, StructLayout)}.
+ * <p>
+ * The embedded record is stored exactly like a standalone record of its {@link #type()}, starting at
+ * {@link #offset()} in the outer record, so its fields can be reached through the outer layout:
+ *
+ * <pre>
+ * EmbeddedStruct price = orders.layout().embedded("price");
+ * StructField mantissa = price.field("mantissa"); // field "price.mantissa" of the order layout
+ * long value = orders.getLong(i, mantissa);
+ * </pre>
+ */
+public final class EmbeddedStruct {
+
+    private final StructLayout layout;
+
+    private final String name;
+
+    private final StructLayout type;
+
+    private final int offset;
+
+    private final int firstField;
+
+    EmbeddedStruct(final StructLayout layout, final String name, final StructLayout type, final int offset,
+            final int firstField) {
+        this.layout = layout;
+        this.name = name;
+        this.type = type;
+        this.offset = offset;
+        this.firstField = firstField;
+    }
+
+    /**
+     * @return layout that embeds the struct.
+     */
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return name of the embedded struct, unique within its layout.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return layout of the embedded struct.
+     */
+    public StructLayout type() {
+        return type;
+    }
+
+    /**
+     * @return offset of the embedded struct from the start of an outer record, in bytes.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return size of the embedded struct in bytes, including its trailing padding.
+     */
+    public int size() {
+        return type.size();
+    }
+
+    /**
+     * @return index of the outer field that corresponds to the first field of the embedded struct.
+     */
+    int firstField() {
+        return firstField;
+    }
+
+    /**
+     * @param field field of the embedded struct's layout.
+     * @return corresponding field of the outer layout.
+     */
+    public StructField field(final StructField field) {
+        type.checkField(field);
+        return layout.field(firstField + field.index());
+    }
+
+    /**
+     * @param name name of a field of the embedded struct's layout.
+     * @return corresponding field of the outer layout.
+     */
+    public StructField field(final String name) {
+        return field(type.field(name));
+    }
+
+    /**
+     * Copies the embedded struct of a record into a record of the embedded struct's layout.
+     *
+     * @param records collection of outer records.
+     * @param index index of the outer record.
+     * @param target collection with the layout of the embedded struct.
+     * @param targetIndex index of the record to overwrite.
+     */
+    public void get(final StructCollection records, final long index, final StructCollection target,
+            final long targetIndex) {
+        checkCollections(records, target);
+        for (final StructField field : type.fields()) {
+            copyValue(records, index, field(field), target, targetIndex, field);
+        }
+    }
+
+    /**
+     * Overwrites the embedded struct of a record with a record of the embedded struct's layout.
+     *
+     * @param records collection of outer records.
+     * @param index index of the outer record.
+     * @param source collection with the layout of the embedded struct.
+     * @param sourceIndex index of the record to copy.
+     */
+    public void set(final StructCollection records, final long index, final StructCollection source,
+            final long sourceIndex) {
+        checkCollections(records, source);
+        for (final StructField field : type.fields()) {
+            copyValue(source, sourceIndex, field, records, index, field(field));
+        }
+    }
+
+    private void checkCollections(final StructCollection records, final StructCollection embedded) {
+        if (records.layout() != layout) {
+            throw new IllegalArgumentException("Collection does not hold " + layout.name() + " records");
+        }
+        if (embedded.layout() != type) {
+            throw new IllegalArgumentException("Collection does not hold " + type.name() + " records");
+        }
+    }
+
+    private static void copyValue(final StructCollection from, final long i, final StructField source,
+            final StructCollection to, final long j, final StructField target) {
+        switch (source.type()) {
+            case BOOLEAN:
+                to.setBoolean(j, target, from.getBoolean(i, source));
+                break;
+            case BYTE:
+                to.setByte(j, target, from.getByte(i, source));
+                break;
+            case CHAR:
+                to.setChar(j, target, from.getChar(i, source));
+                break;
+            case SHORT:
+                to.setShort(j, target, from.getShort(i, source));
+                break;
+            case INT:
+                to.setInt(j, target, from.getInt(i, source));
+                break;
+            case FLOAT:
+                to.setFloat(j, target, from.getFloat(i, source));
+                break;
+            case LONG:
+                to.setLong(j, target, from.getLong(i, source));
+                break;
+            case DOUBLE:
+                to.setDouble(j, target, from.getDouble(i, source));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported field type " + source.type());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type.name() + " " + name + "@" + offset;
+    }
+}
@@ -0,0 +1,133 @@
+package org.jstruct;
+
+import java.util.Objects;
+
+/**
+ * Accessor of one field of records stored in a {@link FlatStructCollection}, generated at runtime.
+ * <p>
+ * For layouts that are only known at runtime (e.g. loaded from configuration) there is no compiled
+ * {@link Struct} interface to generate code for. {@link #of(StructField)} instead spins a hidden class whose accessor
+ * methods read the field at an offset embedded in the bytecode as a constant, so once a call site is inlined the JIT
+ * folds the address arithmetic exactly as for compiled accessors. Only the accessors matching the field type are
+ * supported; others throw {@link IllegalArgumentException}, as the accessors of the collections do.
+ *
+ * <pre>
+ * FieldAccessor price = FieldAccessor.of(layout.field("price"));
+ * for (long i = 0; i &lt; records.size(); ++i) {
+ *     total += price.getDouble(records, i);
+ * }
+ * </pre>
+ *
+ * Accessors are immutable and thread-safe. Generated classes are shared by all fields with the same type and offset.
+ */
+public abstract class FieldAccessor {
+
+    private final StructField field;
+
+    private final StructLayout layout;
+
+    FieldAccessor(final StructField field) {
+        this.field = field;
+        this.layout = field.layout();
+    }
+
+    /**
+     * @param field field to access.
+     * @return accessor with the offset of the field compiled in.
+     */
+    public static FieldAccessor of(final StructField field) {
+        Objects.requireNonNull(field, "Field should be defined");
+        return FieldAccessorGenerator.newAccessor(field);
+    }
+
+    /**
+     * @return accessed field.
+     */
+    public final StructField field() {
+        return field;
+    }
+
+    /**
+     * Called by generated accessors before every access.
+     */
+    final void check(final FlatStructCollection records) {
+        if (records.layout() != layout) {
+            throw new IllegalArgumentException("Field " + field.name() + " does not belong to struct "
+                    + records.layout().name());
+        }
+    }
+
+    private IllegalArgumentException mismatch(final FieldType type) {
+        return new IllegalArgumentException("Field " + field.name() + " of struct " + layout.name() + " is "
+                + field.type() + ", not " + type);
+    }
+
+    public boolean getBoolean(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.BOOLEAN);
+    }
+
+    public void setBoolean(final FlatStructCollection records, final long index, final boolean value) {
+        throw mismatch(FieldType.BOOLEAN);
+    }
+
+    public byte getByte(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.BYTE);
+    }
+
+    public void setByte(final FlatStructCollection records, final long index, final byte value) {
+        throw mismatch(FieldType.BYTE);
+    }
+
+    public char getChar(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.CHAR);
+    }
+
+    public void setChar(final FlatStructCollection records, final long index, final char value) {
+        throw mismatch(FieldType.CHAR);
+    }
+
+    public short getShort(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.SHORT);
+    }
+
+    public void setShort(final FlatStructCollection records, final long index, final short value) {
+        throw mismatch(FieldType.SHORT);
+    }
+
+    public int getInt(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.INT);
+    }
+
+    public void setInt(final FlatStructCollection records, final long index, final int value) {
+        throw mismatch(FieldType.INT);
+    }
+
+    public float getFloat(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.FLOAT);
+    }
+
+    public void setFloat(final FlatStructCollection records, final long index, final float value) {
+        throw mismatch(FieldType.FLOAT);
+    }
+
+    public long getLong(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.LONG);
+    }
+
+    public void setLong(final FlatStructCollection records, final long index, final long value) {
+        throw mismatch(FieldType.LONG);
+    }
+
+    public double getDouble(final FlatStructCollection records, final long index) {
+        throw mismatch(FieldType.DOUBLE);
+    }
+
+    public void setDouble(final FlatStructCollection records, final long index, final double value) {
+        throw mismatch(FieldType.DOUBLE);
+    }
+
+    @Override
+    public String toString() {
+        return "FieldAccessor<" + layout.name() + "." + field.name() + ">";
+    }
+}
@@ -0,0 +1,360 @@
+package org.jstruct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defines hidden subclasses of {@link FieldAccessor} with the field offset embedded as a bytecode constant.
+ * <p>
+ * For a {@code long} field at offset 16 the generated class is equivalent to:
+ *
+ * <pre>
+ * final class GeneratedFieldAccessor extends FieldAccessor {
+ *
+ *     GeneratedFieldAccessor(StructField field) {
+ *         super(field);
+ *     }
+ *
+ *     public long getLong(FlatStructCollection records, long index) {
+ *         check(records);
+ *         return records.getLongAt(records.recordOffset(index) + 16L);
+ *     }
+ *
+ *     public void setLong(FlatStructCollection records, long index, long value) {
+ *         check(records);
+ *         records.setLongAt(records.recordOffset(index) + 16L, value);
+ *     }
+ * }
+ * </pre>
+ *
+ * The methods have no branches, so the class file needs no stack map frames.
+ */
+final class FieldAccessorGenerator {
+
+    private static final String CLASS_NAME = "org/jstruct/GeneratedFieldAccessor";
+
+    private static final String SUPER_NAME = "org/jstruct/FieldAccessor";
+
+    private static final String RECORDS_NAME = "org/jstruct/FlatStructCollection";
+
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(Lorg/jstruct/StructField;)V";
+
+    private static final int ACC_PUBLIC = 0x0001;
+
+    private static final int ACC_FINAL = 0x0010;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ILOAD = 0x15;
+
+    private static final int LLOAD = 0x16;
+
+    private static final int FLOAD = 0x17;
+
+    private static final int DLOAD = 0x18;
+
+    private static final int LLOAD_2 = 0x20;
+
+    private static final int ALOAD_0 = 0x2a;
+
+    private static final int ALOAD_1 = 0x2b;
+
+    private static final int LDC2_W = 0x14;
+
+    private static final int LADD = 0x61;
+
+    private static final int IRETURN = 0xac;
+
+    private static final int LRETURN = 0xad;
+
+    private static final int FRETURN = 0xae;
+
+    private static final int DRETURN = 0xaf;
+
+    private static final int RETURN = 0xb1;
+
+    private static final int INVOKEVIRTUAL = 0xb6;
+
+    private static final int INVOKESPECIAL = 0xb7;
+
+    private static final int INVOKEINTERFACE = 0xb9;
+
+    private static final Map<Long, MethodHandle> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private FieldAccessorGenerator() {
+    }
+
+    static FieldAccessor newAccessor(final StructField field) {
+        final long key = ((long) field.type().ordinal() << 32) | field.offset();
+        final MethodHandle constructor = CONSTRUCTORS.computeIfAbsent(key,
+                k -> defineAccessor(field.type(), field.offset()));
+        try {
+            return (FieldAccessor) constructor.invoke(field);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Cannot create accessor for field " + field.name(), e);
+        }
+    }
+
+    private static MethodHandle defineAccessor(final FieldType type, final int offset) {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup()
+                    .defineHiddenClass(generate(type, offset), true);
+            return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, StructField.class));
+        } catch (final IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Cannot define accessor for " + type + " field at offset " + offset, e);
+        }
+    }
+
+    private static byte[] generate(final FieldType type, final int offset) {
+        final String name = accessorName(type);
+        final String descriptor = descriptor(type);
+        final ClassFile cf = new ClassFile();
+        final int thisClass = cf.classRef(CLASS_NAME);
+        final int superClass = cf.classRef(SUPER_NAME);
+        final int superConstructor = cf.methodRef(SUPER_NAME, "<init>", CONSTRUCTOR_DESCRIPTOR, false);
+        final int check = cf.methodRef(SUPER_NAME, "check", "(L" + RECORDS_NAME + ";)V", false);
+        final int recordOffset = cf.methodRef(RECORDS_NAME, "recordOffset", "(J)J", true);
+        final int getAt = cf.methodRef(RECORDS_NAME, "get" + name + "At", "(J)" + descriptor, true);
+        final int setAt = cf.methodRef(RECORDS_NAME, "set" + name + "At", "(J" + descriptor + ")V", true);
+        final int offsetConstant = cf.longConstant(offset);
+        final int valueSlots = type == FieldType.LONG || type == FieldType.DOUBLE ? 2 : 1;
+
+        final Code constructor = new Code();
+        constructor.op(ALOAD_0).op(ALOAD_1).op(INVOKESPECIAL).u2(superConstructor).op(RETURN);
+
+        final Code getter = new Code();
+        getter.op(ALOAD_0).op(ALOAD_1).op(INVOKEVIRTUAL).u2(check);
+        getter.op(ALOAD_1).op(ALOAD_1).op(LLOAD_2).op(INVOKEINTERFACE).u2(recordOffset).u1(3).u1(0);
+        getter.op(LDC2_W).u2(offsetConstant).op(LADD);
+        getter.op(INVOKEINTERFACE).u2(getAt).u1(3).u1(0).op(returnOpcode(type));
+
+        final Code setter = new Code();
+        setter.op(ALOAD_0).op(ALOAD_1).op(INVOKEVIRTUAL).u2(check);
+        setter.op(ALOAD_1).op(ALOAD_1).op(LLOAD_2).op(INVOKEINTERFACE).u2(recordOffset).u1(3).u1(0);
+        setter.op(LDC2_W).u2(offsetConstant).op(LADD);
+        setter.op(loadOpcode(type)).u1(4);
+        setter.op(INVOKEINTERFACE).u2(setAt).u1(3 + valueSlots).u1(0).op(RETURN);
+
+        final String parameters = "(L" + RECORDS_NAME + ";J";
+        cf.method(0, "<init>", CONSTRUCTOR_DESCRIPTOR, 2, 2, constructor);
+        cf.method(ACC_PUBLIC, "get" + name, parameters + ")" + descriptor, 5, 4, getter);
+        cf.method(ACC_PUBLIC, "set" + name, parameters + descriptor + ")V", 5 + valueSlots, 4 + valueSlots, setter);
+        return cf.toByteArray(thisClass, superClass);
+    }
+
+    private static String accessorName(final FieldType type) {
+        final String name = type.name();
+        return name.charAt(0) + name.substring(1).toLowerCase();
+    }
+
+    private static String descriptor(final FieldType type) {
+        switch (type) {
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case CHAR:
+                return "C";
+            case SHORT:
+                return "S";
+            case INT:
+                return "I";
+            case FLOAT:
+                return "F";
+            case LONG:
+                return "J";
+            case DOUBLE:
+                return "D";
+            default:
+                throw new IllegalArgumentException("Unsupported field type " + type);
+        }
+    }
+
+    private static int returnOpcode(final FieldType type) {
+        switch (type) {
+            case FLOAT:
+                return FRETURN;
+            case LONG:
+                return LRETURN;
+            case DOUBLE:
+                return DRETURN;
+            default:
+                return IRETURN;
+        }
+    }
+
+    private static int loadOpcode(final FieldType type) {
+        switch (type) {
+            case FLOAT:
+                return FLOAD;
+            case LONG:
+                return LLOAD;
+            case DOUBLE:
+                return DLOAD;
+            default:
+                return ILOAD;
+        }
+    }
+
+    /**
+     * Bytecode of one method.
+     */
+    private static final class Code {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(final int opcode) {
+            return u1(opcode);
+        }
+
+        Code u1(final int value) {
+            bytes.write(value);
+            return this;
+        }
+
+        Code u2(final int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+            return this;
+        }
+    }
+
+    /**
+     * Minimal class file writer: a constant pool with deduplicated entries and a list of methods.
+     */
+    private static final class ClassFile {
+
+        private static final int MAJOR_VERSION = 61; // Java 17
+
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+        private final DataOutputStream poolOut = new DataOutputStream(pool);
+
+        private final Map<String, Integer> entries = new HashMap<>();
+
+        private int poolCount = 1;
+
+        private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+
+        private final DataOutputStream methodsOut = new DataOutputStream(methods);
+
+        private int methodCount;
+
+        private int entry(final String key, final int slots, final PoolWriter writer) {
+            final Integer existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                writer.write(poolOut);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final int index = poolCount;
+            poolCount += slots;
+            entries.put(key, index);
+            return index;
+        }
+
+        int utf8(final String value) {
+            return entry("U" + value, 1, out -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(final String internalName) {
+            final int name = utf8(internalName);
+            return entry("C" + internalName, 1, out -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        int longConstant(final long value) {
+            return entry("J" + value, 2, out -> {
+                out.writeByte(5);
+                out.writeLong(value);
+            });
+        }
+
+        int methodRef(final String owner, final String name, final String descriptor, final boolean isInterface) {
+            final int ownerIndex = classRef(owner);
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            final int nameAndType = entry("T" + name + descriptor, 1, out -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("M" + owner + "." + name + descriptor, 1, out -> {
+                out.writeByte(isInterface ? 11 : 10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void method(final int access, final String name, final String descriptor, final int maxStack,
+                final int maxLocals, final Code code) {
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            final int codeIndex = utf8("Code");
+            final byte[] bytecode = code.bytes.toByteArray();
+            try {
+                methodsOut.writeShort(access);
+                methodsOut.writeShort(nameIndex);
+                methodsOut.writeShort(descriptorIndex);
+                methodsOut.writeShort(1);
+                methodsOut.writeShort(codeIndex);
+                methodsOut.writeInt(12 + bytecode.length);
+                methodsOut.writeShort(maxStack);
+                methodsOut.writeShort(maxLocals);
+                methodsOut.writeInt(bytecode.length);
+                methodsOut.write(bytecode);
+                methodsOut.writeShort(0); // exception table
+                methodsOut.writeShort(0); // attributes
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ++methodCount;
+        }
+
+        byte[] toByteArray(final int thisClass, final int superClass) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(MAJOR_VERSION);
+                out.writeShort(poolCount);
+                pool.writeTo(out);
+                out.writeShort(ACC_FINAL | ACC_SUPER);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(0); // interfaces
+                out.writeShort(0); // fields
+                out.writeShort(methodCount);
+                methods.writeTo(out);
+                out.writeShort(0); // attributes
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PoolWriter {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,43 @@
+package org.jstruct;
+
+/**
+ * Primitive types that can be stored in a struct field.
+ * <p>
+ * Every type is stored with its natural size and aligned to that size inside a record. Booleans occupy one byte.
+ */
+public enum FieldType {
+
+    BOOLEAN(1),
+    BYTE(1),
+    CHAR(2),
+    SHORT(2),
+    INT(4),
+    FLOAT(4),
+    LONG(8),
+    DOUBLE(8);
+
+    private final int size;
+
+    FieldType(final int size) {
+        this.size = size;
+    }
+
+    /**
+     * @return size of the value in bytes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return required alignment of the value in bytes.
+     */
+    public int alignment() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+}
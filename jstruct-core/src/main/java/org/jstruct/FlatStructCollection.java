@@ -0,0 +1,51 @@
+package org.jstruct;
+
+/**
+ * Struct collection whose records are stored back to back in one flat block of memory (array of structs).
+ * <p>
+ * Besides the field-checked accessors of {@link StructCollection}, such collections expose raw accessors addressed by
+ * byte offset. The offset of a value is {@link #recordOffset(long)} plus {@link StructField#offset()}; when the field
+ * offset is a compile-time constant the JIT folds the address arithmetic, which is what generated accessors rely on.
+ * Raw accessors do not check fields, only that the value lies inside the backing memory.
+ */
+public interface FlatStructCollection extends StructCollection {
+
+    /**
+     * @param index index of the record.
+     * @return offset of the first byte of the record in the backing memory.
+     * @throws IndexOutOfBoundsException if the index is outside {@code [0, size())}.
+     */
+    long recordOffset(long index);
+
+    boolean getBooleanAt(long offset);
+
+    void setBooleanAt(long offset, boolean value);
+
+    byte getByteAt(long offset);
+
+    void setByteAt(long offset, byte value);
+
+    char getCharAt(long offset);
+
+    void setCharAt(long offset, char value);
+
+    short getShortAt(long offset);
+
+    void setShortAt(long offset, short value);
+
+    int getIntAt(long offset);
+
+    void setIntAt(long offset, int value);
+
+    float getFloatAt(long offset);
+
+    void setFloatAt(long offset, float value);
+
+    long getLongAt(long offset);
+
+    void setLongAt(long offset, long value);
+
+    double getDoubleAt(long offset);
+
+    void setDoubleAt(long offset, double value);
+}
@@ -0,0 +1,72 @@
+package org.jstruct;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator over the record indices {@code [from, to)} of a collection.
+ * <p>
+ * Split points are multiples of {@link #ALIGNMENT} records. A run of 64 records covers a whole number of 64-byte cache
+ * lines both in row storage, whatever the record size, and in every column of column storage, so tasks working on
+ * neighbouring ranges do not write to the same cache line (given line-aligned storage).
+ */
+final class IndexSpliterator implements Spliterator.OfLong {
+
+    static final long ALIGNMENT = 64;
+
+    private long from;
+
+    private final long to;
+
+    IndexSpliterator(final long from, final long to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return aligned point splitting {@code [from, to)} roughly in half, or {@code from} if the range is too small.
+     */
+    static long split(final long from, final long to) {
+        final long mid = (from + (to - from) / 2) & -ALIGNMENT;
+        return mid > from ? mid : from;
+    }
+
+    @Override
+    public OfLong trySplit() {
+        final long mid = split(from, to);
+        if (mid == from) {
+            return null;
+        }
+        final IndexSpliterator prefix = new IndexSpliterator(from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(final LongConsumer action) {
+        if (from >= to) {
+            return false;
+        }
+        action.accept(from++);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final LongConsumer action) {
+        final long end = to;
+        for (long i = from; i < end; ++i) {
+            action.accept(i);
+        }
+        from = end;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | DISTINCT | NONNULL;
+    }
+}
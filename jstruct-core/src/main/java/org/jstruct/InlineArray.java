@@ -0,0 +1,249 @@
+package org.jstruct;
+
+import java.util.Objects;
+
+/**
+ * Fixed-length array stored inline in the records of a {@link StructLayout}, declared with
+ * {@link StructLayout.Builder#addArray(String, FieldType, int)}.
+ * <p>
+ * Every element is a field of the layout, so {@link #element(int)} gives bounds-checked access through any collection.
+ * On flat collections the elements can also be addressed by byte offset: {@link #elementOffset(int)} does not check
+ * the index, for loops that already stay within {@link #length()}:
+ *
+ * <pre>
+ * InlineArray levels = book.array("levels");
+ * long best = books.getLong(i, levels.element(0));
+ * long base = books.recordOffset(i);
+ * for (int k = 0; k &lt; levels.length(); ++k) {
+ *     total += books.getLongAt(base + levels.elementOffset(k));
+ * }
+ * </pre>
+ *
+ * Arrays of {@code char} or {@code byte} can hold a string of at most {@link #length()} characters, padded with
+ * {@code '\0'}; byte arrays hold ISO-8859-1 characters.
+ */
+public final class InlineArray {
+
+    private final StructLayout layout;
+
+    private final String name;
+
+    private final FieldType type;
+
+    private final int length;
+
+    private final int offset;
+
+    private final int firstField;
+
+    InlineArray(final StructLayout layout, final String name, final FieldType type, final int length,
+            final int offset, final int firstField) {
+        this.layout = layout;
+        this.name = name;
+        this.type = type;
+        this.length = length;
+        this.offset = offset;
+        this.firstField = firstField;
+    }
+
+    /**
+     * @return layout that declares the array.
+     */
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return name of the array, unique within its layout.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return type of the elements.
+     */
+    public FieldType type() {
+        return type;
+    }
+
+    /**
+     * @return number of elements.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return offset of the first element from the start of a record, in bytes.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return size of the array in bytes.
+     */
+    public int size() {
+        return length * type.size();
+    }
+
+    /**
+     * @return index of the field of the first element.
+     */
+    int firstField() {
+        return firstField;
+    }
+
+    /**
+     * @param index index of the element.
+     * @return field of the element.
+     * @throws IndexOutOfBoundsException if the index is outside {@code [0, length())}.
+     */
+    public StructField element(final int index) {
+        return layout.field(firstField + Objects.checkIndex(index, length));
+    }
+
+    /**
+     * Offset of an element from the start of a record, without checking the index: an index outside
+     * {@code [0, length())} addresses other fields of the record, or other records.
+     *
+     * @param index index of the element.
+     * @return offset of the element in bytes.
+     */
+    public long elementOffset(final int index) {
+        return offset + (long) index * type.size();
+    }
+
+    /**
+     * @param records collection with the layout of the array.
+     * @param index index of the record.
+     * @return characters up to the first {@code '\0'} or the end of the array.
+     */
+    public String getString(final StructCollection records, final long index) {
+        checkString(records);
+        if (records instanceof FlatStructCollection) {
+            final FlatStructCollection flat = (FlatStructCollection) records;
+            return getStringAt(flat, flat.recordOffset(index));
+        }
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; ++i) {
+            final StructField element = layout.field(firstField + i);
+            final char c = type == FieldType.CHAR
+                    ? records.getChar(index, element)
+                    : (char) (records.getByte(index, element) & 0xFF);
+            if (c == 0) {
+                break;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param records collection with the layout of the array.
+     * @param index index of the record.
+     * @param value string of at most {@link #length()} characters without {@code '\0'}; the rest of the array is
+     *        zeroed.
+     * @throws IllegalArgumentException if the string is too long, or has characters a byte array cannot hold.
+     */
+    public void setString(final StructCollection records, final long index, final String value) {
+        checkString(records);
+        checkValue(value);
+        if (records instanceof FlatStructCollection) {
+            final FlatStructCollection flat = (FlatStructCollection) records;
+            setStringAt(flat, flat.recordOffset(index), value);
+            return;
+        }
+        for (int i = 0; i < length; ++i) {
+            final StructField element = layout.field(firstField + i);
+            final char c = i < value.length() ? value.charAt(i) : 0;
+            if (type == FieldType.CHAR) {
+                records.setChar(index, element, c);
+            } else {
+                records.setByte(index, element, (byte) c);
+            }
+        }
+    }
+
+    /**
+     * Reads a string at a byte offset; the layout of the collection is not checked.
+     *
+     * @param records collection holding the array.
+     * @param recordOffset offset of the record that holds the array, or of the embedded struct that declares it.
+     * @return characters up to the first {@code '\0'} or the end of the array.
+     */
+    public String getStringAt(final FlatStructCollection records, final long recordOffset) {
+        checkStringType();
+        final long base = recordOffset + offset;
+        final char[] chars = new char[length];
+        int n = 0;
+        if (type == FieldType.CHAR) {
+            for (char c; n < length && (c = records.getCharAt(base + 2L * n)) != 0; ++n) {
+                chars[n] = c;
+            }
+        } else {
+            for (char c; n < length && (c = (char) (records.getByteAt(base + n) & 0xFF)) != 0; ++n) {
+                chars[n] = c;
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
+    /**
+     * Writes a string at a byte offset; the layout of the collection is not checked.
+     *
+     * @param records collection holding the array.
+     * @param recordOffset offset of the record that holds the array, or of the embedded struct that declares it.
+     * @param value string of at most {@link #length()} characters without {@code '\0'}; the rest of the array is
+     *        zeroed.
+     * @throws IllegalArgumentException if the string is too long, or has characters a byte array cannot hold.
+     */
+    public void setStringAt(final FlatStructCollection records, final long recordOffset, final String value) {
+        checkStringType();
+        checkValue(value);
+        final long base = recordOffset + offset;
+        for (int i = 0; i < length; ++i) {
+            final char c = i < value.length() ? value.charAt(i) : 0;
+            if (type == FieldType.CHAR) {
+                records.setCharAt(base + 2L * i, c);
+            } else {
+                records.setByteAt(base + i, (byte) c);
+            }
+        }
+    }
+
+    private void checkString(final StructCollection records) {
+        if (records.layout() != layout) {
+            throw new IllegalArgumentException("Collection does not hold " + layout.name() + " records");
+        }
+        checkStringType();
+    }
+
+    private void checkStringType() {
+        if (type != FieldType.CHAR && type != FieldType.BYTE) {
+            throw new IllegalArgumentException("Array " + name + " of struct " + layout.name() + " is " + type
+                    + "[], not char[] or byte[]");
+        }
+    }
+
+    private void checkValue(final String value) {
+        Objects.requireNonNull(value, "String should be defined");
+        if (value.length() > length) {
+            throw new IllegalArgumentException("String of " + value.length() + " characters does not fit array "
+                    + name + " of " + length);
+        }
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            if (c == 0 || type == FieldType.BYTE && c > 0xFF) {
+                throw new IllegalArgumentException("Array " + name + " of " + type + " cannot hold character "
+                        + (int) c);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + "[" + length + "] " + name + "@" + offset;
+    }
+}
@@ -0,0 +1,41 @@
+package org.jstruct;
+
+import org.jstruct.ColumnKernels.Comparison;
+
+/**
+ * Implementation of {@link ColumnKernels}; arguments are validated by the caller.
+ */
+interface Kernels {
+
+    boolean isVectorized();
+
+    long sum(int[] column, int from, int to);
+
+    long sum(long[] column, int from, int to);
+
+    double sum(double[] column, int from, int to);
+
+    int min(int[] column, int from, int to);
+
+    long min(long[] column, int from, int to);
+
+    double min(double[] column, int from, int to);
+
+    int max(int[] column, int from, int to);
+
+    long max(long[] column, int from, int to);
+
+    double max(double[] column, int from, int to);
+
+    int compare(int[] column, int from, int to, Comparison op, int value, long[] bitmap);
+
+    int compare(long[] column, int from, int to, Comparison op, long value, long[] bitmap);
+
+    int compare(double[] column, int from, int to, Comparison op, double value, long[] bitmap);
+
+    int filter(int[] column, int from, int to, Comparison op, int value, int[] selection);
+
+    int filter(long[] column, int from, int to, Comparison op, long value, int[] selection);
+
+    int filter(double[] column, int from, int to, Comparison op, double value, int[] selection);
+}
@@ -0,0 +1,92 @@
+package org.jstruct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * {@link StructRingBuffer} for any number of producer threads and one consumer thread.
+ * <p>
+ * Producers claim sequences with a compare-and-set on the tail and may publish in any order. Each slot has a flag
+ * recording the sequence last published into it, so the consumer knows whether the message at its head is complete
+ * without waiting on a shared published counter, and a slow producer only delays the messages behind its own. The
+ * claiming producer also marks the flag, which lets {@link #publish(long)} check the sequence without reading the
+ * contended tail. Flags of consecutive slots are spread over different cache lines, so that producers publishing
+ * neighbouring messages do not write to the same line.
+ */
+public final class MpscStructRingBuffer extends StructRingBuffer {
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Flags in a 64-byte cache line.
+     */
+    private static final int FLAGS_PER_LINE = 8;
+
+    /**
+     * Flag of each slot, at {@link #flag(long)}: the sequence last published into the slot, {@link #claimed(long)}
+     * of a sequence claimed but not yet published, or {@code -1} before the first lap.
+     */
+    private final long[] published;
+
+    private final int lineMask;
+
+    private final int lineShift;
+
+    /**
+     * @param layout layout of the messages.
+     * @param capacity number of slots, rounded up to a power of two.
+     */
+    public MpscStructRingBuffer(final StructLayout layout, final int capacity) {
+        super(layout, capacity);
+        final int lines = Math.max(1, this.capacity / FLAGS_PER_LINE);
+        this.published = new long[lines * FLAGS_PER_LINE];
+        this.lineMask = lines - 1;
+        this.lineShift = Integer.numberOfTrailingZeros(lines);
+        Arrays.fill(published, -1);
+    }
+
+    /**
+     * @return index of the flag of the sequence's slot; consecutive slots go to consecutive lines.
+     */
+    private int flag(final long sequence) {
+        final int slot = (int) (sequence & mask);
+        return (slot & lineMask) * FLAGS_PER_LINE + (slot >>> lineShift);
+    }
+
+    /**
+     * @return flag of a claimed sequence, negative and distinct from any published sequence and from {@code -1}.
+     */
+    private static long claimed(final long sequence) {
+        return -2 - sequence;
+    }
+
+    @Override
+    public long tryClaim() {
+        while (true) {
+            final long tail = (long) COUNTERS.getVolatile(counters, TAIL);
+            if (tail - (long) COUNTERS.getAcquire(counters, HEAD) >= capacity) {
+                return -1;
+            }
+            if (COUNTERS.compareAndSet(counters, TAIL, tail, tail + 1)) {
+                // The consumer released the previous lap of the slot, so it no longer waits on this flag.
+                PUBLISHED.setOpaque(published, flag(tail), claimed(tail));
+                return tail;
+            }
+        }
+    }
+
+    @Override
+    public void publish(final long sequence) {
+        if (sequence < 0 || (long) PUBLISHED.getOpaque(published, flag(sequence)) != claimed(sequence)) {
+            throw new IllegalStateException("Message " + sequence + " is not a claimed one");
+        }
+        PUBLISHED.setRelease(published, flag(sequence), sequence);
+    }
+
+    @Override
+    public long tryPeek() {
+        final long head = (long) COUNTERS.getOpaque(counters, HEAD);
+        return (long) PUBLISHED.getAcquire(published, flag(head)) == head ? head : -1;
+    }
+}
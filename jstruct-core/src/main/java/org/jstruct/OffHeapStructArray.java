@@ -0,0 +1,421 @@
+package org.jstruct;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * Fixed-length array of structs stored outside the Java heap in a {@link MemorySegment}.
+ * <p>
+ * Records are laid out exactly as in {@link StructArray}, but the memory is not scanned or moved by the garbage
+ * collector and is not limited by the heap size or by the maximum length of a Java array. The lifetime of the memory
+ * is controlled by the {@link Arena} it was allocated from: a confined arena restricts access to the owning thread,
+ * a shared arena allows concurrent access, and closing the arena releases the memory and invalidates the array.
+ */
+public final class OffHeapStructArray implements FlatStructCollection {
+
+    private final StructLayout layout;
+
+    private final long recordSize;
+
+    private final MemorySegment segment;
+
+    private final long length;
+
+    private OffHeapStructArray(final StructLayout layout, final MemorySegment segment, final long length) {
+        this.layout = layout;
+        this.recordSize = layout.size();
+        this.segment = segment;
+        this.length = length;
+    }
+
+    /**
+     * Allocates a zero-filled array.
+     *
+     * @param layout layout of the records.
+     * @param length number of records.
+     * @param arena arena that owns the memory.
+     * @return new array.
+     */
+    public static OffHeapStructArray allocate(final StructLayout layout, final long length, final Arena arena) {
+        Objects.requireNonNull(layout, "Layout should be defined");
+        Objects.requireNonNull(arena, "Arena should be defined");
+        if (length < 0) {
+            throw new IllegalArgumentException("Length should not be negative: " + length);
+        }
+        final MemorySegment segment = arena.allocate(Math.multiplyExact(length, (long) layout.size()),
+                layout.alignment());
+        return new OffHeapStructArray(layout, segment, length);
+    }
+
+    /**
+     * Views existing memory as an array of structs. The array covers as many whole records as fit in the segment.
+     *
+     * @param layout layout of the records.
+     * @param segment memory holding the records.
+     * @return new array sharing the memory of the segment.
+     * @throws IllegalArgumentException if the segment is not aligned to the layout.
+     */
+    public static OffHeapStructArray wrap(final StructLayout layout, final MemorySegment segment) {
+        Objects.requireNonNull(layout, "Layout should be defined");
+        Objects.requireNonNull(segment, "Segment should be defined");
+        if (segment.address() % layout.alignment() != 0) {
+            throw new IllegalArgumentException("Segment is not aligned to " + layout.alignment() + " bytes");
+        }
+        final long length = segment.byteSize() / layout.size();
+        return new OffHeapStructArray(layout, segment.asSlice(0, length * layout.size()), length);
+    }
+
+    @Override
+    public StructLayout layout() {
+        return layout;
+    }
+
+    @Override
+    public long size() {
+        return length;
+    }
+
+    @Override
+    public StructCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return memory holding the records.
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    @Override
+    public void copy(final long from, final long to) {
+        MemorySegment.copy(segment, offset(from), segment, offset(to), recordSize);
+    }
+
+    @Override
+    public void swap(final long i, final long j) {
+        final long a = offset(i);
+        final long b = offset(j);
+        long k = 0;
+        // Records are only aligned to the layout, so words past the first record may straddle 8-byte boundaries.
+        for (; k + Long.BYTES <= recordSize; k += Long.BYTES) {
+            final long t = segment.get(ValueLayout.JAVA_LONG_UNALIGNED, a + k);
+            segment.set(ValueLayout.JAVA_LONG_UNALIGNED, a + k, segment.get(ValueLayout.JAVA_LONG_UNALIGNED, b + k));
+            segment.set(ValueLayout.JAVA_LONG_UNALIGNED, b + k, t);
+        }
+        for (; k < recordSize; ++k) {
+            final byte t = segment.get(ValueLayout.JAVA_BYTE, a + k);
+            segment.set(ValueLayout.JAVA_BYTE, a + k, segment.get(ValueLayout.JAVA_BYTE, b + k));
+            segment.set(ValueLayout.JAVA_BYTE, b + k, t);
+        }
+    }
+
+    private long offset(final long index) {
+        return Objects.checkIndex(index, length) * recordSize;
+    }
+
+    private long offset(final long index, final StructField field, final FieldType type) {
+        layout.checkField(field, type);
+        return offset(index) + field.offset();
+    }
+
+    @Override
+    public boolean getBoolean(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_BYTE, offset(index, field, FieldType.BOOLEAN)) != 0;
+    }
+
+    @Override
+    public void setBoolean(final long index, final StructField field, final boolean value) {
+        segment.set(ValueLayout.JAVA_BYTE, offset(index, field, FieldType.BOOLEAN), value ? (byte) 1 : (byte) 0);
+    }
+
+    @Override
+    public byte getByte(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_BYTE, offset(index, field, FieldType.BYTE));
+    }
+
+    @Override
+    public void setByte(final long index, final StructField field, final byte value) {
+        segment.set(ValueLayout.JAVA_BYTE, offset(index, field, FieldType.BYTE), value);
+    }
+
+    @Override
+    public char getChar(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_CHAR, offset(index, field, FieldType.CHAR));
+    }
+
+    @Override
+    public void setChar(final long index, final StructField field, final char value) {
+        segment.set(ValueLayout.JAVA_CHAR, offset(index, field, FieldType.CHAR), value);
+    }
+
+    @Override
+    public short getShort(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_SHORT, offset(index, field, FieldType.SHORT));
+    }
+
+    @Override
+    public void setShort(final long index, final StructField field, final short value) {
+        segment.set(ValueLayout.JAVA_SHORT, offset(index, field, FieldType.SHORT), value);
+    }
+
+    @Override
+    public int getInt(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_INT, offset(index, field, FieldType.INT));
+    }
+
+    @Override
+    public void setInt(final long index, final StructField field, final int value) {
+        segment.set(ValueLayout.JAVA_INT, offset(index, field, FieldType.INT), value);
+    }
+
+    @Override
+    public float getFloat(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_FLOAT, offset(index, field, FieldType.FLOAT));
+    }
+
+    @Override
+    public void setFloat(final long index, final StructField field, final float value) {
+        segment.set(ValueLayout.JAVA_FLOAT, offset(index, field, FieldType.FLOAT), value);
+    }
+
+    @Override
+    public long getLong(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_LONG, offset(index, field, FieldType.LONG));
+    }
+
+    @Override
+    public void setLong(final long index, final StructField field, final long value) {
+        segment.set(ValueLayout.JAVA_LONG, offset(index, field, FieldType.LONG), value);
+    }
+
+    @Override
+    public double getDouble(final long index, final StructField field) {
+        return segment.get(ValueLayout.JAVA_DOUBLE, offset(index, field, FieldType.DOUBLE));
+    }
+
+    @Override
+    public void setDouble(final long index, final StructField field, final double value) {
+        segment.set(ValueLayout.JAVA_DOUBLE, offset(index, field, FieldType.DOUBLE), value);
+    }
+
+    @Override
+    public long recordOffset(final long index) {
+        return offset(index);
+    }
+
+    @Override
+    public boolean getBooleanAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_BYTE, offset) != 0;
+    }
+
+    @Override
+    public void setBooleanAt(final long offset, final boolean value) {
+        segment.set(ValueLayout.JAVA_BYTE, offset, value ? (byte) 1 : (byte) 0);
+    }
+
+    @Override
+    public byte getByteAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_BYTE, offset);
+    }
+
+    @Override
+    public void setByteAt(final long offset, final byte value) {
+        segment.set(ValueLayout.JAVA_BYTE, offset, value);
+    }
+
+    @Override
+    public char getCharAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_CHAR, offset);
+    }
+
+    @Override
+    public void setCharAt(final long offset, final char value) {
+        segment.set(ValueLayout.JAVA_CHAR, offset, value);
+    }
+
+    @Override
+    public short getShortAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_SHORT, offset);
+    }
+
+    @Override
+    public void setShortAt(final long offset, final short value) {
+        segment.set(ValueLayout.JAVA_SHORT, offset, value);
+    }
+
+    @Override
+    public int getIntAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_INT, offset);
+    }
+
+    @Override
+    public void setIntAt(final long offset, final int value) {
+        segment.set(ValueLayout.JAVA_INT, offset, value);
+    }
+
+    @Override
+    public float getFloatAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_FLOAT, offset);
+    }
+
+    @Override
+    public void setFloatAt(final long offset, final float value) {
+        segment.set(ValueLayout.JAVA_FLOAT, offset, value);
+    }
+
+    @Override
+    public long getLongAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_LONG, offset);
+    }
+
+    @Override
+    public void setLongAt(final long offset, final long value) {
+        segment.set(ValueLayout.JAVA_LONG, offset, value);
+    }
+
+    @Override
+    public double getDoubleAt(final long offset) {
+        return segment.get(ValueLayout.JAVA_DOUBLE, offset);
+    }
+
+    @Override
+    public void setDoubleAt(final long offset, final double value) {
+        segment.set(ValueLayout.JAVA_DOUBLE, offset, value);
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapStructArray<" + layout.name() + ">[" + length + "]";
+    }
+
+    private final class Cursor implements StructCursor {
+
+        private long index = -1;
+
+        private long base;
+
+        @Override
+        public StructCollection collection() {
+            return OffHeapStructArray.this;
+        }
+
+        @Override
+        public long index() {
+            return index;
+        }
+
+        @Override
+        public StructCursor moveTo(final long index) {
+            this.base = OffHeapStructArray.this.offset(index);
+            this.index = index;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= length) {
+                return false;
+            }
+            base = ++index * recordSize;
+            return true;
+        }
+
+        @Override
+        public StructCursor reset() {
+            index = -1;
+            base = 0;
+            return this;
+        }
+
+        private long offset(final StructField field, final FieldType type) {
+            layout.checkField(field, type);
+            if (index < 0) {
+                throw new IllegalStateException("Cursor is before the first record");
+            }
+            return base + field.offset();
+        }
+
+        @Override
+        public boolean getBoolean(final StructField field) {
+            return segment.get(ValueLayout.JAVA_BYTE, offset(field, FieldType.BOOLEAN)) != 0;
+        }
+
+        @Override
+        public void setBoolean(final StructField field, final boolean value) {
+            segment.set(ValueLayout.JAVA_BYTE, offset(field, FieldType.BOOLEAN), value ? (byte) 1 : (byte) 0);
+        }
+
+        @Override
+        public byte getByte(final StructField field) {
+            return segment.get(ValueLayout.JAVA_BYTE, offset(field, FieldType.BYTE));
+        }
+
+        @Override
+        public void setByte(final StructField field, final byte value) {
+            segment.set(ValueLayout.JAVA_BYTE, offset(field, FieldType.BYTE), value);
+        }
+
+        @Override
+        public char getChar(final StructField field) {
+            return segment.get(ValueLayout.JAVA_CHAR, offset(field, FieldType.CHAR));
+        }
+
+        @Override
+        public void setChar(final StructField field, final char value) {
+            segment.set(ValueLayout.JAVA_CHAR, offset(field, FieldType.CHAR), value);
+        }
+
+        @Override
+        public short getShort(final StructField field) {
+            return segment.get(ValueLayout.JAVA_SHORT, offset(field, FieldType.SHORT));
+        }
+
+        @Override
+        public void setShort(final StructField field, final short value) {
+            segment.set(ValueLayout.JAVA_SHORT, offset(field, FieldType.SHORT), value);
+        }
+
+        @Override
+        public int getInt(final StructField field) {
+            return segment.get(ValueLayout.JAVA_INT, offset(field, FieldType.INT));
+        }
+
+        @Override
+        public void setInt(final StructField field, final int value) {
+            segment.set(ValueLayout.JAVA_INT, offset(field, FieldType.INT), value);
+        }
+
+        @Override
+        public float getFloat(final StructField field) {
+            return segment.get(ValueLayout.JAVA_FLOAT, offset(field, FieldType.FLOAT));
+        }
+
+        @Override
+        public void setFloat(final StructField field, final float value) {
+            segment.set(ValueLayout.JAVA_FLOAT, offset(field, FieldType.FLOAT), value);
+        }
+
+        @Override
+        public long getLong(final StructField field) {
+            return segment.get(ValueLayout.JAVA_LONG, offset(field, FieldType.LONG));
+        }
+
+        @Override
+        public void setLong(final StructField field, final long value) {
+            segment.set(ValueLayout.JAVA_LONG, offset(field, FieldType.LONG), value);
+        }
+
+        @Override
+        public double getDouble(final StructField field) {
+            return segment.get(ValueLayout.JAVA_DOUBLE, offset(field, FieldType.DOUBLE));
+        }
+
+        @Override
+        public void setDouble(final StructField field, final double value) {
+            segment.set(ValueLayout.JAVA_DOUBLE, offset(field, FieldType.DOUBLE), value);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.jstruct;
+
+import org.jstruct.ColumnKernels.Comparison;
+
+/**
+ * Plain loops, used when the Vector API is not available.
+ */
+final class ScalarKernels implements Kernels {
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+
+    @Override
+    public long sum(final int[] column, final int from, final int to) {
+        long sum = 0;
+        for (int i = from; i < to; ++i) {
+            sum += column[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long sum(final long[] column, final int from, final int to) {
+        long sum = 0;
+        for (int i = from; i < to; ++i) {
+            sum += column[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sum(final double[] column, final int from, final int to) {
+        double sum = 0;
+        for (int i = from; i < to; ++i) {
+            sum += column[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int min(final int[] column, final int from, final int to) {
+        int min = Integer.MAX_VALUE;
+        for (int i = from; i < to; ++i) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public long min(final long[] column, final int from, final int to) {
+        long min = Long.MAX_VALUE;
+        for (int i = from; i < to; ++i) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public double min(final double[] column, final int from, final int to) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; ++i) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public int max(final int[] column, final int from, final int to) {
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; ++i) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public long max(final long[] column, final int from, final int to) {
+        long max = Long.MIN_VALUE;
+        for (int i = from; i < to; ++i) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public double max(final double[] column, final int from, final int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; ++i) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public int compare(final int[] column, final int from, final int to, final Comparison op, final int value,
+            final long[] bitmap) {
+        int count = 0;
+        for (int w = 0, words = ColumnKernels.words(from, to); w < words; ++w) {
+            final int i = from + w * Long.SIZE;
+            final int end = i + Math.min(Long.SIZE, to - i);
+            long word = 0;
+            for (int k = i; k < end; ++k) {
+                word |= (op.test(column[k], value) ? 1L : 0L) << (k - i);
+            }
+            bitmap[w] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int compare(final long[] column, final int from, final int to, final Comparison op, final long value,
+            final long[] bitmap) {
+        int count = 0;
+        for (int w = 0, words = ColumnKernels.words(from, to); w < words; ++w) {
+            final int i = from + w * Long.SIZE;
+            final int end = i + Math.min(Long.SIZE, to - i);
+            long word = 0;
+            for (int k = i; k < end; ++k) {
+                word |= (op.test(column[k], value) ? 1L : 0L) << (k - i);
+            }
+            bitmap[w] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int compare(final double[] column, final int from, final int to, final Comparison op, final double value,
+            final long[] bitmap) {
+        int count = 0;
+        for (int w = 0, words = ColumnKernels.words(from, to); w < words; ++w) {
+            final int i = from + w * Long.SIZE;
+            final int end = i + Math.min(Long.SIZE, to - i);
+            long word = 0;
+            for (int k = i; k < end; ++k) {
+                word |= (op.test(column[k], value) ? 1L : 0L) << (k - i);
+            }
+            bitmap[w] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int filter(final int[] column, final int from, final int to, final Comparison op, final int value,
+            final int[] selection) {
+        int count = 0;
+        for (int i = from; i < to; ++i) {
+            selection[count] = i;
+            count += op.test(column[i], value) ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public int filter(final long[] column, final int from, final int to, final Comparison op, final long value,
+            final int[] selection) {
+        int count = 0;
+        for (int i = from; i < to; ++i) {
+            selection[count] = i;
+            count += op.test(column[i], value) ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public int filter(final double[] column, final int from, final int to, final Comparison op, final double value,
+            final int[] selection) {
+        int count = 0;
+        for (int i = from; i < to; ++i) {
+            selection[count] = i;
+            count += op.test(column[i], value) ? 1 : 0;
+        }
+        return count;
+    }
+}
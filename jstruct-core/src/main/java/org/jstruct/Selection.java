@@ -0,0 +1,568 @@
+package org.jstruct;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import org.jstruct.ColumnKernels.Comparison;
+
+/**
+ * Set of selected records of a collection, kept as a bitmap with one bit per record.
+ * <p>
+ * Filtering narrows the selection in place instead of copying matching records into a new collection, and each
+ * predicate is only evaluated for records that are still selected, skipping runs of 64 unselected records at once.
+ * Predicates on numeric fields of {@link StructColumns}, except {@code float} ones, are evaluated directly over the
+ * column arrays, with {@link ColumnKernels} for {@code int}, {@code long} and {@code double} columns:
+ *
+ * <pre>
+ * Selection large = Selection.all(orders)
+ *         .where(side, Comparison.EQ, BUY)
+ *         .where(quantity, Comparison.GE, 100)
+ *         .where(price, Comparison.LT, 10.0);
+ * double notional = large.stream().mapToDouble(i -&gt; orders.getDouble(i, price)).sum();
+ * </pre>
+ *
+ * A selection covers the records that existed when it was created. It is not thread-safe.
+ */
+public final class Selection {
+
+    /**
+     * Rows compared at once by column kernels.
+     */
+    private static final int CHUNK = 16 * Long.SIZE;
+
+    private final StructCollection records;
+
+    private final long length;
+
+    private final long[] words;
+
+    private Selection(final StructCollection records, final boolean selected) {
+        this.records = Objects.requireNonNull(records, "Collection should be defined");
+        this.length = records.size();
+        final long wordCount = (length + Long.SIZE - 1) / Long.SIZE;
+        if (wordCount > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Selection of " + length + " records is too large");
+        }
+        this.words = new long[(int) wordCount];
+        if (selected) {
+            Arrays.fill(words, -1L);
+            clearTail();
+        }
+    }
+
+    private Selection(final Selection other) {
+        this.records = other.records;
+        this.length = other.length;
+        this.words = other.words.clone();
+    }
+
+    /**
+     * @param records collection to select from.
+     * @return selection of every record.
+     */
+    public static Selection all(final StructCollection records) {
+        return new Selection(records, true);
+    }
+
+    /**
+     * @param records collection to select from.
+     * @return empty selection.
+     */
+    public static Selection none(final StructCollection records) {
+        return new Selection(records, false);
+    }
+
+    private void clearTail() {
+        if (length % Long.SIZE != 0) {
+            words[words.length - 1] &= -1L >>> (Long.SIZE - length % Long.SIZE);
+        }
+    }
+
+    /**
+     * @return collection the records are selected from.
+     */
+    public StructCollection records() {
+        return records;
+    }
+
+    /**
+     * @return number of records the selection covers, selected or not.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return number of selected records.
+     */
+    public long count() {
+        long count = 0;
+        for (final long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code true} if no record is selected.
+     */
+    public boolean isEmpty() {
+        for (final long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param index index of a record.
+     * @return {@code true} if the record is selected.
+     */
+    public boolean isSelected(final long index) {
+        Objects.checkIndex(index, length);
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param index index of a record to add to the selection.
+     * @return this selection.
+     */
+    public Selection select(final long index) {
+        Objects.checkIndex(index, length);
+        words[(int) (index >>> 6)] |= 1L << index;
+        return this;
+    }
+
+    /**
+     * @param index index of a record to remove from the selection.
+     * @return this selection.
+     */
+    public Selection deselect(final long index) {
+        Objects.checkIndex(index, length);
+        words[(int) (index >>> 6)] &= ~(1L << index);
+        return this;
+    }
+
+    /**
+     * @param from index to start from, inclusive.
+     * @return index of the first selected record at or after {@code from}, or {@code -1} if there is none.
+     */
+    public long next(final long from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("Index should not be negative: " + from);
+        }
+        if (from >= length) {
+            return -1;
+        }
+        int w = (int) (from >>> 6);
+        long word = words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+        return (long) w * Long.SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Calls the action with the index of every selected record, in increasing order.
+     */
+    public void forEach(final LongConsumer action) {
+        for (int w = 0; w < words.length; ++w) {
+            long word = words[w];
+            while (word != 0) {
+                action.accept((long) w * Long.SIZE + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * @return stream of the indices of the selected records, in increasing order; parallel streams split it by ranges
+     *         of bitmap words.
+     */
+    public LongStream stream() {
+        return StreamSupport.longStream(new WordSpliterator(0, words.length, count(), Spliterator.SIZED), false);
+    }
+
+    /**
+     * @return indices of the selected records, in increasing order.
+     */
+    public long[] toArray() {
+        final long count = count();
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Selection of " + count + " records does not fit an array");
+        }
+        final long[] indices = new long[(int) count];
+        int n = 0;
+        for (int w = 0; w < words.length; ++w) {
+            long word = words[w];
+            while (word != 0) {
+                indices[n++] = (long) w * Long.SIZE + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Keeps only the selected records for which the predicate holds.
+     *
+     * @param predicate predicate on record indices.
+     * @return this selection.
+     */
+    public Selection where(final LongPredicate predicate) {
+        Objects.requireNonNull(predicate, "Predicate should be defined");
+        for (int w = 0; w < words.length; ++w) {
+            long word = words[w];
+            long kept = word;
+            while (word != 0) {
+                final int bit = Long.numberOfTrailingZeros(word);
+                if (!predicate.test((long) w * Long.SIZE + bit)) {
+                    kept &= ~(1L << bit);
+                }
+                word &= word - 1;
+            }
+            words[w] = kept;
+        }
+        return this;
+    }
+
+    /**
+     * Keeps only the selected records whose field compares to the value as given.
+     *
+     * @param field {@code byte}, {@code char}, {@code short}, {@code int} or {@code long} field.
+     * @return this selection.
+     */
+    public Selection where(final StructField field, final Comparison op, final long value) {
+        Objects.requireNonNull(op, "Comparison should be defined");
+        final LongUnaryOperator values = StructStreams.longValues(records, field);
+        if (records instanceof StructColumns) {
+            final StructColumns columns = (StructColumns) records;
+            if (field.type() == FieldType.LONG) {
+                return whereColumn(columns.longColumn(field), op, value);
+            }
+            if (value == (int) value) {
+                switch (field.type()) {
+                    case BYTE:
+                        return whereColumn(columns.byteColumn(field), op, (int) value);
+                    case SHORT:
+                        return whereColumn(columns.shortColumn(field), op, (int) value);
+                    case CHAR:
+                        return whereColumn(columns.charColumn(field), op, (int) value);
+                    case INT:
+                        return whereColumn(columns.intColumn(field), op, (int) value);
+                    default:
+                        break;
+                }
+            }
+        }
+        return where(i -> op.test(values.applyAsLong(i), value));
+    }
+
+    /**
+     * Keeps only the selected records whose field compares to the value as given.
+     *
+     * @param field {@code float} or {@code double} field.
+     * @return this selection.
+     */
+    public Selection where(final StructField field, final Comparison op, final double value) {
+        Objects.requireNonNull(op, "Comparison should be defined");
+        final LongToDoubleFunction values = StructStreams.doubleValues(records, field);
+        if (records instanceof StructColumns && field.type() == FieldType.DOUBLE) {
+            return whereColumn(((StructColumns) records).doubleColumn(field), op, value);
+        }
+        return where(i -> op.test(values.applyAsDouble(i), value));
+    }
+
+    /**
+     * Keeps only the selected records whose field has the given value.
+     *
+     * @param field {@code boolean} field.
+     * @return this selection.
+     */
+    public Selection where(final StructField field, final boolean value) {
+        records.layout().checkField(field, FieldType.BOOLEAN);
+        return where(i -> records.getBoolean(i, field) == value);
+    }
+
+    private Selection whereColumn(final int[] column, final Comparison op, final int value) {
+        final long[] matches = new long[CHUNK / Long.SIZE];
+        for (long from = 0; from < length; from += CHUNK) {
+            final int to = (int) Math.min(length, from + CHUNK);
+            if (anySelected((int) from, to)) {
+                ColumnKernels.compare(column, (int) from, to, op, value, matches);
+                retain((int) from, to, matches);
+            }
+        }
+        return this;
+    }
+
+    private Selection whereColumn(final long[] column, final Comparison op, final long value) {
+        final long[] matches = new long[CHUNK / Long.SIZE];
+        for (long from = 0; from < length; from += CHUNK) {
+            final int to = (int) Math.min(length, from + CHUNK);
+            if (anySelected((int) from, to)) {
+                ColumnKernels.compare(column, (int) from, to, op, value, matches);
+                retain((int) from, to, matches);
+            }
+        }
+        return this;
+    }
+
+    private Selection whereColumn(final double[] column, final Comparison op, final double value) {
+        final long[] matches = new long[CHUNK / Long.SIZE];
+        for (long from = 0; from < length; from += CHUNK) {
+            final int to = (int) Math.min(length, from + CHUNK);
+            if (anySelected((int) from, to)) {
+                ColumnKernels.compare(column, (int) from, to, op, value, matches);
+                retain((int) from, to, matches);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Compares narrow columns, such as dictionary codes, widened to {@code int}; there are no kernels for them.
+     */
+    private Selection whereColumn(final byte[] column, final Comparison op, final int value) {
+        final long[] matches = new long[CHUNK / Long.SIZE];
+        for (long from = 0; from < length; from += CHUNK) {
+            final int to = (int) Math.min(length, from + CHUNK);
+            if (anySelected((int) from, to)) {
+                Arrays.fill(matches, 0L);
+                for (int i = (int) from; i < to; ++i) {
+                    matches[(i - (int) from) / Long.SIZE] |= (op.test(column[i], value) ? 1L : 0L) << i;
+                }
+                retain((int) from, to, matches);
+            }
+        }
+        return this;
+    }
+
+    private Selection whereColumn(final short[] column, final Comparison op, final int value) {
+        final long[] matches = new long[CHUNK / Long.SIZE];
+        for (long from = 0; from < length; from += CHUNK) {
+            final int to = (int) Math.min(length, from + CHUNK);
+            if (anySelected((int) from, to)) {
+                Arrays.fill(matches, 0L);
+                for (int i = (int) from; i < to; ++i) {
+                    matches[(i - (int) from) / Long.SIZE] |= (op.test(column[i], value) ? 1L : 0L) << i;
+                }
+                retain((int) from, to, matches);
+            }
+        }
+        return this;
+    }
+
+    private Selection whereColumn(final char[] column, final Comparison op, final int value) {
+        final long[] matches = new long[CHUNK / Long.SIZE];
+        for (long from = 0; from < length; from += CHUNK) {
+            final int to = (int) Math.min(length, from + CHUNK);
+            if (anySelected((int) from, to)) {
+                Arrays.fill(matches, 0L);
+                for (int i = (int) from; i < to; ++i) {
+                    matches[(i - (int) from) / Long.SIZE] |= (op.test(column[i], value) ? 1L : 0L) << i;
+                }
+                retain((int) from, to, matches);
+            }
+        }
+        return this;
+    }
+
+    private boolean anySelected(final int from, final int to) {
+        final int first = from / Long.SIZE;
+        for (int w = first; w < first + ColumnKernels.words(from, to); ++w) {
+            if (words[w] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ANDs the bitmap of records {@code [from, to)}, {@code from} being a multiple of 64, into the selection.
+     */
+    private void retain(final int from, final int to, final long[] matches) {
+        final int first = from / Long.SIZE;
+        for (int w = first; w < first + ColumnKernels.words(from, to); ++w) {
+            words[w] &= matches[w - first];
+        }
+    }
+
+    private void checkCompatible(final Selection other) {
+        if (other.records != records || other.length != length) {
+            throw new IllegalArgumentException("Selections cover different records");
+        }
+    }
+
+    /**
+     * @param other selection of the same records.
+     * @return this selection, keeping only records also selected by the other.
+     */
+    public Selection and(final Selection other) {
+        checkCompatible(other);
+        for (int w = 0; w < words.length; ++w) {
+            words[w] &= other.words[w];
+        }
+        return this;
+    }
+
+    /**
+     * @param other selection of the same records.
+     * @return this selection, with the records selected by the other added.
+     */
+    public Selection or(final Selection other) {
+        checkCompatible(other);
+        for (int w = 0; w < words.length; ++w) {
+            words[w] |= other.words[w];
+        }
+        return this;
+    }
+
+    /**
+     * @param other selection of the same records.
+     * @return this selection, with the records selected by the other removed.
+     */
+    public Selection andNot(final Selection other) {
+        checkCompatible(other);
+        for (int w = 0; w < words.length; ++w) {
+            words[w] &= ~other.words[w];
+        }
+        return this;
+    }
+
+    /**
+     * @return this selection, with selected and unselected records exchanged.
+     */
+    public Selection invert() {
+        for (int w = 0; w < words.length; ++w) {
+            words[w] = ~words[w];
+        }
+        clearTail();
+        return this;
+    }
+
+    /**
+     * @return independent selection of the same records.
+     */
+    public Selection copy() {
+        return new Selection(this);
+    }
+
+    @Override
+    public String toString() {
+        return "Selection<" + records.layout().name() + ">[" + count() + "/" + length + "]";
+    }
+
+    /**
+     * Spliterator over the selected indices of the bitmap words {@code [word, end)}. Splits halve the word range, so
+     * only the first spliterator knows its exact size.
+     */
+    private final class WordSpliterator implements Spliterator.OfLong {
+
+        /**
+         * Word holding {@link #bits}.
+         */
+        private int word;
+
+        /**
+         * Bits of the current word not visited yet.
+         */
+        private long bits;
+
+        private final int end;
+
+        private long estimate;
+
+        private int characteristics;
+
+        WordSpliterator(final int word, final int end, final long estimate, final int sized) {
+            this(word, word < end ? words[word] : 0, end, estimate, sized);
+        }
+
+        private WordSpliterator(final int word, final long bits, final int end, final long estimate,
+                final int sized) {
+            this.word = word;
+            this.bits = bits;
+            this.end = end;
+            this.estimate = estimate;
+            this.characteristics = ORDERED | DISTINCT | SORTED | NONNULL | sized;
+        }
+
+        @Override
+        public OfLong trySplit() {
+            final int mid = (word + end) >>> 1;
+            if (mid <= word) {
+                return null;
+            }
+            estimate >>>= 1;
+            characteristics &= ~SIZED;
+            final WordSpliterator prefix = new WordSpliterator(word, bits, mid, estimate, 0);
+            word = mid;
+            bits = words[mid];
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            while (bits == 0) {
+                if (word + 1 >= end) {
+                    return false;
+                }
+                bits = words[++word];
+            }
+            final long index = (long) word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            if (estimate > 0) {
+                --estimate;
+            }
+            action.accept(index);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            int w = word;
+            long b = bits;
+            word = Math.max(word, end - 1);
+            bits = 0;
+            estimate = 0;
+            while (true) {
+                while (b != 0) {
+                    action.accept((long) w * Long.SIZE + Long.numberOfTrailingZeros(b));
+                    b &= b - 1;
+                }
+                if (++w >= end) {
+                    return;
+                }
+                b = words[w];
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package org.jstruct;
+
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Secondary index of a collection: the indices of its records sorted by one field, leaving the records themselves in
+ * place.
+ * <p>
+ * Lookups binary search the sorted keys, so range queries cost a logarithmic search plus the matching records:
+ *
+ * <pre>
+ * SortedIndex byTime = SortedIndex.of(trades, timestamp);
+ * byTime.range(start, end).forEach(i -&gt; ...);  // records with start &lt;= timestamp &lt; end, by timestamp
+ * Selection window = byTime.select(start, end); // the same records, by index
+ * </pre>
+ *
+ * Keys are ordered as by {@link StructSort}, and records with equal keys appear in index order. The index reflects
+ * the collection when it was built: {@link #refresh()} adds records appended since, without sorting the indexed ones
+ * again, and {@link #rebuild()} is needed after key values were changed or records removed. It is not thread-safe.
+ */
+public final class SortedIndex {
+
+    private final StructCollection records;
+
+    private final StructField field;
+
+    /**
+     * Keys in the unsigned form of {@link StructSort#sortableBits(StructCollection, long, StructField)}, ascending.
+     */
+    private long[] keys;
+
+    /**
+     * Record index of every key.
+     */
+    private int[] indices;
+
+    private SortedIndex(final StructCollection records, final StructField field) {
+        this.records = Objects.requireNonNull(records, "Collection should be defined");
+        this.field = field;
+        records.layout().checkField(field);
+        rebuild();
+    }
+
+    /**
+     * @param records collection to index.
+     * @param field key field.
+     * @return index of all records of the collection.
+     */
+    public static SortedIndex of(final StructCollection records, final StructField field) {
+        return new SortedIndex(records, field);
+    }
+
+    /**
+     * @return indexed collection.
+     */
+    public StructCollection records() {
+        return records;
+    }
+
+    /**
+     * @return key field.
+     */
+    public StructField field() {
+        return field;
+    }
+
+    /**
+     * @return number of indexed records.
+     */
+    public long size() {
+        return indices.length;
+    }
+
+    /**
+     * Indexes all records of the collection again.
+     *
+     * @return this index.
+     */
+    public SortedIndex rebuild() {
+        indices = StructSort.argsort(records, field);
+        keys = keysOf(indices);
+        return this;
+    }
+
+    /**
+     * Adds the records appended to the collection since the index was built or last refreshed. Only the new records
+     * are sorted; they are then merged with the indexed ones.
+     *
+     * @return this index.
+     * @throws IllegalStateException if the collection has fewer records than the index.
+     */
+    public SortedIndex refresh() {
+        final long size = records.size();
+        if (size < indices.length) {
+            throw new IllegalStateException("Collection has " + size + " records, but " + indices.length
+                    + " are indexed");
+        }
+        if (size == indices.length) {
+            return this;
+        }
+        final int[] added = StructSort.argsort(records, indices.length, size, field);
+        final long[] addedKeys = keysOf(added);
+        final int n = indices.length + added.length;
+        final long[] mergedKeys = new long[n];
+        final int[] merged = new int[n];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < n; ++k) {
+            // On equal keys the indexed record comes first, since its index is lower.
+            if (j == added.length || i < indices.length && Long.compareUnsigned(keys[i], addedKeys[j]) <= 0) {
+                mergedKeys[k] = keys[i];
+                merged[k] = indices[i++];
+            } else {
+                mergedKeys[k] = addedKeys[j];
+                merged[k] = added[j++];
+            }
+        }
+        keys = mergedKeys;
+        indices = merged;
+        return this;
+    }
+
+    private long[] keysOf(final int[] order) {
+        final long[] sorted = new long[order.length];
+        for (int k = 0; k < order.length; ++k) {
+            sorted[k] = StructSort.sortableBits(records, order[k], field);
+        }
+        return sorted;
+    }
+
+    /**
+     * @param position position in key order, from {@code 0} to {@code size() - 1}.
+     * @return index of the record at the position.
+     */
+    public long record(final long position) {
+        return indices[(int) Objects.checkIndex(position, indices.length)];
+    }
+
+    /**
+     * @param value key value, for a {@code byte}, {@code char}, {@code short}, {@code int} or {@code long} field.
+     * @return first position whose key is not less than the value, or {@code size()} if there is none.
+     */
+    public long lowerBound(final long value) {
+        return position(value, false);
+    }
+
+    /**
+     * @param value key value, for a {@code byte}, {@code char}, {@code short}, {@code int} or {@code long} field.
+     * @return first position whose key is greater than the value, or {@code size()} if there is none.
+     */
+    public long upperBound(final long value) {
+        return position(value, true);
+    }
+
+    /**
+     * @param value key value, for a {@code float} or {@code double} field.
+     * @return first position whose key is not less than the value, or {@code size()} if there is none.
+     */
+    public long lowerBound(final double value) {
+        return position(value, false);
+    }
+
+    /**
+     * @param value key value, for a {@code float} or {@code double} field.
+     * @return first position whose key is greater than the value, or {@code size()} if there is none.
+     */
+    public long upperBound(final double value) {
+        return position(value, true);
+    }
+
+    /**
+     * @param value key value, for a {@code byte}, {@code char}, {@code short}, {@code int} or {@code long} field.
+     * @return index of the first record in index order with the key, or {@code -1} if there is none.
+     */
+    public long find(final long value) {
+        final int position = position(value, false);
+        return position < position(value, true) ? indices[position] : -1;
+    }
+
+    /**
+     * @param value key value, for a {@code float} or {@code double} field.
+     * @return index of the first record in index order with the key, or {@code -1} if there is none.
+     */
+    public long find(final double value) {
+        final int position = position(value, false);
+        return position < position(value, true) ? indices[position] : -1;
+    }
+
+    /**
+     * @param from smallest key, inclusive.
+     * @param to largest key, exclusive.
+     * @return stream of the indices of the records with a key in {@code [from, to)}, in key order.
+     */
+    public LongStream range(final long from, final long to) {
+        return range(position(from, false), position(to, false));
+    }
+
+    /**
+     * @param from smallest key, inclusive.
+     * @param to largest key, exclusive.
+     * @return stream of the indices of the records with a key in {@code [from, to)}, in key order.
+     */
+    public LongStream range(final double from, final double to) {
+        return range(position(from, false), position(to, false));
+    }
+
+    private LongStream range(final int from, final int to) {
+        final int[] order = indices;
+        return IntStream.range(from, Math.max(from, to)).mapToLong(k -> order[k]);
+    }
+
+    /**
+     * @param from smallest key, inclusive.
+     * @param to largest key, exclusive.
+     * @return selection of the records with a key in {@code [from, to)}.
+     */
+    public Selection select(final long from, final long to) {
+        return select(position(from, false), position(to, false));
+    }
+
+    /**
+     * @param from smallest key, inclusive.
+     * @param to largest key, exclusive.
+     * @return selection of the records with a key in {@code [from, to)}.
+     */
+    public Selection select(final double from, final double to) {
+        return select(position(from, false), position(to, false));
+    }
+
+    private Selection select(final int from, final int to) {
+        final Selection selection = Selection.none(records);
+        for (int k = from; k < to; ++k) {
+            selection.select(indices[k]);
+        }
+        return selection;
+    }
+
+    private int position(final long value, final boolean after) {
+        final long min;
+        final long max;
+        switch (field.type()) {
+            case BYTE:
+                min = Byte.MIN_VALUE;
+                max = Byte.MAX_VALUE;
+                break;
+            case CHAR:
+                min = Character.MIN_VALUE;
+                max = Character.MAX_VALUE;
+                break;
+            case SHORT:
+                min = Short.MIN_VALUE;
+                max = Short.MAX_VALUE;
+                break;
+            case INT:
+                min = Integer.MIN_VALUE;
+                max = Integer.MAX_VALUE;
+                break;
+            case LONG:
+                min = Long.MIN_VALUE;
+                max = Long.MAX_VALUE;
+                break;
+            default:
+                throw new IllegalArgumentException("Field " + field.name() + " of struct " + records.layout().name()
+                        + " is " + field.type() + ", not integral");
+        }
+        if (value < min) {
+            return 0;
+        }
+        if (value > max) {
+            return indices.length;
+        }
+        // Flipping the sign bit of the field's width gives the unsigned key, as for the stored keys.
+        final int bits = field.size() * Byte.SIZE;
+        final long key = field.type() == FieldType.CHAR ? value
+                : (value ^ Long.MIN_VALUE >> (Long.SIZE - bits)) & -1L >>> (Long.SIZE - bits);
+        return search(key, after);
+    }
+
+    private int position(final double value, final boolean after) {
+        switch (field.type()) {
+            case FLOAT: {
+                // The smallest float not less than the value, or the largest not greater, has the same position.
+                float f = (float) value;
+                if (f < value && !after) {
+                    f = Math.nextUp(f);
+                } else if (f > value && after) {
+                    f = Math.nextDown(f);
+                }
+                final int bits = Float.floatToIntBits(f);
+                return search((bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE) & 0xFFFFFFFFL, after);
+            }
+            case DOUBLE: {
+                final long bits = Double.doubleToLongBits(value);
+                return search(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE, after);
+            }
+            default:
+                throw new IllegalArgumentException("Field " + field.name() + " of struct " + records.layout().name()
+                        + " is " + field.type() + ", not floating point");
+        }
+    }
+
+    /**
+     * @return first position whose key is not less than the key ({@code after} false) or greater than it.
+     */
+    private int search(final long key, final boolean after) {
+        int from = 0;
+        int to = keys.length;
+        while (from < to) {
+            final int mid = (from + to) >>> 1;
+            final int c = Long.compareUnsigned(keys[mid], key);
+            if (c < 0 || c == 0 && after) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    @Override
+    public String toString() {
+        return "SortedIndex<" + records.layout().name() + "." + field.name() + ">[" + indices.length + "]";
+    }
+}
@@ -0,0 +1,54 @@
+package org.jstruct;
+
+/**
+ * {@link StructRingBuffer} for one producer thread and one consumer thread.
+ * <p>
+ * Each side publishes its sequence with a release store and reads the other side's sequence only when its cached copy
+ * says the buffer is full or empty, so in steady state producer and consumer touch each other's cache line once per
+ * lap rather than once per message. The producer claims one message at a time: a claimed sequence must be published
+ * before the next claim.
+ */
+public final class SpscStructRingBuffer extends StructRingBuffer {
+
+    /**
+     * @param layout layout of the messages.
+     * @param capacity number of slots, rounded up to a power of two.
+     */
+    public SpscStructRingBuffer(final StructLayout layout, final int capacity) {
+        super(layout, capacity);
+    }
+
+    @Override
+    public long tryClaim() {
+        final long tail = (long) COUNTERS.getOpaque(counters, TAIL);
+        if (tail - counters[CACHED_HEAD] >= capacity) {
+            final long head = (long) COUNTERS.getAcquire(counters, HEAD);
+            counters[CACHED_HEAD] = head;
+            if (tail - head >= capacity) {
+                return -1;
+            }
+        }
+        return tail;
+    }
+
+    @Override
+    public void publish(final long sequence) {
+        if (sequence != (long) COUNTERS.getOpaque(counters, TAIL)) {
+            throw new IllegalStateException("Message " + sequence + " is not the claimed one");
+        }
+        COUNTERS.setRelease(counters, TAIL, sequence + 1);
+    }
+
+    @Override
+    public long tryPeek() {
+        final long head = (long) COUNTERS.getOpaque(counters, HEAD);
+        if (head >= counters[CACHED_TAIL]) {
+            final long tail = (long) COUNTERS.getAcquire(counters, TAIL);
+            counters[CACHED_TAIL] = tail;
+            if (head >= tail) {
+                return -1;
+            }
+        }
+        return head;
+    }
+}
@@ -0,0 +1,176 @@
+package org.jstruct;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Dictionary encoding of low-cardinality strings, such as venue names or currency codes: every distinct string is
+ * interned once and records store its code in a {@code byte}, {@code short}, {@code char} or {@code int} field.
+ * <p>
+ * Code {@code 0} stands for no value, so zeroed records read as {@code null}; strings get codes from {@code 1} in the
+ * order they are first seen. The dictionary can be shared by fields of several collections. Since equal strings have
+ * equal codes, filters compare codes without decoding, over the code column for {@link StructColumns}:
+ *
+ * <pre>
+ * StringDictionary venues = new StringDictionary();
+ * venues.set(trades, index, venue, "XNAS");
+ * Selection nasdaq = Selection.all(trades).where(venue, Comparison.EQ, venues.code("XNAS"));
+ * </pre>
+ *
+ * Codes are stored as non-negative values of the field type, which bounds the number of strings a field can hold:
+ * 127 for {@code byte}, 32767 for {@code short}, 65535 for {@code char}. The dictionary is not thread-safe.
+ */
+public final class StringDictionary {
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Strings by code; index {@code 0} is unused.
+     */
+    private String[] values = new String[16];
+
+    private int size;
+
+    /**
+     * @return number of distinct strings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Interns a string if it is not in the dictionary yet.
+     *
+     * @param value string to encode.
+     * @return code of the string, from {@code 1}.
+     */
+    public int encode(final String value) {
+        Objects.requireNonNull(value, "String should be defined");
+        final Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == MAX_ARRAY_SIZE - 1) {
+            throw new OutOfMemoryError("Dictionary of " + size + " strings is too large");
+        }
+        final int added = ++size;
+        if (added == values.length) {
+            values = Arrays.copyOf(values, (int) Math.min(MAX_ARRAY_SIZE, (long) values.length << 1));
+        }
+        values[added] = value;
+        codes.put(value, added);
+        return added;
+    }
+
+    /**
+     * @param value string to look up.
+     * @return code of the string, or {@code -1} if it is not in the dictionary; no record has that code.
+     */
+    public int code(final String value) {
+        final Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * @param code code of a string, or {@code 0}.
+     * @return string with the code, or {@code null} for code {@code 0}.
+     * @throws IndexOutOfBoundsException if no string has the code.
+     */
+    public String decode(final int code) {
+        return values[Objects.checkIndex(code, size + 1)];
+    }
+
+    /**
+     * @param records collection holding the codes.
+     * @param index index of the record.
+     * @param field field holding the code.
+     * @return code stored in the record.
+     */
+    public int getCode(final StructCollection records, final long index, final StructField field) {
+        switch (field.type()) {
+            case BYTE:
+                return records.getByte(index, field);
+            case SHORT:
+                return records.getShort(index, field);
+            case CHAR:
+                return records.getChar(index, field);
+            case INT:
+                return records.getInt(index, field);
+            default:
+                throw notCode(records, field);
+        }
+    }
+
+    /**
+     * @param records collection holding the codes.
+     * @param index index of the record.
+     * @param field field holding the code.
+     * @return string of the record, or {@code null} if it has none.
+     */
+    public String get(final StructCollection records, final long index, final StructField field) {
+        return decode(getCode(records, index, field));
+    }
+
+    /**
+     * Interns a string if needed and stores its code in the record.
+     *
+     * @param records collection holding the codes.
+     * @param index index of the record.
+     * @param field field holding the code.
+     * @param value string to store, or {@code null} for no value.
+     * @throws IllegalStateException if the code of the string does not fit the field.
+     */
+    public void set(final StructCollection records, final long index, final StructField field, final String value) {
+        final int limit = limit(records, field);
+        final int known = value == null ? 0 : code(value);
+        // A new string gets the next code, so it is only interned if that code fits the field.
+        if ((known < 0 ? size + 1 : known) > limit) {
+            throw new IllegalStateException("Field " + field.name() + " of struct " + records.layout().name()
+                    + " cannot hold codes above " + limit);
+        }
+        final int code = known < 0 ? encode(value) : known;
+        switch (field.type()) {
+            case BYTE:
+                records.setByte(index, field, (byte) code);
+                break;
+            case SHORT:
+                records.setShort(index, field, (short) code);
+                break;
+            case CHAR:
+                records.setChar(index, field, (char) code);
+                break;
+            default:
+                records.setInt(index, field, code);
+                break;
+        }
+    }
+
+    private static int limit(final StructCollection records, final StructField field) {
+        switch (field.type()) {
+            case BYTE:
+                return Byte.MAX_VALUE;
+            case SHORT:
+                return Short.MAX_VALUE;
+            case CHAR:
+                return Character.MAX_VALUE;
+            case INT:
+                return Integer.MAX_VALUE;
+            default:
+                throw notCode(records, field);
+        }
+    }
+
+    private static IllegalArgumentException notCode(final StructCollection records, final StructField field) {
+        return new IllegalArgumentException("Field " + field.name() + " of struct " + records.layout().name() + " is "
+                + field.type() + ", not byte, short, char or int");
+    }
+
+    @Override
+    public String toString() {
+        return "StringDictionary[" + size + "]";
+    }
+}
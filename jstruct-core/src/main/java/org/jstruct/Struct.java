@@ -0,0 +1,89 @@
+package org.jstruct;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a struct as an interface of getter/setter pairs, for the {@code jstruct-processor} annotation processor.
+ * <p>
+ * Every abstract method should be a getter ({@code long getId()}, {@code boolean isActive()}) or a setter
+ * ({@code void setId(long id)}) of a primitive type; every property defines a field, in declaration order. The
+ * processor generates a {@code <Name>Struct} class next to the interface with the {@link StructLayout} of the struct
+ * and a flyweight implementation of the interface that reads fields of a {@link FlatStructCollection} at constant
+ * offsets.
+ * <p>
+ * A getter may also return another {@code @Struct} interface compiled in the same build: that struct is embedded
+ * inline (see {@link StructLayout.Builder#addStruct(String, StructLayout)}) and the getter returns its flyweight,
+ * positioned on the embedded record. Embedded structs have no setter; their fields are set through the getter.
+ * <p>
+ * Fixed-length arrays are declared with indexed accessors ({@code long getLevel(int index)},
+ * {@code void setLevel(int index, long level)}) and short strings with {@code String} accessors; both are stored
+ * inline (see {@link InlineArray}) and need their length on the getter with {@link Length}. Indexed accessors check
+ * the index; the generated class adds {@code ...Unchecked} variants that do not. A getter of a {@code boolean},
+ * {@code byte}, {@code short}, {@code char} or {@code int} annotated with {@link Bits} declares a {@link BitField}
+ * packed with its neighbours into a shared word, read and written with a shift and a mask:
+ *
+ * <pre>
+ * &#64;Struct
+ * public interface Order {
+ *     long getId();
+ *     void setId(long id);
+ *     &#64;Struct.Bits(1)
+ *     boolean isUrgent();
+ *     void setUrgent(boolean urgent);
+ *     &#64;Struct.Length(8)
+ *     String getSymbol();
+ *     void setSymbol(String symbol);
+ *     Price getPrice();
+ *     int getQuantity();
+ *     void setQuantity(int quantity);
+ * }
+ *
+ * StructArray orders = new StructArray(OrderStruct.LAYOUT);
+ * OrderStruct order = new OrderStruct(orders);
+ * order.moveTo(orders.add()).setId(42L);
+ * order.getPrice().setMantissa(1050L);
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Struct {
+
+    /**
+     * @return name of the struct; the simple name of the interface if empty.
+     */
+    String name() default "";
+
+    /**
+     * Number of elements of an array, or of characters of a string, declared by the annotated getter.
+     */
+    @Documented
+    @Retention(RetentionPolicy.SOURCE)
+    @Target(ElementType.METHOD)
+    @interface Length {
+
+        /**
+         * @return number of elements, at least 1.
+         */
+        int value();
+    }
+
+    /**
+     * Number of bits of the unsigned bit field declared by the annotated getter.
+     */
+    @Documented
+    @Retention(RetentionPolicy.SOURCE)
+    @Target(ElementType.METHOD)
+    @interface Bits {
+
+        /**
+         * @return number of bits: 1 for a {@code boolean}, at most 7 for a {@code byte}, 15 for a {@code short},
+         *         16 for a {@code char} and 32 for an {@code int}, so that every value fits the type.
+         */
+        int value();
+    }
+}
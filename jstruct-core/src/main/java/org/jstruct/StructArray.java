@@ -0,0 +1,473 @@
+package org.jstruct;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Growable array of structs stored contiguously in a single {@code byte[]}.
+ * <p>
+ * Records are laid out back to back, each {@link StructLayout#size()} bytes long, so the collection costs one array
+ * header regardless of the number of records. Values are read and written with native byte order.
+ */
+public final class StructArray implements FlatStructCollection {
+
+    static final VarHandle CHAR = MethodHandles.byteArrayViewVarHandle(char[].class, ByteOrder.nativeOrder());
+
+    static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+
+    static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    static final VarHandle FLOAT = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.nativeOrder());
+
+    static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    static final VarHandle DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.nativeOrder());
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final StructLayout layout;
+
+    private final int recordSize;
+
+    private byte[] data;
+
+    private int size;
+
+    /**
+     * @param layout layout of the records.
+     */
+    public StructArray(final StructLayout layout) {
+        this(layout, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param layout layout of the records.
+     * @param initialCapacity number of records to reserve space for.
+     */
+    public StructArray(final StructLayout layout, final int initialCapacity) {
+        this.layout = Objects.requireNonNull(layout, "Layout should be defined");
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity should not be negative: " + initialCapacity);
+        }
+        this.recordSize = layout.size();
+        this.data = new byte[checkedByteSize(initialCapacity)];
+    }
+
+    private int checkedByteSize(final long records) {
+        final long bytes = records * recordSize;
+        if (bytes > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Struct array of " + records + " " + layout.name() + " records is too large");
+        }
+        return (int) bytes;
+    }
+
+    @Override
+    public StructLayout layout() {
+        return layout;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public StructCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return number of records that fit without growing the backing array.
+     */
+    public int capacity() {
+        return data.length / recordSize;
+    }
+
+    /**
+     * @param minCapacity number of records the array should be able to hold.
+     */
+    public void ensureCapacity(final int minCapacity) {
+        final int capacity = capacity();
+        if (minCapacity > capacity) {
+            final long limit = MAX_ARRAY_SIZE / recordSize;
+            long newCapacity = Math.max(minCapacity, (long) capacity + (capacity >> 1));
+            if (newCapacity > limit) {
+                newCapacity = Math.max(minCapacity, limit);
+            }
+            data = Arrays.copyOf(data, checkedByteSize(newCapacity));
+        }
+    }
+
+    /**
+     * Appends a zero-filled record.
+     *
+     * @return index of the new record.
+     */
+    public long add() {
+        ensureCapacity(size + 1);
+        return size++;
+    }
+
+    /**
+     * Removes all records. The backing array is kept.
+     */
+    public void clear() {
+        Arrays.fill(data, 0, size * recordSize, (byte) 0);
+        size = 0;
+    }
+
+    @Override
+    public void copy(final long from, final long to) {
+        System.arraycopy(data, offset(from), data, offset(to), recordSize);
+    }
+
+    /**
+     * Gathers the records into a new backing array of the same capacity, reading and writing every record once.
+     */
+    @Override
+    public void permute(final int[] permutation) {
+        StructSort.checkPermutation(this, permutation);
+        final byte[] permuted = new byte[data.length];
+        for (int k = 0; k < permutation.length; ++k) {
+            System.arraycopy(data, permutation[k] * recordSize, permuted, k * recordSize, recordSize);
+        }
+        data = permuted;
+    }
+
+    @Override
+    public void swap(final long i, final long j) {
+        final int a = offset(i);
+        final int b = offset(j);
+        int k = 0;
+        for (; k + Long.BYTES <= recordSize; k += Long.BYTES) {
+            final long t = (long) LONG.get(data, a + k);
+            LONG.set(data, a + k, (long) LONG.get(data, b + k));
+            LONG.set(data, b + k, t);
+        }
+        for (; k < recordSize; ++k) {
+            final byte t = data[a + k];
+            data[a + k] = data[b + k];
+            data[b + k] = t;
+        }
+    }
+
+    /**
+     * @return heap segment over the records of the backing array, which is replaced when the array grows.
+     */
+    MemorySegment segment() {
+        return MemorySegment.ofArray(data).asSlice(0, (long) size * recordSize);
+    }
+
+    private int offset(final long index) {
+        return (int) Objects.checkIndex(index, size) * recordSize;
+    }
+
+    private int offset(final long index, final StructField field, final FieldType type) {
+        layout.checkField(field, type);
+        return offset(index) + field.offset();
+    }
+
+    @Override
+    public boolean getBoolean(final long index, final StructField field) {
+        return data[offset(index, field, FieldType.BOOLEAN)] != 0;
+    }
+
+    @Override
+    public void setBoolean(final long index, final StructField field, final boolean value) {
+        data[offset(index, field, FieldType.BOOLEAN)] = value ? (byte) 1 : (byte) 0;
+    }
+
+    @Override
+    public byte getByte(final long index, final StructField field) {
+        return data[offset(index, field, FieldType.BYTE)];
+    }
+
+    @Override
+    public void setByte(final long index, final StructField field, final byte value) {
+        data[offset(index, field, FieldType.BYTE)] = value;
+    }
+
+    @Override
+    public char getChar(final long index, final StructField field) {
+        return (char) CHAR.get(data, offset(index, field, FieldType.CHAR));
+    }
+
+    @Override
+    public void setChar(final long index, final StructField field, final char value) {
+        CHAR.set(data, offset(index, field, FieldType.CHAR), value);
+    }
+
+    @Override
+    public short getShort(final long index, final StructField field) {
+        return (short) SHORT.get(data, offset(index, field, FieldType.SHORT));
+    }
+
+    @Override
+    public void setShort(final long index, final StructField field, final short value) {
+        SHORT.set(data, offset(index, field, FieldType.SHORT), value);
+    }
+
+    @Override
+    public int getInt(final long index, final StructField field) {
+        return (int) INT.get(data, offset(index, field, FieldType.INT));
+    }
+
+    @Override
+    public void setInt(final long index, final StructField field, final int value) {
+        INT.set(data, offset(index, field, FieldType.INT), value);
+    }
+
+    @Override
+    public float getFloat(final long index, final StructField field) {
+        return (float) FLOAT.get(data, offset(index, field, FieldType.FLOAT));
+    }
+
+    @Override
+    public void setFloat(final long index, final StructField field, final float value) {
+        FLOAT.set(data, offset(index, field, FieldType.FLOAT), value);
+    }
+
+    @Override
+    public long getLong(final long index, final StructField field) {
+        return (long) LONG.get(data, offset(index, field, FieldType.LONG));
+    }
+
+    @Override
+    public void setLong(final long index, final StructField field, final long value) {
+        LONG.set(data, offset(index, field, FieldType.LONG), value);
+    }
+
+    @Override
+    public double getDouble(final long index, final StructField field) {
+        return (double) DOUBLE.get(data, offset(index, field, FieldType.DOUBLE));
+    }
+
+    @Override
+    public void setDouble(final long index, final StructField field, final double value) {
+        DOUBLE.set(data, offset(index, field, FieldType.DOUBLE), value);
+    }
+
+    @Override
+    public long recordOffset(final long index) {
+        return offset(index);
+    }
+
+    @Override
+    public boolean getBooleanAt(final long offset) {
+        return data[(int) offset] != 0;
+    }
+
+    @Override
+    public void setBooleanAt(final long offset, final boolean value) {
+        data[(int) offset] = value ? (byte) 1 : (byte) 0;
+    }
+
+    @Override
+    public byte getByteAt(final long offset) {
+        return data[(int) offset];
+    }
+
+    @Override
+    public void setByteAt(final long offset, final byte value) {
+        data[(int) offset] = value;
+    }
+
+    @Override
+    public char getCharAt(final long offset) {
+        return (char) CHAR.get(data, (int) offset);
+    }
+
+    @Override
+    public void setCharAt(final long offset, final char value) {
+        CHAR.set(data, (int) offset, value);
+    }
+
+    @Override
+    public short getShortAt(final long offset) {
+        return (short) SHORT.get(data, (int) offset);
+    }
+
+    @Override
+    public void setShortAt(final long offset, final short value) {
+        SHORT.set(data, (int) offset, value);
+    }
+
+    @Override
+    public int getIntAt(final long offset) {
+        return (int) INT.get(data, (int) offset);
+    }
+
+    @Override
+    public void setIntAt(final long offset, final int value) {
+        INT.set(data, (int) offset, value);
+    }
+
+    @Override
+    public float getFloatAt(final long offset) {
+        return (float) FLOAT.get(data, (int) offset);
+    }
+
+    @Override
+    public void setFloatAt(final long offset, final float value) {
+        FLOAT.set(data, (int) offset, value);
+    }
+
+    @Override
+    public long getLongAt(final long offset) {
+        return (long) LONG.get(data, (int) offset);
+    }
+
+    @Override
+    public void setLongAt(final long offset, final long value) {
+        LONG.set(data, (int) offset, value);
+    }
+
+    @Override
+    public double getDoubleAt(final long offset) {
+        return (double) DOUBLE.get(data, (int) offset);
+    }
+
+    @Override
+    public void setDoubleAt(final long offset, final double value) {
+        DOUBLE.set(data, (int) offset, value);
+    }
+
+    @Override
+    public String toString() {
+        return "StructArray<" + layout.name() + ">[" + size + "]";
+    }
+
+    private final class Cursor implements StructCursor {
+
+        private long index = -1;
+
+        private int base;
+
+        @Override
+        public StructCollection collection() {
+            return StructArray.this;
+        }
+
+        @Override
+        public long index() {
+            return index;
+        }
+
+        @Override
+        public StructCursor moveTo(final long index) {
+            this.base = StructArray.this.offset(index);
+            this.index = index;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= size) {
+                return false;
+            }
+            base = (int) ++index * recordSize;
+            return true;
+        }
+
+        @Override
+        public StructCursor reset() {
+            index = -1;
+            base = 0;
+            return this;
+        }
+
+        private int offset(final StructField field, final FieldType type) {
+            layout.checkField(field, type);
+            if (index < 0) {
+                throw new IllegalStateException("Cursor is before the first record");
+            }
+            return base + field.offset();
+        }
+
+        @Override
+        public boolean getBoolean(final StructField field) {
+            return data[offset(field, FieldType.BOOLEAN)] != 0;
+        }
+
+        @Override
+        public void setBoolean(final StructField field, final boolean value) {
+            data[offset(field, FieldType.BOOLEAN)] = value ? (byte) 1 : (byte) 0;
+        }
+
+        @Override
+        public byte getByte(final StructField field) {
+            return data[offset(field, FieldType.BYTE)];
+        }
+
+        @Override
+        public void setByte(final StructField field, final byte value) {
+            data[offset(field, FieldType.BYTE)] = value;
+        }
+
+        @Override
+        public char getChar(final StructField field) {
+            return (char) CHAR.get(data, offset(field, FieldType.CHAR));
+        }
+
+        @Override
+        public void setChar(final StructField field, final char value) {
+            CHAR.set(data, offset(field, FieldType.CHAR), value);
+        }
+
+        @Override
+        public short getShort(final StructField field) {
+            return (short) SHORT.get(data, offset(field, FieldType.SHORT));
+        }
+
+        @Override
+        public void setShort(final StructField field, final short value) {
+            SHORT.set(data, offset(field, FieldType.SHORT), value);
+        }
+
+        @Override
+        public int getInt(final StructField field) {
+            return (int) INT.get(data, offset(field, FieldType.INT));
+        }
+
+        @Override
+        public void setInt(final StructField field, final int value) {
+            INT.set(data, offset(field, FieldType.INT), value);
+        }
+
+        @Override
+        public float getFloat(final StructField field) {
+            return (float) FLOAT.get(data, offset(field, FieldType.FLOAT));
+        }
+
+        @Override
+        public void setFloat(final StructField field, final float value) {
+            FLOAT.set(data, offset(field, FieldType.FLOAT), value);
+        }
+
+        @Override
+        public long getLong(final StructField field) {
+            return (long) LONG.get(data, offset(field, FieldType.LONG));
+        }
+
+        @Override
+        public void setLong(final StructField field, final long value) {
+            LONG.set(data, offset(field, FieldType.LONG), value);
+        }
+
+        @Override
+        public double getDouble(final StructField field) {
+            return (double) DOUBLE.get(data, offset(field, FieldType.DOUBLE));
+        }
+
+        @Override
+        public void setDouble(final StructField field, final double value) {
+            DOUBLE.set(data, offset(field, FieldType.DOUBLE), value);
+        }
+    }
+}
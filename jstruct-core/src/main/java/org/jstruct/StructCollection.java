@@ -0,0 +1,205 @@
+package org.jstruct;
+
+import java.util.Spliterator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Indexed collection of records sharing one {@link StructLayout}.
+ * <p>
+ * Implementations differ only in how records are stored, so code written against this interface works with any
+ * storage mode. Typed accessors fail with {@link IllegalArgumentException} if the field belongs to another layout or
+ * has another type, and with {@link IndexOutOfBoundsException} if the index is outside {@code [0, size())}.
+ */
+public interface StructCollection {
+
+    /**
+     * @return layout of the records.
+     */
+    StructLayout layout();
+
+    /**
+     * @return number of records.
+     */
+    long size();
+
+    /**
+     * @return new cursor positioned before the first record.
+     */
+    StructCursor cursor();
+
+    /**
+     * Splits on multiples of 64 records, so that parallel tasks work on contiguous ranges that do not share cache
+     * lines.
+     *
+     * @return spliterator over the indices of the records, sized at the time of the call.
+     */
+    default Spliterator.OfLong spliterator() {
+        return new IndexSpliterator(0, size());
+    }
+
+    /**
+     * Record indices as a stream, which can be made parallel: {@code records.indices().parallel().forEach(...)}.
+     *
+     * @return stream of the indices of the records, from {@code 0} to {@code size() - 1}.
+     */
+    default LongStream indices() {
+        return StreamSupport.longStream(spliterator(), false);
+    }
+
+    /**
+     * Copies the record at {@code from} over the record at {@code to}. Storage modes override this field-by-field
+     * default with a raw memory copy.
+     */
+    default void copy(final long from, final long to) {
+        for (final StructField field : layout().fields()) {
+            switch (field.type()) {
+                case BOOLEAN:
+                    setBoolean(to, field, getBoolean(from, field));
+                    break;
+                case BYTE:
+                    setByte(to, field, getByte(from, field));
+                    break;
+                case CHAR:
+                    setChar(to, field, getChar(from, field));
+                    break;
+                case SHORT:
+                    setShort(to, field, getShort(from, field));
+                    break;
+                case INT:
+                    setInt(to, field, getInt(from, field));
+                    break;
+                case FLOAT:
+                    setFloat(to, field, getFloat(from, field));
+                    break;
+                case LONG:
+                    setLong(to, field, getLong(from, field));
+                    break;
+                case DOUBLE:
+                    setDouble(to, field, getDouble(from, field));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported field type " + field.type());
+            }
+        }
+    }
+
+    /**
+     * Exchanges the records at {@code i} and {@code j}. Storage modes override this field-by-field default with a
+     * raw memory swap.
+     */
+    default void swap(final long i, final long j) {
+        for (final StructField field : layout().fields()) {
+            switch (field.type()) {
+                case BOOLEAN: {
+                    final boolean t = getBoolean(i, field);
+                    setBoolean(i, field, getBoolean(j, field));
+                    setBoolean(j, field, t);
+                    break;
+                }
+                case BYTE: {
+                    final byte t = getByte(i, field);
+                    setByte(i, field, getByte(j, field));
+                    setByte(j, field, t);
+                    break;
+                }
+                case CHAR: {
+                    final char t = getChar(i, field);
+                    setChar(i, field, getChar(j, field));
+                    setChar(j, field, t);
+                    break;
+                }
+                case SHORT: {
+                    final short t = getShort(i, field);
+                    setShort(i, field, getShort(j, field));
+                    setShort(j, field, t);
+                    break;
+                }
+                case INT: {
+                    final int t = getInt(i, field);
+                    setInt(i, field, getInt(j, field));
+                    setInt(j, field, t);
+                    break;
+                }
+                case FLOAT: {
+                    final float t = getFloat(i, field);
+                    setFloat(i, field, getFloat(j, field));
+                    setFloat(j, field, t);
+                    break;
+                }
+                case LONG: {
+                    final long t = getLong(i, field);
+                    setLong(i, field, getLong(j, field));
+                    setLong(j, field, t);
+                    break;
+                }
+                case DOUBLE: {
+                    final double t = getDouble(i, field);
+                    setDouble(i, field, getDouble(j, field));
+                    setDouble(j, field, t);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported field type " + field.type());
+            }
+        }
+    }
+
+    /**
+     * Reorders the records so that the record at {@code k} afterwards is the one previously at
+     * {@code permutation[k]}, e.g. with the result of {@link StructSort#argsort(StructCollection, StructField...)}.
+     * This default follows the cycles of the permutation with {@link #swap(long, long)}; storage modes that can afford
+     * a second buffer override it with a single gather of every record.
+     *
+     * @param permutation permutation of {@code [0, size())}.
+     */
+    default void permute(final int[] permutation) {
+        StructSort.checkPermutation(this, permutation);
+        final long[] done = new long[(permutation.length + Long.SIZE - 1) / Long.SIZE];
+        for (int k = 0; k < permutation.length; ++k) {
+            if ((done[k >>> 6] & (1L << k)) != 0) {
+                continue;
+            }
+            // The record that belongs at k travels along the cycle until its slot comes up.
+            int t = k;
+            for (int next = permutation[t]; next != k; next = permutation[t]) {
+                swap(t, next);
+                done[t >>> 6] |= 1L << t;
+                t = next;
+            }
+            done[t >>> 6] |= 1L << t;
+        }
+    }
+
+    boolean getBoolean(long index, StructField field);
+
+    void setBoolean(long index, StructField field, boolean value);
+
+    byte getByte(long index, StructField field);
+
+    void setByte(long index, StructField field, byte value);
+
+    char getChar(long index, StructField field);
+
+    void setChar(long index, StructField field, char value);
+
+    short getShort(long index, StructField field);
+
+    void setShort(long index, StructField field, short value);
+
+    int getInt(long index, StructField field);
+
+    void setInt(long index, StructField field, int value);
+
+    float getFloat(long index, StructField field);
+
+    void setFloat(long index, StructField field, float value);
+
+    long getLong(long index, StructField field);
+
+    void setLong(long index, StructField field, long value);
+
+    double getDouble(long index, StructField field);
+
+    void setDouble(long index, StructField field, double value);
+}
@@ -0,0 +1,555 @@
+package org.jstruct;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Growable struct collection that keeps every field in its own primitive array (struct of arrays).
+ * <p>
+ * A scan over one field reads only that field's array, and loops over the arrays returned by the column accessors
+ * (e.g. {@link #longColumn(StructField)}) are simple enough for the JIT to vectorize. Column arrays are replaced when
+ * the collection grows, so they should be fetched again after {@link #add()}; only the first {@link #size()} elements
+ * are meaningful.
+ */
+public final class StructColumns implements StructCollection {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final StructLayout layout;
+
+    private final Object[] columns;
+
+    private int capacity;
+
+    private int size;
+
+    /**
+     * @param layout layout of the records.
+     */
+    public StructColumns(final StructLayout layout) {
+        this(layout, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param layout layout of the records.
+     * @param initialCapacity number of records to reserve space for.
+     */
+    public StructColumns(final StructLayout layout, final int initialCapacity) {
+        this.layout = Objects.requireNonNull(layout, "Layout should be defined");
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity should not be negative: " + initialCapacity);
+        }
+        this.columns = new Object[layout.fieldCount()];
+        for (final StructField field : layout.fields()) {
+            columns[field.index()] = newColumn(field.type(), initialCapacity);
+        }
+        this.capacity = initialCapacity;
+    }
+
+    private static Object newColumn(final FieldType type, final int length) {
+        switch (type) {
+            case BOOLEAN:
+                return new boolean[length];
+            case BYTE:
+                return new byte[length];
+            case CHAR:
+                return new char[length];
+            case SHORT:
+                return new short[length];
+            case INT:
+                return new int[length];
+            case FLOAT:
+                return new float[length];
+            case LONG:
+                return new long[length];
+            case DOUBLE:
+                return new double[length];
+            default:
+                throw new IllegalArgumentException("Unsupported field type " + type);
+        }
+    }
+
+    private static Object copyColumn(final Object column, final int length) {
+        if (column instanceof boolean[]) {
+            return Arrays.copyOf((boolean[]) column, length);
+        } else if (column instanceof byte[]) {
+            return Arrays.copyOf((byte[]) column, length);
+        } else if (column instanceof char[]) {
+            return Arrays.copyOf((char[]) column, length);
+        } else if (column instanceof short[]) {
+            return Arrays.copyOf((short[]) column, length);
+        } else if (column instanceof int[]) {
+            return Arrays.copyOf((int[]) column, length);
+        } else if (column instanceof float[]) {
+            return Arrays.copyOf((float[]) column, length);
+        } else if (column instanceof long[]) {
+            return Arrays.copyOf((long[]) column, length);
+        } else {
+            return Arrays.copyOf((double[]) column, length);
+        }
+    }
+
+    @Override
+    public StructLayout layout() {
+        return layout;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public StructCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return number of records that fit without growing the columns.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @param minCapacity number of records the collection should be able to hold.
+     */
+    public void ensureCapacity(final int minCapacity) {
+        if (minCapacity > capacity) {
+            if (minCapacity > MAX_ARRAY_SIZE) {
+                throw new OutOfMemoryError("Struct columns of " + minCapacity + " " + layout.name()
+                        + " records are too large");
+            }
+            final int newCapacity = (int) Math.min(Math.max(minCapacity, (long) capacity + (capacity >> 1)),
+                    MAX_ARRAY_SIZE);
+            for (int i = 0; i < columns.length; ++i) {
+                columns[i] = copyColumn(columns[i], newCapacity);
+            }
+            capacity = newCapacity;
+        }
+    }
+
+    /**
+     * Appends a zero-filled record.
+     *
+     * @return index of the new record.
+     */
+    public long add() {
+        ensureCapacity(size + 1);
+        return size++;
+    }
+
+    /**
+     * Removes all records. Capacity is kept, and so are the column arrays, which are zero-filled up to the former size.
+     */
+    public void clear() {
+        for (final Object column : columns) {
+            clearColumn(column, size);
+        }
+        size = 0;
+    }
+
+    private static void clearColumn(final Object column, final int length) {
+        if (column instanceof boolean[]) {
+            Arrays.fill((boolean[]) column, 0, length, false);
+        } else if (column instanceof byte[]) {
+            Arrays.fill((byte[]) column, 0, length, (byte) 0);
+        } else if (column instanceof char[]) {
+            Arrays.fill((char[]) column, 0, length, (char) 0);
+        } else if (column instanceof short[]) {
+            Arrays.fill((short[]) column, 0, length, (short) 0);
+        } else if (column instanceof int[]) {
+            Arrays.fill((int[]) column, 0, length, 0);
+        } else if (column instanceof float[]) {
+            Arrays.fill((float[]) column, 0, length, 0f);
+        } else if (column instanceof long[]) {
+            Arrays.fill((long[]) column, 0, length, 0L);
+        } else {
+            Arrays.fill((double[]) column, 0, length, 0.0);
+        }
+    }
+
+    @Override
+    public void copy(final long from, final long to) {
+        final int src = index(from);
+        final int dst = index(to);
+        for (final Object column : columns) {
+            System.arraycopy(column, src, column, dst, 1);
+        }
+    }
+
+    /**
+     * Gathers every column into a new array of the same capacity, so column arrays should be fetched again.
+     */
+    @Override
+    public void permute(final int[] permutation) {
+        StructSort.checkPermutation(this, permutation);
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = permuteColumn(columns[i], permutation, capacity);
+        }
+    }
+
+    private static Object permuteColumn(final Object column, final int[] permutation, final int length) {
+        if (column instanceof boolean[]) {
+            final boolean[] c = (boolean[]) column;
+            final boolean[] p = new boolean[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        } else if (column instanceof byte[]) {
+            final byte[] c = (byte[]) column;
+            final byte[] p = new byte[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        } else if (column instanceof char[]) {
+            final char[] c = (char[]) column;
+            final char[] p = new char[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        } else if (column instanceof short[]) {
+            final short[] c = (short[]) column;
+            final short[] p = new short[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        } else if (column instanceof int[]) {
+            final int[] c = (int[]) column;
+            final int[] p = new int[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        } else if (column instanceof float[]) {
+            final float[] c = (float[]) column;
+            final float[] p = new float[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        } else if (column instanceof long[]) {
+            final long[] c = (long[]) column;
+            final long[] p = new long[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        } else {
+            final double[] c = (double[]) column;
+            final double[] p = new double[length];
+            for (int k = 0; k < permutation.length; ++k) {
+                p[k] = c[permutation[k]];
+            }
+            return p;
+        }
+    }
+
+    @Override
+    public void swap(final long i, final long j) {
+        final int a = index(i);
+        final int b = index(j);
+        for (final Object column : columns) {
+            swapElements(column, a, b);
+        }
+    }
+
+    private static void swapElements(final Object column, final int a, final int b) {
+        if (column instanceof boolean[]) {
+            final boolean[] c = (boolean[]) column;
+            final boolean t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        } else if (column instanceof byte[]) {
+            final byte[] c = (byte[]) column;
+            final byte t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        } else if (column instanceof char[]) {
+            final char[] c = (char[]) column;
+            final char t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        } else if (column instanceof short[]) {
+            final short[] c = (short[]) column;
+            final short t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        } else if (column instanceof int[]) {
+            final int[] c = (int[]) column;
+            final int t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        } else if (column instanceof float[]) {
+            final float[] c = (float[]) column;
+            final float t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        } else if (column instanceof long[]) {
+            final long[] c = (long[]) column;
+            final long t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        } else {
+            final double[] c = (double[]) column;
+            final double t = c[a];
+            c[a] = c[b];
+            c[b] = t;
+        }
+    }
+
+    private int index(final long index) {
+        return (int) Objects.checkIndex(index, size);
+    }
+
+    private Object column(final StructField field, final FieldType type) {
+        layout.checkField(field, type);
+        return columns[field.index()];
+    }
+
+    public boolean[] booleanColumn(final StructField field) {
+        return (boolean[]) column(field, FieldType.BOOLEAN);
+    }
+
+    public byte[] byteColumn(final StructField field) {
+        return (byte[]) column(field, FieldType.BYTE);
+    }
+
+    public char[] charColumn(final StructField field) {
+        return (char[]) column(field, FieldType.CHAR);
+    }
+
+    public short[] shortColumn(final StructField field) {
+        return (short[]) column(field, FieldType.SHORT);
+    }
+
+    public int[] intColumn(final StructField field) {
+        return (int[]) column(field, FieldType.INT);
+    }
+
+    public float[] floatColumn(final StructField field) {
+        return (float[]) column(field, FieldType.FLOAT);
+    }
+
+    public long[] longColumn(final StructField field) {
+        return (long[]) column(field, FieldType.LONG);
+    }
+
+    public double[] doubleColumn(final StructField field) {
+        return (double[]) column(field, FieldType.DOUBLE);
+    }
+
+    @Override
+    public boolean getBoolean(final long index, final StructField field) {
+        return booleanColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setBoolean(final long index, final StructField field, final boolean value) {
+        booleanColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public byte getByte(final long index, final StructField field) {
+        return byteColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setByte(final long index, final StructField field, final byte value) {
+        byteColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public char getChar(final long index, final StructField field) {
+        return charColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setChar(final long index, final StructField field, final char value) {
+        charColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public short getShort(final long index, final StructField field) {
+        return shortColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setShort(final long index, final StructField field, final short value) {
+        shortColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public int getInt(final long index, final StructField field) {
+        return intColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setInt(final long index, final StructField field, final int value) {
+        intColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public float getFloat(final long index, final StructField field) {
+        return floatColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setFloat(final long index, final StructField field, final float value) {
+        floatColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public long getLong(final long index, final StructField field) {
+        return longColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setLong(final long index, final StructField field, final long value) {
+        longColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public double getDouble(final long index, final StructField field) {
+        return doubleColumn(field)[index(index)];
+    }
+
+    @Override
+    public void setDouble(final long index, final StructField field, final double value) {
+        doubleColumn(field)[index(index)] = value;
+    }
+
+    @Override
+    public String toString() {
+        return "StructColumns<" + layout.name() + ">[" + size + "]";
+    }
+
+    private final class Cursor implements StructCursor {
+
+        private int position = -1;
+
+        @Override
+        public StructCollection collection() {
+            return StructColumns.this;
+        }
+
+        @Override
+        public long index() {
+            return position;
+        }
+
+        @Override
+        public StructCursor moveTo(final long index) {
+            this.position = StructColumns.this.index(index);
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (position + 1 >= size) {
+                return false;
+            }
+            ++position;
+            return true;
+        }
+
+        @Override
+        public StructCursor reset() {
+            position = -1;
+            return this;
+        }
+
+        private int current() {
+            if (position < 0) {
+                throw new IllegalStateException("Cursor is before the first record");
+            }
+            return position;
+        }
+
+        @Override
+        public boolean getBoolean(final StructField field) {
+            return booleanColumn(field)[current()];
+        }
+
+        @Override
+        public void setBoolean(final StructField field, final boolean value) {
+            booleanColumn(field)[current()] = value;
+        }
+
+        @Override
+        public byte getByte(final StructField field) {
+            return byteColumn(field)[current()];
+        }
+
+        @Override
+        public void setByte(final StructField field, final byte value) {
+            byteColumn(field)[current()] = value;
+        }
+
+        @Override
+        public char getChar(final StructField field) {
+            return charColumn(field)[current()];
+        }
+
+        @Override
+        public void setChar(final StructField field, final char value) {
+            charColumn(field)[current()] = value;
+        }
+
+        @Override
+        public short getShort(final StructField field) {
+            return shortColumn(field)[current()];
+        }
+
+        @Override
+        public void setShort(final StructField field, final short value) {
+            shortColumn(field)[current()] = value;
+        }
+
+        @Override
+        public int getInt(final StructField field) {
+            return intColumn(field)[current()];
+        }
+
+        @Override
+        public void setInt(final StructField field, final int value) {
+            intColumn(field)[current()] = value;
+        }
+
+        @Override
+        public float getFloat(final StructField field) {
+            return floatColumn(field)[current()];
+        }
+
+        @Override
+        public void setFloat(final StructField field, final float value) {
+            floatColumn(field)[current()] = value;
+        }
+
+        @Override
+        public long getLong(final StructField field) {
+            return longColumn(field)[current()];
+        }
+
+        @Override
+        public void setLong(final StructField field, final long value) {
+            longColumn(field)[current()] = value;
+        }
+
+        @Override
+        public double getDouble(final StructField field) {
+            return doubleColumn(field)[current()];
+        }
+
+        @Override
+        public void setDouble(final StructField field, final double value) {
+            doubleColumn(field)[current()] = value;
+        }
+    }
+}
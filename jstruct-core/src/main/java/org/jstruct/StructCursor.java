@@ -0,0 +1,84 @@
+package org.jstruct;
+
+/**
+ * Reusable view of one record of a {@link StructCollection}.
+ * <p>
+ * A cursor is a flyweight: moving it to another record only updates its position, so iterating a collection does not
+ * allocate anything per record. The position is validated when the cursor moves; field accessors only check the
+ * field. A new cursor is positioned before the first record, where field accessors throw
+ * {@link IllegalStateException}:
+ *
+ * <pre>
+ * StructCursor cursor = orders.cursor();
+ * while (cursor.next()) {
+ *     total += cursor.getLong(price);
+ * }
+ * </pre>
+ *
+ * Cursors are not thread-safe.
+ */
+public interface StructCursor {
+
+    /**
+     * @return collection the cursor iterates.
+     */
+    StructCollection collection();
+
+    /**
+     * @return index of the current record, or {@code -1} if the cursor is before the first record.
+     */
+    long index();
+
+    /**
+     * @param index index of the record to move to.
+     * @return this cursor.
+     * @throws IndexOutOfBoundsException if the index is outside {@code [0, size())}.
+     */
+    StructCursor moveTo(long index);
+
+    /**
+     * Moves the cursor to the next record.
+     *
+     * @return {@code false} if there is no next record; the cursor is not moved in that case.
+     */
+    boolean next();
+
+    /**
+     * Moves the cursor before the first record.
+     *
+     * @return this cursor.
+     */
+    StructCursor reset();
+
+    boolean getBoolean(StructField field);
+
+    void setBoolean(StructField field, boolean value);
+
+    byte getByte(StructField field);
+
+    void setByte(StructField field, byte value);
+
+    char getChar(StructField field);
+
+    void setChar(StructField field, char value);
+
+    short getShort(StructField field);
+
+    void setShort(StructField field, short value);
+
+    int getInt(StructField field);
+
+    void setInt(StructField field, int value);
+
+    float getFloat(StructField field);
+
+    void setFloat(StructField field, float value);
+
+    long getLong(StructField field);
+
+    void setLong(StructField field, long value);
+
+    double getDouble(StructField field);
+
+    void setDouble(StructField field, double value);
+}
@@ -0,0 +1,76 @@
+package org.jstruct;
+
+/**
+ * Named field of a {@link StructLayout}.
+ * <p>
+ * Fields are created by {@link StructLayout.Builder} and are bound to the layout that declared them; collections
+ * reject fields that belong to a different layout.
+ */
+public final class StructField {
+
+    private final StructLayout layout;
+
+    private final String name;
+
+    private final FieldType type;
+
+    private final int index;
+
+    private final int offset;
+
+    StructField(final StructLayout layout, final String name, final FieldType type, final int index,
+            final int offset) {
+        this.layout = layout;
+        this.name = name;
+        this.type = type;
+        this.index = index;
+        this.offset = offset;
+    }
+
+    /**
+     * @return layout that declared this field.
+     */
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return name of the field, unique within its layout.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return type of the stored value.
+     */
+    public FieldType type() {
+        return type;
+    }
+
+    /**
+     * @return position of the field in declaration order.
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * @return offset of the field from the start of a record, in bytes.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return size of the field in bytes.
+     */
+    public int size() {
+        return type.size();
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name + "@" + offset;
+    }
+}
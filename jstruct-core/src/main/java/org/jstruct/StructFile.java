@@ -0,0 +1,477 @@
+package org.jstruct;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Memory-mapped files of structs.
+ * <p>
+ * A struct file starts with a small header that describes the layout and the number of records, followed by the
+ * records themselves in the same format as {@link OffHeapStructArray}. Opening a file only reads the header and maps
+ * the rest, so records are paged in lazily by the operating system on first access. Changes made through a
+ * read-write mapping reach the file eventually; call {@link MemorySegment#force()} on
+ * {@link OffHeapStructArray#segment()} to flush them explicitly. The mapping is released when its arena is closed.
+ * <p>
+ * Records are stored in native byte order; a file written on a platform with another byte order is rejected.
+ */
+public final class StructFile {
+
+    private static final int MAGIC = 0x4A535452; // "JSTR"
+
+    private static final short VERSION = 2;
+
+    private static final int PREFIX_SIZE = 12;
+
+    /**
+     * Largest header accepted, so that a corrupted data offset does not make the header read allocate at will.
+     */
+    private static final int MAX_HEADER_SIZE = 1 << 24;
+
+    private static final int DATA_ALIGNMENT = 64;
+
+    private StructFile() {
+    }
+
+    /**
+     * Creates (or truncates) a file with the given number of zero-filled records and maps it read-write.
+     *
+     * @param path path of the file.
+     * @param layout layout of the records.
+     * @param length number of records.
+     * @param arena arena that owns the mapping.
+     * @return array backed by the mapped file.
+     */
+    public static OffHeapStructArray create(final Path path, final StructLayout layout, final long length,
+            final Arena arena) throws IOException {
+        Objects.requireNonNull(layout, "Layout should be defined");
+        Objects.requireNonNull(arena, "Arena should be defined");
+        if (length < 0) {
+            throw new IllegalArgumentException("Length should not be negative: " + length);
+        }
+        final byte[] header = encodeHeader(layout, length);
+        final long dataOffset = header.length;
+        final long fileSize = Math.addExact(dataOffset, Math.multiplyExact(length, (long) layout.size()));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize, arena);
+            MemorySegment.copy(header, 0, file, ValueLayout.JAVA_BYTE, 0, header.length);
+            return OffHeapStructArray.wrap(layout, file.asSlice(dataOffset));
+        }
+    }
+
+    /**
+     * Maps an existing file using the layout stored in its header.
+     *
+     * @param path path of the file.
+     * @param mode {@link FileChannel.MapMode#READ_ONLY} or {@link FileChannel.MapMode#READ_WRITE}.
+     * @param arena arena that owns the mapping.
+     * @return array backed by the mapped file; fields, embedded structs, arrays and bit fields are available through
+     *         its {@link OffHeapStructArray#layout()}.
+     */
+    public static OffHeapStructArray open(final Path path, final FileChannel.MapMode mode, final Arena arena)
+            throws IOException {
+        return open(path, null, mode, arena);
+    }
+
+    /**
+     * Maps an existing file, checking that it was written with a compatible layout.
+     *
+     * @param path path of the file.
+     * @param layout expected layout of the records.
+     * @param mode {@link FileChannel.MapMode#READ_ONLY} or {@link FileChannel.MapMode#READ_WRITE}.
+     * @param arena arena that owns the mapping.
+     * @return array backed by the mapped file that accepts the fields of the given layout.
+     * @throws IOException if the file is not a struct file or its layout does not match.
+     */
+    public static OffHeapStructArray open(final Path path, final StructLayout layout, final FileChannel.MapMode mode,
+            final Arena arena) throws IOException {
+        Objects.requireNonNull(mode, "Map mode should be defined");
+        Objects.requireNonNull(arena, "Arena should be defined");
+        final boolean writable = mode == FileChannel.MapMode.READ_WRITE;
+        try (FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            final Header header = readHeader(path, channel);
+            if (layout != null && !compatible(layout, header.layout)) {
+                throw new IOException("Struct file " + path + " holds " + header.layout + ", not " + layout);
+            }
+            if (channel.size() < header.dataOffset + header.dataSize) {
+                throw new EOFException("Struct file " + path + " is truncated");
+            }
+            final MemorySegment data = channel.map(mode, header.dataOffset, header.dataSize, arena);
+            return OffHeapStructArray.wrap(layout != null ? layout : header.layout, data);
+        }
+    }
+
+    /**
+     * Reads the layout stored in the header of a struct file without mapping it, with its embedded structs, arrays and
+     * bit fields.
+     *
+     * @param path path of the file.
+     * @return layout of the records.
+     */
+    public static StructLayout readLayout(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(path, channel).layout;
+        }
+    }
+
+    private static boolean compatible(final StructLayout expected, final StructLayout actual) {
+        if (!expected.name().equals(actual.name()) || expected.size() != actual.size()
+                || expected.fieldCount() != actual.fieldCount()) {
+            return false;
+        }
+        for (int i = 0; i < expected.fieldCount(); ++i) {
+            final StructField e = expected.field(i);
+            final StructField a = actual.field(i);
+            if (!e.name().equals(a.name()) || e.type() != a.type() || e.offset() != a.offset()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Header format, in native byte order:
+     *
+     * int magic, short version, byte order (0 = little endian, 1 = big endian), byte reserved, int data offset,
+     * long length, int record size, string struct name, int field count,
+     * then for every field: byte type, int offset, string name,
+     * int array count, then for every array: string name, int first field, int length,
+     * int bit field count, then for every bit field: string name, int word field, byte shift, byte width,
+     * int embedded struct count, then for every embedded struct: string name, string struct name, int offset,
+     * int first field, int field count.
+     *
+     * Arrays, bit fields and embedded structs refer to the fields holding them by index. Embedded structs are listed
+     * as in StructLayout.embeddedStructs(): structs embedded in an embedded struct follow it with qualified names.
+     *
+     * Strings are stored as a short byte count followed by UTF-8 bytes. Records start at the data offset, which is
+     * aligned to DATA_ALIGNMENT bytes.
+     */
+
+    private static byte[] encodeHeader(final StructLayout layout, final long length) {
+        long size = PREFIX_SIZE + Long.BYTES + Integer.BYTES + stringSize(layout.name()) + 4 * Integer.BYTES;
+        for (final StructField field : layout.fields()) {
+            size += 1 + Integer.BYTES + stringSize(field.name());
+        }
+        for (final InlineArray array : layout.arrays()) {
+            size += stringSize(array.name()) + 2 * Integer.BYTES;
+        }
+        for (final BitField bitField : layout.bitFields()) {
+            size += stringSize(bitField.name()) + Integer.BYTES + 2;
+        }
+        for (final EmbeddedStruct struct : layout.embeddedStructs()) {
+            size += stringSize(struct.name()) + stringSize(struct.type().name()) + 3 * Integer.BYTES;
+        }
+        if (size > MAX_HEADER_SIZE - DATA_ALIGNMENT) {
+            throw new IllegalArgumentException("Layout of struct " + layout.name() + " is too large to be stored");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(StructLayout.align((int) size, DATA_ALIGNMENT))
+                .order(ByteOrder.nativeOrder());
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? (byte) 0 : (byte) 1);
+        buffer.put((byte) 0);
+        buffer.putInt(buffer.capacity());
+        buffer.putLong(length);
+        buffer.putInt(layout.size());
+        putString(buffer, layout.name());
+        buffer.putInt(layout.fieldCount());
+        for (final StructField field : layout.fields()) {
+            buffer.put((byte) field.type().ordinal());
+            buffer.putInt(field.offset());
+            putString(buffer, field.name());
+        }
+        buffer.putInt(layout.arrays().size());
+        for (final InlineArray array : layout.arrays()) {
+            putString(buffer, array.name());
+            buffer.putInt(array.firstField());
+            buffer.putInt(array.length());
+        }
+        buffer.putInt(layout.bitFields().size());
+        for (final BitField bitField : layout.bitFields()) {
+            putString(buffer, bitField.name());
+            buffer.putInt(bitField.word().index());
+            buffer.put((byte) bitField.shift());
+            buffer.put((byte) bitField.width());
+        }
+        buffer.putInt(layout.embeddedStructs().size());
+        for (final EmbeddedStruct struct : layout.embeddedStructs()) {
+            putString(buffer, struct.name());
+            putString(buffer, struct.type().name());
+            buffer.putInt(struct.offset());
+            buffer.putInt(struct.firstField());
+            buffer.putInt(struct.type().fieldCount());
+        }
+        return buffer.array();
+    }
+
+    private static Header readHeader(final Path path, final FileChannel channel) throws IOException {
+        final ByteBuffer prefix = read(path, channel, 0, PREFIX_SIZE);
+        if (prefix.order(ByteOrder.BIG_ENDIAN).getInt(0) != MAGIC
+                && prefix.order(ByteOrder.LITTLE_ENDIAN).getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a struct file");
+        }
+        final ByteOrder order = prefix.get(6) == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        if (order != ByteOrder.nativeOrder()) {
+            throw new IOException("Struct file " + path + " uses " + order + " byte order");
+        }
+        prefix.order(order);
+        final short version = prefix.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Struct file " + path + " has unsupported version " + version);
+        }
+        final int dataOffset = prefix.getInt(8);
+        if (dataOffset < PREFIX_SIZE || dataOffset > MAX_HEADER_SIZE || dataOffset % DATA_ALIGNMENT != 0) {
+            throw new IOException("Struct file " + path + " has corrupted header");
+        }
+        if (dataOffset > channel.size()) {
+            throw new EOFException("Struct file " + path + " is truncated");
+        }
+
+        final ByteBuffer buffer = read(path, channel, 0, dataOffset).order(order).position(PREFIX_SIZE);
+        try {
+            final long length = buffer.getLong();
+            final int recordSize = buffer.getInt();
+            final Declarations declarations = new Declarations(getString(buffer));
+            final int fieldCount = buffer.getInt();
+            final FieldType[] types = FieldType.values();
+            for (int i = 0; i < fieldCount; ++i) {
+                final int type = buffer.get();
+                if (type < 0 || type >= types.length) {
+                    throw new IOException("Struct file " + path + " has unknown field type " + type);
+                }
+                final int offset = buffer.getInt();
+                declarations.fields.add(new FieldDeclaration(getString(buffer), types[type], offset));
+            }
+            final int arrayCount = buffer.getInt();
+            for (int i = 0; i < arrayCount; ++i) {
+                declarations.arrays.add(new ArrayDeclaration(getString(buffer), buffer.getInt(), buffer.getInt()));
+            }
+            final int bitFieldCount = buffer.getInt();
+            for (int i = 0; i < bitFieldCount; ++i) {
+                declarations.bitFields.add(new BitDeclaration(getString(buffer), buffer.getInt(), buffer.get(),
+                        buffer.get()));
+            }
+            final int structCount = buffer.getInt();
+            for (int i = 0; i < structCount; ++i) {
+                declarations.structs.add(new StructDeclaration(getString(buffer), getString(buffer), buffer.getInt(),
+                        buffer.getInt(), buffer.getInt()));
+            }
+            final StructLayout layout = declarations.layout();
+            if (length < 0 || layout.size() != recordSize) {
+                throw new IOException("Struct file " + path + " has corrupted header");
+            }
+            final long dataSize = Math.multiplyExact(length, (long) recordSize);
+            Math.addExact(dataOffset, dataSize);
+            return new Header(layout, length, dataOffset, dataSize);
+        } catch (final BufferUnderflowException | ArithmeticException | IllegalArgumentException
+                | IllegalStateException | IndexOutOfBoundsException e) {
+            throw new IOException("Struct file " + path + " has corrupted header", e);
+        }
+    }
+
+    private static ByteBuffer read(final Path path, final FileChannel channel, final long position, final int size)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Struct file " + path + " is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int stringSize(final String value) {
+        return Short.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(final ByteBuffer buffer, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Name is too long to be stored: " + value);
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Header {
+
+        final StructLayout layout;
+
+        final long length;
+
+        final long dataOffset;
+
+        final long dataSize;
+
+        Header(final StructLayout layout, final long length, final long dataOffset, final long dataSize) {
+            this.layout = layout;
+            this.length = length;
+            this.dataOffset = dataOffset;
+            this.dataSize = dataSize;
+        }
+    }
+
+    /**
+     * Contents of a stored layout, rebuilt into the layout and the layouts of its embedded structs.
+     */
+    private static final class Declarations {
+
+        final String name;
+
+        final List<FieldDeclaration> fields = new ArrayList<>();
+
+        final List<ArrayDeclaration> arrays = new ArrayList<>();
+
+        final List<BitDeclaration> bitFields = new ArrayList<>();
+
+        final List<StructDeclaration> structs = new ArrayList<>();
+
+        Declarations(final String name) {
+            this.name = name;
+        }
+
+        StructLayout layout() {
+            return layout(name, "", 0, fields.size(), 0);
+        }
+
+        /**
+         * @return layout made of the fields {@code [first, first + count)}, stripped of the prefix and the base offset
+         *         of the struct embedding them, with the arrays, bit fields and structs they hold.
+         */
+        private StructLayout layout(final String name, final String prefix, final int first, final int count,
+                final int base) {
+            final StructLayout.Builder builder = StructLayout.builder(name);
+            for (int i = first; i < first + count; ++i) {
+                final FieldDeclaration field = fields.get(i);
+                builder.add(strip(field.name, prefix), field.type, field.offset - base);
+            }
+            for (final ArrayDeclaration array : arrays) {
+                if (holds(array.name, array.firstField, prefix, first, count)) {
+                    builder.addArray(strip(array.name, prefix), array.firstField - first, array.length);
+                }
+            }
+            for (final BitDeclaration bitField : bitFields) {
+                if (holds(bitField.name, bitField.word, prefix, first, count)) {
+                    builder.addBits(strip(bitField.name, prefix), bitField.word - first, bitField.shift,
+                            bitField.width);
+                }
+            }
+            for (final StructDeclaration struct : structs) {
+                if (holds(struct.name, struct.firstField, prefix, first, count)) {
+                    if (struct.fieldCount < 0 || struct.firstField + struct.fieldCount > first + count) {
+                        throw new IllegalArgumentException("Struct " + struct.name + " does not match its fields");
+                    }
+                    final StructLayout type = layout(struct.type, struct.name + ".", struct.firstField,
+                            struct.fieldCount, struct.offset);
+                    builder.addStruct(strip(struct.name, prefix), type, struct.offset - base,
+                            struct.firstField - first);
+                }
+            }
+            return builder.build();
+        }
+
+        private static boolean holds(final String name, final int field, final String prefix, final int first,
+                final int count) {
+            return name.length() > prefix.length() && name.startsWith(prefix) && field >= first
+                    && field < first + count;
+        }
+
+        private static String strip(final String name, final String prefix) {
+            if (!name.startsWith(prefix)) {
+                throw new IllegalArgumentException("Field " + name + " is not a field of struct " + prefix);
+            }
+            return name.substring(prefix.length());
+        }
+    }
+
+    private static final class FieldDeclaration {
+
+        final String name;
+
+        final FieldType type;
+
+        final int offset;
+
+        FieldDeclaration(final String name, final FieldType type, final int offset) {
+            this.name = name;
+            this.type = type;
+            this.offset = offset;
+        }
+    }
+
+    private static final class ArrayDeclaration {
+
+        final String name;
+
+        final int firstField;
+
+        final int length;
+
+        ArrayDeclaration(final String name, final int firstField, final int length) {
+            this.name = name;
+            this.firstField = firstField;
+            this.length = length;
+        }
+    }
+
+    private static final class BitDeclaration {
+
+        final String name;
+
+        final int word;
+
+        final int shift;
+
+        final int width;
+
+        BitDeclaration(final String name, final int word, final int shift, final int width) {
+            this.name = name;
+            this.word = word;
+            this.shift = shift;
+            this.width = width;
+        }
+    }
+
+    private static final class StructDeclaration {
+
+        final String name;
+
+        final String type;
+
+        final int offset;
+
+        final int firstField;
+
+        final int fieldCount;
+
+        StructDeclaration(final String name, final String type, final int offset, final int firstField,
+                final int fieldCount) {
+            this.name = name;
+            this.type = type;
+            this.offset = offset;
+            this.firstField = firstField;
+            this.fieldCount = fieldCount;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.jstruct;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * Hash map from {@code long} keys to struct values stored inline in the table.
+ * <p>
+ * Each slot holds the key followed by the value record, so an entry costs its payload plus the key, divided by the
+ * load factor, and a successful lookup touches one slot in the common case. Collisions are resolved by linear probing
+ * and removals shift entries back instead of leaving tombstones. Integer keys are widened to {@code long}.
+ * <p>
+ * {@link #put(long)} and {@link #indexOf(long)} return the slot of the value, which is then read and written with the
+ * typed accessors:
+ *
+ * <pre>
+ * long slot = states.put(orderId);
+ * states.setInt(slot, filled, states.getInt(slot, filled) + quantity);
+ * </pre>
+ */
+public final class StructHashMap extends AbstractStructHashMap {
+
+    private static final long EMPTY_KEY = 0;
+
+    /**
+     * The entry with {@link #EMPTY_KEY} lives in the extra slot at index {@code capacity}.
+     */
+    private boolean hasEmptyKey;
+
+    /**
+     * @param layout layout of the values.
+     */
+    public StructHashMap(final StructLayout layout) {
+        this(layout, DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param layout layout of the values.
+     * @param expectedSize number of entries the map should hold without rehashing.
+     */
+    public StructHashMap(final StructLayout layout, final int expectedSize) {
+        this(layout, expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param layout layout of the values.
+     * @param expectedSize number of entries the map should hold without rehashing.
+     * @param loadFactor maximum ratio of entries to slots, in {@code (0, 1)}.
+     */
+    public StructHashMap(final StructLayout layout, final int expectedSize, final float loadFactor) {
+        super(layout, Long.BYTES, expectedSize, loadFactor, 1);
+    }
+
+    static int hash(final long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    @Override
+    public boolean isOccupied(final long slot) {
+        Objects.checkIndex(slot, slotCount());
+        return slot == capacity ? hasEmptyKey : keyAt(slot) != EMPTY_KEY;
+    }
+
+    /**
+     * @param slot occupied slot.
+     * @return key of the entry in the slot.
+     */
+    public long key(final long slot) {
+        Objects.checkIndex(slot, slotCount());
+        return slot == capacity ? EMPTY_KEY : keyAt(slot);
+    }
+
+    private long keyAt(final long slot) {
+        return table.get(ValueLayout.JAVA_LONG, slot * slotSize);
+    }
+
+    /**
+     * @param key key to look up.
+     * @return slot of the value, or {@code -1} if the map has no such key.
+     */
+    public long indexOf(final long key) {
+        if (key == EMPTY_KEY) {
+            return hasEmptyKey ? capacity : -1;
+        }
+        for (long slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            final long k = keyAt(slot);
+            if (k == key) {
+                return slot;
+            }
+            if (k == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @param key key to look up.
+     * @return {@code true} if the map has an entry with the key.
+     */
+    public boolean containsKey(final long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Finds the entry with the given key, inserting one with a zero-filled value if there is none.
+     *
+     * @param key key of the entry.
+     * @return slot of the value.
+     */
+    public long put(final long key) {
+        if (key == EMPTY_KEY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                ++size;
+            }
+            return capacity;
+        }
+        long slot = hash(key) & mask;
+        for (long k = keyAt(slot); k != EMPTY_KEY; k = keyAt(slot)) {
+            if (k == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size - (hasEmptyKey ? 1 : 0) >= threshold) {
+            rehash();
+            slot = hash(key) & mask;
+            while (keyAt(slot) != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        table.set(ValueLayout.JAVA_LONG, slot * slotSize, key);
+        ++size;
+        return slot;
+    }
+
+    /**
+     * Removes the entry with the given key.
+     *
+     * @param key key of the entry.
+     * @return {@code true} if the map had such an entry.
+     */
+    public boolean remove(final long key) {
+        long slot = indexOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        if (slot == capacity) {
+            hasEmptyKey = false;
+        } else {
+            // Shift following entries of the probe chain back so that lookups never stop at the freed slot.
+            long next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                final long k = keyAt(next);
+                if (k == EMPTY_KEY) {
+                    break;
+                }
+                final long ideal = hash(k) & mask;
+                if (next > slot ? ideal <= slot || ideal > next : ideal <= slot && ideal > next) {
+                    MemorySegment.copy(table, next * slotSize, table, slot * slotSize, slotSize);
+                    slot = next;
+                }
+            }
+        }
+        clearSlot(slot);
+        --size;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        hasEmptyKey = false;
+    }
+
+    private void rehash() {
+        final int oldCapacity = capacity;
+        final MemorySegment old = allocate(grownCapacity());
+        for (long i = 0; i < oldCapacity; ++i) {
+            final long key = old.get(ValueLayout.JAVA_LONG, i * slotSize);
+            if (key != EMPTY_KEY) {
+                long slot = hash(key) & mask;
+                while (keyAt(slot) != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                MemorySegment.copy(old, i * slotSize, table, slot * slotSize, slotSize);
+            }
+        }
+        MemorySegment.copy(old, oldCapacity * slotSize, table, capacity * slotSize, slotSize);
+    }
+}
@@ -0,0 +1,296 @@
+package org.jstruct;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * Hash map whose keys and values are both struct records, stored inline in the table.
+ * <p>
+ * Composite keys such as {@code (int exchange, long instrument, short side)} are described by their own
+ * {@link StructLayout}. Lookups take the key from a record of any {@link FlatStructCollection} with that layout and
+ * hash and compare it directly in memory, so probing allocates nothing; a one-record {@link StructArray} works as a
+ * reusable probe:
+ *
+ * <pre>
+ * StructArray probe = new StructArray(keyLayout, 1);
+ * probe.add();
+ * probe.setInt(0, exchange, 3);
+ * probe.setLong(0, instrument, 1234L);
+ * long slot = books.indexOf(probe, 0);
+ * </pre>
+ *
+ * Keys are compared bitwise, including padding, which collections keep zero-filled; as a consequence floating point
+ * key fields distinguish {@code 0.0} from {@code -0.0} and different NaN encodings. Each slot also stores the hash of
+ * its key, which rejects most mismatching entries without comparing keys and avoids rehashing keys when the table
+ * grows.
+ */
+public final class StructKeyHashMap extends AbstractStructHashMap {
+
+    private static final long OCCUPIED = 1L << 32;
+
+    private static final long KEY_OFFSET = Long.BYTES;
+
+    private final StructLayout keyLayout;
+
+    private final int keySize;
+
+    /**
+     * Keys are read in units of the key alignment, which every record offset is a multiple of.
+     */
+    private final int unit;
+
+    /**
+     * @param keyLayout layout of the keys.
+     * @param layout layout of the values.
+     */
+    public StructKeyHashMap(final StructLayout keyLayout, final StructLayout layout) {
+        this(keyLayout, layout, DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param keyLayout layout of the keys.
+     * @param layout layout of the values.
+     * @param expectedSize number of entries the map should hold without rehashing.
+     */
+    public StructKeyHashMap(final StructLayout keyLayout, final StructLayout layout, final int expectedSize) {
+        this(keyLayout, layout, expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param keyLayout layout of the keys.
+     * @param layout layout of the values.
+     * @param expectedSize number of entries the map should hold without rehashing.
+     * @param loadFactor maximum ratio of entries to slots, in {@code (0, 1)}.
+     */
+    public StructKeyHashMap(final StructLayout keyLayout, final StructLayout layout, final int expectedSize,
+            final float loadFactor) {
+        super(layout, Long.BYTES + StructLayout.align(keyLayout.size(), Long.BYTES), expectedSize, loadFactor, 0);
+        this.keyLayout = keyLayout;
+        this.keySize = keyLayout.size();
+        this.unit = keyLayout.alignment();
+    }
+
+    /**
+     * @return layout of the keys.
+     */
+    public StructLayout keyLayout() {
+        return keyLayout;
+    }
+
+    @Override
+    public boolean isOccupied(final long slot) {
+        return control(Objects.checkIndex(slot, slotCount())) != 0;
+    }
+
+    private long control(final long slot) {
+        return table.get(ValueLayout.JAVA_LONG, slot * slotSize);
+    }
+
+    private long keyOffset(final FlatStructCollection keys, final long index) {
+        if (keys.layout() != keyLayout) {
+            throw new IllegalArgumentException("Collection does not hold " + keyLayout.name() + " keys");
+        }
+        return keys.recordOffset(index);
+    }
+
+    private long read(final FlatStructCollection keys, final long offset) {
+        switch (unit) {
+            case Long.BYTES:
+                return keys.getLongAt(offset);
+            case Integer.BYTES:
+                return keys.getIntAt(offset);
+            case Short.BYTES:
+                return keys.getShortAt(offset);
+            default:
+                return keys.getByteAt(offset);
+        }
+    }
+
+    private long read(final long offset) {
+        switch (unit) {
+            case Long.BYTES:
+                return table.get(ValueLayout.JAVA_LONG, offset);
+            case Integer.BYTES:
+                return table.get(ValueLayout.JAVA_INT, offset);
+            case Short.BYTES:
+                return table.get(ValueLayout.JAVA_SHORT, offset);
+            default:
+                return table.get(ValueLayout.JAVA_BYTE, offset);
+        }
+    }
+
+    private void write(final long offset, final long value) {
+        switch (unit) {
+            case Long.BYTES:
+                table.set(ValueLayout.JAVA_LONG, offset, value);
+                break;
+            case Integer.BYTES:
+                table.set(ValueLayout.JAVA_INT, offset, (int) value);
+                break;
+            case Short.BYTES:
+                table.set(ValueLayout.JAVA_SHORT, offset, (short) value);
+                break;
+            default:
+                table.set(ValueLayout.JAVA_BYTE, offset, (byte) value);
+                break;
+        }
+    }
+
+    private void write(final FlatStructCollection keys, final long offset, final long value) {
+        switch (unit) {
+            case Long.BYTES:
+                keys.setLongAt(offset, value);
+                break;
+            case Integer.BYTES:
+                keys.setIntAt(offset, (int) value);
+                break;
+            case Short.BYTES:
+                keys.setShortAt(offset, (short) value);
+                break;
+            default:
+                keys.setByteAt(offset, (byte) value);
+                break;
+        }
+    }
+
+    int hash(final FlatStructCollection keys, final long offset) {
+        long h = keySize;
+        for (int k = 0; k < keySize; k += unit) {
+            h = (Long.rotateLeft(h, 31) ^ read(keys, offset + k)) * 0x9E3779B97F4A7C15L;
+        }
+        return StructHashMap.hash(h);
+    }
+
+    private boolean matches(final long slot, final FlatStructCollection keys, final long offset) {
+        final long base = slot * slotSize + KEY_OFFSET;
+        for (int k = 0; k < keySize; k += unit) {
+            if (read(base + k) != read(keys, offset + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long find(final FlatStructCollection keys, final long offset, final int hash) {
+        final long expected = OCCUPIED | (hash & 0xFFFFFFFFL);
+        for (long slot = hash & mask;; slot = (slot + 1) & mask) {
+            final long control = control(slot);
+            if (control == 0) {
+                return -1 - slot;
+            }
+            if (control == expected && matches(slot, keys, offset)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * @param keys collection holding the key.
+     * @param index index of the key record.
+     * @return slot of the value, or {@code -1} if the map has no such key.
+     */
+    public long indexOf(final FlatStructCollection keys, final long index) {
+        final long offset = keyOffset(keys, index);
+        final long slot = find(keys, offset, hash(keys, offset));
+        return slot >= 0 ? slot : -1;
+    }
+
+    /**
+     * @param keys collection holding the key.
+     * @param index index of the key record.
+     * @return {@code true} if the map has an entry with the key.
+     */
+    public boolean containsKey(final FlatStructCollection keys, final long index) {
+        return indexOf(keys, index) >= 0;
+    }
+
+    /**
+     * Finds the entry with the given key, inserting one with a zero-filled value if there is none.
+     *
+     * @param keys collection holding the key.
+     * @param index index of the key record.
+     * @return slot of the value.
+     */
+    public long put(final FlatStructCollection keys, final long index) {
+        final long offset = keyOffset(keys, index);
+        final int hash = hash(keys, offset);
+        long slot = find(keys, offset, hash);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (size >= threshold) {
+            rehash();
+            slot = find(keys, offset, hash);
+        }
+        slot = -1 - slot;
+        final long base = slot * slotSize;
+        table.set(ValueLayout.JAVA_LONG, base, OCCUPIED | (hash & 0xFFFFFFFFL));
+        for (int k = 0; k < keySize; k += unit) {
+            write(base + KEY_OFFSET + k, read(keys, offset + k));
+        }
+        ++size;
+        return slot;
+    }
+
+    /**
+     * Removes the entry with the given key.
+     *
+     * @param keys collection holding the key.
+     * @param index index of the key record.
+     * @return {@code true} if the map had such an entry.
+     */
+    public boolean remove(final FlatStructCollection keys, final long index) {
+        long slot = indexOf(keys, index);
+        if (slot < 0) {
+            return false;
+        }
+        // Shift following entries of the probe chain back so that lookups never stop at the freed slot.
+        long next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            final long control = control(next);
+            if (control == 0) {
+                break;
+            }
+            final long ideal = (int) control & mask;
+            if (next > slot ? ideal <= slot || ideal > next : ideal <= slot && ideal > next) {
+                MemorySegment.copy(table, next * slotSize, table, slot * slotSize, slotSize);
+                slot = next;
+            }
+        }
+        clearSlot(slot);
+        --size;
+        return true;
+    }
+
+    /**
+     * Copies the key of an entry into a record of another collection.
+     *
+     * @param slot occupied slot.
+     * @param keys collection to copy the key to.
+     * @param index index of the target record.
+     */
+    public void copyKey(final long slot, final FlatStructCollection keys, final long index) {
+        final long base = Objects.checkIndex(slot, slotCount()) * slotSize + KEY_OFFSET;
+        final long offset = keyOffset(keys, index);
+        for (int k = 0; k < keySize; k += unit) {
+            write(keys, offset + k, read(base + k));
+        }
+    }
+
+    private void rehash() {
+        final int oldCapacity = capacity;
+        final MemorySegment old = allocate(grownCapacity());
+        for (long i = 0; i < oldCapacity; ++i) {
+            final long control = old.get(ValueLayout.JAVA_LONG, i * slotSize);
+            if (control != 0) {
+                long slot = (int) control & mask;
+                while (control(slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                MemorySegment.copy(old, i * slotSize, table, slot * slotSize, slotSize);
+            }
+        }
+    }
+}
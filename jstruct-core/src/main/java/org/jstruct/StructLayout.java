@@ -0,0 +1,674 @@
+package org.jstruct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable description of a struct: an ordered set of named primitive fields with fixed offsets.
+ * <p>
+ * Fields are placed in declaration order, each aligned to its natural alignment, like a C struct. The record size is
+ * rounded up to the largest field alignment so that records stored back to back keep every field aligned.
+ * <p>
+ * A struct can embed another struct inline, like a nested C struct: the embedded record occupies its full size,
+ * padding included, at an offset aligned to its own alignment, and its fields become fields of the outer layout named
+ * {@code <struct>.<field>}. The {@link EmbeddedStruct} describes where it lies and maps its fields. Likewise a
+ * fixed-length array is stored inline as consecutive fields {@code <array>[0]}, {@code <array>[1]}, ..., described by
+ * an {@link InlineArray}, which also stores short strings in {@code char} or {@code byte} arrays. Small unsigned
+ * integers and flags are packed into shared {@code int} words as {@link BitField}s.
+ *
+ * <pre>
+ * StructLayout price = StructLayout.builder("Price")
+ *         .addLong("mantissa")
+ *         .addByte("exponent")
+ *         .build();
+ * StructLayout order = StructLayout.builder("Order")
+ *         .addLong("id")
+ *         .addArray("symbol", FieldType.CHAR, 8)
+ *         .addBits("urgent", 1)
+ *         .addBits("venue", 5)
+ *         .addStruct("price", price)
+ *         .addInt("quantity")
+ *         .addByte("side")
+ *         .build();
+ * </pre>
+ */
+public final class StructLayout {
+
+    private final String name;
+
+    private final List<StructField> fields;
+
+    private final Map<String, StructField> fieldsByName;
+
+    private final List<EmbeddedStruct> embedded;
+
+    private final Map<String, EmbeddedStruct> embeddedByName;
+
+    private final List<InlineArray> arrays;
+
+    private final Map<String, InlineArray> arraysByName;
+
+    private final List<BitField> bitFields;
+
+    private final Map<String, BitField> bitFieldsByName;
+
+    private final int size;
+
+    private final int alignment;
+
+    private StructLayout(final Builder builder) {
+        this.name = builder.name;
+
+        final List<StructField> fields = new ArrayList<>(builder.names.size());
+        final Map<String, StructField> fieldsByName = new HashMap<>();
+        for (int i = 0; i < builder.names.size(); ++i) {
+            final StructField field = new StructField(this, builder.names.get(i), builder.types.get(i), i,
+                    builder.offsets.get(i));
+            fields.add(field);
+            fieldsByName.put(field.name(), field);
+        }
+        this.fields = Collections.unmodifiableList(fields);
+        this.fieldsByName = fieldsByName;
+
+        final List<EmbeddedStruct> embedded = new ArrayList<>(builder.embedded.size());
+        final Map<String, EmbeddedStruct> embeddedByName = new HashMap<>();
+        for (final Builder.Embedding e : builder.embedded) {
+            final EmbeddedStruct struct = new EmbeddedStruct(this, e.name, e.type, e.offset, e.firstField);
+            embedded.add(struct);
+            embeddedByName.put(struct.name(), struct);
+        }
+        this.embedded = Collections.unmodifiableList(embedded);
+        this.embeddedByName = embeddedByName;
+
+        final List<InlineArray> arrays = new ArrayList<>(builder.arrays.size());
+        final Map<String, InlineArray> arraysByName = new HashMap<>();
+        for (final Builder.ArrayPlacement a : builder.arrays) {
+            final InlineArray array = new InlineArray(this, a.name, a.type, a.length, a.offset, a.firstField);
+            arrays.add(array);
+            arraysByName.put(array.name(), array);
+        }
+        this.arrays = Collections.unmodifiableList(arrays);
+        this.arraysByName = arraysByName;
+
+        final List<BitField> bitFields = new ArrayList<>(builder.bitFields.size());
+        final Map<String, BitField> bitFieldsByName = new HashMap<>();
+        for (final Builder.BitPlacement b : builder.bitFields) {
+            final BitField bitField = new BitField(this, b.name, fields.get(b.word), b.shift, b.width);
+            bitFields.add(bitField);
+            bitFieldsByName.put(bitField.name(), bitField);
+        }
+        this.bitFields = Collections.unmodifiableList(bitFields);
+        this.bitFieldsByName = bitFieldsByName;
+        this.size = align(builder.offset, builder.alignment);
+        this.alignment = builder.alignment;
+    }
+
+    static int align(final int offset, final int alignment) {
+        return (offset + alignment - 1) & -alignment;
+    }
+
+    /**
+     * @param name name of the struct, used for diagnostics.
+     * @return new builder.
+     */
+    public static Builder builder(final String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * @return name of the struct.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return size of one record in bytes, including trailing padding.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return alignment of one record in bytes.
+     */
+    public int alignment() {
+        return alignment;
+    }
+
+    /**
+     * @return fields in declaration order.
+     */
+    public List<StructField> fields() {
+        return fields;
+    }
+
+    /**
+     * @return number of fields.
+     */
+    public int fieldCount() {
+        return fields.size();
+    }
+
+    /**
+     * @param index position of the field in declaration order.
+     * @return field at the given position.
+     */
+    public StructField field(final int index) {
+        return fields.get(index);
+    }
+
+    /**
+     * @param name name of the field.
+     * @return field with the given name.
+     * @throws IllegalArgumentException if the layout has no such field.
+     */
+    public StructField field(final String name) {
+        final StructField field = fieldsByName.get(name);
+        if (field == null) {
+            throw new IllegalArgumentException("Struct " + this.name + " has no field " + name);
+        }
+        return field;
+    }
+
+    /**
+     * @param name name of the field.
+     * @return {@code true} if the layout has a field with the given name.
+     */
+    public boolean hasField(final String name) {
+        return fieldsByName.containsKey(name);
+    }
+
+    /**
+     * @return embedded structs in declaration order, including those embedded in them.
+     */
+    public List<EmbeddedStruct> embeddedStructs() {
+        return embedded;
+    }
+
+    /**
+     * @param name name of the embedded struct, {@code <struct>.<struct>} for a struct embedded in an embedded struct.
+     * @return embedded struct with the given name.
+     * @throws IllegalArgumentException if the layout embeds no such struct.
+     */
+    public EmbeddedStruct embedded(final String name) {
+        final EmbeddedStruct struct = embeddedByName.get(name);
+        if (struct == null) {
+            throw new IllegalArgumentException("Struct " + this.name + " embeds no struct " + name);
+        }
+        return struct;
+    }
+
+    /**
+     * @return inline arrays in declaration order, including those of embedded structs.
+     */
+    public List<InlineArray> arrays() {
+        return arrays;
+    }
+
+    /**
+     * @param name name of the array, {@code <struct>.<array>} for an array of an embedded struct.
+     * @return inline array with the given name.
+     * @throws IllegalArgumentException if the layout has no such array.
+     */
+    public InlineArray array(final String name) {
+        final InlineArray array = arraysByName.get(name);
+        if (array == null) {
+            throw new IllegalArgumentException("Struct " + this.name + " has no array " + name);
+        }
+        return array;
+    }
+
+    /**
+     * @return bit fields in declaration order, including those of embedded structs.
+     */
+    public List<BitField> bitFields() {
+        return bitFields;
+    }
+
+    /**
+     * @param name name of the bit field, {@code <struct>.<field>} for a bit field of an embedded struct.
+     * @return bit field with the given name.
+     * @throws IllegalArgumentException if the layout has no such bit field.
+     */
+    public BitField bitField(final String name) {
+        final BitField bitField = bitFieldsByName.get(name);
+        if (bitField == null) {
+            throw new IllegalArgumentException("Struct " + this.name + " has no bit field " + name);
+        }
+        return bitField;
+    }
+
+    /**
+     * @param field field to check.
+     * @throws IllegalArgumentException if the field was not declared by this layout.
+     */
+    void checkField(final StructField field) {
+        if (field.layout() != this) {
+            throw new IllegalArgumentException("Field " + field.name() + " does not belong to struct " + name);
+        }
+    }
+
+    /**
+     * @param field field to check.
+     * @param type expected type of the field.
+     * @throws IllegalArgumentException if the field was not declared by this layout or has another type.
+     */
+    void checkField(final StructField field, final FieldType type) {
+        checkField(field);
+        if (field.type() != type) {
+            throw new IllegalArgumentException("Field " + field.name() + " of struct " + name + " is " + field.type()
+                    + ", not " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(name).append('{');
+        for (int i = 0; i < fields.size(); ++i) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(fields.get(i));
+        }
+        return sb.append("}[").append(size).append(']').toString();
+    }
+
+    /**
+     * Collects field declarations for a {@link StructLayout}.
+     */
+    public static final class Builder {
+
+        private final String name;
+
+        private final List<String> names = new ArrayList<>();
+
+        private final List<FieldType> types = new ArrayList<>();
+
+        private final List<Integer> offsets = new ArrayList<>();
+
+        private final List<Embedding> embedded = new ArrayList<>();
+
+        private final List<ArrayPlacement> arrays = new ArrayList<>();
+
+        private final List<BitPlacement> bitFields = new ArrayList<>();
+
+        /**
+         * Names of fields, embedded structs, arrays and bit fields, which share one namespace.
+         */
+        private final Set<String> used = new HashSet<>();
+
+        /**
+         * End of the last field placed so far.
+         */
+        private int offset;
+
+        private int alignment = 1;
+
+        /**
+         * Index of the word that the next bit fields are packed into, or {@code -1} before the first one.
+         */
+        private int word = -1;
+
+        /**
+         * Number of bits of the word used so far.
+         */
+        private int wordBits;
+
+        /**
+         * Number of words added for bit fields.
+         */
+        private int words;
+
+        private Builder(final String name) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Struct name should not be empty");
+            }
+            this.name = name;
+        }
+
+        /**
+         * @param name name of the field, unique within the struct.
+         * @param type type of the field.
+         * @return this builder.
+         */
+        public Builder add(final String name, final FieldType type) {
+            checkName(name);
+            if (type == null) {
+                throw new IllegalArgumentException("Type of field " + name + " should be defined");
+            }
+            place(name, type, align(offset, type.alignment()));
+            return this;
+        }
+
+        /**
+         * Adds a field at a given offset, as read back from a stored layout.
+         *
+         * @throws IllegalArgumentException if the offset is not aligned or overlaps a previous field.
+         */
+        Builder add(final String name, final FieldType type, final int offset) {
+            checkName(name);
+            if (offset < this.offset || offset % type.alignment() != 0) {
+                throw new IllegalArgumentException("Field " + name + " of struct " + this.name
+                        + " cannot be placed at offset " + offset);
+            }
+            place(name, type, offset);
+            return this;
+        }
+
+        /**
+         * Adds a fixed-length array stored inline: its elements are added as fields {@code <name>[0]} to
+         * {@code <name>[length - 1]}, back to back.
+         *
+         * @param name name of the array, unique within the struct.
+         * @param type type of the elements.
+         * @param length number of elements.
+         * @return this builder.
+         */
+        public Builder addArray(final String name, final FieldType type, final int length) {
+            checkName(name);
+            if (type == null) {
+                throw new IllegalArgumentException("Type of array " + name + " should be defined");
+            }
+            if (length <= 0) {
+                throw new IllegalArgumentException("Length of array " + name + " should be positive: " + length);
+            }
+            for (int i = 0; i < length; ++i) {
+                checkName(name + "[" + i + "]");
+            }
+            final int base = align(offset, type.alignment());
+            used.add(name);
+            arrays.add(new ArrayPlacement(name, type, length, base, names.size()));
+            for (int i = 0; i < length; ++i) {
+                place(name + "[" + i + "]", type, base + i * type.size());
+            }
+            return this;
+        }
+
+        /**
+         * Adds an unsigned integer of the given width, packed into the {@code int} word of the previous bit fields
+         * while it has room, and into a new word named {@code bits#<n>} otherwise. Fields declared in between do not
+         * close the word; a bit field never straddles two words.
+         *
+         * @param name name of the bit field, unique within the struct.
+         * @param width number of bits, from 1 to 32.
+         * @return this builder.
+         */
+        public Builder addBits(final String name, final int width) {
+            checkName(name);
+            if (width < 1 || width > Integer.SIZE) {
+                throw new IllegalArgumentException("Width of bit field " + name + " should be in [1, " + Integer.SIZE
+                        + "]: " + width);
+            }
+            if (word < 0 || wordBits + width > Integer.SIZE) {
+                final String wordName = "bits#" + words;
+                checkName(wordName);
+                word = names.size();
+                wordBits = 0;
+                ++words;
+                place(wordName, FieldType.INT, align(offset, FieldType.INT.alignment()));
+            }
+            used.add(name);
+            bitFields.add(new BitPlacement(name, word, wordBits, width));
+            wordBits += width;
+            return this;
+        }
+
+        /**
+         * Embeds a struct inline: its record is placed at the next offset aligned to its alignment and its fields
+         * are added as {@code <name>.<field>}, at the same relative offsets.
+         *
+         * @param name name of the embedded struct, unique within the struct.
+         * @param type layout of the embedded struct.
+         * @return this builder.
+         */
+        public Builder addStruct(final String name, final StructLayout type) {
+            checkName(name);
+            if (type == null) {
+                throw new IllegalArgumentException("Type of struct " + name + " should be defined");
+            }
+            for (final StructField field : type.fields()) {
+                checkName(name + "." + field.name());
+            }
+            for (final EmbeddedStruct inner : type.embeddedStructs()) {
+                checkName(name + "." + inner.name());
+            }
+            for (final InlineArray array : type.arrays()) {
+                checkName(name + "." + array.name());
+            }
+            for (final BitField bitField : type.bitFields()) {
+                checkName(name + "." + bitField.name());
+            }
+            final int base = align(offset, type.alignment());
+            final int firstField = names.size();
+            used.add(name);
+            embedded.add(new Embedding(name, type, base, firstField));
+            for (final EmbeddedStruct inner : type.embeddedStructs()) {
+                used.add(name + "." + inner.name());
+                embedded.add(new Embedding(name + "." + inner.name(), inner.type(), base + inner.offset(),
+                        firstField + inner.firstField()));
+            }
+            for (final InlineArray array : type.arrays()) {
+                used.add(name + "." + array.name());
+                arrays.add(new ArrayPlacement(name + "." + array.name(), array.type(), array.length(),
+                        base + array.offset(), firstField + array.firstField()));
+            }
+            for (final BitField bitField : type.bitFields()) {
+                used.add(name + "." + bitField.name());
+                bitFields.add(new BitPlacement(name + "." + bitField.name(), firstField + bitField.word().index(),
+                        bitField.shift(), bitField.width()));
+            }
+            for (final StructField field : type.fields()) {
+                place(name + "." + field.name(), field.type(), base + field.offset());
+            }
+            offset = base + type.size();
+            alignment = Math.max(alignment, type.alignment());
+            return this;
+        }
+
+        /**
+         * Declares the elements already added as fields {@code <name>[0]} to {@code <name>[length - 1]} as an array,
+         * as read back from a stored layout.
+         *
+         * @throws IllegalArgumentException if the fields are not the elements of such an array.
+         */
+        Builder addArray(final String name, final int firstField, final int length) {
+            checkName(name);
+            if (firstField < 0 || length <= 0 || firstField > names.size() - length) {
+                throw new IllegalArgumentException("Array " + name + " of struct " + this.name
+                        + " does not match its fields");
+            }
+            final FieldType type = types.get(firstField);
+            final int base = offsets.get(firstField);
+            for (int i = 0; i < length; ++i) {
+                final int field = firstField + i;
+                if (!names.get(field).equals(name + "[" + i + "]") || types.get(field) != type
+                        || offsets.get(field) != base + i * type.size()) {
+                    throw new IllegalArgumentException("Array " + name + " of struct " + this.name
+                            + " does not match its fields");
+                }
+            }
+            used.add(name);
+            arrays.add(new ArrayPlacement(name, type, length, base, firstField));
+            return this;
+        }
+
+        /**
+         * Declares a bit field in an {@code int} field already added, as read back from a stored layout.
+         *
+         * @throws IllegalArgumentException if the word is not an {@code int} field or the bits do not fit it.
+         */
+        Builder addBits(final String name, final int word, final int shift, final int width) {
+            checkName(name);
+            if (word < 0 || word >= names.size() || types.get(word) != FieldType.INT || shift < 0 || width < 1
+                    || shift + width > Integer.SIZE) {
+                throw new IllegalArgumentException("Bit field " + name + " of struct " + this.name
+                        + " does not fit its word");
+            }
+            used.add(name);
+            bitFields.add(new BitPlacement(name, word, shift, width));
+            return this;
+        }
+
+        /**
+         * Declares the fields already added as {@code <name>.<field>} from {@code firstField} on as an embedded
+         * struct, as read back from a stored layout. Structs embedded in the embedded struct are declared separately.
+         *
+         * @throws IllegalArgumentException if the fields do not match the fields of the struct at the offset.
+         */
+        Builder addStruct(final String name, final StructLayout type, final int offset, final int firstField) {
+            checkName(name);
+            if (firstField < 0 || offset < 0 || offset % type.alignment() != 0
+                    || firstField > names.size() - type.fieldCount()) {
+                throw new IllegalArgumentException("Struct " + name + " of struct " + this.name
+                        + " does not match its fields");
+            }
+            for (final StructField field : type.fields()) {
+                final int index = firstField + field.index();
+                if (!names.get(index).equals(name + "." + field.name()) || types.get(index) != field.type()
+                        || offsets.get(index) != offset + field.offset()) {
+                    throw new IllegalArgumentException("Struct " + name + " of struct " + this.name
+                            + " does not match its fields");
+                }
+            }
+            used.add(name);
+            embedded.add(new Embedding(name, type, offset, firstField));
+            this.offset = Math.max(this.offset, offset + type.size());
+            alignment = Math.max(alignment, type.alignment());
+            return this;
+        }
+
+        private void checkName(final String name) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Field name should not be empty");
+            }
+            if (used.contains(name)) {
+                throw new IllegalArgumentException("Struct " + this.name + " already has field " + name);
+            }
+        }
+
+        private void place(final String name, final FieldType type, final int offset) {
+            used.add(name);
+            names.add(name);
+            types.add(type);
+            offsets.add(offset);
+            this.offset = offset + type.size();
+            alignment = Math.max(alignment, type.alignment());
+        }
+
+        public Builder addBoolean(final String name) {
+            return add(name, FieldType.BOOLEAN);
+        }
+
+        public Builder addByte(final String name) {
+            return add(name, FieldType.BYTE);
+        }
+
+        public Builder addChar(final String name) {
+            return add(name, FieldType.CHAR);
+        }
+
+        public Builder addShort(final String name) {
+            return add(name, FieldType.SHORT);
+        }
+
+        public Builder addInt(final String name) {
+            return add(name, FieldType.INT);
+        }
+
+        public Builder addFloat(final String name) {
+            return add(name, FieldType.FLOAT);
+        }
+
+        public Builder addLong(final String name) {
+            return add(name, FieldType.LONG);
+        }
+
+        public Builder addDouble(final String name) {
+            return add(name, FieldType.DOUBLE);
+        }
+
+        /**
+         * @return new layout.
+         * @throws IllegalStateException if no fields were declared.
+         */
+        public StructLayout build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("Struct " + name + " should have at least one field");
+            }
+            return new StructLayout(this);
+        }
+
+        private static final class Embedding {
+
+            final String name;
+
+            final StructLayout type;
+
+            final int offset;
+
+            /**
+             * Index of the first field of the embedded struct in the outer layout.
+             */
+            final int firstField;
+
+            Embedding(final String name, final StructLayout type, final int offset, final int firstField) {
+                this.name = name;
+                this.type = type;
+                this.offset = offset;
+                this.firstField = firstField;
+            }
+        }
+
+        private static final class ArrayPlacement {
+
+            final String name;
+
+            final FieldType type;
+
+            final int length;
+
+            final int offset;
+
+            /**
+             * Index of the field of the first element.
+             */
+            final int firstField;
+
+            ArrayPlacement(final String name, final FieldType type, final int length, final int offset,
+                    final int firstField) {
+                this.name = name;
+                this.type = type;
+                this.length = length;
+                this.offset = offset;
+                this.firstField = firstField;
+            }
+        }
+
+        private static final class BitPlacement {
+
+            final String name;
+
+            /**
+             * Index of the field of the word holding the bits.
+             */
+            final int word;
+
+            final int shift;
+
+            final int width;
+
+            BitPlacement(final String name, final int word, final int shift, final int width) {
+                this.name = name;
+                this.word = word;
+                this.shift = shift;
+                this.width = width;
+            }
+        }
+    }
+}
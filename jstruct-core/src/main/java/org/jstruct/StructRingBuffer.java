@@ -0,0 +1,226 @@
+package org.jstruct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+
+import static org.jstruct.StructArray.CHAR;
+import static org.jstruct.StructArray.DOUBLE;
+import static org.jstruct.StructArray.FLOAT;
+import static org.jstruct.StructArray.INT;
+import static org.jstruct.StructArray.LONG;
+import static org.jstruct.StructArray.SHORT;
+
+/**
+ * Bounded queue of struct messages written in place into a ring of preallocated records.
+ * <p>
+ * Messages are addressed by sequence number. A producer claims the next sequence, writes the message fields directly
+ * into its slot and publishes it; the consumer peeks the next published sequence, reads the fields and releases the
+ * slot for reuse. Nothing is allocated per message:
+ *
+ * <pre>
+ * long seq = ring.tryClaim();
+ * if (seq &gt;= 0) {
+ *     ring.setLong(seq, instrument, id);
+ *     ring.setDouble(seq, price, px);
+ *     ring.publish(seq);
+ * }
+ * ...
+ * long seq = ring.tryPeek();
+ * if (seq &gt;= 0) {
+ *     process(ring.getLong(seq, instrument), ring.getDouble(seq, price));
+ *     ring.release(seq);
+ * }
+ * </pre>
+ *
+ * There is a single consumer thread. Slots are reused without clearing, so fields a producer does not write keep the
+ * values of an earlier message. The head and tail sequences are kept on separate cache lines so that producer and
+ * consumer do not invalidate each other's lines on every message.
+ */
+public abstract class StructRingBuffer {
+
+    static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Indices of the sequences in {@link #counters}, 128 bytes apart. The head is the next sequence to consume, the
+     * tail the next sequence to claim; each side also caches the last value it read of the other side's sequence.
+     */
+    static final int HEAD = 16;
+
+    static final int CACHED_TAIL = 32;
+
+    static final int TAIL = 48;
+
+    static final int CACHED_HEAD = 64;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final StructLayout layout;
+
+    private final int recordSize;
+
+    final int capacity;
+
+    final int mask;
+
+    private final byte[] data;
+
+    final long[] counters = new long[CACHED_HEAD + 16];
+
+    /**
+     * @param layout layout of the messages.
+     * @param capacity number of slots, rounded up to a power of two.
+     */
+    StructRingBuffer(final StructLayout layout, final int capacity) {
+        this.layout = Objects.requireNonNull(layout, "Layout should be defined");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        }
+        this.recordSize = layout.size();
+        final long slots = capacity == 1 ? 1 : Long.highestOneBit(capacity - 1L) << 1;
+        if (slots * recordSize > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Ring buffer of " + slots + " " + layout.name() + " records is too large");
+        }
+        this.capacity = (int) slots;
+        this.mask = this.capacity - 1;
+        this.data = new byte[this.capacity * recordSize];
+    }
+
+    /**
+     * @return layout of the messages.
+     */
+    public StructLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return number of slots.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of claimed but not yet released messages; only an estimate while the buffer is in use.
+     */
+    public int size() {
+        final long head = (long) COUNTERS.getVolatile(counters, HEAD);
+        final long tail = (long) COUNTERS.getVolatile(counters, TAIL);
+        return (int) Math.max(0, Math.min(capacity, tail - head));
+    }
+
+    /**
+     * @return {@code true} if there are no messages; only an estimate while the buffer is in use.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Claims the slot of the next message. Must be followed by {@link #publish(long)} of the sequence.
+     *
+     * @return sequence of the message, or {@code -1} if the buffer is full.
+     */
+    public abstract long tryClaim();
+
+    /**
+     * Makes a claimed message visible to the consumer, together with every write made to it before this call.
+     *
+     * @param sequence sequence returned by {@link #tryClaim()}.
+     */
+    public abstract void publish(long sequence);
+
+    /**
+     * Called by the consumer.
+     *
+     * @return sequence of the next published message, or {@code -1} if there is none yet.
+     */
+    public abstract long tryPeek();
+
+    /**
+     * Called by the consumer once it is done with the message returned by {@link #tryPeek()}; the slot may be
+     * overwritten by producers afterwards.
+     *
+     * @param sequence sequence returned by {@link #tryPeek()}.
+     */
+    public void release(final long sequence) {
+        if (sequence != (long) COUNTERS.getOpaque(counters, HEAD)) {
+            throw new IllegalStateException("Message " + sequence + " is not the next one to release");
+        }
+        COUNTERS.setRelease(counters, HEAD, sequence + 1);
+    }
+
+    private int offset(final long sequence, final StructField field, final FieldType type) {
+        layout.checkField(field, type);
+        return (int) (sequence & mask) * recordSize + field.offset();
+    }
+
+    public boolean getBoolean(final long sequence, final StructField field) {
+        return data[offset(sequence, field, FieldType.BOOLEAN)] != 0;
+    }
+
+    public void setBoolean(final long sequence, final StructField field, final boolean value) {
+        data[offset(sequence, field, FieldType.BOOLEAN)] = value ? (byte) 1 : (byte) 0;
+    }
+
+    public byte getByte(final long sequence, final StructField field) {
+        return data[offset(sequence, field, FieldType.BYTE)];
+    }
+
+    public void setByte(final long sequence, final StructField field, final byte value) {
+        data[offset(sequence, field, FieldType.BYTE)] = value;
+    }
+
+    public char getChar(final long sequence, final StructField field) {
+        return (char) CHAR.get(data, offset(sequence, field, FieldType.CHAR));
+    }
+
+    public void setChar(final long sequence, final StructField field, final char value) {
+        CHAR.set(data, offset(sequence, field, FieldType.CHAR), value);
+    }
+
+    public short getShort(final long sequence, final StructField field) {
+        return (short) SHORT.get(data, offset(sequence, field, FieldType.SHORT));
+    }
+
+    public void setShort(final long sequence, final StructField field, final short value) {
+        SHORT.set(data, offset(sequence, field, FieldType.SHORT), value);
+    }
+
+    public int getInt(final long sequence, final StructField field) {
+        return (int) INT.get(data, offset(sequence, field, FieldType.INT));
+    }
+
+    public void setInt(final long sequence, final StructField field, final int value) {
+        INT.set(data, offset(sequence, field, FieldType.INT), value);
+    }
+
+    public float getFloat(final long sequence, final StructField field) {
+        return (float) FLOAT.get(data, offset(sequence, field, FieldType.FLOAT));
+    }
+
+    public void setFloat(final long sequence, final StructField field, final float value) {
+        FLOAT.set(data, offset(sequence, field, FieldType.FLOAT), value);
+    }
+
+    public long getLong(final long sequence, final StructField field) {
+        return (long) LONG.get(data, offset(sequence, field, FieldType.LONG));
+    }
+
+    public void setLong(final long sequence, final StructField field, final long value) {
+        LONG.set(data, offset(sequence, field, FieldType.LONG), value);
+    }
+
+    public double getDouble(final long sequence, final StructField field) {
+        return (double) DOUBLE.get(data, offset(sequence, field, FieldType.DOUBLE));
+    }
+
+    public void setDouble(final long sequence, final StructField field, final double value) {
+        DOUBLE.set(data, offset(sequence, field, FieldType.DOUBLE), value);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "<" + layout.name() + ">[" + size() + "/" + capacity + "]";
+    }
+}
@@ -0,0 +1,573 @@
+package org.jstruct;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorting of struct collections by primitive key fields.
+ * <p>
+ * {@link #radixSort(StructCollection, StructField...)} is an in-place most-significant-digit radix sort (American flag
+ * sort): each pass distributes a range of records into 256 buckets by one byte of the key, moving whole records with
+ * {@link StructCollection#swap(long, long)}, then recurses into the buckets with the next byte. Several key fields
+ * form one composite key, the first field being the most significant. Keys are never compared, so the time is linear
+ * in the number of records times the key length, and apart from one count table per key byte nothing is allocated.
+ * <p>
+ * Keys are ordered like the corresponding boxed types: {@code false} before {@code true}, signed integers
+ * numerically, {@code char} as unsigned, and floating point values as by {@link Double#compare(double, double)}. The
+ * sort is not stable.
+ * <p>
+ * For wide records {@link #argsort(StructCollection, StructField...)} leaves the records in place and sorts their
+ * indices instead, with a stable least-significant-digit radix sort over {@code int} indices and extracted keys. The
+ * resulting permutation can be used to read the records in order, or be applied with
+ * {@link StructCollection#permute(int[])}, which moves every record once:
+ *
+ * <pre>
+ * StructSort.radixSort(orders, instrument, price);
+ *
+ * orders.permute(StructSort.argsort(orders, instrument, price));
+ * </pre>
+ *
+ * Large flat arrays can be sorted with {@link #parallelSort(StructArray, StructField...)}, a fork-join merge sort whose
+ * leaves are radix sorted on worker threads and then merged, in parallel as well, through one scratch buffer the
+ * size of the array.
+ */
+public final class StructSort {
+
+    private static final int RADIX = 256;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Runs at most this long are sorted or merged by one task.
+     */
+    private static final long MIN_PARALLEL_SIZE = 1 << 13;
+
+    /**
+     * Ranges at most this long are finished with insertion sort, which beats another distribution pass.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private StructSort() {
+    }
+
+    /**
+     * Sorts all records in ascending order of the key fields.
+     *
+     * @param records collection to sort.
+     * @param keys key fields, most significant first.
+     */
+    public static void radixSort(final StructCollection records, final StructField... keys) {
+        radixSort(records, 0, records.size(), keys);
+    }
+
+    /**
+     * Sorts the records {@code [from, to)} in ascending order of the key fields.
+     *
+     * @param records collection to sort.
+     * @param from index of the first record, inclusive.
+     * @param to index of the last record, exclusive.
+     * @param keys key fields, most significant first.
+     */
+    public static void radixSort(final StructCollection records, final long from, final long to,
+            final StructField... keys) {
+        Objects.checkFromToIndex(from, to, records.size());
+        new RadixSorter(records, checkKeys(records, keys)).sort(from, to, 0);
+    }
+
+    /**
+     * Sorts all records in ascending order of the key fields in the common fork-join pool. Arrays of a few thousand
+     * records are sorted by the calling thread; larger ones allocate a scratch array of the same size.
+     *
+     * @param records array to sort.
+     * @param keys key fields, most significant first.
+     */
+    public static void parallelSort(final StructArray records, final StructField... keys) {
+        final StructField[] fields = checkKeys(records, keys);
+        if (records.size() <= MIN_PARALLEL_SIZE) {
+            radixSort(records, fields);
+            return;
+        }
+        final MemorySegment data = records.segment();
+        final MemorySegment scratch = MemorySegment.ofArray(new byte[(int) data.byteSize()]);
+        new MergeSorter(records, fields, data, scratch).sort();
+    }
+
+    /**
+     * Sorts all records in ascending order of the key fields in the common fork-join pool. Arrays of a few thousand
+     * records are sorted by the calling thread; larger ones allocate a scratch segment of the same size from a shared
+     * arena, released before returning. The array's memory must be accessible from any thread, so it should not come
+     * from a confined arena.
+     *
+     * @param records array to sort.
+     * @param keys key fields, most significant first.
+     */
+    public static void parallelSort(final OffHeapStructArray records, final StructField... keys) {
+        final StructField[] fields = checkKeys(records, keys);
+        if (records.size() <= MIN_PARALLEL_SIZE) {
+            radixSort(records, fields);
+            return;
+        }
+        final MemorySegment data = records.segment();
+        try (Arena arena = Arena.ofShared()) {
+            final MemorySegment scratch = arena.allocate(data.byteSize(), records.layout().alignment());
+            new MergeSorter(records, fields, data, scratch).sort();
+        }
+    }
+
+    /**
+     * Sorts the indices of all records in ascending order of the key fields. The sort is stable: records with equal
+     * keys keep their relative order. Apart from the returned array, it allocates one scratch {@code int[]} and two
+     * {@code long[]} of the collection's size.
+     *
+     * @param records collection to sort, left unchanged.
+     * @param keys key fields, most significant first.
+     * @return permutation whose element {@code k} is the index of the {@code k}-th record in key order.
+     */
+    public static int[] argsort(final StructCollection records, final StructField... keys) {
+        return argsort(records, 0, records.size(), keys);
+    }
+
+    /**
+     * Sorts the indices of the records {@code [from, to)} in ascending order of the key fields, like
+     * {@link #argsort(StructCollection, StructField...)}.
+     *
+     * @param records collection to sort, left unchanged.
+     * @param from index of the first record, inclusive.
+     * @param to index of the last record, exclusive.
+     * @param keys key fields, most significant first.
+     * @return the indices {@code [from, to)} in key order.
+     */
+    public static int[] argsort(final StructCollection records, final long from, final long to,
+            final StructField... keys) {
+        Objects.checkFromToIndex(from, to, records.size());
+        final StructField[] fields = checkKeys(records, keys);
+        if (to > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Permutation of " + to + " " + records.layout().name()
+                    + " records does not fit an array");
+        }
+        final int n = (int) (to - from);
+        int[] order = new int[n];
+        int[] orderScratch = new int[n];
+        long[] values = new long[n];
+        long[] valuesScratch = new long[n];
+        for (int k = 0; k < n; ++k) {
+            order[k] = (int) from + k;
+        }
+        final int[][] counts = new int[Long.BYTES][RADIX];
+        // Each key field, least significant first, is a run of byte passes that are stable, so the order of the
+        // more significant fields overrides the order established by the less significant ones.
+        for (int f = fields.length - 1; f >= 0; --f) {
+            final StructField key = fields[f];
+            final int digits = key.size();
+            for (int d = 0; d < digits; ++d) {
+                Arrays.fill(counts[d], 0);
+            }
+            for (int k = 0; k < n; ++k) {
+                final long v = sortableBits(records, order[k], key);
+                values[k] = v;
+                for (int d = 0; d < digits; ++d) {
+                    ++counts[d][(int) (v >>> (d * Byte.SIZE)) & (RADIX - 1)];
+                }
+            }
+            for (int d = 0; d < digits; ++d) {
+                final int[] count = counts[d];
+                final int shift = d * Byte.SIZE;
+                if (n == 0 || count[(int) (values[0] >>> shift) & (RADIX - 1)] == n) {
+                    continue; // every record has the same byte, the pass would not move anything
+                }
+                int start = 0;
+                for (int b = 0; b < RADIX; ++b) {
+                    final int c = count[b];
+                    count[b] = start;
+                    start += c;
+                }
+                for (int k = 0; k < n; ++k) {
+                    final long v = values[k];
+                    final int slot = count[(int) (v >>> shift) & (RADIX - 1)]++;
+                    valuesScratch[slot] = v;
+                    orderScratch[slot] = order[k];
+                }
+                final long[] v = values;
+                values = valuesScratch;
+                valuesScratch = v;
+                final int[] o = order;
+                order = orderScratch;
+                orderScratch = o;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the array is not a permutation of the indices of the records.
+     */
+    static void checkPermutation(final StructCollection records, final int[] permutation) {
+        if (permutation.length != records.size()) {
+            throw new IllegalArgumentException("Permutation of " + permutation.length + " indices does not match "
+                    + records.size() + " records");
+        }
+        final long[] seen = new long[(permutation.length + Long.SIZE - 1) / Long.SIZE];
+        for (final int index : permutation) {
+            if (index < 0 || index >= permutation.length) {
+                throw new IllegalArgumentException("Permutation index " + index + " is out of bounds for "
+                        + permutation.length + " records");
+            }
+            if ((seen[index >>> 6] & (1L << index)) != 0) {
+                throw new IllegalArgumentException("Permutation repeats index " + index);
+            }
+            seen[index >>> 6] |= 1L << index;
+        }
+    }
+
+    static StructField[] checkKeys(final StructCollection records, final StructField... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("Keys should be defined");
+        }
+        for (final StructField key : keys) {
+            records.layout().checkField(key);
+        }
+        return keys.clone();
+    }
+
+    /**
+     * @return key value as an unsigned number of {@code field.size()} bytes with the same order as the key.
+     */
+    static long sortableBits(final StructCollection records, final long index, final StructField field) {
+        switch (field.type()) {
+            case BOOLEAN:
+                return records.getBoolean(index, field) ? 1 : 0;
+            case BYTE:
+                return (records.getByte(index, field) ^ Byte.MIN_VALUE) & 0xFFL;
+            case CHAR:
+                return records.getChar(index, field);
+            case SHORT:
+                return (records.getShort(index, field) ^ Short.MIN_VALUE) & 0xFFFFL;
+            case INT:
+                return (records.getInt(index, field) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+            case FLOAT: {
+                final int bits = Float.floatToIntBits(records.getFloat(index, field));
+                return (bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+            }
+            case LONG:
+                return records.getLong(index, field) ^ Long.MIN_VALUE;
+            case DOUBLE: {
+                final long bits = Double.doubleToLongBits(records.getDouble(index, field));
+                return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported field type " + field.type());
+        }
+    }
+
+    /**
+     * @return negative, zero or positive as the composite key of record {@code i} is less than, equal to or greater
+     *         than that of record {@code j}.
+     */
+    static int compareKeys(final StructCollection records, final StructField[] keys, final long i, final long j) {
+        for (final StructField key : keys) {
+            final int c = Long.compareUnsigned(sortableBits(records, i, key), sortableBits(records, j, key));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return key value of the record at {@code offset} in the same unsigned form as
+     *         {@link #sortableBits(StructCollection, long, StructField)}.
+     */
+    private static long sortableBits(final MemorySegment memory, final long offset, final StructField field) {
+        final long at = offset + field.offset();
+        switch (field.type()) {
+            case BOOLEAN:
+                return memory.get(ValueLayout.JAVA_BYTE, at) != 0 ? 1 : 0;
+            case BYTE:
+                return (memory.get(ValueLayout.JAVA_BYTE, at) ^ Byte.MIN_VALUE) & 0xFFL;
+            case CHAR:
+                return memory.get(ValueLayout.JAVA_CHAR_UNALIGNED, at);
+            case SHORT:
+                return (memory.get(ValueLayout.JAVA_SHORT_UNALIGNED, at) ^ Short.MIN_VALUE) & 0xFFFFL;
+            case INT:
+                return (memory.get(ValueLayout.JAVA_INT_UNALIGNED, at) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+            case FLOAT: {
+                final int bits = Float.floatToIntBits(memory.get(ValueLayout.JAVA_FLOAT_UNALIGNED, at));
+                return (bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+            }
+            case LONG:
+                return memory.get(ValueLayout.JAVA_LONG_UNALIGNED, at) ^ Long.MIN_VALUE;
+            case DOUBLE: {
+                final long bits = Double.doubleToLongBits(memory.get(ValueLayout.JAVA_DOUBLE_UNALIGNED, at));
+                return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported field type " + field.type());
+        }
+    }
+
+    /**
+     * Fork-join merge sort over the raw memory of a flat array. Every task leaves its sorted range either in the
+     * array or in the scratch buffer, alternating with the depth, so that the two halves of a range end up in the
+     * buffer it does not merge into and no range is copied back.
+     */
+    private static final class MergeSorter {
+
+        private final FlatStructCollection records;
+
+        private final StructField[] keys;
+
+        private final MemorySegment data;
+
+        private final MemorySegment scratch;
+
+        private final long recordSize;
+
+        private final long leafSize;
+
+        MergeSorter(final FlatStructCollection records, final StructField[] keys, final MemorySegment data,
+                final MemorySegment scratch) {
+            this.records = records;
+            this.keys = keys;
+            this.data = data;
+            this.scratch = scratch;
+            this.recordSize = records.layout().size();
+            final long tasks = 4L * ForkJoinPool.getCommonPoolParallelism();
+            this.leafSize = Math.max(MIN_PARALLEL_SIZE, records.size() / tasks);
+        }
+
+        void sort() {
+            ForkJoinPool.commonPool().invoke(new SortTask(0, records.size(), false));
+        }
+
+        private int compare(final MemorySegment a, final long i, final MemorySegment b, final long j) {
+            for (final StructField key : keys) {
+                final int c = Long.compareUnsigned(sortableBits(a, i * recordSize, key),
+                        sortableBits(b, j * recordSize, key));
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        private void copy(final MemorySegment from, final long i, final MemorySegment to, final long j,
+                final long count) {
+            MemorySegment.copy(from, i * recordSize, to, j * recordSize, count * recordSize);
+        }
+
+        /**
+         * @return first index of {@code [from, to)} in the sorted run whose key is not less than that of record
+         *         {@code i} of the other buffer.
+         */
+        private long lowerBound(final MemorySegment run, long from, long to, final MemorySegment other,
+                final long i) {
+            while (from < to) {
+                final long mid = (from + to) >>> 1;
+                if (compare(run, mid, other, i) < 0) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+            return from;
+        }
+
+        @SuppressWarnings("serial") // tasks are never serialized
+        private final class SortTask extends RecursiveAction {
+
+            private final long from;
+
+            private final long to;
+
+            private final boolean intoScratch;
+
+            SortTask(final long from, final long to, final boolean intoScratch) {
+                this.from = from;
+                this.to = to;
+                this.intoScratch = intoScratch;
+            }
+
+            @Override
+            protected void compute() {
+                final long mid = IndexSpliterator.split(from, to);
+                if (to - from <= leafSize || mid == from) {
+                    radixSort(records, from, to, keys);
+                    if (intoScratch) {
+                        copy(data, from, scratch, from, to - from);
+                    }
+                    return;
+                }
+                invokeAll(new SortTask(from, mid, !intoScratch), new SortTask(mid, to, !intoScratch));
+                final MemorySegment source = intoScratch ? data : scratch;
+                final MemorySegment target = intoScratch ? scratch : data;
+                new MergeTask(source, from, mid, mid, to, target, from).compute();
+            }
+        }
+
+        @SuppressWarnings("serial") // tasks are never serialized
+        private final class MergeTask extends RecursiveAction {
+
+            private final MemorySegment source;
+
+            private final long aFrom;
+
+            private final long aTo;
+
+            private final long bFrom;
+
+            private final long bTo;
+
+            private final MemorySegment target;
+
+            private final long at;
+
+            MergeTask(final MemorySegment source, final long aFrom, final long aTo, final long bFrom, final long bTo,
+                    final MemorySegment target, final long at) {
+                this.source = source;
+                this.aFrom = aFrom;
+                this.aTo = aTo;
+                this.bFrom = bFrom;
+                this.bTo = bTo;
+                this.target = target;
+                this.at = at;
+            }
+
+            @Override
+            protected void compute() {
+                final long aLength = aTo - aFrom;
+                final long bLength = bTo - bFrom;
+                if (aLength + bLength <= MIN_PARALLEL_SIZE) {
+                    merge();
+                } else if (aLength >= bLength) {
+                    // Everything before the middle record of the longer run, from both runs, goes to the left.
+                    final long aMid = (aFrom + aTo) >>> 1;
+                    final long bMid = lowerBound(source, bFrom, bTo, source, aMid);
+                    invokeAll(new MergeTask(source, aFrom, aMid, bFrom, bMid, target, at),
+                            new MergeTask(source, aMid, aTo, bMid, bTo, target,
+                                    at + (aMid - aFrom) + (bMid - bFrom)));
+                } else {
+                    final long bMid = (bFrom + bTo) >>> 1;
+                    final long aMid = lowerBound(source, aFrom, aTo, source, bMid);
+                    invokeAll(new MergeTask(source, aFrom, aMid, bFrom, bMid, target, at),
+                            new MergeTask(source, aMid, aTo, bMid, bTo, target,
+                                    at + (aMid - aFrom) + (bMid - bFrom)));
+                }
+            }
+
+            private void merge() {
+                long i = aFrom;
+                long j = bFrom;
+                long k = at;
+                while (i < aTo && j < bTo) {
+                    if (compare(source, j, source, i) < 0) {
+                        copy(source, j++, target, k++, 1);
+                    } else {
+                        copy(source, i++, target, k++, 1);
+                    }
+                }
+                copy(source, i, target, k, aTo - i);
+                copy(source, j, target, k + (aTo - i), bTo - j);
+            }
+        }
+    }
+
+    private static final class RadixSorter {
+
+        private final StructCollection records;
+
+        private final StructField[] keys;
+
+        /**
+         * Key field and shift of every key byte, most significant first.
+         */
+        private final StructField[] digitFields;
+
+        private final int[] digitShifts;
+
+        /**
+         * Count table of every recursion depth, reused across the buckets of that depth.
+         */
+        private final long[][] counts;
+
+        RadixSorter(final StructCollection records, final StructField[] keys) {
+            this.records = records;
+            this.keys = keys;
+            int digits = 0;
+            for (final StructField key : keys) {
+                digits += key.size();
+            }
+            this.digitFields = new StructField[digits];
+            this.digitShifts = new int[digits];
+            int d = 0;
+            for (final StructField key : keys) {
+                for (int b = key.size() - 1; b >= 0; --b, ++d) {
+                    digitFields[d] = key;
+                    digitShifts[d] = b * Byte.SIZE;
+                }
+            }
+            this.counts = new long[digits][];
+        }
+
+        private int digit(final long index, final int d) {
+            return (int) (sortableBits(records, index, digitFields[d]) >>> digitShifts[d]) & (RADIX - 1);
+        }
+
+        void sort(final long from, final long to, final int d) {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(from, to);
+                return;
+            }
+            if (counts[d] == null) {
+                counts[d] = new long[2 * RADIX];
+            }
+            // The first half holds bucket ends, the second half the next free position of each bucket, relative to
+            // from. Deeper recursion levels have their own tables, so bucket ends survive until the loop below.
+            final long[] table = counts[d];
+            Arrays.fill(table, 0);
+            for (long i = from; i < to; ++i) {
+                ++table[digit(i, d)];
+            }
+            long end = 0;
+            for (int b = 0; b < RADIX; ++b) {
+                table[RADIX + b] = end;
+                end += table[b];
+                table[b] = end;
+            }
+            for (int b = 0; b < RADIX; ++b) {
+                while (table[RADIX + b] < table[b]) {
+                    final long i = from + table[RADIX + b];
+                    final int v = digit(i, d);
+                    if (v == b) {
+                        ++table[RADIX + b];
+                    } else {
+                        records.swap(i, from + table[RADIX + v]++);
+                    }
+                }
+            }
+            if (d + 1 == digitFields.length) {
+                return;
+            }
+            long start = from;
+            for (int b = 0; b < RADIX; ++b) {
+                final long stop = from + table[b];
+                if (stop - start > 1) {
+                    sort(start, stop, d + 1);
+                }
+                start = stop;
+            }
+        }
+
+        private void insertionSort(final long from, final long to) {
+            for (long i = from + 1; i < to; ++i) {
+                for (long j = i; j > from && compareKeys(records, keys, j - 1, j) > 0; --j) {
+                    records.swap(j - 1, j);
+                }
+            }
+        }
+    }
+}
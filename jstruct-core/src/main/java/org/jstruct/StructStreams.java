@@ -0,0 +1,217 @@
+package org.jstruct;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+
+/**
+ * Streams over field values and fork-join traversals of {@link StructCollection}s.
+ * <p>
+ * Value streams are built on {@link StructCollection#spliterator()} and can be made parallel:
+ *
+ * <pre>
+ * double notional = StructStreams.doubles(orders, price).parallel().sum();
+ * </pre>
+ *
+ * The range methods hand each fork-join task a contiguous range of indices, so a task keeps partial results in
+ * locals instead of shared accumulators:
+ *
+ * <pre>
+ * long filled = StructStreams.parallelReduce(orders, (from, to) -&gt; {
+ *     long sum = 0;
+ *     for (long i = from; i &lt; to; ++i) {
+ *         sum += orders.getInt(i, quantity);
+ *     }
+ *     return sum;
+ * }, Long::sum);
+ * </pre>
+ *
+ * Ranges are split on multiples of 64 records, like the spliterator. Collections must not be structurally modified
+ * during a traversal; writing records of the task's own range is safe.
+ */
+public final class StructStreams {
+
+    private StructStreams() {
+    }
+
+    /**
+     * Action on the records {@code [from, to)}.
+     */
+    @FunctionalInterface
+    public interface RangeAction {
+
+        void accept(long from, long to);
+    }
+
+    /**
+     * Partial result for the records {@code [from, to)}.
+     */
+    @FunctionalInterface
+    public interface RangeFunction<R> {
+
+        R apply(long from, long to);
+    }
+
+    /**
+     * @param records collection to read.
+     * @param field {@code byte}, {@code char}, {@code short}, {@code int} or {@code long} field.
+     * @return sequential stream of the field values in index order, widened to {@code long}.
+     */
+    public static LongStream longs(final StructCollection records, final StructField field) {
+        return records.indices().map(longValues(records, field));
+    }
+
+    /**
+     * @return function from record index to the value of an integral field, widened to {@code long}.
+     */
+    static LongUnaryOperator longValues(final StructCollection records, final StructField field) {
+        records.layout().checkField(field);
+        switch (field.type()) {
+            case BYTE:
+                return i -> records.getByte(i, field);
+            case CHAR:
+                return i -> records.getChar(i, field);
+            case SHORT:
+                return i -> records.getShort(i, field);
+            case INT:
+                return i -> records.getInt(i, field);
+            case LONG:
+                return i -> records.getLong(i, field);
+            default:
+                throw new IllegalArgumentException("Field " + field.name() + " of struct " + records.layout().name()
+                        + " is " + field.type() + ", not integral");
+        }
+    }
+
+    /**
+     * @param records collection to read.
+     * @param field {@code float} or {@code double} field.
+     * @return sequential stream of the field values in index order, widened to {@code double}.
+     */
+    public static DoubleStream doubles(final StructCollection records, final StructField field) {
+        return records.indices().mapToDouble(doubleValues(records, field));
+    }
+
+    /**
+     * @return function from record index to the value of a floating point field, widened to {@code double}.
+     */
+    static LongToDoubleFunction doubleValues(final StructCollection records, final StructField field) {
+        records.layout().checkField(field);
+        switch (field.type()) {
+            case FLOAT:
+                return i -> records.getFloat(i, field);
+            case DOUBLE:
+                return i -> records.getDouble(i, field);
+            default:
+                throw new IllegalArgumentException("Field " + field.name() + " of struct " + records.layout().name()
+                        + " is " + field.type() + ", not floating point");
+        }
+    }
+
+    /**
+     * Runs the action over all records in the common fork-join pool, one contiguous range per task.
+     *
+     * @param records collection to traverse.
+     * @param action action, called concurrently for disjoint ranges.
+     */
+    public static void parallelForEach(final StructCollection records, final RangeAction action) {
+        Objects.requireNonNull(action, "Action should be defined");
+        final long size = records.size();
+        ForkJoinPool.commonPool().invoke(new ForEachTask(action, 0, size, leafSize(size)));
+    }
+
+    /**
+     * Computes a partial result per contiguous range in the common fork-join pool and combines them in index order.
+     *
+     * @param records collection to traverse.
+     * @param function partial result of a range, called concurrently for disjoint ranges.
+     * @param combiner associative function combining the results of adjacent ranges.
+     * @return combined result; the result of the empty range {@code [0, 0)} for an empty collection.
+     */
+    public static <R> R parallelReduce(final StructCollection records, final RangeFunction<R> function,
+            final BinaryOperator<R> combiner) {
+        Objects.requireNonNull(function, "Function should be defined");
+        Objects.requireNonNull(combiner, "Combiner should be defined");
+        final long size = records.size();
+        return ForkJoinPool.commonPool().invoke(new ReduceTask<>(function, combiner, 0, size, leafSize(size)));
+    }
+
+    /**
+     * Aims at a few tasks per worker so that work stealing can even out uneven ranges.
+     */
+    private static long leafSize(final long size) {
+        final long tasks = 4L * ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(IndexSpliterator.ALIGNMENT, size / tasks);
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private static final class ForEachTask extends RecursiveAction {
+
+        private final RangeAction action;
+
+        private final long from;
+
+        private final long to;
+
+        private final long leafSize;
+
+        ForEachTask(final RangeAction action, final long from, final long to, final long leafSize) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            final long mid = IndexSpliterator.split(from, to);
+            if (to - from <= leafSize || mid == from) {
+                action.accept(from, to);
+                return;
+            }
+            invokeAll(new ForEachTask(action, from, mid, leafSize), new ForEachTask(action, mid, to, leafSize));
+        }
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private static final class ReduceTask<R> extends RecursiveTask<R> {
+
+        private final RangeFunction<R> function;
+
+        private final BinaryOperator<R> combiner;
+
+        private final long from;
+
+        private final long to;
+
+        private final long leafSize;
+
+        ReduceTask(final RangeFunction<R> function, final BinaryOperator<R> combiner, final long from, final long to,
+                final long leafSize) {
+            this.function = function;
+            this.combiner = combiner;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected R compute() {
+            final long mid = IndexSpliterator.split(from, to);
+            if (to - from <= leafSize || mid == from) {
+                return function.apply(from, to);
+            }
+            final ReduceTask<R> left = new ReduceTask<>(function, combiner, from, mid, leafSize);
+            final ReduceTask<R> right = new ReduceTask<>(function, combiner, mid, to, leafSize);
+            left.fork();
+            final R rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+}
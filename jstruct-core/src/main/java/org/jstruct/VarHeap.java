@@ -0,0 +1,305 @@
+package org.jstruct;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Side storage for variable-length values (UTF-8 strings, byte blobs) of a collection, keeping its records
+ * fixed-size.
+ * <p>
+ * Each value lives in one append-only byte region, and the record holds a reference to it in a {@code long} field:
+ * the offset of the value in the heap in the high 32 bits and its length in the low 32 bits. A zeroed reference is
+ * the empty value, so new records read as empty:
+ *
+ * <pre>
+ * StructLayout trade = StructLayout.builder("Trade").addLong("price").addLong("comment").build();
+ * StructArray trades = new StructArray(trade);
+ * VarHeap text = VarHeap.of(trades, trade.field("comment"));
+ * text.setString(trades.add(), trade.field("comment"), "partial fill");
+ * </pre>
+ *
+ * Setting a value appends it and leaves the previous bytes unreferenced; {@link #compact()} copies the referenced
+ * values into a new region and rewrites the references. References are copied with the records, so records copied
+ * or sorted by the collection keep sharing the same bytes. The heap is not thread-safe.
+ */
+public final class VarHeap {
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final StructCollection records;
+
+    private final List<StructField> fields;
+
+    private byte[] data;
+
+    private int size;
+
+    private VarHeap(final StructCollection records, final StructField[] fields, final int capacity) {
+        this.records = Objects.requireNonNull(records, "Collection should be defined");
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("At least one reference field is needed");
+        }
+        for (int f = 0; f < fields.length; ++f) {
+            records.layout().checkField(fields[f], FieldType.LONG);
+            // Compaction rewrites each field once per record, so a repeated field would be remapped twice.
+            for (int g = 0; g < f; ++g) {
+                if (fields[g] == fields[f]) {
+                    throw new IllegalArgumentException("Field " + fields[f].name() + " is given more than once");
+                }
+            }
+        }
+        if (capacity < 0 || capacity > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("Capacity should be in [0, " + MAX_ARRAY_SIZE + "]: " + capacity);
+        }
+        this.fields = List.of(fields);
+        this.data = capacity == 0 ? EMPTY : new byte[capacity];
+    }
+
+    /**
+     * @param records collection whose records reference the heap.
+     * @param fields distinct {@code long} fields holding the references.
+     * @return empty heap.
+     */
+    public static VarHeap of(final StructCollection records, final StructField... fields) {
+        return new VarHeap(records, fields, 0);
+    }
+
+    /**
+     * @param records collection whose records reference the heap.
+     * @param capacity number of bytes to allocate up front.
+     * @param fields distinct {@code long} fields holding the references.
+     * @return empty heap.
+     */
+    public static VarHeap of(final StructCollection records, final int capacity, final StructField... fields) {
+        return new VarHeap(records, fields, capacity);
+    }
+
+    /**
+     * @return collection whose records reference the heap.
+     */
+    public StructCollection records() {
+        return records;
+    }
+
+    /**
+     * @return fields holding the references, which {@link #compact()} rewrites.
+     */
+    public List<StructField> fields() {
+        return fields;
+    }
+
+    /**
+     * @return number of bytes appended since the heap was created or last compacted, referenced or not.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes that fit without growing the heap.
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * @param index index of the record.
+     * @param field reference field.
+     * @return length of the value in bytes.
+     */
+    public int length(final long index, final StructField field) {
+        return length(reference(index, field));
+    }
+
+    /**
+     * @param index index of the record.
+     * @param field reference field.
+     * @return copy of the value.
+     */
+    public byte[] getBytes(final long index, final StructField field) {
+        final long reference = reference(index, field);
+        final int offset = offset(reference);
+        return Arrays.copyOfRange(data, offset, offset + length(reference));
+    }
+
+    /**
+     * @param index index of the record.
+     * @param field reference field.
+     * @return value decoded from UTF-8.
+     */
+    public String getString(final long index, final StructField field) {
+        final long reference = reference(index, field);
+        return new String(data, offset(reference), length(reference), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index index of the record.
+     * @param field reference field.
+     * @param value bytes to compare the value with.
+     * @return {@code true} if the value has the same bytes, compared in place.
+     */
+    public boolean matches(final long index, final StructField field, final byte[] value) {
+        final long reference = reference(index, field);
+        final int offset = offset(reference);
+        return Arrays.equals(data, offset, offset + length(reference), value, 0, value.length);
+    }
+
+    /**
+     * Appends a value and stores its reference in the record.
+     *
+     * @param index index of the record.
+     * @param field reference field.
+     * @param value bytes of the value.
+     */
+    public void setBytes(final long index, final StructField field, final byte[] value) {
+        setBytes(index, field, value, 0, value.length);
+    }
+
+    /**
+     * Appends a value and stores its reference in the record.
+     *
+     * @param index index of the record.
+     * @param field reference field.
+     * @param value array holding the bytes of the value.
+     * @param from index of the first byte in the array.
+     * @param length number of bytes.
+     */
+    public void setBytes(final long index, final StructField field, final byte[] value, final int from,
+            final int length) {
+        Objects.checkFromIndexSize(from, length, value.length);
+        checkField(field);
+        if (length == 0) {
+            records.setLong(index, field, 0L);
+            return;
+        }
+        ensureCapacity((long) size + length);
+        System.arraycopy(value, from, data, size, length);
+        records.setLong(index, field, reference(size, length));
+        size += length;
+    }
+
+    /**
+     * Appends a value encoded in UTF-8 and stores its reference in the record.
+     *
+     * @param index index of the record.
+     * @param field reference field.
+     * @param value string value.
+     */
+    public void setString(final long index, final StructField field, final String value) {
+        Objects.requireNonNull(value, "String should be defined");
+        setBytes(index, field, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Copies the values referenced by the records into a new region, in heap order, and rewrites the references.
+     * Records that share a value keep sharing one copy of it.
+     *
+     * @return number of bytes reclaimed.
+     * @throws IllegalStateException if a record references bytes outside the heap.
+     */
+    public int compact() {
+        final long count = records.size() * fields.size();
+        if (count > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("References of " + records.size() + " " + records.layout().name()
+                    + " records are too many to compact");
+        }
+        final long[] references = new long[(int) count];
+        int n = 0;
+        for (long i = 0; i < records.size(); ++i) {
+            for (final StructField field : fields) {
+                final long reference = checkedReference(i, field);
+                if (reference != 0L) {
+                    references[n++] = reference;
+                }
+            }
+        }
+        // Sorted references give the values in heap order, and equal references collapse to one copy.
+        Arrays.sort(references, 0, n);
+        int unique = 0;
+        for (int k = 0; k < n; ++k) {
+            if (unique == 0 || references[k] != references[unique - 1]) {
+                references[unique++] = references[k];
+            }
+        }
+        final int[] offsets = new int[unique];
+        long compacted = 0;
+        for (int k = 0; k < unique; ++k) {
+            offsets[k] = (int) compacted;
+            compacted += length(references[k]);
+        }
+        if (compacted > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Var heap of " + compacted + " bytes is too large");
+        }
+        final byte[] compactedData = new byte[(int) compacted];
+        for (int k = 0; k < unique; ++k) {
+            System.arraycopy(data, offset(references[k]), compactedData, offsets[k], length(references[k]));
+        }
+        for (long i = 0; i < records.size(); ++i) {
+            for (final StructField field : fields) {
+                final long reference = records.getLong(i, field);
+                if (reference != 0L) {
+                    final int k = Arrays.binarySearch(references, 0, unique, reference);
+                    records.setLong(i, field, reference(offsets[k], length(reference)));
+                }
+            }
+        }
+        final int reclaimed = size - (int) compacted;
+        data = compactedData;
+        size = (int) compacted;
+        return reclaimed;
+    }
+
+    private void ensureCapacity(final long minCapacity) {
+        if (minCapacity > data.length) {
+            if (minCapacity > MAX_ARRAY_SIZE) {
+                throw new OutOfMemoryError("Var heap of " + minCapacity + " bytes is too large");
+            }
+            final long newCapacity = Math.max(minCapacity, (long) data.length + (data.length >> 1));
+            data = Arrays.copyOf(data, (int) Math.min(newCapacity, MAX_ARRAY_SIZE));
+        }
+    }
+
+    private void checkField(final StructField field) {
+        if (!fields.contains(field)) {
+            throw new IllegalArgumentException("Field " + field.name() + " of struct " + records.layout().name()
+                    + " does not reference the heap");
+        }
+    }
+
+    private long reference(final long index, final StructField field) {
+        checkField(field);
+        return checkedReference(index, field);
+    }
+
+    private long checkedReference(final long index, final StructField field) {
+        final long reference = records.getLong(index, field);
+        final long offset = reference >>> 32;
+        final long length = reference & 0xFFFFFFFFL;
+        if (offset + length > size) {
+            throw new IllegalStateException("Field " + field.name() + " of record " + index
+                    + " references bytes outside the heap: " + offset + "+" + length);
+        }
+        return reference;
+    }
+
+    private static long reference(final int offset, final int length) {
+        return (long) offset << 32 | length;
+    }
+
+    private static int offset(final long reference) {
+        return (int) (reference >>> 32);
+    }
+
+    private static int length(final long reference) {
+        return (int) reference;
+    }
+
+    @Override
+    public String toString() {
+        return "VarHeap<" + records.layout().name() + ">[" + size + " bytes]";
+    }
+}
@@ -0,0 +1,307 @@
+package org.jstruct;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.jstruct.ColumnKernels.Comparison;
+
+/**
+ * Kernels on the Vector API with the preferred species of the platform, loaded reflectively by
+ * {@link ColumnKernels} so that the rest of the library does not depend on the incubator module.
+ * <p>
+ * Every loop processes whole vectors and finishes the remainder with scalar code. Compare kernels assemble one bitmap
+ * word from {@code 64 / lanes} vector comparisons, which is exact because lane counts are powers of two no larger than
+ * 64.
+ */
+final class VectorKernels implements Kernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public boolean isVectorized() {
+        return LONGS.length() >= 2;
+    }
+
+    private static VectorOperators.Comparison operator(final Comparison op) {
+        switch (op) {
+            case EQ:
+                return VectorOperators.EQ;
+            case NE:
+                return VectorOperators.NE;
+            case LT:
+                return VectorOperators.LT;
+            case LE:
+                return VectorOperators.LE;
+            case GT:
+                return VectorOperators.GT;
+            default:
+                return VectorOperators.GE;
+        }
+    }
+
+    @Override
+    public long sum(final int[] column, final int from, final int to) {
+        LongVector acc = LongVector.zero(LONGS);
+        int i = from;
+        for (final int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            final IntVector v = IntVector.fromArray(INTS, column, i);
+            acc = acc.add(v.convertShape(VectorOperators.I2L, LONGS, 0))
+                    .add(v.convertShape(VectorOperators.I2L, LONGS, 1));
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; ++i) {
+            sum += column[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long sum(final long[] column, final int from, final int to) {
+        LongVector acc = LongVector.zero(LONGS);
+        int i = from;
+        for (final int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            acc = acc.add(LongVector.fromArray(LONGS, column, i));
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; ++i) {
+            sum += column[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sum(final double[] column, final int from, final int to) {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = from;
+        for (final int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+            acc = acc.add(DoubleVector.fromArray(DOUBLES, column, i));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; ++i) {
+            sum += column[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int min(final int[] column, final int from, final int to) {
+        IntVector acc = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+        int i = from;
+        for (final int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            acc = acc.min(IntVector.fromArray(INTS, column, i));
+        }
+        int min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < to; ++i) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public long min(final long[] column, final int from, final int to) {
+        LongVector acc = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+        int i = from;
+        for (final int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            acc = acc.min(LongVector.fromArray(LONGS, column, i));
+        }
+        long min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < to; ++i) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public double min(final double[] column, final int from, final int to) {
+        DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+        int i = from;
+        for (final int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+            acc = acc.min(DoubleVector.fromArray(DOUBLES, column, i));
+        }
+        double min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < to; ++i) {
+            min = Math.min(min, column[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public int max(final int[] column, final int from, final int to) {
+        IntVector acc = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+        int i = from;
+        for (final int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            acc = acc.max(IntVector.fromArray(INTS, column, i));
+        }
+        int max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < to; ++i) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public long max(final long[] column, final int from, final int to) {
+        LongVector acc = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+        int i = from;
+        for (final int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            acc = acc.max(LongVector.fromArray(LONGS, column, i));
+        }
+        long max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < to; ++i) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public double max(final double[] column, final int from, final int to) {
+        DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+        int i = from;
+        for (final int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+            acc = acc.max(DoubleVector.fromArray(DOUBLES, column, i));
+        }
+        double max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < to; ++i) {
+            max = Math.max(max, column[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public int compare(final int[] column, final int from, final int to, final Comparison op, final int value,
+            final long[] bitmap) {
+        final VectorOperators.Comparison cmp = operator(op);
+        int count = 0;
+        for (int w = 0, words = ColumnKernels.words(from, to); w < words; ++w) {
+            final int i = from + w * Long.SIZE;
+            long word = 0;
+            if (to - i >= Long.SIZE) {
+                for (int k = 0; k < Long.SIZE; k += INTS.length()) {
+                    word |= IntVector.fromArray(INTS, column, i + k).compare(cmp, value).toLong() << k;
+                }
+            } else {
+                for (int k = 0; k < to - i; ++k) {
+                    word |= (op.test(column[i + k], value) ? 1L : 0L) << k;
+                }
+            }
+            bitmap[w] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int compare(final long[] column, final int from, final int to, final Comparison op, final long value,
+            final long[] bitmap) {
+        final VectorOperators.Comparison cmp = operator(op);
+        int count = 0;
+        for (int w = 0, words = ColumnKernels.words(from, to); w < words; ++w) {
+            final int i = from + w * Long.SIZE;
+            long word = 0;
+            if (to - i >= Long.SIZE) {
+                for (int k = 0; k < Long.SIZE; k += LONGS.length()) {
+                    word |= LongVector.fromArray(LONGS, column, i + k).compare(cmp, value).toLong() << k;
+                }
+            } else {
+                for (int k = 0; k < to - i; ++k) {
+                    word |= (op.test(column[i + k], value) ? 1L : 0L) << k;
+                }
+            }
+            bitmap[w] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int compare(final double[] column, final int from, final int to, final Comparison op, final double value,
+            final long[] bitmap) {
+        final VectorOperators.Comparison cmp = operator(op);
+        int count = 0;
+        for (int w = 0, words = ColumnKernels.words(from, to); w < words; ++w) {
+            final int i = from + w * Long.SIZE;
+            long word = 0;
+            if (to - i >= Long.SIZE) {
+                for (int k = 0; k < Long.SIZE; k += DOUBLES.length()) {
+                    word |= DoubleVector.fromArray(DOUBLES, column, i + k).compare(cmp, value).toLong() << k;
+                }
+            } else {
+                for (int k = 0; k < to - i; ++k) {
+                    word |= (op.test(column[i + k], value) ? 1L : 0L) << k;
+                }
+            }
+            bitmap[w] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int filter(final int[] column, final int from, final int to, final Comparison op, final int value,
+            final int[] selection) {
+        final VectorOperators.Comparison cmp = operator(op);
+        int count = 0;
+        int i = from;
+        for (final int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            long bits = IntVector.fromArray(INTS, column, i).compare(cmp, value).toLong();
+            while (bits != 0) {
+                selection[count++] = i + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        for (; i < to; ++i) {
+            if (op.test(column[i], value)) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int filter(final long[] column, final int from, final int to, final Comparison op, final long value,
+            final int[] selection) {
+        final VectorOperators.Comparison cmp = operator(op);
+        int count = 0;
+        int i = from;
+        for (final int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            long bits = LongVector.fromArray(LONGS, column, i).compare(cmp, value).toLong();
+            while (bits != 0) {
+                selection[count++] = i + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        for (; i < to; ++i) {
+            if (op.test(column[i], value)) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int filter(final double[] column, final int from, final int to, final Comparison op, final double value,
+            final int[] selection) {
+        final VectorOperators.Comparison cmp = operator(op);
+        int count = 0;
+        int i = from;
+        for (final int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+            long bits = DoubleVector.fromArray(DOUBLES, column, i).compare(cmp, value).toLong();
+            while (bits != 0) {
+                selection[count++] = i + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        for (; i < to; ++i) {
+            if (op.test(column[i], value)) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+}
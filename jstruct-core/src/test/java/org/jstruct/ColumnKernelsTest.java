@@ -0,0 +1,251 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.jstruct.ColumnKernels.Comparison;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks every kernel against a plain loop. The build runs this class twice: with {@code jdk.incubator.vector} added
+ * ({@code jstruct.kernels=vector}) and without it ({@code jstruct.kernels=scalar}), so that both implementations are
+ * covered.
+ */
+class ColumnKernelsTest {
+
+    private static final int SIZE = 300;
+
+    private static final int[] INT_EDGES = { 0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 7 };
+
+    private static final long[] LONG_EDGES = { 0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 7L };
+
+    private static final double[] DOUBLE_EDGES = { 0.0, -0.0, 1.0, -1.0, Double.NaN, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, 7.0 };
+
+    /**
+     * Ranges of every length up to a few vectors, at aligned and unaligned starts, to cover the vector tails.
+     */
+    private static final int[][] RANGES = ranges();
+
+    private final SplittableRandom random = new SplittableRandom(15);
+
+    @Test
+    void usesExpectedImplementation() {
+        final String expected = System.getProperty("jstruct.kernels", "");
+        if (expected.equals("scalar")) {
+            assertFalse(ColumnKernels.isVectorized());
+        } else if (expected.equals("vector")) {
+            assertTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                    "jdk.incubator.vector should be added to the test JVM");
+            assertTrue(ColumnKernels.isVectorized());
+        }
+    }
+
+    @Test
+    void intKernels() {
+        final int[] column = new int[SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            column[i] = random.nextInt(4) == 0 ? INT_EDGES[random.nextInt(INT_EDGES.length)] : random.nextInt(-20, 20);
+        }
+        for (final int[] range : RANGES) {
+            final int from = range[0];
+            final int to = range[1];
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = from; i < to; ++i) {
+                sum += column[i];
+                min = Math.min(min, column[i]);
+                max = Math.max(max, column[i]);
+            }
+            assertEquals(sum, ColumnKernels.sum(column, from, to));
+            assertEquals(min, ColumnKernels.min(column, from, to));
+            assertEquals(max, ColumnKernels.max(column, from, to));
+            for (final Comparison op : Comparison.values()) {
+                for (final int value : INT_EDGES) {
+                    final boolean[] expected = new boolean[to - from];
+                    for (int i = from; i < to; ++i) {
+                        expected[i - from] = op.test(column[i], value);
+                    }
+                    final long[] bitmap = garbageBitmap(to - from);
+                    final int[] selection = new int[to - from];
+                    checkMatches(expected, from, ColumnKernels.compare(column, from, to, op, value, bitmap), bitmap,
+                            ColumnKernels.filter(column, from, to, op, value, selection), selection);
+                }
+            }
+        }
+    }
+
+    @Test
+    void longKernels() {
+        final long[] column = new long[SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            column[i] = random.nextInt(4) == 0 ? LONG_EDGES[random.nextInt(LONG_EDGES.length)]
+                    : random.nextLong(-20, 20);
+        }
+        for (final int[] range : RANGES) {
+            final int from = range[0];
+            final int to = range[1];
+            long sum = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = from; i < to; ++i) {
+                sum += column[i];
+                min = Math.min(min, column[i]);
+                max = Math.max(max, column[i]);
+            }
+            assertEquals(sum, ColumnKernels.sum(column, from, to));
+            assertEquals(min, ColumnKernels.min(column, from, to));
+            assertEquals(max, ColumnKernels.max(column, from, to));
+            for (final Comparison op : Comparison.values()) {
+                for (final long value : LONG_EDGES) {
+                    final boolean[] expected = new boolean[to - from];
+                    for (int i = from; i < to; ++i) {
+                        expected[i - from] = op.test(column[i], value);
+                    }
+                    final long[] bitmap = garbageBitmap(to - from);
+                    final int[] selection = new int[to - from];
+                    checkMatches(expected, from, ColumnKernels.compare(column, from, to, op, value, bitmap), bitmap,
+                            ColumnKernels.filter(column, from, to, op, value, selection), selection);
+                }
+            }
+        }
+    }
+
+    @Test
+    void doubleKernels() {
+        final double[] column = new double[SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            column[i] = random.nextInt(4) == 0 ? DOUBLE_EDGES[random.nextInt(DOUBLE_EDGES.length)]
+                    : random.nextInt(-20, 20);
+        }
+        for (final int[] range : RANGES) {
+            final int from = range[0];
+            final int to = range[1];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; ++i) {
+                min = Math.min(min, column[i]);
+                max = Math.max(max, column[i]);
+            }
+            assertEquals(Double.doubleToLongBits(min), Double.doubleToLongBits(ColumnKernels.min(column, from, to)),
+                    () -> "min of [" + from + ", " + to + ")");
+            assertEquals(Double.doubleToLongBits(max), Double.doubleToLongBits(ColumnKernels.max(column, from, to)),
+                    () -> "max of [" + from + ", " + to + ")");
+            for (final Comparison op : Comparison.values()) {
+                for (final double value : DOUBLE_EDGES) {
+                    final boolean[] expected = new boolean[to - from];
+                    for (int i = from; i < to; ++i) {
+                        expected[i - from] = op.test(column[i], value);
+                    }
+                    final long[] bitmap = garbageBitmap(to - from);
+                    final int[] selection = new int[to - from];
+                    checkMatches(expected, from, ColumnKernels.compare(column, from, to, op, value, bitmap), bitmap,
+                            ColumnKernels.filter(column, from, to, op, value, selection), selection);
+                }
+            }
+        }
+    }
+
+    @Test
+    void doubleSum() {
+        // Small integers add up exactly in any order, so vectorized sums must match the loop.
+        final double[] column = new double[SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            column[i] = random.nextInt(-1000, 1000);
+        }
+        for (final int[] range : RANGES) {
+            double sum = 0;
+            for (int i = range[0]; i < range[1]; ++i) {
+                sum += column[i];
+            }
+            assertEquals(sum, ColumnKernels.sum(column, range[0], range[1]));
+        }
+        column[SIZE / 2] = Double.NaN;
+        assertTrue(Double.isNaN(ColumnKernels.sum(column, 0, SIZE)));
+        column[SIZE / 2] = Double.POSITIVE_INFINITY;
+        assertEquals(Double.POSITIVE_INFINITY, ColumnKernels.sum(column, 0, SIZE));
+    }
+
+    @Test
+    void emptyRanges() {
+        assertEquals(0L, ColumnKernels.sum(new int[4], 2, 2));
+        assertEquals(Integer.MAX_VALUE, ColumnKernels.min(new int[4], 2, 2));
+        assertEquals(Long.MIN_VALUE, ColumnKernels.max(new long[4], 2, 2));
+        assertEquals(Double.POSITIVE_INFINITY, ColumnKernels.min(new double[4], 2, 2));
+        assertEquals(0, ColumnKernels.filter(new int[4], 2, 2, Comparison.EQ, 0, new int[0]));
+    }
+
+    /**
+     * Columns near {@link Integer#MAX_VALUE} elements do not fit in the test heap, so this checks the word count that
+     * the compare loops and the bitmap check share, where rounding up used to overflow.
+     */
+    @Test
+    void countsBitmapWordsUpToIntegerMaxValue() {
+        assertEquals(0, ColumnKernels.words(7, 7));
+        assertEquals(1, ColumnKernels.words(5, 6));
+        assertEquals(1, ColumnKernels.words(0, 64));
+        assertEquals(2, ColumnKernels.words(0, 65));
+        assertEquals(1, ColumnKernels.words(Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+        assertEquals(1, ColumnKernels.words(Integer.MAX_VALUE - 64, Integer.MAX_VALUE));
+        assertEquals(2, ColumnKernels.words(Integer.MAX_VALUE - 65, Integer.MAX_VALUE));
+        assertEquals(1 << 25, ColumnKernels.words(0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IndexOutOfBoundsException.class, () -> ColumnKernels.sum(new int[4], 3, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> ColumnKernels.min(new long[4], -1, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> ColumnKernels.compare(new int[130], 0, 130, Comparison.EQ, 0, new long[2]));
+        assertThrows(IllegalArgumentException.class,
+                () -> ColumnKernels.filter(new double[10], 0, 10, Comparison.EQ, 0.0, new int[9]));
+        assertThrows(NullPointerException.class,
+                () -> ColumnKernels.compare(new long[10], 0, 10, null, 0L, new long[1]));
+    }
+
+    /**
+     * @return bitmap with every bit set, so that bits the kernel forgets to clear are detected.
+     */
+    private static long[] garbageBitmap(final int bits) {
+        final long[] bitmap = new long[(bits + Long.SIZE - 1) / Long.SIZE];
+        Arrays.fill(bitmap, -1L);
+        return bitmap;
+    }
+
+    private static void checkMatches(final boolean[] expected, final int from, final int compared,
+            final long[] bitmap, final int filtered, final int[] selection) {
+        int count = 0;
+        final int[] indices = new int[expected.length];
+        for (int k = 0; k < expected.length; ++k) {
+            if (expected[k]) {
+                indices[count++] = from + k;
+            }
+            assertEquals(expected[k], (bitmap[k >>> 6] & 1L << k) != 0, "bit " + k);
+        }
+        // Bits past the range are cleared in the last word.
+        if ((expected.length & 63) != 0) {
+            assertEquals(0L, bitmap[expected.length >>> 6] >>> (expected.length & 63));
+        }
+        assertEquals(count, compared);
+        assertEquals(count, filtered);
+        assertArrayEquals(Arrays.copyOf(indices, count), Arrays.copyOf(selection, filtered));
+    }
+
+    private static int[][] ranges() {
+        final int[][] ranges = new int[3 * 70][];
+        int n = 0;
+        for (final int from : new int[] { 0, 1, 13 }) {
+            for (int length = 0; length < 70; ++length) {
+                ranges[n++] = new int[] { from, from + length * 3 };
+            }
+        }
+        return Arrays.copyOf(ranges, n);
+    }
+}
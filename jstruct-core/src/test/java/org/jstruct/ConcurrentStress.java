@@ -0,0 +1,77 @@
+package org.jstruct;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the threads of a stress test: tasks are submitted first and all start together on {@link #start()}, so that
+ * they contend from their first operation, and are interrupted on {@link #close()} if a check failed early.
+ */
+final class ConcurrentStress implements AutoCloseable {
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final ExecutorService executor;
+
+    private final CountDownLatch start = new CountDownLatch(1);
+
+    /**
+     * @param threads maximum number of tasks.
+     */
+    ConcurrentStress(final int threads) {
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Mixes the owner of a record, such as its producer or key, with a sequence number of that owner. Writers store
+     * the result next to both, so that readers detect torn records by recomputing it.
+     *
+     * @return check value of the record.
+     */
+    static long check(final long owner, final long sequence) {
+        return (sequence * 0x9E3779B97F4A7C15L) ^ owner;
+    }
+
+    /**
+     * @param task task to run once every task is submitted.
+     * @return future of the task result.
+     */
+    <T> Future<T> submit(final Callable<T> task) {
+        return executor.submit(() -> {
+            start.await();
+            return task.call();
+        });
+    }
+
+    /**
+     * Lets the submitted tasks run.
+     */
+    void start() {
+        start.countDown();
+    }
+
+    /**
+     * @return result of the task, rethrowing its failure.
+     */
+    static <T> T result(final Future<T> future) throws InterruptedException, TimeoutException {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new AssertionError(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
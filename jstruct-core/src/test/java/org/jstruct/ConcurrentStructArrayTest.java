@@ -0,0 +1,137 @@
+package org.jstruct;
+
+import static org.jstruct.ConcurrentStress.check;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentStructArrayTest {
+
+    private static final StructLayout EVENT = StructLayout.builder("Event")
+            .addLong("sequence")
+            .addInt("producer")
+            .addLong("check")
+            .build();
+
+    private static final StructField SEQUENCE = EVENT.field("sequence");
+
+    private static final StructField PRODUCER = EVENT.field("producer");
+
+    private static final StructField CHECK = EVENT.field("check");
+
+    private static final int PRODUCERS = 4;
+
+    private static final int CAPACITY = 200_000;
+
+    @Test
+    void watermarkStopsAtFirstHoleAcrossWords() {
+        final ConcurrentStructArray events = new ConcurrentStructArray(EVENT, 200);
+        final long first = events.reserve(60);
+        final long second = events.reserve(70);
+        final long third = events.reserve(65);
+        events.publish(third, 65);
+        assertEquals(0, events.size());
+        events.publish(first + 1, 59);
+        assertEquals(0, events.size());
+        events.publish(first, 1);
+        assertEquals(60, events.size());
+        events.publish(second + 10, 60);
+        assertEquals(60, events.size());
+        events.publish(second, 10);
+        assertEquals(195, events.size());
+        events.publish(events.reserve(5), 5);
+        assertEquals(200, events.size());
+    }
+
+    @Test
+    void readersSeeCompleteRecordsBelowMonotonicWatermark() throws Exception {
+        final ConcurrentStructArray events = new ConcurrentStructArray(EVENT, CAPACITY);
+        try (ConcurrentStress stress = new ConcurrentStress(PRODUCERS + 1)) {
+            final List<Future<Long>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; ++p) {
+                final int producer = p;
+                producers.add(stress.submit(() -> produce(events, producer)));
+            }
+            final Future<Long> reader = stress.submit(() -> read(events));
+            stress.start();
+
+            long produced = 0;
+            for (final Future<Long> future : producers) {
+                produced += ConcurrentStress.result(future);
+            }
+            final long read = ConcurrentStress.result(reader);
+            assertEquals(CAPACITY, produced);
+            assertEquals(CAPACITY, events.size());
+            assertTrue(read > 0);
+
+            // Records of each producer are in the order it wrote them.
+            final long[] last = new long[PRODUCERS];
+            final long[] counts = new long[PRODUCERS];
+            final StructCursor cursor = events.cursor();
+            while (cursor.next()) {
+                final int producer = cursor.getInt(PRODUCER);
+                final long sequence = cursor.getLong(SEQUENCE);
+                assertEquals(check(producer, sequence), cursor.getLong(CHECK));
+                assertEquals(last[producer] + 1, sequence);
+                last[producer] = sequence;
+                ++counts[producer];
+            }
+            assertEquals(CAPACITY, counts[0] + counts[1] + counts[2] + counts[3]);
+        }
+    }
+
+    /**
+     * Reserves and publishes batches of random size, up to an equal share of the capacity.
+     *
+     * @return number of records published.
+     */
+    private static long produce(final ConcurrentStructArray events, final int producer) {
+        final SplittableRandom random = new SplittableRandom(producer);
+        long sequence = 0;
+        while (sequence < CAPACITY / PRODUCERS) {
+            final int count = (int) Math.min(random.nextInt(1, 100), CAPACITY / PRODUCERS - sequence);
+            final long first = events.reserve(count);
+            for (long i = first; i < first + count; ++i) {
+                ++sequence;
+                events.setLong(i, CHECK, check(producer, sequence));
+                events.setInt(i, PRODUCER, producer);
+                events.setLong(i, SEQUENCE, sequence);
+            }
+            events.publish(first, count);
+        }
+        return sequence;
+    }
+
+    /**
+     * Polls the watermark until the array is full, checking the records it passes over.
+     *
+     * @return number of times the watermark moved.
+     */
+    private static long read(final ConcurrentStructArray events) {
+        long moves = 0;
+        long checked = 0;
+        while (checked < CAPACITY) {
+            final long size = events.size();
+            if (size < checked) {
+                throw new AssertionError("Watermark moved back from " + checked + " to " + size);
+            }
+            assertTrue(size <= events.reserved(), "Watermark passed the reserved records");
+            if (size > checked) {
+                ++moves;
+            }
+            for (; checked < size; ++checked) {
+                final long sequence = events.getLong(checked, SEQUENCE);
+                final int producer = events.getInt(checked, PRODUCER);
+                assertTrue(sequence > 0, "Record " + checked + " is below the watermark but not written");
+                assertEquals(check(producer, sequence), events.getLong(checked, CHECK), "Record " + checked);
+            }
+        }
+        return moves;
+    }
+}
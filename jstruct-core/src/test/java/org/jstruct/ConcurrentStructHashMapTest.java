@@ -0,0 +1,123 @@
+package org.jstruct;
+
+import static org.jstruct.ConcurrentStress.check;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentStructHashMapTest {
+
+    private static final StructLayout QUOTE = StructLayout.builder("Quote")
+            .addLong("version")
+            .addInt("size")
+            .addLong("negated")
+            .addLong("check")
+            .build();
+
+    private static final StructField VERSION = QUOTE.field("version");
+
+    private static final StructField SIZE = QUOTE.field("size");
+
+    private static final StructField NEGATED = QUOTE.field("negated");
+
+    private static final StructField CHECK = QUOTE.field("check");
+
+    private static final int WRITERS = 3;
+
+    private static final int READERS = 2;
+
+    private static final int KEYS = 500;
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    void readersSeeConsistentValuesInWriteOrder() throws Exception {
+        // Few stripes and a small initial table, so that writers contend and tables rehash under the readers.
+        final ConcurrentStructHashMap quotes = new ConcurrentStructHashMap(QUOTE, 4, 2);
+        try (ConcurrentStress stress = new ConcurrentStress(WRITERS + READERS)) {
+            final AtomicBoolean done = new AtomicBoolean();
+            final List<Future<Void>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; ++w) {
+                final int writer = w;
+                writers.add(stress.submit(() -> write(quotes, writer)));
+            }
+            final List<Future<Long>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; ++r) {
+                final int reader = r;
+                readers.add(stress.submit(() -> read(quotes, reader, done)));
+            }
+            stress.start();
+            for (final Future<Void> writer : writers) {
+                ConcurrentStress.result(writer);
+            }
+            done.set(true);
+            for (final Future<Long> reader : readers) {
+                assertTrue(ConcurrentStress.result(reader) > 0);
+            }
+
+            assertEquals(WRITERS * KEYS, quotes.size());
+            for (long key = 0; key < WRITERS * KEYS; ++key) {
+                assertEquals(ROUNDS, quotes.getLong(key, VERSION, -1));
+                assertEquals(check(key, ROUNDS), quotes.getLong(key, CHECK, -1));
+            }
+        }
+    }
+
+    /**
+     * Writes increasing versions of the keys of one writer, removing and inserting them again now and then.
+     */
+    private static Void write(final ConcurrentStructHashMap quotes, final int writer) {
+        final StructArray value = new StructArray(QUOTE, 1);
+        value.add();
+        for (long version = 1; version <= ROUNDS; ++version) {
+            for (long k = 0; k < KEYS; ++k) {
+                final long key = writer + WRITERS * k;
+                if ((version + k) % 37 == 0) {
+                    quotes.remove(key);
+                }
+                value.setLong(0, VERSION, version);
+                value.setInt(0, SIZE, (int) version);
+                value.setLong(0, NEGATED, -version);
+                value.setLong(0, CHECK, check(key, version));
+                quotes.put(key, value, 0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads random keys until the writers are done, checking that no value is torn and that versions never go back.
+     *
+     * @return number of values found.
+     */
+    private static long read(final ConcurrentStructHashMap quotes, final int reader, final AtomicBoolean done) {
+        final SplittableRandom random = new SplittableRandom(reader);
+        final long[] seen = new long[WRITERS * KEYS];
+        final StructArray value = new StructArray(QUOTE, 1);
+        value.add();
+        long found = 0;
+        while (!done.get()) {
+            final int key = random.nextInt(seen.length);
+            if (quotes.get(key, value, 0)) {
+                final long version = value.getLong(0, VERSION);
+                assertEquals(-version, value.getLong(0, NEGATED), "Torn value of key " + key);
+                assertEquals((int) version, value.getInt(0, SIZE), "Torn value of key " + key);
+                assertEquals(check(key, version), value.getLong(0, CHECK), "Torn value of key " + key);
+                assertTrue(version >= seen[key], "Version of key " + key + " went back to " + version);
+                seen[key] = version;
+                ++found;
+            }
+            final long version = quotes.getLong(key, VERSION, 0);
+            assertTrue(version == 0 || version >= seen[key], "Version of key " + key + " went back to " + version);
+            seen[key] = Math.max(seen[key], version);
+        }
+        return found;
+    }
+}
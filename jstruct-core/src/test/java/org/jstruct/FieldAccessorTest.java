@@ -0,0 +1,179 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.foreign.Arena;
+
+import org.junit.jupiter.api.Test;
+
+class FieldAccessorTest {
+
+    /**
+     * Padding that puts the fields after it beyond the range of a 16-bit constant.
+     */
+    private static final int PADDING = 40_000;
+
+    @Test
+    void readsAndWritesEveryType() {
+        for (final FieldType type : FieldType.values()) {
+            for (final int padding : new int[] { 0, 3, PADDING }) {
+                final StructLayout.Builder builder = StructLayout.builder("Record").addInt("head");
+                if (padding > 0) {
+                    builder.addArray("padding", FieldType.BYTE, padding);
+                }
+                final StructLayout layout = builder.add("value", type).addInt("tail").build();
+                final StructField field = layout.field("value");
+                final FieldAccessor accessor = FieldAccessor.of(field);
+                assertSame(field, accessor.field());
+
+                final StructArray array = new StructArray(layout, 3);
+                for (int i = 0; i < 3; ++i) {
+                    array.add();
+                }
+                check(accessor, array);
+                try (Arena arena = Arena.ofConfined()) {
+                    check(accessor, OffHeapStructArray.allocate(layout, 3, arena));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsOtherTypesAndLayouts() {
+        final StructLayout layout = StructLayout.builder("Order").addLong("id").addDouble("price").build();
+        final StructArray orders = new StructArray(layout, 1);
+        orders.add();
+        final FieldAccessor id = FieldAccessor.of(layout.field("id"));
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> id.getDouble(orders, 0));
+        assertEquals("Field id of struct Order is long, not double", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> id.setInt(orders, 0, 1));
+
+        final StructLayout other = StructLayout.builder("Order").addLong("id").addDouble("price").build();
+        final StructArray others = new StructArray(other, 1);
+        others.add();
+        assertThrows(IllegalArgumentException.class, () -> id.getLong(others, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> id.getLong(orders, 1));
+    }
+
+    private static void check(final FieldAccessor accessor, final FlatStructCollection records) {
+        final StructField field = accessor.field();
+        final StructLayout layout = field.layout();
+        for (int i = 0; i < 3; ++i) {
+            set(accessor, records, i, i + 1);
+            records.setInt(i, layout.field("head"), -1);
+            records.setInt(i, layout.field("tail"), -1);
+        }
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(value(field.type(), i + 1), get(records, i, field), () -> field.type() + " " + field);
+            assertEquals(value(field.type(), i + 1), get(accessor, records, i));
+            assertEquals(-1, records.getInt(i, layout.field("head")));
+            assertEquals(-1, records.getInt(i, layout.field("tail")));
+        }
+    }
+
+    private static Object value(final FieldType type, final int seed) {
+        switch (type) {
+            case BOOLEAN:
+                return seed % 2 == 1;
+            case BYTE:
+                return (byte) -seed;
+            case CHAR:
+                return (char) ('a' + seed);
+            case SHORT:
+                return (short) (-1000 * seed);
+            case INT:
+                return 0x10000 * seed + 7;
+            case FLOAT:
+                return seed * 1.5f;
+            case LONG:
+                return Long.MIN_VALUE + seed;
+            case DOUBLE:
+                return -seed * 0.25;
+            default:
+                throw new AssertionError(type);
+        }
+    }
+
+    private static void set(final FieldAccessor accessor, final FlatStructCollection records, final long index,
+            final int seed) {
+        final Object value = value(accessor.field().type(), seed);
+        switch (accessor.field().type()) {
+            case BOOLEAN:
+                accessor.setBoolean(records, index, (Boolean) value);
+                break;
+            case BYTE:
+                accessor.setByte(records, index, (Byte) value);
+                break;
+            case CHAR:
+                accessor.setChar(records, index, (Character) value);
+                break;
+            case SHORT:
+                accessor.setShort(records, index, (Short) value);
+                break;
+            case INT:
+                accessor.setInt(records, index, (Integer) value);
+                break;
+            case FLOAT:
+                accessor.setFloat(records, index, (Float) value);
+                break;
+            case LONG:
+                accessor.setLong(records, index, (Long) value);
+                break;
+            case DOUBLE:
+                accessor.setDouble(records, index, (Double) value);
+                break;
+            default:
+                throw new AssertionError(accessor.field().type());
+        }
+    }
+
+    private static Object get(final FieldAccessor accessor, final FlatStructCollection records, final long index) {
+        switch (accessor.field().type()) {
+            case BOOLEAN:
+                return accessor.getBoolean(records, index);
+            case BYTE:
+                return accessor.getByte(records, index);
+            case CHAR:
+                return accessor.getChar(records, index);
+            case SHORT:
+                return accessor.getShort(records, index);
+            case INT:
+                return accessor.getInt(records, index);
+            case FLOAT:
+                return accessor.getFloat(records, index);
+            case LONG:
+                return accessor.getLong(records, index);
+            case DOUBLE:
+                return accessor.getDouble(records, index);
+            default:
+                throw new AssertionError(accessor.field().type());
+        }
+    }
+
+    private static Object get(final StructCollection records, final long index, final StructField field) {
+        switch (field.type()) {
+            case BOOLEAN:
+                return records.getBoolean(index, field);
+            case BYTE:
+                return records.getByte(index, field);
+            case CHAR:
+                return records.getChar(index, field);
+            case SHORT:
+                return records.getShort(index, field);
+            case INT:
+                return records.getInt(index, field);
+            case FLOAT:
+                return records.getFloat(index, field);
+            case LONG:
+                return records.getLong(index, field);
+            case DOUBLE:
+                return records.getDouble(index, field);
+            default:
+                throw new AssertionError(field.type());
+        }
+    }
+}
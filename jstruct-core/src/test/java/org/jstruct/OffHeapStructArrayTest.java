@@ -0,0 +1,89 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapStructArrayTest {
+
+    /**
+     * Three ints: 12 bytes aligned to 4, so every other record starts off an 8-byte boundary.
+     */
+    private static final StructLayout POINT = StructLayout.builder("Point")
+            .addInt("x")
+            .addInt("y")
+            .addInt("z")
+            .build();
+
+    private static final StructField X = POINT.field("x");
+
+    private static final StructField Y = POINT.field("y");
+
+    private static final StructField Z = POINT.field("z");
+
+    @Test
+    void swapsRecordsThatStraddleWords() {
+        assertEquals(12, POINT.size());
+        try (Arena arena = Arena.ofConfined()) {
+            final OffHeapStructArray points = points(5, arena);
+            points.swap(0, 1);
+            points.swap(1, 4);
+            points.swap(2, 2);
+            assertPoint(points, 0, 1);
+            assertPoint(points, 1, 4);
+            assertPoint(points, 2, 2);
+            assertPoint(points, 3, 3);
+            assertPoint(points, 4, 0);
+        }
+    }
+
+    @Test
+    void sortsAndPermutesRecordsThatStraddleWords() {
+        try (Arena arena = Arena.ofConfined()) {
+            final OffHeapStructArray points = points(1000, arena);
+            StructSort.radixSort(points, Z);
+            for (int i = 0; i < 1000; ++i) {
+                assertPoint(points, i, 999 - i);
+            }
+            points.permute(StructSort.argsort(points, X));
+            for (int i = 0; i < 1000; ++i) {
+                assertPoint(points, i, i);
+            }
+        }
+    }
+
+    @Test
+    void wrapsAlignedMemoryOnly() {
+        try (Arena arena = Arena.ofConfined()) {
+            final MemorySegment memory = arena.allocate(50, 8);
+            final OffHeapStructArray points = OffHeapStructArray.wrap(POINT, memory.asSlice(4));
+            assertEquals(3, points.size());
+            assertEquals(36, points.segment().byteSize());
+            assertThrows(IllegalArgumentException.class, () -> OffHeapStructArray.wrap(POINT, memory.asSlice(2)));
+            assertThrows(IndexOutOfBoundsException.class, () -> points.getInt(3, X));
+        }
+    }
+
+    /**
+     * @return points whose x is their index and z decreases with it.
+     */
+    private static OffHeapStructArray points(final int count, final Arena arena) {
+        final OffHeapStructArray points = OffHeapStructArray.allocate(POINT, count, arena);
+        for (int i = 0; i < count; ++i) {
+            points.setInt(i, X, i);
+            points.setInt(i, Y, -i);
+            points.setInt(i, Z, -i * 7);
+        }
+        return points;
+    }
+
+    private static void assertPoint(final OffHeapStructArray points, final long index, final int x) {
+        assertEquals(x, points.getInt(index, X));
+        assertEquals(-x, points.getInt(index, Y));
+        assertEquals(-x * 7, points.getInt(index, Z));
+    }
+}
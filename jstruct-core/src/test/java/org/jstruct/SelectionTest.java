@@ -0,0 +1,97 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import org.jstruct.ColumnKernels.Comparison;
+import org.junit.jupiter.api.Test;
+
+class SelectionTest {
+
+    private static final StructLayout LAYOUT = StructLayout.builder("Order")
+            .addInt("quantity")
+            .addLong("id")
+            .addDouble("price")
+            .build();
+
+    private static final StructField QUANTITY = LAYOUT.field("quantity");
+
+    private static final StructField ID = LAYOUT.field("id");
+
+    private static final StructField PRICE = LAYOUT.field("price");
+
+    @Test
+    void streamsSelectedIndicesSequentiallyAndInParallel() {
+        for (final int length : new int[] { 0, 1, 63, 64, 65, 1000, 5000 }) {
+            final StructColumns records = orders(length);
+            final Selection selection = Selection.all(records).where(i -> i % 3 == 0 || i % 64 == 63);
+            final long[] expected = LongStream.range(0, length).filter(i -> i % 3 == 0 || i % 64 == 63).toArray();
+
+            assertArrayEquals(expected, selection.toArray());
+            assertArrayEquals(expected, selection.stream().toArray());
+            assertArrayEquals(expected, selection.stream().parallel().toArray());
+            assertEquals(expected.length, selection.stream().count());
+            assertEquals(LongStream.of(expected).sum(), selection.stream().parallel().sum());
+            assertArrayEquals(new long[0], Selection.none(records).stream().parallel().toArray());
+        }
+    }
+
+    @Test
+    void splitsByWordRanges() {
+        final Selection selection = Selection.all(orders(1000)).where(i -> i % 2 == 1);
+        final Spliterator.OfLong suffix = selection.stream().spliterator();
+        assertEquals(500, suffix.getExactSizeIfKnown());
+        assertTrue(suffix.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.ORDERED));
+        assertNull(suffix.getComparator());
+
+        assertTrue(suffix.tryAdvance((long i) -> assertEquals(1, i)));
+        final Spliterator.OfLong prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(-1, suffix.getExactSizeIfKnown());
+
+        final long[] last = { -1 };
+        prefix.forEachRemaining((long i) -> {
+            assertTrue(i > last[0] && i % 2 == 1, "Unexpected index " + i);
+            last[0] = i;
+        });
+        assertEquals(0, (last[0] + 1) % Long.SIZE);
+        suffix.forEachRemaining((long i) -> {
+            assertEquals(last[0] + 2, i);
+            last[0] = i;
+        });
+        assertEquals(999, last[0]);
+    }
+
+    @Test
+    void columnPredicatesMatchScalarPredicates() {
+        final StructColumns records = orders(5000);
+        for (final Comparison op : Comparison.values()) {
+            final Selection base = Selection.all(records).where(i -> i % 7 != 0);
+            assertArrayEquals(base.copy().where(i -> op.test(records.getInt(i, QUANTITY), 50)).toArray(),
+                    base.copy().where(QUANTITY, op, 50).toArray(), op::name);
+            assertArrayEquals(base.copy().where(i -> op.test(records.getLong(i, ID), 2500L)).toArray(),
+                    base.copy().where(ID, op, 2500).toArray(), op::name);
+            assertArrayEquals(base.copy().where(i -> op.test(records.getDouble(i, PRICE), 0.5)).toArray(),
+                    base.copy().where(PRICE, op, 0.5).toArray(), op::name);
+        }
+    }
+
+    private static StructColumns orders(final int length) {
+        final SplittableRandom random = new SplittableRandom(length);
+        final StructColumns records = new StructColumns(LAYOUT);
+        for (int i = 0; i < length; ++i) {
+            final long index = records.add();
+            records.setInt(index, QUANTITY, random.nextInt(100));
+            records.setLong(index, ID, i);
+            records.setDouble(index, PRICE, random.nextDouble());
+        }
+        return records;
+    }
+}
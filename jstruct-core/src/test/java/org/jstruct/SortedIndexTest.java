@@ -0,0 +1,185 @@
+package org.jstruct;
+
+import static org.jstruct.StructSortTest.ID;
+import static org.jstruct.StructSortTest.LAYOUT;
+import static org.jstruct.StructSortTest.field;
+import static org.jstruct.StructSortTest.rows;
+import static org.jstruct.StructSortTest.stableOrder;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the index against a stable {@link Arrays#sort(Object[], java.util.Comparator)} of the record ids, which
+ * orders equal keys by index as the index does.
+ */
+class SortedIndexTest {
+
+    private static final int ROWS = 1000;
+
+    @Test
+    void ordersRecordsLikeAStableSort() {
+        final Object[][] rows = rows(ROWS, 7);
+        final StructColumns records = records(rows, ROWS);
+        for (final FieldType type : FieldType.values()) {
+            final SortedIndex index = SortedIndex.of(records, field(type));
+            assertArrayEquals(stableOrder(rows, 0, ROWS, field(type)), order(index), type::name);
+        }
+    }
+
+    @Test
+    void refreshMergesAppendedRecordsInKeyThenIndexOrder() {
+        final Object[][] rows = rows(ROWS, 8);
+        for (final FieldType type : FieldType.values()) {
+            final StructArray records = new StructArray(LAYOUT);
+            append(records, rows, 300);
+            final SortedIndex index = SortedIndex.of(records, field(type));
+            for (final int size : new int[] { 301, 301, 600, ROWS }) {
+                append(records, rows, size);
+                assertEquals(size, index.refresh().size());
+                assertArrayEquals(stableOrder(rows, 0, size, field(type)), order(index), type::name);
+            }
+
+            // Keys changed in place are only picked up by a rebuild.
+            final int t = type.ordinal();
+            final Object first = rows[0][t];
+            rows[0][t] = rows[ROWS - 1][t];
+            rows[ROWS - 1][t] = first;
+            StructSortTest.set(records, 0, field(type), rows[0][t]);
+            StructSortTest.set(records, ROWS - 1, field(type), rows[ROWS - 1][t]);
+            assertArrayEquals(stableOrder(rows, 0, ROWS, field(type)), order(index.rebuild()), type::name);
+
+            records.clear();
+            assertThrows(IllegalStateException.class, index::refresh);
+        }
+    }
+
+    @Test
+    void integralBoundsAndRangesMatchTheKeys() {
+        final Object[][] rows = rows(ROWS, 9);
+        final StructColumns records = records(rows, ROWS);
+        for (final FieldType type : new FieldType[] { FieldType.BYTE, FieldType.CHAR, FieldType.SHORT, FieldType.INT,
+                FieldType.LONG }) {
+            final SortedIndex index = SortedIndex.of(records, field(type));
+            final int[] order = stableOrder(rows, 0, ROWS, field(type));
+            final Object[] keys = keys(rows, type);
+            final long[] values = { Long.MIN_VALUE, Integer.MIN_VALUE, Short.MIN_VALUE - 1, Byte.MIN_VALUE, -21, -1,
+                    0, 1, 5, 19, Byte.MAX_VALUE, Byte.MAX_VALUE + 1, Character.MAX_VALUE, Integer.MAX_VALUE,
+                    Long.MAX_VALUE, integral(rows[3][type.ordinal()]), integral(rows[500][type.ordinal()]) };
+            for (final long value : values) {
+                final String message = type + " " + value;
+                assertEquals(count(keys, order, k -> Long.compare(integral(k), value) < 0), index.lowerBound(value),
+                        message);
+                assertEquals(count(keys, order, k -> Long.compare(integral(k), value) <= 0), index.upperBound(value),
+                        message);
+                assertEquals(first(keys, order, k -> integral(k) == value), index.find(value), message);
+                for (final long to : values) {
+                    final int[] expected = filter(keys, order, k -> integral(k) >= value && integral(k) < to);
+                    assertArrayEquals(expected, index.range(value, to).mapToInt(i -> (int) i).toArray(), message);
+                    assertArrayEquals(IntStream.of(expected).sorted().asLongStream().toArray(),
+                            index.select(value, to).toArray(), message);
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> index.lowerBound(0.5));
+        }
+    }
+
+    @Test
+    void floatingPointBoundsAndRangesMatchTheKeys() {
+        final Object[][] rows = rows(ROWS, 10);
+        final StructColumns records = records(rows, ROWS);
+        for (final FieldType type : new FieldType[] { FieldType.FLOAT, FieldType.DOUBLE }) {
+            final SortedIndex index = SortedIndex.of(records, field(type));
+            final int[] order = stableOrder(rows, 0, ROWS, field(type));
+            final Object[] keys = keys(rows, type);
+            final double[] values = { Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -5.0, -0.1, -Double.MIN_VALUE,
+                    -0.0, 0.0, Double.MIN_VALUE, 0.1, 1.25, 1e10, Double.MAX_VALUE, Double.POSITIVE_INFINITY,
+                    Double.NaN, floating(rows[3][type.ordinal()]), floating(rows[500][type.ordinal()]) };
+            for (final double value : values) {
+                final String message = type + " " + value;
+                assertEquals(count(keys, order, k -> Double.compare(floating(k), value) < 0),
+                        index.lowerBound(value), message);
+                assertEquals(count(keys, order, k -> Double.compare(floating(k), value) <= 0),
+                        index.upperBound(value), message);
+                assertEquals(first(keys, order, k -> Double.compare(floating(k), value) == 0), index.find(value),
+                        message);
+                for (final double to : values) {
+                    final int[] expected = filter(keys, order,
+                            k -> Double.compare(floating(k), value) >= 0 && Double.compare(floating(k), to) < 0);
+                    assertArrayEquals(expected, index.range(value, to).mapToInt(i -> (int) i).toArray(), message);
+                    assertArrayEquals(IntStream.of(expected).sorted().asLongStream().toArray(),
+                            index.select(value, to).toArray(), message);
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> index.lowerBound(0L));
+        }
+    }
+
+    private static StructColumns records(final Object[][] rows, final int count) {
+        final StructColumns records = new StructColumns(LAYOUT);
+        append(records, rows, count);
+        return records;
+    }
+
+    /**
+     * Appends the rows from the collection's size up to {@code count}.
+     */
+    private static void append(final StructCollection records, final Object[][] rows, final int count) {
+        for (long id = records.size(); id < count; ++id) {
+            if (records instanceof StructArray) {
+                ((StructArray) records).add();
+            } else {
+                ((StructColumns) records).add();
+            }
+            records.setInt(id, ID, (int) id);
+            for (final FieldType type : FieldType.values()) {
+                StructSortTest.set(records, id, field(type), rows[(int) id][type.ordinal()]);
+            }
+        }
+    }
+
+    private static int[] order(final SortedIndex index) {
+        final int[] order = new int[(int) index.size()];
+        for (int k = 0; k < order.length; ++k) {
+            order[k] = (int) index.record(k);
+        }
+        return order;
+    }
+
+    private static long integral(final Object key) {
+        return key instanceof Character ? (Character) key : ((Number) key).longValue();
+    }
+
+    private static double floating(final Object key) {
+        return ((Number) key).doubleValue();
+    }
+
+    private static int count(final Object[] keys, final int[] order, final Predicate<Object> predicate) {
+        return filter(keys, order, predicate).length;
+    }
+
+    private static long first(final Object[] keys, final int[] order, final Predicate<Object> predicate) {
+        final int[] matches = filter(keys, order, predicate);
+        return matches.length > 0 ? matches[0] : -1;
+    }
+
+    /**
+     * @return ids of the given order whose key matches.
+     */
+    private static int[] filter(final Object[] keys, final int[] order, final Predicate<Object> predicate) {
+        return IntStream.of(order).filter(id -> predicate.test(keys[id])).toArray();
+    }
+
+    /**
+     * @return key of every row, by id.
+     */
+    private static Object[] keys(final Object[][] rows, final FieldType type) {
+        return Arrays.stream(rows).map(row -> row[type.ordinal()]).toArray();
+    }
+}
@@ -0,0 +1,176 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.jstruct.ColumnKernels.Comparison;
+import org.junit.jupiter.api.Test;
+
+class StringDictionaryTest {
+
+    private static final StructLayout LAYOUT = StructLayout.builder("Trade")
+            .addByte("venue")
+            .addShort("currency")
+            .addChar("desk")
+            .addInt("trader")
+            .addLong("price")
+            .build();
+
+    /**
+     * Code fields, from the narrowest.
+     */
+    private static final List<StructField> CODES = List.of(LAYOUT.field("venue"), LAYOUT.field("currency"),
+            LAYOUT.field("desk"), LAYOUT.field("trader"));
+
+    private static final StructField PRICE = LAYOUT.field("price");
+
+    @Test
+    void roundTripsStringsInEveryCodeWidth() {
+        for (final StructCollection trades : List.of(trades(100), new StructArray(LAYOUT))) {
+            final StringDictionary names = new StringDictionary();
+            add(trades, 100);
+            for (long i = 0; i < 100; ++i) {
+                for (final StructField field : CODES) {
+                    assertNull(names.get(trades, i, field));
+                    names.set(trades, i, field, name(field, i % 10));
+                }
+            }
+            for (long i = 0; i < 100; ++i) {
+                for (final StructField field : CODES) {
+                    final String name = name(field, i % 10);
+                    assertEquals(name, names.get(trades, i, field));
+                    assertEquals(names.code(name), names.getCode(trades, i, field));
+                }
+            }
+            assertEquals(CODES.size() * 10, names.size());
+        }
+    }
+
+    @Test
+    void storesNullAsCodeZero() {
+        final StructArray trades = new StructArray(LAYOUT);
+        add(trades, 1);
+        final StringDictionary names = new StringDictionary();
+        for (final StructField field : CODES) {
+            names.set(trades, 0, field, "XNAS");
+            assertEquals(1, names.getCode(trades, 0, field));
+            names.set(trades, 0, field, null);
+            assertEquals(0, names.getCode(trades, 0, field));
+            assertNull(names.get(trades, 0, field));
+        }
+        assertNull(names.decode(0));
+        assertEquals(1, names.size());
+        assertThrows(NullPointerException.class, () -> names.encode(null));
+    }
+
+    @Test
+    void codeOfUnknownStringsIsMinusOne() {
+        final StringDictionary names = new StringDictionary();
+        assertEquals(-1, names.code("XNAS"));
+        assertEquals(1, names.encode("XNAS"));
+        assertEquals(1, names.encode("XNAS"));
+        assertEquals(2, names.encode("XLON"));
+        assertEquals(1, names.code("XNAS"));
+        assertEquals(-1, names.code("xnas"));
+        assertEquals(-1, names.code(null));
+        assertEquals("XLON", names.decode(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> names.decode(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> names.decode(-1));
+
+        // No record holds -1, so filtering on an unknown string selects nothing.
+        final StructColumns trades = trades(200);
+        for (final StructField field : CODES) {
+            for (long i = 0; i < 200; ++i) {
+                names.set(trades, i, field, i % 2 == 0 ? "XNAS" : null);
+            }
+            assertEquals(0, Selection.all(trades).where(field, Comparison.EQ, names.code("XPAR")).count());
+            assertEquals(100, Selection.all(trades).where(field, Comparison.EQ, names.code("XNAS")).count());
+        }
+    }
+
+    @Test
+    void rejectsCodesThatNoLongerFitANarrowerField() {
+        final StructArray trades = new StructArray(LAYOUT);
+        add(trades, 1);
+        final StringDictionary names = new StringDictionary();
+        final int[] limits = { Byte.MAX_VALUE, Short.MAX_VALUE, Character.MAX_VALUE };
+        for (int f = 0; f < limits.length; ++f) {
+            final StructField narrow = CODES.get(f);
+            final StructField wide = CODES.get(f + 1);
+            while (names.size() < limits[f] - 1) {
+                names.encode("s" + names.size());
+            }
+            names.set(trades, 0, narrow, "last " + f);
+            assertEquals(limits[f], names.getCode(trades, 0, narrow));
+            assertEquals("last " + f, names.get(trades, 0, narrow));
+
+            // A new string would get a code above the limit: it is rejected without being interned.
+            final String next = "next " + f;
+            assertThrows(IllegalStateException.class, () -> names.set(trades, 0, narrow, next));
+            assertEquals(-1, names.code(next));
+            assertEquals(limits[f], names.size());
+            assertEquals("last " + f, names.get(trades, 0, narrow));
+
+            // Once a wider field of the shared dictionary interns it, the narrow field still cannot hold its code.
+            names.set(trades, 0, wide, next);
+            assertEquals(limits[f] + 1, names.getCode(trades, 0, wide));
+            assertThrows(IllegalStateException.class, () -> names.set(trades, 0, narrow, next));
+            assertEquals("last " + f, names.get(trades, 0, narrow));
+            names.set(trades, 0, narrow, "s1");
+            assertEquals("s1", names.get(trades, 0, narrow));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> names.set(trades, 0, PRICE, "s1"));
+        assertThrows(IllegalArgumentException.class, () -> names.get(trades, 0, PRICE));
+    }
+
+    @Test
+    void filtersCodeColumnsLikeRecordPredicates() {
+        final SplittableRandom random = new SplittableRandom(24);
+        final StructColumns trades = trades(3000);
+        final StringDictionary names = new StringDictionary();
+        for (long i = 0; i < trades.size(); ++i) {
+            for (final StructField field : CODES) {
+                names.set(trades, i, field, random.nextInt(5) == 0 ? null : name(field, random.nextInt(12)));
+            }
+        }
+        for (final StructField field : CODES) {
+            for (final Comparison op : Comparison.values()) {
+                for (final long code : new long[] { -1, 0, names.code(name(field, 3)), Long.MAX_VALUE }) {
+                    final Selection base = Selection.all(trades).where(i -> i % 5 != 1);
+                    assertArrayEquals(
+                            base.copy().where(i -> op.test(names.getCode(trades, i, field), code)).toArray(),
+                            base.copy().where(field, op, code).toArray(), () -> field.name() + " " + op + " " + code);
+                }
+            }
+        }
+    }
+
+    private static String name(final StructField field, final long n) {
+        return field.name() + n;
+    }
+
+    private static StructColumns trades(final int count) {
+        final StructColumns trades = new StructColumns(LAYOUT);
+        add(trades, count);
+        return trades;
+    }
+
+    /**
+     * Adds records up to the given size.
+     */
+    private static void add(final StructCollection trades, final int count) {
+        while (trades.size() < count) {
+            if (trades instanceof StructArray) {
+                ((StructArray) trades).add();
+            } else {
+                ((StructColumns) trades).add();
+            }
+        }
+    }
+}
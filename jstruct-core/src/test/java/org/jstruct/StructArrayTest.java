@@ -0,0 +1,123 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class StructArrayTest {
+
+    /**
+     * Record of 12 bytes, not a multiple of 8, so that swap moves a partial word after the whole ones.
+     */
+    private static final StructLayout LAYOUT = StructLayout.builder("Order")
+            .addInt("quantity")
+            .addFloat("price")
+            .addChar("side")
+            .addByte("flags")
+            .addBoolean("open")
+            .build();
+
+    private static final StructField QUANTITY = LAYOUT.field("quantity");
+
+    private static final StructField PRICE = LAYOUT.field("price");
+
+    private static final StructField SIDE = LAYOUT.field("side");
+
+    private static final StructField FLAGS = LAYOUT.field("flags");
+
+    private static final StructField OPEN = LAYOUT.field("open");
+
+    @Test
+    void growsAndKeepsRecords() {
+        assertEquals(12, LAYOUT.size());
+        final StructArray orders = new StructArray(LAYOUT, 2);
+        assertEquals(2, orders.capacity());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i, orders.add());
+            assertRecord(orders, i, 0);
+            write(orders, i, i + 1);
+        }
+        assertEquals(1000, orders.size());
+        assertTrue(orders.capacity() >= 1000);
+        for (int i = 0; i < 1000; ++i) {
+            assertRecord(orders, i, i + 1);
+        }
+
+        orders.ensureCapacity(5000);
+        assertTrue(orders.capacity() >= 5000);
+        assertRecord(orders, 999, 1000);
+    }
+
+    @Test
+    void clearsToZeroFilledRecords() {
+        final StructArray orders = new StructArray(LAYOUT);
+        for (int i = 0; i < 10; ++i) {
+            write(orders, orders.add(), i + 1);
+        }
+        final int capacity = orders.capacity();
+        orders.clear();
+        assertEquals(0, orders.size());
+        assertEquals(capacity, orders.capacity());
+        for (int i = 0; i < 10; ++i) {
+            assertRecord(orders, orders.add(), 0);
+        }
+    }
+
+    @Test
+    void copiesAndSwapsWholeRecords() {
+        final StructArray orders = new StructArray(LAYOUT);
+        for (int i = 0; i < 4; ++i) {
+            write(orders, orders.add(), i + 1);
+        }
+        orders.swap(0, 3);
+        assertRecord(orders, 0, 4);
+        assertRecord(orders, 3, 1);
+        orders.swap(1, 1);
+        assertRecord(orders, 1, 2);
+        orders.copy(2, 1);
+        assertRecord(orders, 1, 3);
+        assertRecord(orders, 2, 3);
+    }
+
+    @Test
+    void checksIndicesFieldsAndCapacity() {
+        final StructArray orders = new StructArray(LAYOUT);
+        orders.add();
+        assertThrows(IndexOutOfBoundsException.class, () -> orders.getInt(1, QUANTITY));
+        assertThrows(IndexOutOfBoundsException.class, () -> orders.setInt(-1, QUANTITY, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> orders.swap(0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> orders.copy(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> orders.getLong(0, QUANTITY));
+        final StructField other = StructLayout.builder("Other").addInt("quantity").build().field("quantity");
+        assertThrows(IllegalArgumentException.class, () -> orders.getInt(0, other));
+
+        assertThrows(IllegalArgumentException.class, () -> new StructArray(LAYOUT, -1));
+        assertThrows(OutOfMemoryError.class, () -> new StructArray(LAYOUT, Integer.MAX_VALUE));
+    }
+
+    private static void write(final StructArray orders, final long index, final int seed) {
+        orders.setInt(index, QUANTITY, -seed * 0x10001);
+        orders.setFloat(index, PRICE, seed * 0.5f);
+        orders.setChar(index, SIDE, (char) ('A' + seed % 26));
+        orders.setByte(index, FLAGS, (byte) seed);
+        orders.setBoolean(index, OPEN, seed % 2 == 1);
+    }
+
+    /**
+     * Checks the values written with the seed, or zeros for seed 0.
+     */
+    private static void assertRecord(final StructArray orders, final long index, final int seed) {
+        assertEquals(-seed * 0x10001, orders.getInt(index, QUANTITY));
+        assertEquals(seed * 0.5f, orders.getFloat(index, PRICE));
+        assertEquals(seed == 0 ? 0 : (char) ('A' + seed % 26), orders.getChar(index, SIDE));
+        assertEquals((byte) seed, orders.getByte(index, FLAGS));
+        if (seed % 2 == 1) {
+            assertTrue(orders.getBoolean(index, OPEN));
+        } else {
+            assertFalse(orders.getBoolean(index, OPEN));
+        }
+    }
+}
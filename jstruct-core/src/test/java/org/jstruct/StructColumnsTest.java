@@ -0,0 +1,42 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class StructColumnsTest {
+
+    private static final StructLayout LAYOUT = StructLayout.builder("Order")
+            .addLong("id")
+            .addDouble("price")
+            .addBoolean("buy")
+            .build();
+
+    @Test
+    void clearKeepsColumnsAndZeroesRecords() {
+        final StructField id = LAYOUT.field("id");
+        final StructField price = LAYOUT.field("price");
+        final StructField buy = LAYOUT.field("buy");
+        final StructColumns orders = new StructColumns(LAYOUT, 4);
+        for (int i = 0; i < 3; ++i) {
+            final long index = orders.add();
+            orders.setLong(index, id, i + 1);
+            orders.setDouble(index, price, 0.5 * (i + 1));
+            orders.setBoolean(index, buy, true);
+        }
+        final long[] ids = orders.longColumn(id);
+
+        orders.clear();
+        assertEquals(0, orders.size());
+        assertEquals(4, orders.capacity());
+        assertSame(ids, orders.longColumn(id));
+
+        for (int i = 0; i < 3; ++i) {
+            final long index = orders.add();
+            assertEquals(0L, orders.getLong(index, id));
+            assertEquals(0.0, orders.getDouble(index, price));
+            assertEquals(false, orders.getBoolean(index, buy));
+        }
+    }
+}
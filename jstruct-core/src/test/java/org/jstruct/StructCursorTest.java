@@ -0,0 +1,87 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that every storage mode handles cursors the same way, before and after they are positioned.
+ */
+class StructCursorTest {
+
+    private static final StructLayout LAYOUT = StructLayout.builder("Order")
+            .addLong("id")
+            .addInt("quantity")
+            .build();
+
+    private static final StructField ID = LAYOUT.field("id");
+
+    private static final StructField QUANTITY = LAYOUT.field("quantity");
+
+    @Test
+    void structArray() {
+        final StructArray records = new StructArray(LAYOUT);
+        for (int i = 0; i < 3; ++i) {
+            records.add();
+        }
+        check(records);
+    }
+
+    @Test
+    void structColumns() {
+        final StructColumns records = new StructColumns(LAYOUT);
+        for (int i = 0; i < 3; ++i) {
+            records.add();
+        }
+        check(records);
+    }
+
+    @Test
+    void offHeapStructArray() {
+        try (Arena arena = Arena.ofConfined()) {
+            check(OffHeapStructArray.allocate(LAYOUT, 3, arena));
+        }
+    }
+
+    @Test
+    void concurrentStructArray() {
+        final ConcurrentStructArray records = new ConcurrentStructArray(LAYOUT, 4);
+        records.publish(records.reserve(3), 3);
+        check(records);
+    }
+
+    private static void check(final StructCollection records) {
+        for (long i = 0; i < 3; ++i) {
+            records.setLong(i, ID, 10 + i);
+        }
+        final StructCursor cursor = records.cursor();
+        assertEquals(-1, cursor.index());
+        assertThrows(IllegalStateException.class, () -> cursor.getLong(ID));
+        assertThrows(IllegalStateException.class, () -> cursor.setInt(QUANTITY, 1));
+
+        long expected = 10;
+        while (cursor.next()) {
+            assertEquals(expected++, cursor.getLong(ID));
+        }
+        assertEquals(13, expected);
+        assertFalse(cursor.next());
+        assertEquals(2, cursor.index());
+
+        cursor.reset();
+        assertEquals(-1, cursor.index());
+        assertThrows(IllegalStateException.class, () -> cursor.getLong(ID));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> cursor.moveTo(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> cursor.moveTo(3));
+        assertEquals(-1, cursor.index());
+        cursor.moveTo(1).setInt(QUANTITY, 7);
+        assertEquals(7, records.getInt(1, QUANTITY));
+        assertTrue(cursor.next());
+        assertEquals(12, cursor.getLong(ID));
+    }
+}
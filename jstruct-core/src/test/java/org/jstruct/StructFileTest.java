@@ -0,0 +1,145 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StructFileTest {
+
+    private static final StructLayout TICK = StructLayout.builder("Tick")
+            .addArray("venue", FieldType.BYTE, 3)
+            .addBits("side", 1)
+            .addInt("size")
+            .build();
+
+    private static final StructLayout PRICE = StructLayout.builder("Price")
+            .addLong("mantissa")
+            .addBits("exponent", 5)
+            .addStruct("last", TICK)
+            .build();
+
+    private static final StructLayout ORDER = StructLayout.builder("Order")
+            .addLong("id")
+            .addArray("symbol", FieldType.CHAR, 8)
+            .addBits("urgent", 1)
+            .addStruct("price", PRICE)
+            .addBits("venue", 5)
+            .addShort("flags")
+            .build();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopensLayoutWithArraysBitFieldsAndEmbeddedStructs() throws IOException {
+        final Path path = dir.resolve("orders.jstr");
+        try (Arena arena = Arena.ofConfined()) {
+            final OffHeapStructArray orders = StructFile.create(path, ORDER, 2, arena);
+            ORDER.array("symbol").setString(orders, 1, "ABC");
+            ORDER.bitField("urgent").setBoolean(orders, 1, true);
+            ORDER.bitField("price.exponent").set(orders, 1, 17);
+            ORDER.bitField("price.last.side").set(orders, 1, 1);
+            ORDER.array("price.last.venue").setString(orders, 1, "XP");
+        }
+
+        assertEquals(describe(ORDER), describe(StructFile.readLayout(path)));
+        try (Arena arena = Arena.ofConfined()) {
+            final OffHeapStructArray orders = StructFile.open(path, FileChannel.MapMode.READ_ONLY, arena);
+            final StructLayout layout = orders.layout();
+            assertEquals(describe(ORDER), describe(layout));
+            assertEquals("ABC", layout.array("symbol").getString(orders, 1));
+            assertTrue(layout.bitField("urgent").getBoolean(orders, 1));
+            assertEquals(17, layout.bitField("price.exponent").get(orders, 1));
+            assertEquals(1, layout.bitField("price.last.side").get(orders, 1));
+            assertEquals("XP", layout.array("price.last.venue").getString(orders, 1));
+            assertEquals("Tick", layout.embedded("price").type().embedded("last").type().name());
+        }
+    }
+
+    @Test
+    void rejectsDataOffsetBeyondFile() throws IOException {
+        final Path path = write(ORDER, 8, Integer.MAX_VALUE & -64);
+        final IOException e = assertThrows(IOException.class, () -> StructFile.readLayout(path));
+        assertTrue(e.getMessage().endsWith("has corrupted header"), e.getMessage());
+
+        write(ORDER, 8, 1 << 20);
+        assertThrows(EOFException.class, () -> StructFile.readLayout(path));
+    }
+
+    @Test
+    void rejectsLengthThatOverflowsDataSize() throws IOException {
+        final Path path = write(ORDER, 12, Long.MAX_VALUE / 2);
+        try (Arena arena = Arena.ofConfined()) {
+            final IOException e = assertThrows(IOException.class,
+                    () -> StructFile.open(path, FileChannel.MapMode.READ_ONLY, arena));
+            assertTrue(e.getMessage().endsWith("has corrupted header"), e.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsFieldsThatDoNotMatchTheirArray() throws IOException {
+        final Path path = dir.resolve("orders.jstr");
+        try (Arena arena = Arena.ofConfined()) {
+            StructFile.create(path, ORDER, 1, arena);
+        }
+        // Renames symbol[1] to symbol[9].
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate((int) channel.size());
+            channel.read(header, 0);
+            final byte[] bytes = header.array();
+            final int at = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("symbol[1]");
+            channel.write(ByteBuffer.wrap(new byte[] { '9' }), at + 7);
+        }
+        final IOException e = assertThrows(IOException.class, () -> StructFile.readLayout(path));
+        assertTrue(e.getMessage().endsWith("has corrupted header"), e.getMessage());
+    }
+
+    /**
+     * Creates a file of one record and overwrites the header value at the given position.
+     */
+    private Path write(final StructLayout layout, final int position, final long value) throws IOException {
+        final Path path = dir.resolve("corrupted.jstr");
+        try (Arena arena = Arena.ofConfined()) {
+            StructFile.create(path, layout, 1, arena);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(position == 8 ? Integer.BYTES : Long.BYTES)
+                .order(ByteOrder.nativeOrder());
+        if (position == 8) {
+            buffer.putInt(0, (int) value);
+        } else {
+            buffer.putLong(0, value);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(buffer, position);
+        }
+        return path;
+    }
+
+    private static String describe(final StructLayout layout) {
+        final StringBuilder sb = new StringBuilder(layout.toString());
+        for (final InlineArray array : layout.arrays()) {
+            sb.append(' ').append(array).append('/').append(array.element(0).index());
+        }
+        for (final BitField bitField : layout.bitFields()) {
+            sb.append(' ').append(bitField).append('/').append(bitField.word().name());
+        }
+        for (final EmbeddedStruct struct : layout.embeddedStructs()) {
+            sb.append(' ').append(struct.name()).append('@').append(struct.offset()).append('=')
+                    .append(describe(struct.type()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,164 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the map against a {@link HashMap} holding the same entries.
+ */
+class StructHashMapTest {
+
+    private static final StructLayout STATE = StructLayout.builder("State")
+            .addLong("filled")
+            .addInt("version")
+            .build();
+
+    private static final StructField FILLED = STATE.field("filled");
+
+    private static final StructField VERSION = STATE.field("version");
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        final SplittableRandom random = new SplittableRandom(9);
+        final StructHashMap map = new StructHashMap(STATE, 4);
+        final Map<Long, Long> expected = new HashMap<>();
+        final long initialSlots = map.slotCount();
+        for (int step = 0; step < 50_000; ++step) {
+            // Few distinct keys, so that entries are removed and inserted again, key 0 included.
+            final long key = random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(-300, 300);
+            final int op = random.nextInt(10);
+            if (op < 5) {
+                final long slot = map.put(key);
+                assertEquals(key, map.key(slot));
+                assertEquals(expected.getOrDefault(key, 0L), map.getLong(slot, FILLED), "Value of " + key);
+                final long value = random.nextLong();
+                map.setLong(slot, FILLED, value);
+                map.setInt(slot, VERSION, (int) value);
+                expected.put(key, value);
+            } else if (op < 8) {
+                assertEquals(expected.remove(key) != null, map.remove(key), "Removal of " + key);
+            } else {
+                final long slot = map.indexOf(key);
+                assertEquals(expected.containsKey(key), slot >= 0, "Lookup of " + key);
+                if (slot >= 0) {
+                    assertEquals((long) expected.get(key), map.getLong(slot, FILLED));
+                }
+            }
+            assertEquals(expected.size(), map.size());
+            if (step % 1000 == 0) {
+                assertSameEntries(expected, map);
+            }
+        }
+        assertSameEntries(expected, map);
+        assertTrue(map.slotCount() > initialSlots);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.containsKey(expected.keySet().iterator().next()));
+    }
+
+    @Test
+    void removalShiftsBackRunsAcrossTheEndOfTheTable() {
+        final long slots = new StructHashMap(STATE, 16).slotCount() - 1;
+        // One run from the second to last slot that wraps around, mixing entries that may move back over the end of
+        // the table with entries already in their ideal slot just after it.
+        final long[] ideals = { slots - 2, slots - 2, 0, slots - 2, slots - 1, 0, slots - 2, 1 };
+        final List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < ideals.length; ++key) {
+            if ((StructHashMap.hash(key) & (slots - 1)) == ideals[keys.size()]) {
+                keys.add(key);
+            }
+        }
+        for (final long removed : keys) {
+            final StructHashMap map = new StructHashMap(STATE, 16);
+            for (final long key : keys) {
+                map.setLong(map.put(key), FILLED, -key);
+            }
+            assertEquals(slots, map.slotCount() - 1);
+            assertTrue(map.remove(removed));
+            assertFalse(map.remove(removed));
+            assertEquals(keys.size() - 1, map.size());
+            for (final long key : keys) {
+                final long slot = map.indexOf(key);
+                if (key == removed) {
+                    assertEquals(-1, slot);
+                } else {
+                    assertTrue(slot >= 0, "Key " + key + " is lost after removing " + removed);
+                    assertEquals(-key, map.getLong(slot, FILLED));
+                }
+            }
+        }
+    }
+
+    @Test
+    void keepsKeyZeroAndValuesAcrossRehashes() {
+        final StructHashMap map = new StructHashMap(STATE, 2, 0.5f);
+        final long slot = map.put(0);
+        assertEquals(map.slotCount() - 1, slot);
+        assertEquals(0, map.key(slot));
+        map.setLong(slot, FILLED, 42);
+        assertEquals(slot, map.put(0));
+        assertEquals(1, map.size());
+
+        final long slots = map.slotCount();
+        for (long key = 1; key <= 1000; ++key) {
+            map.setLong(map.put(key), FILLED, key * 3);
+        }
+        assertTrue(map.slotCount() > slots);
+        assertEquals(1001, map.size());
+        assertEquals(42, map.getLong(map.indexOf(0), FILLED));
+        for (long key = 1; key <= 1000; ++key) {
+            assertEquals(key * 3, map.getLong(map.indexOf(key), FILLED));
+        }
+
+        assertTrue(map.remove(0));
+        assertFalse(map.isOccupied(map.slotCount() - 1));
+        assertEquals(-1, map.indexOf(0));
+        assertEquals(0, map.getLong(map.put(0), FILLED));
+    }
+
+    @Test
+    void validatesExpectedSizeAndLoadFactor() {
+        assertThrows(IllegalArgumentException.class, () -> new StructHashMap(STATE, -1));
+        assertThrows(IllegalArgumentException.class, () -> new StructHashMap(STATE, 16, 0f));
+        assertThrows(IllegalArgumentException.class, () -> new StructHashMap(STATE, 16, 1f));
+        assertThrows(IllegalArgumentException.class, () -> new StructHashMap(STATE, 16, Float.NaN));
+        assertThrows(OutOfMemoryError.class, () -> new StructHashMap(STATE, Integer.MAX_VALUE, 0.1f));
+
+        final StructHashMap empty = new StructHashMap(STATE, 0);
+        assertEquals(-1, empty.indexOf(7));
+        empty.put(7);
+        assertTrue(empty.containsKey(7));
+    }
+
+    /**
+     * Checks lookups of every expected key and that occupied slots hold exactly the expected keys.
+     */
+    private static void assertSameEntries(final Map<Long, Long> expected, final StructHashMap map) {
+        for (final Map.Entry<Long, Long> entry : expected.entrySet()) {
+            final long slot = map.indexOf(entry.getKey());
+            assertTrue(slot >= 0, "Key " + entry.getKey() + " is lost");
+            assertEquals((long) entry.getValue(), map.getLong(slot, FILLED));
+            assertEquals((int) (long) entry.getValue(), map.getInt(slot, VERSION));
+        }
+        long occupied = 0;
+        for (long slot = 0; slot < map.slotCount(); ++slot) {
+            if (map.isOccupied(slot)) {
+                ++occupied;
+                assertTrue(expected.containsKey(map.key(slot)));
+            }
+        }
+        assertEquals(expected.size(), occupied);
+    }
+}
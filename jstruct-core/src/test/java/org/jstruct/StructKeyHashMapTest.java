@@ -0,0 +1,243 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the map against a {@link HashMap} of record keys holding the same entries. Key layouts are not a multiple of
+ * 8 bytes, so keys are hashed and compared in units of 4 or 2 bytes, and the last unit of the wider key holds a
+ * {@code short} and padding.
+ */
+class StructKeyHashMapTest {
+
+    /**
+     * 12 bytes read as 4-byte units.
+     */
+    private static final StructLayout WIDE_KEY = StructLayout.builder("WideKey")
+            .addInt("venue")
+            .addInt("instrument")
+            .addShort("side")
+            .build();
+
+    /**
+     * 6 bytes read as 2-byte units, with padding after each byte field.
+     */
+    private static final StructLayout NARROW_KEY = StructLayout.builder("NarrowKey")
+            .addByte("venue")
+            .addShort("instrument")
+            .addByte("side")
+            .build();
+
+    private static final StructLayout BOOK = StructLayout.builder("Book")
+            .addInt("total")
+            .addShort("orders")
+            .build();
+
+    private static final StructField TOTAL = BOOK.field("total");
+
+    private static final StructField ORDERS = BOOK.field("orders");
+
+    private record Key(int venue, int instrument, int side) {
+    }
+
+    @Test
+    void matchesHashMapOfRecordKeys() {
+        assertEquals(12, WIDE_KEY.size());
+        assertEquals(4, WIDE_KEY.alignment());
+        assertEquals(6, NARROW_KEY.size());
+        assertEquals(2, NARROW_KEY.alignment());
+        check(WIDE_KEY);
+        check(NARROW_KEY);
+    }
+
+    @Test
+    void comparesEveryUnitOfTheKey() {
+        for (final StructLayout keyLayout : new StructLayout[] { WIDE_KEY, NARROW_KEY }) {
+            final StructArray probe = probe(keyLayout);
+            final StructKeyHashMap books = new StructKeyHashMap(keyLayout, BOOK);
+            write(probe, 0, new Key(1, 2, 3));
+            books.setInt(books.put(probe, 0), TOTAL, 7);
+            for (final Key other : new Key[] { new Key(0, 2, 3), new Key(1, 0, 3), new Key(1, 2, 0) }) {
+                write(probe, 0, other);
+                assertFalse(books.containsKey(probe, 0), other::toString);
+            }
+            write(probe, 0, new Key(1, 2, 3));
+            assertEquals(7, books.getInt(books.indexOf(probe, 0), TOTAL));
+
+            final StructArray foreign = probe(BOOK);
+            assertThrows(IllegalArgumentException.class, () -> books.indexOf(foreign, 0));
+            assertThrows(IllegalArgumentException.class, () -> books.copyKey(0, foreign, 0));
+        }
+    }
+
+    @Test
+    void separatesKeysWithTheSameHash() {
+        for (final StructLayout keyLayout : new StructLayout[] { WIDE_KEY, NARROW_KEY }) {
+            final StructKeyHashMap books = new StructKeyHashMap(keyLayout, BOOK);
+            final StructArray keys = collision(books);
+            assertEquals(books.hash(keys, keys.recordOffset(0)), books.hash(keys, keys.recordOffset(1)));
+
+            books.setInt(books.put(keys, 0), TOTAL, 1);
+            assertFalse(books.containsKey(keys, 1));
+            books.setInt(books.put(keys, 1), TOTAL, 2);
+            assertEquals(2, books.size());
+            assertEquals(1, books.getInt(books.indexOf(keys, 0), TOTAL));
+            assertEquals(2, books.getInt(books.indexOf(keys, 1), TOTAL));
+
+            assertTrue(books.remove(keys, 0));
+            assertFalse(books.containsKey(keys, 0));
+            assertEquals(2, books.getInt(books.indexOf(keys, 1), TOTAL));
+        }
+    }
+
+    /**
+     * Searches keys until two of them have the same 32-bit hash, which takes about 2^16 keys.
+     *
+     * @return two keys with the same hash.
+     */
+    private static StructArray collision(final StructKeyHashMap books) {
+        final StructArray keys = new StructArray(books.keyLayout(), 2);
+        keys.add();
+        keys.add();
+        final Map<Integer, Key> seen = new HashMap<>();
+        for (int n = 0;; ++n) {
+            final Key key = new Key((byte) (n >>> 24), (short) n, (byte) (n >>> 16));
+            write(keys, 1, key);
+            final Key previous = seen.put(books.hash(keys, keys.recordOffset(1)), key);
+            if (previous != null) {
+                write(keys, 0, previous);
+                return keys;
+            }
+        }
+    }
+
+    /**
+     * Interleaves puts, removals and lookups of keys read from an off-heap array, then checks every slot by copying
+     * its key back into a probe record.
+     */
+    private static void check(final StructLayout keyLayout) {
+        final SplittableRandom random = new SplittableRandom(keyLayout.size());
+        try (Arena arena = Arena.ofConfined()) {
+            final Key[] domain = domain();
+            final OffHeapStructArray keys = OffHeapStructArray.allocate(keyLayout, domain.length, arena);
+            for (int i = 0; i < domain.length; ++i) {
+                write(keys, i, domain[i]);
+            }
+            final StructKeyHashMap books = new StructKeyHashMap(keyLayout, BOOK, 4);
+            final Map<Key, Integer> expected = new HashMap<>();
+            final long initialSlots = books.slotCount();
+            for (int step = 0; step < 30_000; ++step) {
+                final int index = random.nextInt(domain.length);
+                final Key key = domain[index];
+                final int op = random.nextInt(10);
+                if (op < 5) {
+                    final long slot = books.put(keys, index);
+                    assertEquals(expected.getOrDefault(key, 0), books.getInt(slot, TOTAL), key::toString);
+                    final int total = random.nextInt();
+                    books.setInt(slot, TOTAL, total);
+                    books.setShort(slot, ORDERS, (short) total);
+                    expected.put(key, total);
+                } else if (op < 8) {
+                    assertEquals(expected.remove(key) != null, books.remove(keys, index), key::toString);
+                } else {
+                    final long slot = books.indexOf(keys, index);
+                    assertEquals(expected.containsKey(key), slot >= 0, key::toString);
+                    if (slot >= 0) {
+                        assertEquals((int) expected.get(key), books.getInt(slot, TOTAL));
+                    }
+                }
+                assertEquals(expected.size(), books.size());
+                if (step % 1000 == 0) {
+                    assertSameEntries(expected, books);
+                }
+            }
+            assertSameEntries(expected, books);
+            assertTrue(books.slotCount() > initialSlots);
+        }
+    }
+
+    /**
+     * @return every key of a small range, with all fields varying independently.
+     */
+    private static Key[] domain() {
+        final Key[] keys = new Key[5 * 41 * 3];
+        int i = 0;
+        for (int venue = -2; venue <= 2; ++venue) {
+            for (int instrument = -20; instrument <= 20; ++instrument) {
+                for (int side = 0; side < 3; ++side) {
+                    keys[i++] = new Key(venue, instrument, side);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static void assertSameEntries(final Map<Key, Integer> expected, final StructKeyHashMap books) {
+        final StructArray probe = probe(books.keyLayout());
+        long occupied = 0;
+        for (long slot = 0; slot < books.slotCount(); ++slot) {
+            if (books.isOccupied(slot)) {
+                ++occupied;
+                books.copyKey(slot, probe, 0);
+                final Key key = read(probe, 0);
+                assertTrue(expected.containsKey(key), key::toString);
+                assertEquals((int) expected.get(key), books.getInt(slot, TOTAL));
+                assertEquals((short) (int) expected.get(key), books.getShort(slot, ORDERS));
+                assertEquals(slot, books.indexOf(probe, 0));
+            }
+        }
+        assertEquals(expected.size(), occupied);
+    }
+
+    private static StructArray probe(final StructLayout layout) {
+        final StructArray probe = new StructArray(layout, 1);
+        probe.add();
+        return probe;
+    }
+
+    private static void write(final StructCollection keys, final long index, final Key key) {
+        set(keys, index, keys.layout().field("venue"), key.venue());
+        set(keys, index, keys.layout().field("instrument"), key.instrument());
+        set(keys, index, keys.layout().field("side"), key.side());
+    }
+
+    private static Key read(final StructCollection keys, final long index) {
+        return new Key(get(keys, index, keys.layout().field("venue")),
+                get(keys, index, keys.layout().field("instrument")), get(keys, index, keys.layout().field("side")));
+    }
+
+    private static void set(final StructCollection keys, final long index, final StructField field,
+            final int value) {
+        switch (field.type()) {
+            case BYTE:
+                keys.setByte(index, field, (byte) value);
+                break;
+            case SHORT:
+                keys.setShort(index, field, (short) value);
+                break;
+            default:
+                keys.setInt(index, field, value);
+                break;
+        }
+    }
+
+    private static int get(final StructCollection keys, final long index, final StructField field) {
+        switch (field.type()) {
+            case BYTE:
+                return keys.getByte(index, field);
+            case SHORT:
+                return keys.getShort(index, field);
+            default:
+                return keys.getInt(index, field);
+        }
+    }
+}
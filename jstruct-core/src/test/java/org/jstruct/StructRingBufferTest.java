@@ -0,0 +1,154 @@
+package org.jstruct;
+
+import static org.jstruct.ConcurrentStress.check;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class StructRingBufferTest {
+
+    private static final StructLayout MESSAGE = StructLayout.builder("Message")
+            .addLong("sequence")
+            .addInt("producer")
+            .addLong("check")
+            .build();
+
+    private static final StructField SEQUENCE = MESSAGE.field("sequence");
+
+    private static final StructField PRODUCER = MESSAGE.field("producer");
+
+    private static final StructField CHECK = MESSAGE.field("check");
+
+    private static final int MESSAGES = 200_000;
+
+    @Test
+    void mpscRejectsPublishOutsideClaimedSequences() {
+        final MpscStructRingBuffer ring = new MpscStructRingBuffer(MESSAGE, 4);
+        assertThrows(IllegalStateException.class, () -> ring.publish(0));
+        final long first = ring.tryClaim();
+        final long second = ring.tryClaim();
+        assertThrows(IllegalStateException.class, () -> ring.publish(second + 1));
+        assertThrows(IllegalStateException.class, () -> ring.publish(-1));
+
+        ring.setLong(second, SEQUENCE, second);
+        ring.publish(second);
+        assertEquals(-1, ring.tryPeek());
+        ring.setLong(first, SEQUENCE, first);
+        ring.publish(first);
+        assertEquals(first, ring.tryPeek());
+        ring.release(first);
+        assertThrows(IllegalStateException.class, () -> ring.publish(first));
+        assertEquals(second, ring.tryPeek());
+        assertEquals(second, ring.getLong(second, SEQUENCE));
+        ring.release(second);
+        assertEquals(-1, ring.tryPeek());
+    }
+
+    @Test
+    void mpscDeliversMessagesPublishedInReverseOverManyLaps() {
+        final MpscStructRingBuffer ring = new MpscStructRingBuffer(MESSAGE, 32);
+        for (int lap = 0; lap < 5; ++lap) {
+            final long first = ring.tryClaim();
+            for (int i = 1; i < 32; ++i) {
+                assertEquals(first + i, ring.tryClaim());
+            }
+            assertEquals(-1, ring.tryClaim());
+            final long last = first + 31;
+            assertThrows(IllegalStateException.class, () -> ring.publish(last + 32));
+            assertThrows(IllegalStateException.class, () -> ring.publish(first - 32));
+            for (long sequence = last; sequence >= first; --sequence) {
+                ring.setLong(sequence, SEQUENCE, sequence);
+                ring.publish(sequence);
+                assertEquals(sequence == first ? first : -1, ring.tryPeek());
+            }
+            for (long sequence = first; sequence <= last; ++sequence) {
+                assertEquals(sequence, ring.tryPeek());
+                assertEquals(sequence, ring.getLong(sequence, SEQUENCE));
+                ring.release(sequence);
+            }
+            assertEquals(-1, ring.tryPeek());
+        }
+    }
+
+    @Test
+    void spscRejectsPublishOfUnclaimedSequence() {
+        final SpscStructRingBuffer ring = new SpscStructRingBuffer(MESSAGE, 4);
+        final long sequence = ring.tryClaim();
+        assertThrows(IllegalStateException.class, () -> ring.publish(sequence + 1));
+        ring.publish(sequence);
+        assertThrows(IllegalStateException.class, () -> ring.publish(sequence));
+        assertThrows(IllegalStateException.class, () -> ring.release(sequence + 1));
+        assertEquals(sequence, ring.tryPeek());
+        ring.release(sequence);
+    }
+
+    @Test
+    @Timeout(60)
+    void mpscKeepsOrderOfEveryProducer() throws Exception {
+        stress(new MpscStructRingBuffer(MESSAGE, 64), 4);
+    }
+
+    @Test
+    @Timeout(60)
+    void spscKeepsOrder() throws Exception {
+        stress(new SpscStructRingBuffer(MESSAGE, 64), 1);
+    }
+
+    /**
+     * Sends messages from every producer through a small ring, so that producers wrap around it many times, and checks
+     * on the consumer side that no message is torn, lost or reordered within its producer. Waiting threads yield
+     * rather than spin, so that the test also progresses on a single core.
+     */
+    private static void stress(final StructRingBuffer ring, final int producers) throws Exception {
+        try (ConcurrentStress stress = new ConcurrentStress(producers)) {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; ++p) {
+                final int producer = p;
+                futures.add(stress.submit(() -> produce(ring, producer)));
+            }
+            stress.start();
+
+            final long[] last = new long[producers];
+            for (long received = 0; received < (long) producers * MESSAGES; ++received) {
+                long sequence;
+                while ((sequence = ring.tryPeek()) < 0) {
+                    Thread.yield();
+                }
+                final int producer = ring.getInt(sequence, PRODUCER);
+                final long message = ring.getLong(sequence, SEQUENCE);
+                assertEquals(check(producer, message), ring.getLong(sequence, CHECK), "Torn message " + sequence);
+                assertEquals(last[producer] + 1, message, "Message of producer " + producer + " out of order");
+                last[producer] = message;
+                ring.release(sequence);
+            }
+            for (final Future<Void> future : futures) {
+                ConcurrentStress.result(future);
+            }
+            assertEquals(-1, ring.tryPeek());
+            assertEquals(0, ring.size());
+        }
+    }
+
+    private static Void produce(final StructRingBuffer ring, final int producer) throws InterruptedException {
+        for (long message = 1; message <= MESSAGES; ++message) {
+            long sequence;
+            while ((sequence = ring.tryClaim()) < 0) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                Thread.yield();
+            }
+            ring.setLong(sequence, CHECK, check(producer, message));
+            ring.setInt(sequence, PRODUCER, producer);
+            ring.setLong(sequence, SEQUENCE, message);
+            ring.publish(sequence);
+        }
+        return null;
+    }
+}
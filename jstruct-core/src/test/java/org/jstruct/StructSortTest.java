@@ -0,0 +1,510 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.foreign.Arena;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the sorts against {@link Arrays#sort(Object[], java.util.Comparator)} of the same values, compared as by
+ * their boxed types, on every storage mode.
+ */
+class StructSortTest {
+
+    static final StructLayout LAYOUT;
+
+    static {
+        final StructLayout.Builder builder = StructLayout.builder("Row").addInt("id");
+        for (final FieldType type : FieldType.values()) {
+            builder.add(type.name().toLowerCase(), type);
+        }
+        LAYOUT = builder.build();
+    }
+
+    static final StructField ID = LAYOUT.field("id");
+
+    /**
+     * Fields of fewer than 8 bytes only, making records of 20 bytes: from the second one on, records straddle 8-byte
+     * words.
+     */
+    private static final StructLayout NARROW;
+
+    static {
+        final StructLayout.Builder builder = StructLayout.builder("NarrowRow").addInt("id");
+        for (final FieldType type : FieldType.values()) {
+            if (type.size() < Long.BYTES) {
+                builder.add(type.name().toLowerCase(), type);
+            }
+        }
+        NARROW = builder.build();
+    }
+
+    private static final StructField NARROW_ID = NARROW.field("id");
+
+    /**
+     * Fields of {@link #NARROW} other than the id.
+     */
+    private static final StructField[] NARROW_KEYS = NARROW.fields().stream()
+            .filter(field -> field != NARROW_ID)
+            .toArray(StructField[]::new);
+
+    private static final int ROWS = 1000;
+
+    @Test
+    void radixSortOrdersEveryTypeLikeItsBoxedType() {
+        for (final FieldType type : FieldType.values()) {
+            final StructField key = field(type);
+            final Object[][] rows = rows(ROWS, type.ordinal());
+            try (Arena arena = Arena.ofConfined()) {
+                for (final StructCollection records : collections(rows, arena)) {
+                    StructSort.radixSort(records, key);
+                    assertRows(records, rows);
+                    assertEquals(sortedKeys(rows, 0, ROWS, key), keys(records, 0, ROWS, key),
+                            () -> type + " keys of " + records.getClass().getSimpleName());
+                }
+            }
+        }
+    }
+
+    @Test
+    void radixSortLeavesRecordsOutsideTheRange() {
+        final Object[][] rows = rows(ROWS, 1);
+        for (final FieldType type : FieldType.values()) {
+            final StructField key = field(type);
+            try (Arena arena = Arena.ofConfined()) {
+                for (final StructCollection records : collections(rows, arena)) {
+                    StructSort.radixSort(records, 100, 700, key);
+                    assertRows(records, rows);
+                    for (int p = 0; p < ROWS; p = p == 99 ? 700 : p + 1) {
+                        assertEquals(p, records.getInt(p, ID), type::name);
+                    }
+                    assertEquals(sortedKeys(rows, 100, 700, key), keys(records, 100, 700, key));
+                }
+            }
+        }
+    }
+
+    @Test
+    void radixSortOrdersCompositeKeys() {
+        final StructField[] keys = { field(FieldType.BOOLEAN), field(FieldType.BYTE), field(FieldType.DOUBLE) };
+        final Object[][] rows = rows(ROWS, 2);
+        try (Arena arena = Arena.ofConfined()) {
+            for (final StructCollection records : collections(rows, arena)) {
+                StructSort.radixSort(records, keys);
+                assertRows(records, rows);
+                assertEquals(sortedKeys(rows, 0, ROWS, keys), keys(records, 0, ROWS, keys));
+            }
+        }
+    }
+
+    @Test
+    void radixSortMovesRecordsThatAreNotWholeWords() {
+        assertEquals(20, NARROW.size());
+        final Object[][] rows = rows(ROWS, 11);
+        for (final StructField key : NARROW_KEYS) {
+            try (Arena arena = Arena.ofConfined()) {
+                for (final StructCollection records : collections(NARROW, rows, arena)) {
+                    StructSort.radixSort(records, key);
+                    assertRows(records, rows);
+                    assertEquals(sortedKeys(rows, 0, ROWS, key), keys(records, 0, ROWS, key),
+                            () -> key.name() + " keys of " + records.getClass().getSimpleName());
+                }
+                for (final StructCollection records : collections(NARROW, rows, arena)) {
+                    StructSort.radixSort(records, 99, 701, key);
+                    assertRows(records, rows);
+                    for (int p = 0; p < ROWS; p = p == 98 ? 701 : p + 1) {
+                        assertEquals(p, records.getInt(p, NARROW_ID), key::name);
+                    }
+                    assertEquals(sortedKeys(rows, 99, 701, key), keys(records, 99, 701, key));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsMissingAndForeignKeys() {
+        final StructArray records = new StructArray(LAYOUT);
+        final StructField other = StructLayout.builder("Other").addInt("id").build().field("id");
+        assertThrows(IllegalArgumentException.class, () -> StructSort.radixSort(records));
+        assertThrows(IllegalArgumentException.class, () -> StructSort.radixSort(records, other));
+        assertThrows(IndexOutOfBoundsException.class, () -> StructSort.radixSort(records, 0, 1, ID));
+    }
+
+    @Test
+    void argsortIsAStableSortOfTheIndices() {
+        final Object[][] rows = rows(ROWS, 3);
+        try (Arena arena = Arena.ofConfined()) {
+            for (final StructCollection records : collections(rows, arena)) {
+                for (final FieldType type : FieldType.values()) {
+                    final StructField key = field(type);
+                    assertArrayEquals(stableOrder(rows, 0, ROWS, key), StructSort.argsort(records, key), type::name);
+                    assertArrayEquals(stableOrder(rows, 250, 750, key), StructSort.argsort(records, 250, 750, key),
+                            type::name);
+                }
+                final StructField[] keys = { field(FieldType.SHORT), field(FieldType.FLOAT) };
+                assertArrayEquals(stableOrder(rows, 0, ROWS, keys), StructSort.argsort(records, keys));
+                assertArrayEquals(new int[0], StructSort.argsort(records, 10, 10, keys));
+                assertRows(records, rows);
+                for (int p = 0; p < ROWS; ++p) {
+                    assertEquals(p, records.getInt(p, ID));
+                }
+            }
+        }
+    }
+
+    @Test
+    void permuteMovesRecordsToTheirPositions() {
+        final Object[][] rows = rows(ROWS, 4);
+        final SplittableRandom random = new SplittableRandom(4);
+        final int[] shuffled = new int[ROWS];
+        for (int k = 0; k < ROWS; ++k) {
+            final int j = random.nextInt(k + 1);
+            shuffled[k] = shuffled[j];
+            shuffled[j] = k;
+        }
+        final int[] identity = new int[ROWS];
+        Arrays.setAll(identity, k -> k);
+        try (Arena arena = Arena.ofConfined()) {
+            // Off-heap and concurrent arrays use the default permute, the others their own.
+            for (final StructCollection records : collections(rows, arena)) {
+                final int[] order = StructSort.argsort(records, field(FieldType.DOUBLE), field(FieldType.CHAR));
+                for (final int[] permutation : new int[][] { order, shuffled, identity }) {
+                    final int[] before = new int[ROWS];
+                    Arrays.setAll(before, p -> records.getInt(p, ID));
+                    records.permute(permutation);
+                    assertRows(records, rows);
+                    for (int k = 0; k < ROWS; ++k) {
+                        assertEquals(before[permutation[k]], records.getInt(k, ID),
+                                records.getClass().getSimpleName());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void argsortAndPermuteRecordsThatAreNotWholeWords() {
+        final Object[][] rows = rows(ROWS, 12);
+        final StructField[] keys = { NARROW.field("char"), NARROW.field("boolean"), NARROW.field("float") };
+        try (Arena arena = Arena.ofConfined()) {
+            for (final StructCollection records : collections(NARROW, rows, arena)) {
+                for (final StructField key : NARROW_KEYS) {
+                    assertArrayEquals(stableOrder(rows, 0, ROWS, key), StructSort.argsort(records, key), key::name);
+                    assertArrayEquals(stableOrder(rows, 333, 667, key), StructSort.argsort(records, 333, 667, key),
+                            key::name);
+                }
+                final int[] order = StructSort.argsort(records, keys);
+                assertArrayEquals(stableOrder(rows, 0, ROWS, keys), order);
+                records.permute(order);
+                assertRows(records, rows);
+                for (int p = 0; p < ROWS; ++p) {
+                    assertEquals(order[p], records.getInt(p, NARROW_ID), records.getClass().getSimpleName());
+                }
+                // Sorting by id inverts the permutation.
+                records.permute(StructSort.argsort(records, NARROW_ID));
+                for (int p = 0; p < ROWS; ++p) {
+                    assertEquals(p, records.getInt(p, NARROW_ID));
+                }
+                assertRows(records, rows);
+            }
+        }
+    }
+
+    @Test
+    void permuteRejectsOtherArrays() {
+        final Object[][] rows = rows(3, 5);
+        try (Arena arena = Arena.ofConfined()) {
+            for (final StructCollection records : collections(rows, arena)) {
+                assertThrows(IllegalArgumentException.class, () -> records.permute(new int[] { 0, 1 }));
+                assertThrows(IllegalArgumentException.class, () -> records.permute(new int[] { 0, 1, 1 }));
+                assertThrows(IllegalArgumentException.class, () -> records.permute(new int[] { 0, 1, 3 }));
+                assertThrows(IllegalArgumentException.class, () -> records.permute(new int[] { 0, -1, 2 }));
+                for (int p = 0; p < 3; ++p) {
+                    assertEquals(p, records.getInt(p, ID));
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelSortMatchesArraysSort() {
+        // The larger size is split into several leaves and merges; the smaller one is sorted by the calling thread.
+        for (final int count : new int[] { ROWS, 40_000 }) {
+            final Object[][] rows = rows(count, 6);
+            for (final FieldType type : FieldType.values()) {
+                sortInParallel(rows, field(type));
+            }
+            sortInParallel(rows, field(FieldType.BYTE), field(FieldType.FLOAT), field(FieldType.INT));
+        }
+    }
+
+    @Test
+    void parallelSortMovesRecordsThatAreNotWholeWords() {
+        for (final int count : new int[] { ROWS, 40_000 }) {
+            final Object[][] rows = rows(count, 13);
+            for (final StructField key : NARROW_KEYS) {
+                sortInParallel(rows, key);
+            }
+            sortInParallel(rows, NARROW.field("short"), NARROW.field("byte"));
+        }
+    }
+
+    /**
+     * Sorts the rows in a {@link StructArray} and in an {@link OffHeapStructArray} of the keys' layout.
+     */
+    private static void sortInParallel(final Object[][] rows, final StructField... keys) {
+        final StructLayout layout = keys[0].layout();
+        final StructArray array = new StructArray(layout, rows.length);
+        for (int id = 0; id < rows.length; ++id) {
+            array.add();
+        }
+        fill(array, rows);
+        StructSort.parallelSort(array, keys);
+        assertRows(array, rows);
+        assertEquals(sortedKeys(rows, 0, rows.length, keys), keys(array, 0, rows.length, keys));
+
+        try (Arena arena = Arena.ofShared()) {
+            final OffHeapStructArray offHeap = OffHeapStructArray.allocate(layout, rows.length, arena);
+            fill(offHeap, rows);
+            StructSort.parallelSort(offHeap, keys);
+            assertRows(offHeap, rows);
+            assertEquals(sortedKeys(rows, 0, rows.length, keys), keys(offHeap, 0, rows.length, keys));
+        }
+    }
+
+    static StructField field(final FieldType type) {
+        return LAYOUT.field(type.name().toLowerCase());
+    }
+
+    /**
+     * @return values of every field by record id, a field of type {@code t} at index {@code t.ordinal()}; values are
+     *         drawn from few distinct ones, so that keys repeat, and from the edge values of each type.
+     */
+    static Object[][] rows(final int count, final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final FieldType[] types = FieldType.values();
+        final Object[][] rows = new Object[count][types.length];
+        for (int id = 0; id < count; ++id) {
+            for (final FieldType type : types) {
+                rows[id][type.ordinal()] = value(type, random);
+            }
+        }
+        return rows;
+    }
+
+    private static Object value(final FieldType type, final SplittableRandom random) {
+        final int pick = random.nextInt(12);
+        switch (type) {
+            case BOOLEAN:
+                return random.nextBoolean();
+            case BYTE:
+                return pick == 0 ? Byte.MIN_VALUE : pick == 1 ? Byte.MAX_VALUE : (byte) random.nextInt(-20, 20);
+            case CHAR:
+                return pick == 0 ? Character.MAX_VALUE : pick == 1 ? (char) 0x8000 : (char) random.nextInt(20);
+            case SHORT:
+                return pick == 0 ? Short.MIN_VALUE : pick == 1 ? Short.MAX_VALUE
+                        : pick == 2 ? (short) random.nextInt() : (short) random.nextInt(-20, 20);
+            case INT:
+                return pick == 0 ? Integer.MIN_VALUE : pick == 1 ? Integer.MAX_VALUE
+                        : pick == 2 ? random.nextInt() : random.nextInt(-20, 20);
+            case FLOAT: {
+                final float[] edges = { Float.NaN, -0.0f, 0.0f, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY,
+                        Float.MIN_VALUE, -Float.MAX_VALUE };
+                return pick < edges.length ? edges[pick] : random.nextInt(-20, 20) / 4.0f;
+            }
+            case LONG:
+                return pick == 0 ? Long.MIN_VALUE : pick == 1 ? Long.MAX_VALUE
+                        : pick == 2 ? random.nextLong() : random.nextLong(-20, 20);
+            case DOUBLE: {
+                final double[] edges = { Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        -Double.MIN_VALUE, Double.MAX_VALUE };
+                return pick < edges.length ? edges[pick] : (random.nextInt(-20, 20) + random.nextDouble()) * 1e10;
+            }
+            default:
+                throw new AssertionError(type);
+        }
+    }
+
+    /**
+     * @return the rows in a collection of every storage mode, the record at {@code p} having id {@code p}.
+     */
+    static List<StructCollection> collections(final Object[][] rows, final Arena arena) {
+        return collections(LAYOUT, rows, arena);
+    }
+
+    /**
+     * @return the rows in a collection of every storage mode with the given layout, which has an {@code int} field
+     *         {@code id} and fields named after their types.
+     */
+    private static List<StructCollection> collections(final StructLayout layout, final Object[][] rows,
+            final Arena arena) {
+        final StructArray array = new StructArray(layout, rows.length);
+        final StructColumns columns = new StructColumns(layout, rows.length);
+        for (int id = 0; id < rows.length; ++id) {
+            array.add();
+            columns.add();
+        }
+        final ConcurrentStructArray concurrent = new ConcurrentStructArray(layout, Math.max(1, rows.length));
+        if (rows.length > 0) {
+            concurrent.publish(concurrent.reserve(rows.length), rows.length);
+        }
+        final List<StructCollection> collections = new ArrayList<>(List.of(array, columns, concurrent,
+                OffHeapStructArray.allocate(layout, rows.length, arena)));
+        for (final StructCollection records : collections) {
+            fill(records, rows);
+        }
+        return collections;
+    }
+
+    static void fill(final StructCollection records, final Object[][] rows) {
+        final StructField id = records.layout().field("id");
+        for (int p = 0; p < rows.length; ++p) {
+            records.setInt(p, id, p);
+            for (final StructField field : records.layout().fields()) {
+                if (field != id) {
+                    set(records, p, field, rows[p][field.type().ordinal()]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the collection holds every row once, with all its values.
+     */
+    static void assertRows(final StructCollection records, final Object[][] rows) {
+        assertEquals(rows.length, records.size());
+        final StructField idField = records.layout().field("id");
+        final boolean[] seen = new boolean[rows.length];
+        for (int p = 0; p < rows.length; ++p) {
+            final int id = records.getInt(p, idField);
+            assertFalse(seen[id], () -> "Record " + id + " is repeated");
+            seen[id] = true;
+            for (final StructField field : records.layout().fields()) {
+                if (field != idField) {
+                    assertEquals(rows[id][field.type().ordinal()], get(records, p, field),
+                            () -> field.name() + " of " + id);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return composite keys of the records {@code [from, to)}, in collection order.
+     */
+    static List<List<Object>> keys(final StructCollection records, final int from, final int to,
+            final StructField... keys) {
+        final List<List<Object>> values = new ArrayList<>();
+        for (int p = from; p < to; ++p) {
+            final List<Object> value = new ArrayList<>();
+            for (final StructField key : keys) {
+                value.add(get(records, p, key));
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * @return composite keys of the rows {@code [from, to)}, sorted by {@link Arrays#sort(Object[],
+     *         java.util.Comparator)}.
+     */
+    static List<List<Object>> sortedKeys(final Object[][] rows, final int from, final int to,
+            final StructField... keys) {
+        final Object[][] range = Arrays.copyOfRange(rows, from, to);
+        Arrays.sort(range, (a, b) -> compare(a, b, keys));
+        final List<List<Object>> values = new ArrayList<>();
+        for (final Object[] row : range) {
+            final List<Object> value = new ArrayList<>();
+            for (final StructField key : keys) {
+                value.add(row[key.type().ordinal()]);
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * @return ids of the rows {@code [from, to)} sorted by key with a stable sort, so that equal keys keep id order.
+     */
+    static int[] stableOrder(final Object[][] rows, final int from, final int to, final StructField... keys) {
+        final Integer[] ids = new Integer[to - from];
+        Arrays.setAll(ids, k -> from + k);
+        Arrays.sort(ids, (a, b) -> compare(rows[a], rows[b], keys));
+        return Arrays.stream(ids).mapToInt(Integer::intValue).toArray();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static int compare(final Object[] a, final Object[] b, final StructField... keys) {
+        for (final StructField key : keys) {
+            final int t = key.type().ordinal();
+            final int c = ((Comparable) a[t]).compareTo(b[t]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    static Object get(final StructCollection records, final long index, final StructField field) {
+        switch (field.type()) {
+            case BOOLEAN:
+                return records.getBoolean(index, field);
+            case BYTE:
+                return records.getByte(index, field);
+            case CHAR:
+                return records.getChar(index, field);
+            case SHORT:
+                return records.getShort(index, field);
+            case INT:
+                return records.getInt(index, field);
+            case FLOAT:
+                return records.getFloat(index, field);
+            case LONG:
+                return records.getLong(index, field);
+            case DOUBLE:
+                return records.getDouble(index, field);
+            default:
+                throw new AssertionError(field.type());
+        }
+    }
+
+    static void set(final StructCollection records, final long index, final StructField field,
+            final Object value) {
+        switch (field.type()) {
+            case BOOLEAN:
+                records.setBoolean(index, field, (Boolean) value);
+                break;
+            case BYTE:
+                records.setByte(index, field, (Byte) value);
+                break;
+            case CHAR:
+                records.setChar(index, field, (Character) value);
+                break;
+            case SHORT:
+                records.setShort(index, field, (Short) value);
+                break;
+            case INT:
+                records.setInt(index, field, (Integer) value);
+                break;
+            case FLOAT:
+                records.setFloat(index, field, (Float) value);
+                break;
+            case LONG:
+                records.setLong(index, field, (Long) value);
+                break;
+            case DOUBLE:
+                records.setDouble(index, field, (Double) value);
+                break;
+            default:
+                throw new AssertionError(field.type());
+        }
+    }
+}
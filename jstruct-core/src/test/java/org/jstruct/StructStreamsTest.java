@@ -0,0 +1,202 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+class StructStreamsTest {
+
+    private static final StructLayout LAYOUT = StructLayout.builder("Sample")
+            .addShort("value")
+            .addFloat("weight")
+            .build();
+
+    private static final StructField VALUE = LAYOUT.field("value");
+
+    private static final StructField WEIGHT = LAYOUT.field("weight");
+
+    /**
+     * Sizes around the split alignment, plus sizes large enough for several fork-join tasks.
+     */
+    private static final int[] SIZES = { 0, 1, 63, 64, 65, 127, 128, 129, 1000, 4096, 100_003 };
+
+    @Test
+    void spliteratorSplitsOnAlignedBoundariesIntoExactSizes() {
+        for (final int size : SIZES) {
+            final List<long[]> leaves = new ArrayList<>();
+            split(records(size).spliterator(), leaves);
+            long next = 0;
+            for (final long[] leaf : leaves) {
+                assertEquals(next, leaf[0], "Gap or overlap before " + leaf[0]);
+                assertTrue(leaf[1] > leaf[0] || size == 0);
+                next = leaf[1];
+            }
+            assertEquals(size, next);
+            if (size >= 128) {
+                assertTrue(leaves.size() > 1);
+            }
+        }
+
+        // Split points stay aligned once the spliterator has advanced past one.
+        final Spliterator.OfLong rest = new IndexSpliterator(0, 200);
+        for (int i = 0; i < 70; ++i) {
+            rest.tryAdvance((long index) -> { });
+        }
+        assertEquals(130, rest.estimateSize());
+        final Spliterator.OfLong prefix = rest.trySplit();
+        assertEquals(128 - 70, prefix.estimateSize());
+        assertEquals(200 - 128, rest.estimateSize());
+        assertNull(prefix.trySplit());
+        assertNull(new IndexSpliterator(0, 127).trySplit());
+        assertNull(new IndexSpliterator(65, 190).trySplit());
+        assertEquals(64, new IndexSpliterator(0, 128).trySplit().estimateSize());
+    }
+
+    @Test
+    void streamsKeepIndexOrderWhenParallel() {
+        for (final int size : SIZES) {
+            final StructArray records = records(size);
+            final long[] expected = LongStream.range(0, size).map(StructStreamsTest::value).toArray();
+            assertArrayEquals(expected, StructStreams.longs(records, VALUE).parallel().toArray());
+            assertArrayEquals(expected, records.indices().parallel().map(i -> records.getShort(i, VALUE)).toArray());
+            assertArrayEquals(LongStream.of(expected).asDoubleStream().map(v -> v / 2).toArray(),
+                    StructStreams.doubles(records, WEIGHT).parallel().toArray());
+            assertEquals(size, records.indices().parallel().count());
+        }
+    }
+
+    @Test
+    void parallelForEachVisitsEveryIndexOnce() {
+        for (final int size : SIZES) {
+            final StructArray records = records(size);
+            final AtomicIntegerArray visits = new AtomicIntegerArray(size);
+            final Queue<long[]> ranges = new ConcurrentLinkedQueue<>();
+            StructStreams.parallelForEach(records, (from, to) -> {
+                ranges.add(new long[] { from, to });
+                for (long i = from; i < to; ++i) {
+                    visits.incrementAndGet((int) i);
+                }
+            });
+            for (int i = 0; i < size; ++i) {
+                assertEquals(1, visits.get(i), "Visits of " + i);
+            }
+            for (final long[] range : ranges) {
+                assertTrue(range[0] % IndexSpliterator.ALIGNMENT == 0, "Range starts at " + range[0]);
+                assertTrue(range[1] % IndexSpliterator.ALIGNMENT == 0 || range[1] == size, "Range ends at " + range[1]);
+            }
+        }
+    }
+
+    @Test
+    void parallelReduceCombinesRangesInIndexOrder() {
+        for (final int size : SIZES) {
+            final StructArray records = records(size);
+            // List concatenation is associative but not commutative, so any out-of-order combination shows.
+            final List<Short> values = StructStreams.parallelReduce(records, (from, to) -> {
+                final List<Short> range = new ArrayList<>();
+                for (long i = from; i < to; ++i) {
+                    range.add(records.getShort(i, VALUE));
+                }
+                return range;
+            }, (left, right) -> {
+                final List<Short> both = new ArrayList<>(left);
+                both.addAll(right);
+                return both;
+            });
+            final List<Short> expected = new ArrayList<>();
+            for (long i = 0; i < size; ++i) {
+                expected.add((short) value(i));
+            }
+            assertEquals(expected, values);
+
+            // A polynomial hash, also order sensitive, combines without building lists.
+            final long[] hash = StructStreams.parallelReduce(records, (from, to) -> {
+                long h = 0;
+                long power = 1;
+                for (long i = from; i < to; ++i) {
+                    h = h * 31 + records.getShort(i, VALUE);
+                    power *= 31;
+                }
+                return new long[] { h, power };
+            }, (left, right) -> new long[] { left[0] * right[1] + right[0], left[1] * right[1] });
+            long h = 0;
+            for (long i = 0; i < size; ++i) {
+                h = h * 31 + value(i);
+            }
+            assertEquals(h, hash[0], "Size " + size);
+        }
+    }
+
+    @Test
+    void parallelReduceOfNoRecordsIsTheEmptyRange() {
+        final List<long[]> calls = new ArrayList<>();
+        final String result = StructStreams.parallelReduce(records(0), (from, to) -> {
+            calls.add(new long[] { from, to });
+            return "[" + from + ", " + to + ")";
+        }, String::concat);
+        assertEquals("[0, 0)", result);
+        assertEquals(1, calls.size());
+
+        assertEquals("[0, 1)", StructStreams.parallelReduce(records(1), (from, to) -> "[" + from + ", " + to + ")",
+                String::concat));
+    }
+
+    /**
+     * Splits recursively, prefix first, collecting the ranges that do not split further and checking the sizes.
+     */
+    private static void split(final Spliterator.OfLong spliterator, final List<long[]> leaves) {
+        final long size = spliterator.getExactSizeIfKnown();
+        assertEquals(size, spliterator.estimateSize());
+        final Spliterator.OfLong prefix = spliterator.trySplit();
+        if (prefix == null) {
+            final long[] range = { -1, -1 };
+            spliterator.forEachRemaining((long index) -> {
+                if (range[0] < 0) {
+                    range[0] = index;
+                } else {
+                    assertEquals(range[1], index);
+                }
+                range[1] = index + 1;
+            });
+            if (range[0] < 0) {
+                final long end = leaves.isEmpty() ? 0 : leaves.get(leaves.size() - 1)[1];
+                range[0] = end;
+                range[1] = end;
+            }
+            assertEquals(size, range[1] - range[0]);
+            leaves.add(range);
+            return;
+        }
+        assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+        assertTrue(prefix.estimateSize() > 0 && spliterator.estimateSize() > 0);
+        split(prefix, leaves);
+        final long boundary = leaves.get(leaves.size() - 1)[1];
+        assertEquals(0, boundary % IndexSpliterator.ALIGNMENT, "Split at " + boundary);
+        split(spliterator, leaves);
+    }
+
+    private static StructArray records(final int size) {
+        final StructArray records = new StructArray(LAYOUT, Math.max(1, size));
+        for (long i = 0; i < size; ++i) {
+            records.add();
+            records.setShort(i, VALUE, (short) value(i));
+            records.setFloat(i, WEIGHT, value(i) / 2f);
+        }
+        return records;
+    }
+
+    private static long value(final long index) {
+        return (short) (index * 7919);
+    }
+}
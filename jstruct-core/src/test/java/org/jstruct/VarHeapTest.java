@@ -0,0 +1,132 @@
+package org.jstruct;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class VarHeapTest {
+
+    private static final StructLayout LAYOUT = StructLayout.builder("Trade")
+            .addLong("price")
+            .addLong("version")
+            .addLong("name")
+            .addLong("comment")
+            .build();
+
+    private static final StructField PRICE = LAYOUT.field("price");
+
+    private static final StructField VERSION = LAYOUT.field("version");
+
+    private static final StructField NAME = LAYOUT.field("name");
+
+    private static final StructField COMMENT = LAYOUT.field("comment");
+
+    private static final String[] PIECES = { "a", "bc", "\u00e9", "\u20ac", "\ud834\udd1e", " ", "xyz" };
+
+    @Test
+    void keepsValuesAcrossCopiesSortsAndCompactions() {
+        check(new StructArray(LAYOUT));
+        check(new StructColumns(LAYOUT));
+    }
+
+    @Test
+    void rejectsForeignOrRepeatedFieldsAndDanglingReferences() {
+        final StructArray trades = new StructArray(LAYOUT);
+        trades.add();
+        final VarHeap heap = VarHeap.of(trades, NAME, COMMENT);
+        assertThrows(IllegalArgumentException.class, () -> heap.setString(0, PRICE, "x"));
+        assertThrows(IllegalArgumentException.class, () -> VarHeap.of(trades));
+        assertThrows(IllegalArgumentException.class, () -> VarHeap.of(trades, NAME, COMMENT, NAME));
+        assertThrows(IllegalArgumentException.class, () -> VarHeap.of(trades, 16, COMMENT, COMMENT));
+
+        heap.setString(0, NAME, "abc");
+        trades.setLong(0, COMMENT, (long) 2 << 32 | 5);
+        assertThrows(IllegalStateException.class, () -> heap.getString(0, COMMENT));
+        assertThrows(IllegalStateException.class, heap::compact);
+        assertEquals("abc", heap.getString(0, NAME));
+    }
+
+    /**
+     * Interleaves writes, record copies, sorts and compactions at random, checking every value after each step. Every
+     * write gives the record a new version, and a model maps versions to values; copies and sorts move versions along
+     * with the references, so the model stays valid whatever they do.
+     */
+    private static void check(final StructCollection trades) {
+        final SplittableRandom random = new SplittableRandom(trades.getClass().getName().hashCode());
+        final VarHeap heap = VarHeap.of(trades, NAME, COMMENT);
+        final Map<Long, String[]> versions = new HashMap<>();
+        versions.put(0L, new String[] { "", "" });
+        long nextVersion = 1;
+        for (int step = 0; step < 3000; ++step) {
+            final int op = random.nextInt(20);
+            if (op < 2 || trades.size() == 0) {
+                add(trades);
+            } else if (op < 14) {
+                final long index = random.nextLong(trades.size());
+                final String[] values = versions.get(trades.getLong(index, VERSION)).clone();
+                final int f = random.nextInt(2);
+                values[f] = string(random);
+                heap.setString(index, f == 0 ? NAME : COMMENT, values[f]);
+                trades.setLong(index, PRICE, random.nextLong(-50, 50));
+                trades.setLong(index, VERSION, nextVersion);
+                versions.put(nextVersion++, values);
+            } else if (op < 17) {
+                trades.copy(random.nextLong(trades.size()), random.nextLong(trades.size()));
+            } else if (op < 19) {
+                StructSort.radixSort(trades, PRICE);
+            } else {
+                final int expected = referencedBytes(trades);
+                final int before = heap.size();
+                assertEquals(before - expected, heap.compact());
+                assertEquals(expected, heap.size());
+                assertEquals(0, heap.compact());
+            }
+            for (long i = 0; i < trades.size(); ++i) {
+                final String[] values = versions.get(trades.getLong(i, VERSION));
+                assertEquals(values[0], heap.getString(i, NAME), "Step " + step);
+                assertEquals(values[1], heap.getString(i, COMMENT), "Step " + step);
+                assertEquals(values[1].getBytes(StandardCharsets.UTF_8).length, heap.length(i, COMMENT));
+            }
+        }
+    }
+
+    private static void add(final StructCollection trades) {
+        if (trades instanceof StructArray) {
+            ((StructArray) trades).add();
+        } else {
+            ((StructColumns) trades).add();
+        }
+    }
+
+    private static String string(final SplittableRandom random) {
+        final StringBuilder value = new StringBuilder();
+        for (int n = random.nextInt(6); n > 0; --n) {
+            value.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return bytes of the distinct references held by the records, which is what a compaction keeps.
+     */
+    private static int referencedBytes(final StructCollection trades) {
+        final Set<Long> references = new HashSet<>();
+        for (long i = 0; i < trades.size(); ++i) {
+            references.add(trades.getLong(i, NAME));
+            references.add(trades.getLong(i, COMMENT));
+        }
+        int bytes = 0;
+        for (final long reference : references) {
+            bytes += (int) reference;
+        }
+        return bytes;
+    }
+}
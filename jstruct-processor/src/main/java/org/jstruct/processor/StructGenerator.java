@@ -0,0 +1,395 @@
+package org.jstruct.processor;
+
+import org.jstruct.BitField;
+import org.jstruct.FieldType;
+import org.jstruct.StructField;
+import org.jstruct.StructLayout;
+import org.jstruct.processor.StructModel.Kind;
+import org.jstruct.processor.StructModel.Property;
+
+/**
+ * Writes the source of the class generated for a {@link StructModel}.
+ * <p>
+ * The generated class holds the layout, one {@link StructField} constant per field for the generic APIs, and a
+ * flyweight implementation of the interface whose accessors read at {@code recordOffset + CONSTANT}. Getters of
+ * embedded structs return the embedded struct's own flyweight, bound at the offset of the struct in the record.
+ * Indexed accessors of arrays check the index against the declared length; the generated {@code Unchecked} variants
+ * skip the check for loops that already stay within it. Bit fields are read and written with a constant shift and
+ * mask on their word.
+ */
+final class StructGenerator {
+
+    private static final String CORE = "org.jstruct.";
+
+    private final StructModel model;
+
+    private final StructLayout layout;
+
+    private final StringBuilder out = new StringBuilder();
+
+    StructGenerator(final StructModel model) {
+        this.model = model;
+        this.layout = model.layout();
+    }
+
+    String generate() {
+        if (!model.packageName().isEmpty()) {
+            line("package " + model.packageName() + ";");
+            line("");
+        }
+        line("/**");
+        line(" * Typed accessors for {@link " + model.interfaceName() + "} records.");
+        line(" */");
+        line("@javax.annotation.processing.Generated(\"" + StructProcessor.class.getName() + "\")");
+        line("public final class " + model.className() + " implements " + model.interfaceName() + " {");
+        line("");
+        line("    /**");
+        line("     * Layout of the struct: " + layout + ".");
+        line("     */");
+        line("    public static final " + CORE + "StructLayout LAYOUT = " + CORE + "StructLayout.builder(\""
+                + escape(model.structName()) + "\")");
+        for (final Property property : model.properties()) {
+            switch (property.kind()) {
+                case STRUCT:
+                    line("            .addStruct(\"" + escape(property.name()) + "\", "
+                            + property.struct().qualifiedClassName() + ".LAYOUT)");
+                    break;
+                case ARRAY:
+                case STRING:
+                    line("            .addArray(\"" + escape(property.name()) + "\", " + CORE + "FieldType."
+                            + property.type().name() + ", " + property.length() + ")");
+                    break;
+                default:
+                    if (property.bits() > 0) {
+                        line("            .addBits(\"" + escape(property.name()) + "\", " + property.bits() + ")");
+                    } else {
+                        line("            .add(\"" + escape(property.name()) + "\", " + CORE + "FieldType."
+                                + property.type().name() + ")");
+                    }
+                    break;
+            }
+        }
+        line("            .build();");
+        line("");
+        for (final Property property : model.properties()) {
+            switch (property.kind()) {
+                case STRUCT:
+                    line("    public static final " + CORE + "EmbeddedStruct " + property.constantName()
+                            + "_STRUCT = LAYOUT.embedded(\"" + escape(property.name()) + "\");");
+                    break;
+                case ARRAY:
+                case STRING:
+                    line("    public static final " + CORE + "InlineArray " + property.constantName()
+                            + "_ARRAY = LAYOUT.array(\"" + escape(property.name()) + "\");");
+                    break;
+                default:
+                    if (property.bits() > 0) {
+                        line("    public static final " + CORE + "BitField " + property.constantName()
+                                + "_BITS = LAYOUT.bitField(\"" + escape(property.name()) + "\");");
+                    } else {
+                        line("    public static final " + CORE + "StructField " + property.constantName()
+                                + "_FIELD = LAYOUT.field(\"" + escape(property.name()) + "\");");
+                    }
+                    break;
+            }
+            line("");
+        }
+        for (final Property property : model.properties()) {
+            final int offset;
+            switch (property.kind()) {
+                case STRUCT:
+                    offset = layout.embedded(property.name()).offset();
+                    break;
+                case ARRAY:
+                case STRING:
+                    offset = layout.array(property.name()).offset();
+                    break;
+                default:
+                    offset = property.bits() > 0
+                            ? layout.bitField(property.name()).word().offset()
+                            : layout.field(property.name()).offset();
+                    break;
+            }
+            line("    private static final long " + property.constantName() + "_OFFSET = " + offset + "L;");
+            line("");
+            if (property.bits() > 0) {
+                final BitField bitField = layout.bitField(property.name());
+                line("    private static final int " + property.constantName() + "_SHIFT = " + bitField.shift() + ";");
+                line("");
+                line("    private static final int " + property.constantName() + "_MASK = 0x"
+                        + Integer.toHexString(bitField.mask()) + ";");
+                line("");
+            }
+            if (property.kind() == Kind.ARRAY) {
+                line("    private static final int " + property.constantName() + "_LENGTH = " + property.length()
+                        + ";");
+                line("");
+            }
+        }
+        line("    private " + CORE + "FlatStructCollection records;");
+        line("");
+        line("    private long index = -1;");
+        line("");
+        line("    private long base;");
+        line("");
+        for (final Property property : model.properties()) {
+            if (property.struct() != null) {
+                line("    private final " + property.struct().qualifiedClassName() + " " + embeddedName(property)
+                        + " = new " + property.struct().qualifiedClassName() + "();");
+                line("");
+            }
+        }
+        line("    /**");
+        line("     * Creates an accessor that is not bound to a collection yet.");
+        line("     */");
+        line("    public " + model.className() + "() {");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * @param records collection created with {@link #LAYOUT}.");
+        line("     */");
+        line("    public " + model.className() + "(final " + CORE + "FlatStructCollection records) {");
+        line("        wrap(records);");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * Binds the accessor to a collection and moves it before the first record.");
+        line("     *");
+        line("     * @param records collection created with {@link #LAYOUT}.");
+        line("     * @return this accessor.");
+        line("     */");
+        line("    public " + model.className() + " wrap(final " + CORE + "FlatStructCollection records) {");
+        line("        if (records.layout() != LAYOUT) {");
+        line("            throw new IllegalArgumentException(\"Collection does not hold \" + LAYOUT.name() + \" records\");");
+        line("        }");
+        line("        this.records = records;");
+        line("        this.index = -1;");
+        line("        this.base = 0;");
+        line("        return this;");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * Binds the accessor to a struct stored at a byte offset of a collection, such as a struct embedded in the");
+        line("     * records of another layout. {@link #moveTo(long)} and {@link #next()} only apply to collections of");
+        line("     * {@link #LAYOUT} records.");
+        line("     *");
+        line("     * @param records collection holding the struct.");
+        line("     * @param offset offset of the struct in the memory of the collection.");
+        line("     * @return this accessor.");
+        line("     */");
+        line("    public " + model.className() + " at(final " + CORE + "FlatStructCollection records, final long offset) {");
+        line("        this.records = records;");
+        line("        this.index = -1;");
+        line("        this.base = offset;");
+        line("        return this;");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * @return collection the accessor is bound to.");
+        line("     */");
+        line("    public " + CORE + "FlatStructCollection records() {");
+        line("        return records;");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * @return index of the current record, or {@code -1} if the accessor is before the first record.");
+        line("     */");
+        line("    public long index() {");
+        line("        return index;");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * @param index index of the record to move to.");
+        line("     * @return this accessor.");
+        line("     */");
+        line("    public " + model.className() + " moveTo(final long index) {");
+        line("        this.base = records.recordOffset(index);");
+        line("        this.index = index;");
+        line("        return this;");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * @return {@code false} if there is no next record; the accessor is not moved in that case.");
+        line("     */");
+        line("    public boolean next() {");
+        line("        if (index + 1 >= records.size()) {");
+        line("            return false;");
+        line("        }");
+        line("        base = records.recordOffset(++index);");
+        line("        return true;");
+        line("    }");
+        for (final Property property : model.properties()) {
+            switch (property.kind()) {
+                case STRUCT:
+                    embeddedAccessor(property);
+                    break;
+                case ARRAY:
+                    arrayAccessors(property);
+                    break;
+                case STRING:
+                    stringAccessors(property);
+                    break;
+                default:
+                    if (property.bits() > 0) {
+                        bitAccessors(property);
+                    } else {
+                        fieldAccessors(property);
+                    }
+                    break;
+            }
+        }
+        line("}");
+        return out.toString();
+    }
+
+    private void embeddedAccessor(final Property property) {
+        line("");
+        line("    /**");
+        line("     * @return accessor of the embedded struct of the current record, reused by every call.");
+        line("     */");
+        line("    @Override");
+        line("    public " + property.struct().interfaceName() + " " + property.getter() + "() {");
+        line("        return " + embeddedName(property) + ".at(records, base + " + property.constantName()
+                + "_OFFSET);");
+        line("    }");
+    }
+
+    private void fieldAccessors(final Property property) {
+        final String type = javaType(property.type());
+        final String accessor = accessorName(property.type());
+        line("");
+        line("    @Override");
+        line("    public " + type + " " + property.getter() + "() {");
+        line("        return records.get" + accessor + "At(base + " + property.constantName() + "_OFFSET);");
+        line("    }");
+        if (property.setter() != null) {
+            line("");
+            line("    @Override");
+            line("    public void " + property.setter() + "(final " + type + " value) {");
+            line("        records.set" + accessor + "At(base + " + property.constantName() + "_OFFSET, value);");
+            line("    }");
+        }
+    }
+
+    private void bitAccessors(final Property property) {
+        final String type = javaType(property.type());
+        final String constant = property.constantName();
+        final String bits = "(records.getIntAt(base + " + constant + "_OFFSET) >>> " + constant + "_SHIFT & "
+                + constant + "_MASK)";
+        line("");
+        line("    @Override");
+        line("    public " + type + " " + property.getter() + "() {");
+        if (property.type() == FieldType.BOOLEAN) {
+            line("        return " + bits + " != 0;");
+        } else if (property.type() == FieldType.INT) {
+            line("        return " + bits + ";");
+        } else {
+            line("        return (" + type + ") " + bits + ";");
+        }
+        line("    }");
+        if (property.setter() != null) {
+            line("");
+            line("    @Override");
+            line("    public void " + property.setter() + "(final " + type + " value) {");
+            final String bitsValue;
+            if (property.type() == FieldType.BOOLEAN) {
+                bitsValue = "value ? 1 : 0";
+            } else {
+                bitsValue = "value";
+                if (property.bits() < Integer.SIZE) {
+                    line("        if ((value & ~" + constant + "_MASK) != 0) {");
+                    line("            throw new IllegalArgumentException(\"Value \" + value + \" does not fit bit field "
+                            + escape(property.name()) + " of " + property.bits() + " bits\");");
+                    line("        }");
+                }
+            }
+            line("        final long offset = base + " + constant + "_OFFSET;");
+            line("        final int bits = " + bitsValue + ";");
+            line("        records.setIntAt(offset, records.getIntAt(offset) & ~(" + constant + "_MASK << " + constant
+                    + "_SHIFT) | bits << " + constant + "_SHIFT);");
+            line("    }");
+        }
+    }
+
+    private void arrayAccessors(final Property property) {
+        final String type = javaType(property.type());
+        final String accessor = accessorName(property.type());
+        final String constant = property.constantName();
+        final String element = "base + " + constant + "_OFFSET + (long) index * " + property.type().size();
+        line("");
+        line("    @Override");
+        line("    public " + type + " " + property.getter() + "(final int index) {");
+        line("        java.util.Objects.checkIndex(index, " + constant + "_LENGTH);");
+        line("        return records.get" + accessor + "At(" + element + ");");
+        line("    }");
+        line("");
+        line("    /**");
+        line("     * Same as {@link #" + property.getter() + "(int)}, without checking the index.");
+        line("     *");
+        line("     * @param index index of the element, from {@code 0} to {@code " + (property.length() - 1) + "}.");
+        line("     * @return value of the element.");
+        line("     */");
+        line("    public " + type + " " + property.getter() + "Unchecked(final int index) {");
+        line("        return records.get" + accessor + "At(" + element + ");");
+        line("    }");
+        if (property.setter() != null) {
+            line("");
+            line("    @Override");
+            line("    public void " + property.setter() + "(final int index, final " + type + " value) {");
+            line("        java.util.Objects.checkIndex(index, " + constant + "_LENGTH);");
+            line("        records.set" + accessor + "At(" + element + ", value);");
+            line("    }");
+            line("");
+            line("    /**");
+            line("     * Same as {@link #" + property.setter() + "(int, " + type + ")}, without checking the index.");
+            line("     *");
+            line("     * @param index index of the element, from {@code 0} to {@code " + (property.length() - 1)
+                    + "}.");
+            line("     * @param value value of the element.");
+            line("     */");
+            line("    public void " + property.setter() + "Unchecked(final int index, final " + type + " value) {");
+            line("        records.set" + accessor + "At(" + element + ", value);");
+            line("    }");
+        }
+    }
+
+    private void stringAccessors(final Property property) {
+        // InlineArray adds the offset of the array to the base itself.
+        line("");
+        line("    @Override");
+        line("    public String " + property.getter() + "() {");
+        line("        return " + property.constantName() + "_ARRAY.getStringAt(records, base);");
+        line("    }");
+        if (property.setter() != null) {
+            line("");
+            line("    @Override");
+            line("    public void " + property.setter() + "(final String value) {");
+            line("        " + property.constantName() + "_ARRAY.setStringAt(records, base, value);");
+            line("    }");
+        }
+    }
+
+    private void line(final String line) {
+        out.append(line).append('\n');
+    }
+
+    /**
+     * @return name of the field holding the accessor of an embedded struct; it cannot clash with the other fields.
+     */
+    private static String embeddedName(final Property property) {
+        return "embedded" + Character.toUpperCase(property.name().charAt(0)) + property.name().substring(1);
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String javaType(final FieldType type) {
+        return type.name().toLowerCase();
+    }
+
+    private static String accessorName(final FieldType type) {
+        final String name = type.name();
+        return name.charAt(0) + name.substring(1).toLowerCase();
+    }
+}
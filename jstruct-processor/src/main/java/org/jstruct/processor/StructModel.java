@@ -0,0 +1,266 @@
+package org.jstruct.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jstruct.FieldType;
+import org.jstruct.StructLayout;
+
+/**
+ * Struct described by a {@link org.jstruct.Struct} interface, as collected by {@link StructProcessor}.
+ */
+final class StructModel {
+
+    private final String packageName;
+
+    private final String interfaceName;
+
+    private final String className;
+
+    private final String structName;
+
+    private final List<Property> properties = new ArrayList<>();
+
+    StructModel(final String packageName, final String interfaceName, final String className,
+            final String structName) {
+        this.packageName = packageName;
+        this.interfaceName = interfaceName;
+        this.className = className;
+        this.structName = structName;
+    }
+
+    /**
+     * @return package of the interface, empty for the unnamed package.
+     */
+    String packageName() {
+        return packageName;
+    }
+
+    /**
+     * @return canonical name of the interface.
+     */
+    String interfaceName() {
+        return interfaceName;
+    }
+
+    /**
+     * @return simple name of the generated class.
+     */
+    String className() {
+        return className;
+    }
+
+    /**
+     * @return name of the struct.
+     */
+    String structName() {
+        return structName;
+    }
+
+    /**
+     * @return name of the generated class, qualified unless it is in the unnamed package.
+     */
+    String qualifiedClassName() {
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    /**
+     * @return properties in declaration order.
+     */
+    List<Property> properties() {
+        return Collections.unmodifiableList(properties);
+    }
+
+    void add(final Property property) {
+        properties.add(property);
+    }
+
+    /**
+     * Builds the layout the same way the generated class does, so offsets written into the generated code always
+     * match the runtime layout.
+     *
+     * @return layout of the struct.
+     */
+    StructLayout layout() {
+        final StructLayout.Builder builder = StructLayout.builder(structName);
+        for (final Property property : properties) {
+            switch (property.kind()) {
+                case STRUCT:
+                    builder.addStruct(property.name(), property.struct().layout());
+                    break;
+                case ARRAY:
+                case STRING:
+                    builder.addArray(property.name(), property.type(), property.length());
+                    break;
+                default:
+                    if (property.bits() > 0) {
+                        builder.addBits(property.name(), property.bits());
+                    } else {
+                        builder.add(property.name(), property.type());
+                    }
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * How a property is stored and accessed.
+     */
+    enum Kind {
+
+        /**
+         * Primitive field with plain accessors, stored whole or as a bit field.
+         */
+        FIELD,
+
+        /**
+         * Inline array with indexed accessors.
+         */
+        ARRAY,
+
+        /**
+         * Inline {@code char} array with {@code String} accessors.
+         */
+        STRING,
+
+        /**
+         * Struct embedded inline, with a getter only.
+         */
+        STRUCT
+    }
+
+    /**
+     * Field, array or embedded struct of the struct, backed by a getter and an optional setter.
+     */
+    static final class Property {
+
+        private final String name;
+
+        private final Kind kind;
+
+        private final FieldType type;
+
+        private final StructModel struct;
+
+        private int length;
+
+        private int bits;
+
+        private String getter;
+
+        private String setter;
+
+        Property(final String name, final Kind kind, final FieldType type) {
+            this.name = name;
+            this.kind = kind;
+            this.type = type;
+            this.struct = null;
+        }
+
+        Property(final String name, final StructModel struct) {
+            this.name = name;
+            this.kind = Kind.STRUCT;
+            this.type = null;
+            this.struct = struct;
+        }
+
+        String name() {
+            return name;
+        }
+
+        Kind kind() {
+            return kind;
+        }
+
+        /**
+         * @return type of the field or of the array elements, or {@code null} for an embedded struct.
+         */
+        FieldType type() {
+            return type;
+        }
+
+        /**
+         * @return number of elements of an array or string, {@code 0} until its getter was collected.
+         */
+        int length() {
+            return length;
+        }
+
+        void length(final int length) {
+            this.length = length;
+        }
+
+        /**
+         * @return width of a bit field, or {@code 0} for a field stored whole.
+         */
+        int bits() {
+            return bits;
+        }
+
+        void bits(final int bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * @return model of the embedded struct, or {@code null} for a primitive field.
+         */
+        StructModel struct() {
+            return struct;
+        }
+
+        /**
+         * @return type of the field, array or string, or interface of the embedded struct, for diagnostics.
+         */
+        String typeName() {
+            switch (kind) {
+                case STRUCT:
+                    return struct.interfaceName();
+                case ARRAY:
+                    return type + "[]";
+                case STRING:
+                    return "String";
+                default:
+                    return type.toString();
+            }
+        }
+
+        /**
+         * @return name of the getter, or {@code null} if none was declared yet.
+         */
+        String getter() {
+            return getter;
+        }
+
+        void getter(final String getter) {
+            this.getter = getter;
+        }
+
+        /**
+         * @return name of the setter, or {@code null} if the property is read-only.
+         */
+        String setter() {
+            return setter;
+        }
+
+        void setter(final String setter) {
+            this.setter = setter;
+        }
+
+        /**
+         * @return prefix of the constants generated for the property, e.g. {@code ORDER_ID} for {@code orderId}.
+         */
+        String constantName() {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < name.length(); ++i) {
+                final char c = name.charAt(i);
+                if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(name.charAt(i - 1))) {
+                    sb.append('_');
+                }
+                sb.append(Character.toUpperCase(c));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package org.jstruct.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.jstruct.FieldType;
+import org.jstruct.Struct;
+import org.jstruct.processor.StructModel.Kind;
+import org.jstruct.processor.StructModel.Property;
+
+/**
+ * Generates typed accessors for interfaces annotated with {@link Struct}.
+ * <p>
+ * Mistakes in the interface (methods that are not accessors, unsupported types, setters without getters, arrays
+ * without a length, bit fields too wide for their type) are reported as compilation errors on the offending element.
+ */
+// Generated is claimed too: it marks the generated classes, which no other processor handles.
+@SupportedAnnotationTypes({ "org.jstruct.Struct", "org.jstruct.Struct.Length", "org.jstruct.Struct.Bits",
+        "javax.annotation.processing.Generated" })
+public final class StructProcessor extends AbstractProcessor {
+
+    /**
+     * Models of the interfaces collected so far, {@code null} for invalid ones, so that an interface embedded in
+     * several structs is collected and reported once.
+     */
+    private final Map<TypeElement, StructModel> models = new HashMap<>();
+
+    /**
+     * Interfaces being collected, to detect structs that embed themselves.
+     */
+    private final Set<TypeElement> collecting = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final Element element : roundEnv.getElementsAnnotatedWith(Struct.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@Struct can only be applied to interfaces");
+                continue;
+            }
+            final StructModel model = model((TypeElement) element);
+            if (model != null) {
+                write(model, element);
+            }
+        }
+        return true;
+    }
+
+    private StructModel model(final TypeElement type) {
+        if (!models.containsKey(type)) {
+            collecting.add(type);
+            models.put(type, collect(type));
+            collecting.remove(type);
+        }
+        return models.get(type);
+    }
+
+    private StructModel collect(final TypeElement type) {
+        boolean valid = true;
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "@Struct interfaces should not be generic");
+            valid = false;
+        }
+        if (!type.getInterfaces().isEmpty()) {
+            error(type, "@Struct interfaces should not extend other interfaces");
+            valid = false;
+        }
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "@Struct interfaces should be top-level or member types");
+            valid = false;
+        }
+
+        final Map<String, Property> properties = new LinkedHashMap<>();
+        for (final ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            valid &= collect(method, properties);
+        }
+        final Set<String> constants = new HashSet<>();
+        for (final Property property : properties.values()) {
+            if (property.getter() == null) {
+                error(type, "Field " + property.name() + " has a setter but no getter");
+                valid = false;
+            }
+            if (!constants.add(property.constantName())) {
+                error(type, "Fields clash on generated constant " + property.constantName());
+                valid = false;
+            }
+        }
+        if (properties.isEmpty()) {
+            error(type, "@Struct interface should declare at least one getter");
+            valid = false;
+        }
+        if (!valid) {
+            return null;
+        }
+
+        final String structName = type.getAnnotation(Struct.class).name();
+        final StructModel model = new StructModel(
+                processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString(),
+                type.getQualifiedName().toString(), generatedName(type),
+                structName.isEmpty() ? type.getSimpleName().toString() : structName);
+        properties.values().forEach(model::add);
+        return model;
+    }
+
+    private boolean collect(final ExecutableElement method, final Map<String, Property> properties) {
+        final String name = method.getSimpleName().toString();
+        final boolean returnsVoid = method.getReturnType().getKind() == TypeKind.VOID;
+        final int parameters = method.getParameters().size();
+        final boolean indexed = parameters > 0 && method.getParameters().get(0).asType().getKind() == TypeKind.INT;
+        final String property;
+        final TypeMirror type;
+        final boolean getter;
+        if ((parameters == 0 || parameters == 1 && indexed) && !returnsVoid && name.startsWith("get")
+                && name.length() > 3) {
+            property = decapitalize(name.substring(3));
+            type = method.getReturnType();
+            getter = true;
+        } else if (parameters == 0 && method.getReturnType().getKind() == TypeKind.BOOLEAN && name.startsWith("is")
+                && name.length() > 2) {
+            property = decapitalize(name.substring(2));
+            type = method.getReturnType();
+            getter = true;
+        } else if ((parameters == 1 || parameters == 2 && indexed) && returnsVoid && name.startsWith("set")
+                && name.length() > 3) {
+            property = decapitalize(name.substring(3));
+            type = method.getParameters().get(parameters - 1).asType();
+            getter = false;
+        } else {
+            error(method, "Method " + name + " is neither a getter nor a setter");
+            return false;
+        }
+        final boolean element = getter ? parameters == 1 : parameters == 2;
+
+        FieldType fieldType = fieldType(type);
+        final TypeElement structType = fieldType == null && !element ? structType(type) : null;
+        final Kind kind;
+        if (element) {
+            kind = Kind.ARRAY;
+        } else if (fieldType == null && isString(type)) {
+            kind = Kind.STRING;
+            fieldType = FieldType.CHAR;
+        } else {
+            kind = structType != null ? Kind.STRUCT : Kind.FIELD;
+        }
+        if (fieldType == null && structType == null) {
+            error(method, "Type " + type + " of field " + property + " is not supported");
+            return false;
+        }
+        if (structType != null && !getter) {
+            error(method, "Embedded struct " + property + " cannot have a setter; set its fields through the getter");
+            return false;
+        }
+        if (structType != null && collecting.contains(structType)) {
+            error(method, "Struct " + structType.getQualifiedName() + " embeds itself through field " + property);
+            return false;
+        }
+        final StructModel struct = structType != null ? model(structType) : null;
+        if (structType != null && struct == null) {
+            error(method, "Embedded struct " + structType.getQualifiedName() + " of field " + property
+                    + " is not valid");
+            return false;
+        }
+        final Struct.Length length = method.getAnnotation(Struct.Length.class);
+        final boolean sized = kind == Kind.ARRAY || kind == Kind.STRING;
+        if (length != null && !(getter && sized)) {
+            error(method, "@Struct.Length only applies to getters of arrays and strings");
+            return false;
+        }
+        if (getter && sized && length == null) {
+            error(method, "Field " + property + " needs its length declared with @Struct.Length");
+            return false;
+        }
+        if (length != null && length.value() <= 0) {
+            error(method, "Length of field " + property + " should be positive: " + length.value());
+            return false;
+        }
+        final Struct.Bits bits = method.getAnnotation(Struct.Bits.class);
+        if (bits != null && !(getter && kind == Kind.FIELD && maxBits(fieldType) > 0)) {
+            error(method, "@Struct.Bits only applies to getters of boolean, byte, short, char or int fields");
+            return false;
+        }
+        if (bits != null && (bits.value() < 1 || bits.value() > maxBits(fieldType))) {
+            error(method, "Width of bit field " + property + " of type " + fieldType + " should be in [1, "
+                    + maxBits(fieldType) + "]: " + bits.value());
+            return false;
+        }
+        Property existing = properties.get(property);
+        if (existing == null) {
+            existing = struct != null ? new Property(property, struct) : new Property(property, kind, fieldType);
+            properties.put(property, existing);
+        } else if (existing.kind() != kind || existing.type() != fieldType || existing.struct() != struct) {
+            final Property other = struct != null ? new Property(property, struct)
+                    : new Property(property, kind, fieldType);
+            error(method, "Field " + property + " is declared both as " + existing.typeName() + " and "
+                    + other.typeName());
+            return false;
+        }
+        if (getter ? existing.getter() != null : existing.setter() != null) {
+            error(method, "Field " + property + " already has a " + (getter ? "getter" : "setter"));
+            return false;
+        }
+        if (getter) {
+            existing.getter(name);
+            if (length != null) {
+                existing.length(length.value());
+            }
+            if (bits != null) {
+                existing.bits(bits.value());
+            }
+        } else {
+            existing.setter(name);
+        }
+        return true;
+    }
+
+    private static FieldType fieldType(final TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return FieldType.BOOLEAN;
+            case BYTE:
+                return FieldType.BYTE;
+            case CHAR:
+                return FieldType.CHAR;
+            case SHORT:
+                return FieldType.SHORT;
+            case INT:
+                return FieldType.INT;
+            case FLOAT:
+                return FieldType.FLOAT;
+            case LONG:
+                return FieldType.LONG;
+            case DOUBLE:
+                return FieldType.DOUBLE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return largest width of a bit field of the type whose values all fit the type, {@code 0} if it has none.
+     */
+    private static int maxBits(final FieldType type) {
+        switch (type) {
+            case BOOLEAN:
+                return 1;
+            case BYTE:
+                return Byte.SIZE - 1;
+            case SHORT:
+                return Short.SIZE - 1;
+            case CHAR:
+                return Character.SIZE;
+            case INT:
+                return Integer.SIZE;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isString(final TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+    }
+
+    /**
+     * @return the interface if the type is a {@link Struct} interface, to be embedded inline, otherwise {@code null}.
+     */
+    private static TypeElement structType(final TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final Element element = ((DeclaredType) type).asElement();
+        return element.getKind() == ElementKind.INTERFACE && element.getAnnotation(Struct.class) != null
+                ? (TypeElement) element : null;
+    }
+
+    private static String decapitalize(final String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(0)) && Character.isUpperCase(name.charAt(1))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * @return {@code OrderStruct} for {@code Order}, {@code Book_OrderStruct} for a member type {@code Book.Order}.
+     */
+    private static String generatedName(final TypeElement type) {
+        final StringBuilder sb = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing.getKind() != ElementKind.PACKAGE) {
+            sb.insert(0, '_').insert(0, enclosing.getSimpleName());
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return sb.append("Struct").toString();
+    }
+
+    private void write(final StructModel model, final Element origin) {
+        final String name = model.packageName().isEmpty()
+                ? model.className()
+                : model.packageName() + "." + model.className();
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(name, origin);
+            try (Writer writer = file.openWriter()) {
+                writer.write(new StructGenerator(model).generate());
+            }
+        } catch (final IOException e) {
+            error(origin, "Cannot write " + name + ": " + e.getMessage());
+        }
+    }
+
+    private void error(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
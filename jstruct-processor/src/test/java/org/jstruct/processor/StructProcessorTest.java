@@ -0,0 +1,323 @@
+package org.jstruct.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.jstruct.FlatStructCollection;
+import org.jstruct.StructArray;
+import org.jstruct.StructLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compiles sample {@code @Struct} interfaces with the processor and checks the generated accessors and the
+ * diagnostics of invalid interfaces.
+ */
+class StructProcessorTest {
+
+    private static final List<String> OPTIONS = List.of("-Xlint:all");
+
+    @TempDir
+    Path out;
+
+    @Test
+    void generatesAccessorsOfPlainFields() throws Exception {
+        final Compilation compilation = compile("demo.Trade", """
+                package demo;
+
+                @org.jstruct.Struct
+                public interface Trade {
+                    long getId();
+                    void setId(long id);
+                    double getPrice();
+                    void setPrice(double price);
+                    int getQuantity();
+                    void setQuantity(int quantity);
+                    boolean isBuy();
+                    void setBuy(boolean buy);
+                }
+                """);
+        assertEquals(List.of(), compilation.errors());
+        assertEquals(List.of(), compilation.warnings());
+
+        try (URLClassLoader loader = compilation.loader()) {
+            final Class<?> generated = loader.loadClass("demo.TradeStruct");
+            final StructLayout layout = (StructLayout) generated.getField("LAYOUT").get(null);
+            assertEquals("Trade{long id@0, double price@8, int quantity@16, boolean buy@20}[24]", layout.toString());
+
+            final StructArray trades = new StructArray(layout);
+            final Object trade = generated.getConstructor(FlatStructCollection.class).newInstance(trades);
+            for (int i = 0; i < 3; ++i) {
+                invoke(trade, "moveTo", trades.add());
+                invoke(trade, "setId", (long) i);
+                invoke(trade, "setPrice", 10.5 * i);
+                invoke(trade, "setQuantity", 100 + i);
+                invoke(trade, "setBuy", i % 2 == 0);
+            }
+            for (int i = 0; i < 3; ++i) {
+                invoke(trade, "moveTo", (long) i);
+                assertEquals((long) i, invoke(trade, "getId"));
+                assertEquals(10.5 * i, invoke(trade, "getPrice"));
+                assertEquals(100 + i, invoke(trade, "getQuantity"));
+                assertEquals(i % 2 == 0, invoke(trade, "isBuy"));
+                assertEquals(100 + i, trades.getInt(i, layout.field("quantity")));
+            }
+        }
+    }
+
+    @Test
+    void generatesAccessorsOfArraysStringsAndBitFields() throws Exception {
+        final Compilation compilation = compile("demo.Quote", """
+                package demo;
+
+                import org.jstruct.Struct;
+
+                @Struct
+                public interface Quote {
+                    @Struct.Length(4)
+                    String getSymbol();
+                    void setSymbol(String symbol);
+                    @Struct.Length(3)
+                    long getLevel(int index);
+                    void setLevel(int index, long level);
+                    @Struct.Bits(1)
+                    boolean isUrgent();
+                    void setUrgent(boolean urgent);
+                    @Struct.Bits(3)
+                    byte getVenue();
+                    void setVenue(byte venue);
+                }
+                """);
+        assertEquals(List.of(), compilation.errors());
+        assertEquals(List.of(), compilation.warnings());
+
+        try (URLClassLoader loader = compilation.loader()) {
+            final Class<?> generated = loader.loadClass("demo.QuoteStruct");
+            final StructLayout layout = (StructLayout) generated.getField("LAYOUT").get(null);
+            final StructArray quotes = new StructArray(layout);
+            final Object quote = generated.getConstructor(FlatStructCollection.class).newInstance(quotes);
+            invoke(quote, "moveTo", quotes.add());
+            invoke(quote, "setSymbol", "ABC");
+            invoke(quote, "setLevel", 2, 42L);
+            invoke(quote, "setUrgent", true);
+            invoke(quote, "setVenue", (byte) 5);
+            assertEquals("ABC", invoke(quote, "getSymbol"));
+            assertEquals(42L, invoke(quote, "getLevel", 2));
+            assertEquals(0L, invoke(quote, "getLevel", 0));
+            assertEquals(true, invoke(quote, "isUrgent"));
+            assertEquals((byte) 5, invoke(quote, "getVenue"));
+            assertEquals(5, layout.bitField("venue").get(quotes, 0));
+
+            assertThrows(IndexOutOfBoundsException.class, () -> invoke(quote, "getLevel", 3));
+            assertThrows(IllegalArgumentException.class, () -> invoke(quote, "setSymbol", "ABCDE"));
+            assertThrows(IllegalArgumentException.class, () -> invoke(quote, "setVenue", (byte) 8));
+        }
+    }
+
+    @Test
+    void reportsMethodsThatAreNotAccessors() throws IOException {
+        final Compilation compilation = compile("demo.Bad", """
+                package demo;
+
+                @org.jstruct.Struct
+                public interface Bad {
+                    long getId();
+                    void reset();
+                    Object getOwner();
+                    long size(int from, int to);
+                }
+                """);
+        assertEquals(List.of(
+                "Method reset is neither a getter nor a setter",
+                "Type java.lang.Object of field owner is not supported",
+                "Method size is neither a getter nor a setter"), compilation.errors());
+    }
+
+    @Test
+    void reportsSetterWithoutGetter() throws IOException {
+        final Compilation compilation = compile("demo.Bad", """
+                package demo;
+
+                @org.jstruct.Struct
+                public interface Bad {
+                    long getId();
+                    void setCount(int count);
+                }
+                """);
+        assertEquals(List.of("Field count has a setter but no getter"), compilation.errors());
+    }
+
+    @Test
+    void reportsStructOnClass() throws IOException {
+        final Compilation compilation = compile("demo.Bad", """
+                package demo;
+
+                @org.jstruct.Struct
+                public class Bad {
+                }
+                """);
+        assertEquals(List.of("@Struct can only be applied to interfaces"), compilation.errors());
+    }
+
+    @Test
+    void reportsMisusedLength() throws IOException {
+        final Compilation compilation = compile("demo.Bad", """
+                package demo;
+
+                import org.jstruct.Struct;
+
+                @Struct
+                public interface Bad {
+                    String getName();
+                    @Struct.Length(4)
+                    int getCount();
+                    @Struct.Length(0)
+                    long getLevel(int index);
+                    @Struct.Length(2)
+                    short getTag(int index);
+                    @Struct.Length(2)
+                    void setTag(int index, short tag);
+                }
+                """);
+        assertEquals(List.of(
+                "Field name needs its length declared with @Struct.Length",
+                "@Struct.Length only applies to getters of arrays and strings",
+                "Length of field level should be positive: 0",
+                "@Struct.Length only applies to getters of arrays and strings"), compilation.errors());
+    }
+
+    @Test
+    void reportsMisusedBits() throws IOException {
+        final Compilation compilation = compile("demo.Bad", """
+                package demo;
+
+                import org.jstruct.Struct;
+
+                @Struct
+                public interface Bad {
+                    @Struct.Bits(3)
+                    long getId();
+                    @Struct.Bits(8)
+                    byte getSide();
+                    @Struct.Bits(2)
+                    boolean isUrgent();
+                    @Struct.Bits(33)
+                    int getCount();
+                    @Struct.Bits(0)
+                    char getCode();
+                    int getFlags();
+                    @Struct.Bits(2)
+                    void setFlags(int flags);
+                }
+                """);
+        assertEquals(List.of(
+                "@Struct.Bits only applies to getters of boolean, byte, short, char or int fields",
+                "Width of bit field side of type byte should be in [1, 7]: 8",
+                "Width of bit field urgent of type boolean should be in [1, 1]: 2",
+                "Width of bit field count of type int should be in [1, 32]: 33",
+                "Width of bit field code of type char should be in [1, 16]: 0",
+                "@Struct.Bits only applies to getters of boolean, byte, short, char or int fields"),
+                compilation.errors());
+    }
+
+    @Test
+    void generatedClassIsNotWrittenForInvalidInterface() throws IOException {
+        final Compilation compilation = compile("demo.Bad", """
+                package demo;
+
+                @org.jstruct.Struct
+                public interface Bad {
+                    void reset();
+                }
+                """);
+        assertFalse(compilation.errors().isEmpty());
+        assertFalse(out.resolve("demo/BadStruct.java").toFile().exists());
+    }
+
+    private Compilation compile(final String name, final String source) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final List<String> options = new ArrayList<>(OPTIONS);
+        options.addAll(List.of("-classpath", System.getProperty("java.class.path"), "-d", out.toString(),
+                "-s", out.toString(), "-processor", StructProcessor.class.getName()));
+        final JavaFileObject file = new SimpleJavaFileObject(
+                Path.of(name.replace('.', '/') + ".java").toUri(), JavaFileObject.Kind.SOURCE) {
+
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        final boolean success = compiler.getTask(null, null, diagnostics, options, null, List.of(file)).call();
+        final Compilation compilation = new Compilation(diagnostics.getDiagnostics());
+        assertEquals(compilation.errors().isEmpty(), success);
+        return compilation;
+    }
+
+    private static Object invoke(final Object target, final String name, final Object... args) throws Exception {
+        for (final Method method : target.getClass().getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+                try {
+                    return method.invoke(target, args);
+                } catch (final InvocationTargetException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private final class Compilation {
+
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        Compilation(final List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+            this.diagnostics = diagnostics;
+        }
+
+        List<String> errors() {
+            return messages(Diagnostic.Kind.ERROR);
+        }
+
+        List<String> warnings() {
+            final List<String> warnings = messages(Diagnostic.Kind.WARNING);
+            warnings.addAll(messages(Diagnostic.Kind.MANDATORY_WARNING));
+            return warnings;
+        }
+
+        private List<String> messages(final Diagnostic.Kind kind) {
+            return diagnostics.stream()
+                    .filter(d -> d.getKind() == kind)
+                    .map(d -> d.getMessage(Locale.ROOT))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        URLClassLoader loader() throws IOException {
+            assertTrue(errors().isEmpty());
+            return new URLClassLoader(new URL[] { out.toUri().toURL() }, StructProcessorTest.class.getClassLoader());
+        }
+    }
+}